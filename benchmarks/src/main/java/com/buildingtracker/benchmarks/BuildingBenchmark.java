@@ -0,0 +1,82 @@
+package com.buildingtracker.benchmarks;
+
+import com.buildingtracker.model.Building;
+import com.buildingtracker.model.BuildingSnapshot;
+import com.buildingtracker.model.PriceTrend;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-building hot paths: price updates, trend calculation and snapshot reads, at several history depths.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuildingBenchmark {
+
+    @Param({"0", "1000", "100000"})
+    public int historyDepth;
+
+    private Building building;
+    private SplittableRandom random;
+    private double price;
+    private long timestamp;
+
+    // Rebuilt each iteration so that history growth during one iteration does not carry into the next
+    @Setup(Level.Iteration)
+    public void setUp() {
+        building = SyntheticPortfolio.create(1, historyDepth, 42L).get(0);
+        random = new SplittableRandom(7L);
+        price = building.getCurrentPrice() > 0 ? building.getCurrentPrice() : 100_000.0;
+        timestamp = SyntheticPortfolio.START_TIMESTAMP + historyDepth * SyntheticPortfolio.TICK_MILLIS;
+    }
+
+    /**
+     * Full single update: history append, trend window and snapshot publication.
+     */
+    @Benchmark
+    public BuildingSnapshot updatePrice() {
+        price = SyntheticPortfolio.nextPrice(random, price);
+        timestamp += SyntheticPortfolio.TICK_MILLIS;
+        building.updatePrice(price, timestamp);
+        return building.snapshot();
+    }
+
+    /**
+     * History append without trend refresh, as used by batched ingestion.
+     */
+    @Benchmark
+    public double recordPrice() {
+        price = SyntheticPortfolio.nextPrice(random, price);
+        timestamp += SyntheticPortfolio.TICK_MILLIS;
+        building.recordPrice(price, timestamp);
+        return building.getCurrentPrice();
+    }
+
+    @Benchmark
+    public PriceTrend calculateTrend() {
+        building.updateTrend();
+        return building.getRecentTrend();
+    }
+
+    @Benchmark
+    public BuildingSnapshot readSnapshot() {
+        return building.snapshot();
+    }
+}
@@ -0,0 +1,108 @@
+package com.buildingtracker.benchmarks;
+
+import com.buildingtracker.model.Building;
+import com.buildingtracker.service.BatchResult;
+import com.buildingtracker.service.BuildingService;
+import com.buildingtracker.service.PriceUpdate;
+import com.buildingtracker.service.ServiceEventListener;
+import com.buildingtracker.storage.InMemoryBuildingStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service-level lookups and ingestion over portfolios of 1k, 100k and 1M buildings, backed by in-memory storage
+ * so that the numbers cover indexing, locking and model updates rather than disk I/O.
+ *
+ * <p>Batched results are reported per price update, so they compare directly with {@link #recordPriceChange()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BuildingServiceBenchmark {
+    private static final int BATCH_SIZE = 1_000;
+
+    @Param({"1000", "100000", "1000000"})
+    public int buildings;
+
+    @Param({"10", "100"})
+    public int historyDepth;
+
+    private BuildingService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new BuildingService(new InMemoryBuildingStorage());
+        service.setEventListener(ServiceEventListener.NONE);
+        for (Building building : SyntheticPortfolio.create(buildings, historyDepth, 42L)) {
+            service.addBuilding(building);
+        }
+    }
+
+    /**
+     * Per-thread source of building names and prices.
+     */
+    @State(Scope.Thread)
+    public static class Feed {
+        private SplittableRandom random;
+        private long timestamp;
+        private List<PriceUpdate> batch;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+            timestamp = System.currentTimeMillis();
+            batch = new ArrayList<>(BATCH_SIZE);
+        }
+
+        String nextName(int buildings) {
+            return SyntheticPortfolio.name(random.nextInt(buildings));
+        }
+
+        double nextPrice() {
+            return 50_000.0 + random.nextDouble() * 100_000.0;
+        }
+
+        List<PriceUpdate> nextBatch(int buildings) {
+            batch.clear();
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                batch.add(new PriceUpdate(nextName(buildings), nextPrice(), ++timestamp));
+            }
+            return batch;
+        }
+    }
+
+    @Benchmark
+    public Building getBuilding(Feed feed) {
+        return service.getBuilding(feed.nextName(buildings));
+    }
+
+    @Benchmark
+    public void recordPriceChange(Feed feed) {
+        service.recordPriceChange(feed.nextName(buildings), feed.nextPrice());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public BatchResult recordPriceChangesBatch(Feed feed) {
+        return service.recordPriceChanges(feed.nextBatch(buildings));
+    }
+}
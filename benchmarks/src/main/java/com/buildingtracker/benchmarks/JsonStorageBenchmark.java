@@ -0,0 +1,104 @@
+package com.buildingtracker.benchmarks;
+
+import com.buildingtracker.model.Building;
+import com.buildingtracker.storage.JsonBuildingStorage;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Whole-file load and save through {@link JsonBuildingStorage}, in both the string and the streaming mode.
+ *
+ * <p>Each benchmark also reports the size of the file it worked on as the {@code fileBytes} secondary result, so
+ * times can be compared by file size. The 1M building portfolio is left out of the defaults because its file runs
+ * to gigabytes; add it with {@code -p buildings=1000000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class JsonStorageBenchmark {
+
+    @Param({"1000", "100000"})
+    public int buildings;
+
+    @Param({"10", "100"})
+    public int historyDepth;
+
+    @Param({"false", "true"})
+    public boolean streaming;
+
+    private Path directory;
+    private List<Building> portfolio;
+    private JsonBuildingStorage loadStorage;
+    private JsonBuildingStorage saveStorage;
+    private long fileBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("tracker-bench");
+        portfolio = SyntheticPortfolio.create(buildings, historyDepth, 42L);
+
+        loadStorage = new JsonBuildingStorage(directory.resolve("load.json").toString(), streaming);
+        loadStorage.saveBuildings(portfolio);
+        fileBytes = Files.size(directory.resolve("load.json"));
+
+        saveStorage = new JsonBuildingStorage(directory.resolve("save.json").toString(), streaming);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Secondary result carrying the file size of the trial.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class FileSize {
+        public long fileBytes;
+    }
+
+    @Benchmark
+    public List<Building> loadBuildings(FileSize size) {
+        size.fileBytes = fileBytes;
+        return loadStorage.loadBuildings();
+    }
+
+    @Benchmark
+    public void saveBuildings(FileSize size) {
+        size.fileBytes = fileBytes;
+        saveStorage.saveBuildings(portfolio);
+    }
+}
@@ -0,0 +1,192 @@
+package com.buildingtracker.benchmarks;
+
+import com.buildingtracker.metrics.HistogramSnapshot;
+import com.buildingtracker.metrics.LatencyHistogram;
+import com.buildingtracker.metrics.MetricsRegistry;
+import com.buildingtracker.model.Building;
+import com.buildingtracker.server.PriceApiServer;
+import com.buildingtracker.service.BuildingService;
+import com.buildingtracker.service.ServiceEventListener;
+import com.buildingtracker.storage.InMemoryBuildingStorage;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test for {@link PriceApiServer} over localhost.
+ *
+ * <p>Starts a server on a free loopback port with synthetic buildings, then lets client threads send a mix of
+ * building lookups, history pages, trend reads and batched price posts for a fixed time. Clients remember the
+ * last ETag of each building and revalidate with it, as a caching client would, so the 304 share shows how well
+ * conditional requests work while prices keep changing.
+ *
+ * <p>Usage: {@code java -cp target/benchmarks.jar com.buildingtracker.benchmarks.PriceApiLoadTest [clients] [seconds]
+ * [buildings]}. Exits with status 1 if any request failed.
+ */
+public class PriceApiLoadTest {
+    private static final int POST_BATCH_SIZE = 20;
+
+    private enum Operation {
+        BUILDING, HISTORY, TREND, POST
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int buildingCount = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        // Before the JDK server classes load; see PriceApiServer. An explicit setting wins.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
+        BuildingService service = new BuildingService(new InMemoryBuildingStorage());
+        // No console output, so the test measures the server, not the terminal
+        service.setEventListener(ServiceEventListener.NONE);
+        List<String> names = new ArrayList<>(buildingCount);
+        for (int i = 0; i < buildingCount; i++) {
+            String name = "Load Building " + i;
+            names.add(name);
+            Building building = new Building(name, i + " Load Street", 1000.0);
+            service.addBuilding(building);
+            for (int t = 0; t < 50; t++) {
+                service.recordPriceChange(name, 1000.0 + ThreadLocalRandom.current().nextInt(-50, 50));
+            }
+        }
+
+        AtomicLong failures = new AtomicLong();
+        try (PriceApiServer server = new PriceApiServer(service, 0)) {
+            server.start();
+            String base = "http://localhost:" + server.getPort();
+            System.out.println("Load testing " + base + " with " + clients + " clients for " + seconds + " s, "
+                    + buildingCount + " buildings, " + (server.usesVirtualThreads() ? "virtual threads"
+                    : "platform thread pool") + ".");
+            HttpClient http = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+
+            MetricsRegistry results = new MetricsRegistry();
+            LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+            for (Operation operation : Operation.values()) {
+                latencies[operation.ordinal()] = results.histogram("load." + operation);
+            }
+            AtomicLong notModified = new AtomicLong();
+            long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+            CountDownLatch done = new CountDownLatch(clients);
+
+            for (int c = 0; c < clients; c++) {
+                Thread client = new Thread(() -> {
+                    Map<String, String> etags = new HashMap<>();
+                    try {
+                        while (System.nanoTime() < deadline) {
+                            Operation operation = pick();
+                            long start = System.nanoTime();
+                            int status;
+                            try {
+                                status = send(http, base, names, operation, etags);
+                            } catch (IOException e) {
+                                failures.incrementAndGet();
+                                System.err.println(operation + " request failed: " + e);
+                                continue;
+                            }
+                            latencies[operation.ordinal()].recordSince(start);
+                            if (status == 304) {
+                                notModified.incrementAndGet();
+                            } else if (status != 200) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }, "load-client-" + c);
+                client.start();
+            }
+            done.await();
+
+            long total = 0;
+            System.out.println("operation   requests     mean us      p50 us      p99 us      max us");
+            for (Operation operation : Operation.values()) {
+                HistogramSnapshot snapshot = latencies[operation.ordinal()].snapshot();
+                total += snapshot.getCount();
+                System.out.printf("%-9s %10d %11.1f %11.1f %11.1f %11.1f%n", operation, snapshot.getCount(),
+                        snapshot.getMean() / 1000.0, snapshot.getValueAtPercentile(50) / 1000.0,
+                        snapshot.getValueAtPercentile(99) / 1000.0, snapshot.getMax() / 1000.0);
+            }
+            System.out.printf("%d requests, %.0f/s, %d not modified, %d failed%n", total, (double) total / seconds,
+                    notModified.get(), failures.get());
+        }
+        if (failures.get() > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Pick an operation: mostly lookups, as for a dashboard polling prices, with some writes mixed in.
+     */
+    private static Operation pick() {
+        int roll = ThreadLocalRandom.current().nextInt(100);
+        if (roll < 60) {
+            return Operation.BUILDING;
+        }
+        if (roll < 75) {
+            return Operation.HISTORY;
+        }
+        if (roll < 90) {
+            return Operation.TREND;
+        }
+        return Operation.POST;
+    }
+
+    private static int send(HttpClient http, String base, List<String> names, Operation operation,
+                            Map<String, String> etags) throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (operation == Operation.POST) {
+            StringBuilder body = new StringBuilder("[");
+            for (int i = 0; i < POST_BATCH_SIZE; i++) {
+                if (i > 0) {
+                    body.append(',');
+                }
+                body.append("{\"building\":\"").append(names.get(random.nextInt(names.size())))
+                        .append("\",\"price\":").append(950 + random.nextInt(100)).append('}');
+            }
+            HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/prices"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.append(']').toString()))
+                    .build();
+            return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        }
+
+        String name = names.get(random.nextInt(names.size()));
+        String resource = "/buildings/" + URLEncoder.encode(name, StandardCharsets.UTF_8).replace("+", "%20");
+        if (operation == Operation.HISTORY) {
+            resource += "/history?offset=" + random.nextInt(40) + "&limit=10";
+        } else if (operation == Operation.TREND) {
+            resource += "/trend";
+        }
+        String path = resource;
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + path)).GET();
+        String etag = etags.get(path);
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+        HttpResponse<byte[]> response = http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        response.headers().firstValue("ETag").ifPresent(tag -> etags.put(path, tag));
+        return response.statusCode();
+    }
+}
@@ -0,0 +1,91 @@
+package com.buildingtracker.benchmarks;
+
+import com.buildingtracker.model.PriceHistory;
+import com.buildingtracker.model.PriceSeries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Footprint of one building's price history held as {@code List<PriceHistory>}, as a columnar
+ * {@link PriceSeries}, and as a series moved entirely into the compressed cold tier.
+ *
+ * <p>Each operation builds one history of {@code ticks} entries. The GC profiler's {@code gc.alloc.rate.norm} is
+ * the allocation needed to build it, growth garbage included; at the end of each trial the heap retained by the
+ * last history is measured with JOL and printed as bytes per entry.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PriceSeriesMemoryBenchmark {
+
+    @Param({"1000", "100000"})
+    public int ticks;
+
+    private Object last;
+
+    @Benchmark
+    public List<PriceHistory> objectList() {
+        List<PriceHistory> history = new ArrayList<>();
+        for (int t = 0; t < ticks; t++) {
+            history.add(new PriceHistory(price(t), timestamp(t), 0.1));
+        }
+        last = history;
+        return history;
+    }
+
+    @Benchmark
+    public PriceSeries columnar() {
+        PriceSeries series = fill();
+        last = series;
+        return series;
+    }
+
+    @Benchmark
+    public PriceSeries archived() {
+        PriceSeries series = fill();
+        series.archiveBefore(Long.MAX_VALUE);
+        last = series;
+        return series;
+    }
+
+    @TearDown(Level.Trial)
+    public void reportRetained() {
+        long bytes = GraphLayout.parseInstance(last).totalSize();
+        System.out.printf("%nRetained by one %s of %,d entries: %,d bytes, %.2f bytes/entry%n",
+                last.getClass().getSimpleName(), ticks, bytes, (double) bytes / ticks);
+    }
+
+    private PriceSeries fill() {
+        PriceSeries series = new PriceSeries();
+        for (int t = 0; t < ticks; t++) {
+            series.add(price(t), timestamp(t), 0.1);
+        }
+        return series;
+    }
+
+    private static double price(int tick) {
+        return 100_000.0 + tick;
+    }
+
+    private static long timestamp(int tick) {
+        return SyntheticPortfolio.START_TIMESTAMP + tick * SyntheticPortfolio.TICK_MILLIS;
+    }
+}
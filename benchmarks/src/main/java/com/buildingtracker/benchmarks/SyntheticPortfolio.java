@@ -0,0 +1,53 @@
+package com.buildingtracker.benchmarks;
+
+import com.buildingtracker.model.Building;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic portfolios for the benchmarks.
+ */
+final class SyntheticPortfolio {
+    static final long START_TIMESTAMP = 1_600_000_000_000L;
+    static final long TICK_MILLIS = 60_000L;
+
+    private SyntheticPortfolio() {
+    }
+
+    /**
+     * Create {@code count} buildings, each with {@code historyDepth} minute ticks of a random walk around
+     * 100,000 and a trend computed from them.
+     */
+    static List<Building> create(int count, int historyDepth, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Building> buildings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Building building = new Building(name(i), address(i));
+            double price = 100_000.0;
+            for (int t = 0; t < historyDepth; t++) {
+                price = nextPrice(random, price);
+                building.recordPrice(price, START_TIMESTAMP + t * TICK_MILLIS);
+            }
+            building.updateTrend();
+            buildings.add(building);
+        }
+        return buildings;
+    }
+
+    static String name(int index) {
+        return "Building-" + index;
+    }
+
+    static String address(int index) {
+        return (index % 997) + " Main Street, District " + (index % 31);
+    }
+
+    /**
+     * Next step of the random walk: a change of up to 2% either way, never below 1,000.
+     */
+    static double nextPrice(SplittableRandom random, double price) {
+        return Math.max(1_000.0, price * (1.0 + (random.nextDouble() - 0.5) * 0.04));
+    }
+}
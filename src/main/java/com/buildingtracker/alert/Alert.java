@@ -0,0 +1,56 @@
+package com.buildingtracker.alert;
+
+/**
+ * A rule that fired, with the observed value that triggered it.
+ */
+public final class Alert {
+    private final AlertRule rule;
+    private final String buildingName;
+    private final long timestamp;
+    private final double previousValue;
+    private final double value;
+
+    Alert(AlertRule rule, String buildingName, long timestamp, double previousValue, double value) {
+        this.rule = rule;
+        this.buildingName = buildingName;
+        this.timestamp = timestamp;
+        this.previousValue = previousValue;
+        this.value = value;
+    }
+
+    public AlertRule getRule() {
+        return rule;
+    }
+
+    public String getBuildingName() {
+        return buildingName;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Get the value before the tick: the previous price or volatility. {@code NaN} for change and direction rules.
+     */
+    public double getPreviousValue() {
+        return previousValue;
+    }
+
+    /**
+     * Get the value that fired the rule: price, change percentage or volatility. {@code NaN} for direction rules.
+     */
+    public double getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "Alert{" +
+                "building='" + buildingName + '\'' +
+                ", rule=" + rule +
+                ", value=" + value +
+                ", timestamp=" + timestamp +
+                '}';
+    }
+}
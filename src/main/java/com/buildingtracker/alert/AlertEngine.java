@@ -0,0 +1,291 @@
+package com.buildingtracker.alert;
+
+import com.buildingtracker.model.PriceTrend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Evaluates price alert rules incrementally as ticks arrive, instead of scanning every building's trend.
+ *
+ * <p>Rules are indexed by building name, plus one index for rules on every building, and within an index by
+ * type in threshold trees. A tick looks up the rules of its building and visits only the thresholds between the
+ * previous and the new value, so its cost depends on the rules it fires rather than on the number of rules.
+ * Rule changes copy the affected index, which keeps evaluation lock-free; they are expected to be rare next to
+ * ticks.
+ *
+ * <p>Fired alerts are queued and delivered to subscribers on a single dispatcher thread, so slow subscribers
+ * never hold up ingestion. When the queue is full, further alerts are dropped and counted rather than blocking
+ * the tick. {@link #close()} delivers every queued alert before stopping.
+ *
+ * <p>The engine sees only what its caller passes in. {@code BuildingService} evaluates every tick it records, and
+ * evaluates trend rules after every tick of a batch for buildings that have such rules, so direction flips and
+ * volatility crossings inside a batch are not lost; buildings without trend rules get one trend update per batch.
+ * Prices changed directly through {@code Building.updatePrice} bypass the service and are never evaluated.
+ */
+public class AlertEngine implements AutoCloseable {
+    private static final int DEFAULT_QUEUE_CAPACITY = 65_536;
+
+    private final ConcurrentHashMap<String, RuleIndex> rulesByBuilding = new ConcurrentHashMap<>();
+    // Rules without a building name; null while there are none, so ticks skip it cheaply
+    private volatile RuleIndex globalRules;
+    private final Object globalRulesLock = new Object();
+
+    private final CopyOnWriteArrayList<AlertListener> listeners = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<Alert> queue;
+    private final Thread dispatcher;
+    private volatile boolean closed;
+
+    private final LongAdder firedAlerts = new LongAdder();
+    private final LongAdder droppedAlerts = new LongAdder();
+    private final AtomicLong deliveredAlerts = new AtomicLong();
+    private final AtomicLong failedDeliveries = new AtomicLong();
+
+    /**
+     * Constructor with the default alert queue capacity.
+     */
+    public AlertEngine() {
+        this(DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Constructor with the number of alerts that may wait for delivery before new ones are dropped.
+     */
+    public AlertEngine(int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive.");
+        }
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.dispatcher = new Thread(this::runDispatcher, "alert-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Add a rule. It applies to ticks evaluated after this call returns.
+     */
+    public AlertRule addRule(AlertRule rule) {
+        Objects.requireNonNull(rule, "rule");
+        if (rule.getBuildingName() == null) {
+            synchronized (globalRulesLock) {
+                globalRules = (globalRules != null ? globalRules : RuleIndex.EMPTY).with(rule);
+            }
+        } else {
+            rulesByBuilding.compute(rule.getBuildingName(),
+                    (name, index) -> (index != null ? index : RuleIndex.EMPTY).with(rule));
+        }
+        return rule;
+    }
+
+    /**
+     * Remove a rule added earlier.
+     *
+     * @return whether the rule was found
+     */
+    public boolean removeRule(AlertRule rule) {
+        Objects.requireNonNull(rule, "rule");
+        boolean[] removed = new boolean[1];
+        if (rule.getBuildingName() == null) {
+            synchronized (globalRulesLock) {
+                if (globalRules != null) {
+                    RuleIndex updated = globalRules.without(rule);
+                    removed[0] = updated != globalRules;
+                    globalRules = updated.isEmpty() ? null : updated;
+                }
+            }
+        } else {
+            rulesByBuilding.computeIfPresent(rule.getBuildingName(), (name, index) -> {
+                RuleIndex updated = index.without(rule);
+                removed[0] = updated != index;
+                return updated.isEmpty() ? null : updated;
+            });
+        }
+        return removed[0];
+    }
+
+    /**
+     * Get every rule, in no particular order.
+     */
+    public List<AlertRule> getRules() {
+        List<AlertRule> rules = new ArrayList<>();
+        RuleIndex global = globalRules;
+        if (global != null) {
+            global.forEach(rules::add);
+        }
+        rulesByBuilding.values().forEach(index -> index.forEach(rules::add));
+        return rules;
+    }
+
+    /**
+     * Whether any rule evaluated on trend updates applies to the building, so that callers recomputing the trend
+     * once per batch of ticks know to recompute it after every tick instead.
+     */
+    public boolean hasTrendRules(String buildingName) {
+        RuleIndex own = rulesByBuilding.get(buildingName);
+        RuleIndex global = globalRules;
+        return (own != null && own.hasTrendRules()) || (global != null && global.hasTrendRules());
+    }
+
+    public void subscribe(AlertListener listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener"));
+    }
+
+    public void unsubscribe(AlertListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Evaluate the price and change rules of a building for one tick.
+     */
+    public void onTick(String buildingName, double previousPrice, double price, double changePercentage,
+                       long timestamp) {
+        RuleIndex own = rulesByBuilding.get(buildingName);
+        RuleIndex global = globalRules;
+        if (own == null && global == null) {
+            return;
+        }
+        if (own != null) {
+            own.matchTick(previousPrice, price, changePercentage,
+                    rule -> fire(rule, buildingName, timestamp, previousPrice, price, changePercentage));
+        }
+        if (global != null) {
+            global.matchTick(previousPrice, price, changePercentage,
+                    rule -> fire(rule, buildingName, timestamp, previousPrice, price, changePercentage));
+        }
+    }
+
+    /**
+     * Evaluate the trend rules of a building after its trend was recomputed.
+     */
+    public void onTrendUpdate(String buildingName, PriceTrend previousTrend, PriceTrend trend, long timestamp) {
+        RuleIndex own = rulesByBuilding.get(buildingName);
+        RuleIndex global = globalRules;
+        if ((own == null && global == null) || trend == null) {
+            return;
+        }
+        double previousVolatility = previousTrend != null ? previousTrend.getVolatility() : 0.0;
+        double volatility = trend.getVolatility();
+        boolean directionChanged = previousTrend != null
+                && !Objects.equals(previousTrend.getTrendDirection(), trend.getTrendDirection());
+        if (own != null) {
+            own.matchTrend(previousVolatility, volatility, directionChanged,
+                    rule -> fireTrend(rule, buildingName, timestamp, previousVolatility, volatility));
+        }
+        if (global != null) {
+            global.matchTrend(previousVolatility, volatility, directionChanged,
+                    rule -> fireTrend(rule, buildingName, timestamp, previousVolatility, volatility));
+        }
+    }
+
+    /**
+     * Get the number of alerts fired, including dropped ones.
+     */
+    public long getFiredCount() {
+        return firedAlerts.sum();
+    }
+
+    /**
+     * Get the number of alerts dropped because the delivery queue was full.
+     */
+    public long getDroppedCount() {
+        return droppedAlerts.sum();
+    }
+
+    /**
+     * Get the number of alerts handed to every subscriber.
+     */
+    public long getDeliveredCount() {
+        return deliveredAlerts.get();
+    }
+
+    /**
+     * Get the number of subscriber calls that threw an exception.
+     */
+    public long getFailedDeliveryCount() {
+        return failedDeliveries.get();
+    }
+
+    /**
+     * Stop accepting alerts, deliver the queued ones and stop the dispatcher thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        boolean interrupted = false;
+        while (dispatcher.isAlive()) {
+            try {
+                dispatcher.join();
+            } catch (InterruptedException e) {
+                // Keep waiting; queued alerts are still being delivered
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void fire(AlertRule rule, String buildingName, long timestamp, double previousPrice, double price,
+                      double changePercentage) {
+        switch (rule.getType()) {
+            case PRICE_ABOVE:
+            case PRICE_BELOW:
+                enqueue(new Alert(rule, buildingName, timestamp, previousPrice, price));
+                break;
+            default:
+                enqueue(new Alert(rule, buildingName, timestamp, Double.NaN, changePercentage));
+                break;
+        }
+    }
+
+    private void fireTrend(AlertRule rule, String buildingName, long timestamp, double previousVolatility,
+                           double volatility) {
+        if (rule.getType() == AlertRule.Type.DIRECTION_FLIP) {
+            enqueue(new Alert(rule, buildingName, timestamp, Double.NaN, Double.NaN));
+        } else {
+            enqueue(new Alert(rule, buildingName, timestamp, previousVolatility, volatility));
+        }
+    }
+
+    private void enqueue(Alert alert) {
+        firedAlerts.increment();
+        if (closed || !queue.offer(alert)) {
+            droppedAlerts.increment();
+        }
+    }
+
+    private void runDispatcher() {
+        while (true) {
+            Alert alert;
+            try {
+                alert = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (alert == null) {
+                if (closed && queue.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            for (AlertListener listener : listeners) {
+                try {
+                    listener.onAlert(alert);
+                } catch (RuntimeException e) {
+                    // One failing subscriber must not stop delivery to the others
+                    failedDeliveries.incrementAndGet();
+                }
+            }
+            deliveredAlerts.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.buildingtracker.alert;
+
+/**
+ * Subscriber to fired alerts. Called on the engine's dispatcher thread, one alert at a time.
+ */
+@FunctionalInterface
+public interface AlertListener {
+    void onAlert(Alert alert);
+}
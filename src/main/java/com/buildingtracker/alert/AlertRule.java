@@ -0,0 +1,90 @@
+package com.buildingtracker.alert;
+
+/**
+ * Immutable alert condition for one building, or for every building when the building name is {@code null}.
+ *
+ * <p>Threshold rules on price and volatility fire when a value crosses the threshold, not on every tick it
+ * stays beyond it. Change rules fire on every tick whose change percentage is at or beyond the threshold.
+ * Rules are compared by identity, so the same condition can be added twice and removed separately.
+ */
+public final class AlertRule {
+
+    /**
+     * Condition a rule checks.
+     */
+    public enum Type {
+        /** Price rises from at or below the threshold to above it. */
+        PRICE_ABOVE,
+        /** Price falls from at or above the threshold to below it. */
+        PRICE_BELOW,
+        /** A tick's change percentage is at or above the threshold, e.g. {@code 5} for +5%. */
+        CHANGE_ABOVE,
+        /** A tick's change percentage is at or below the threshold, e.g. {@code -5} for -5%. */
+        CHANGE_BELOW,
+        /** Trend volatility rises from at or below the threshold to above it. */
+        VOLATILITY_ABOVE,
+        /** Trend direction changes, e.g. from UP to DOWN or to STABLE. Has no threshold. */
+        DIRECTION_FLIP
+    }
+
+    private final String buildingName;
+    private final Type type;
+    private final double threshold;
+
+    private AlertRule(String buildingName, Type type, double threshold) {
+        if (Double.isNaN(threshold)) {
+            throw new IllegalArgumentException("Threshold cannot be NaN.");
+        }
+        this.buildingName = buildingName;
+        this.type = type;
+        this.threshold = threshold;
+    }
+
+    public static AlertRule priceAbove(String buildingName, double price) {
+        return new AlertRule(buildingName, Type.PRICE_ABOVE, price);
+    }
+
+    public static AlertRule priceBelow(String buildingName, double price) {
+        return new AlertRule(buildingName, Type.PRICE_BELOW, price);
+    }
+
+    public static AlertRule changeAbove(String buildingName, double changePercentage) {
+        return new AlertRule(buildingName, Type.CHANGE_ABOVE, changePercentage);
+    }
+
+    public static AlertRule changeBelow(String buildingName, double changePercentage) {
+        return new AlertRule(buildingName, Type.CHANGE_BELOW, changePercentage);
+    }
+
+    public static AlertRule volatilityAbove(String buildingName, double volatility) {
+        return new AlertRule(buildingName, Type.VOLATILITY_ABOVE, volatility);
+    }
+
+    public static AlertRule directionFlip(String buildingName) {
+        return new AlertRule(buildingName, Type.DIRECTION_FLIP, 0.0);
+    }
+
+    /**
+     * Get the building the rule applies to, or {@code null} if it applies to every building.
+     */
+    public String getBuildingName() {
+        return buildingName;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    @Override
+    public String toString() {
+        return "AlertRule{" +
+                "building='" + (buildingName != null ? buildingName : "*") + '\'' +
+                ", type=" + type +
+                (type != Type.DIRECTION_FLIP ? ", threshold=" + threshold : "") +
+                '}';
+    }
+}
@@ -0,0 +1,180 @@
+package com.buildingtracker.alert;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Immutable index of the rules of one building: a sorted threshold tree per rule type, so a tick visits only
+ * the thresholds between the old and the new value. Changes return a new index and share untouched trees.
+ */
+final class RuleIndex {
+    private static final AlertRule[] NO_RULES = new AlertRule[0];
+    @SuppressWarnings("unchecked")
+    static final RuleIndex EMPTY = new RuleIndex(
+            (NavigableMap<Double, AlertRule[]>[]) new NavigableMap<?, ?>[AlertRule.Type.values().length], NO_RULES);
+
+    // Threshold trees by rule type ordinal; null for types without rules
+    private final NavigableMap<Double, AlertRule[]>[] thresholds;
+    private final AlertRule[] directionRules;
+
+    private RuleIndex(NavigableMap<Double, AlertRule[]>[] thresholds, AlertRule[] directionRules) {
+        this.thresholds = thresholds;
+        this.directionRules = directionRules;
+    }
+
+    boolean isEmpty() {
+        if (directionRules.length > 0) {
+            return false;
+        }
+        for (NavigableMap<Double, AlertRule[]> tree : thresholds) {
+            if (tree != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the index has rules evaluated on trend updates.
+     */
+    boolean hasTrendRules() {
+        return directionRules.length > 0 || tree(AlertRule.Type.VOLATILITY_ABOVE) != null;
+    }
+
+    RuleIndex with(AlertRule rule) {
+        if (rule.getType() == AlertRule.Type.DIRECTION_FLIP) {
+            AlertRule[] rules = Arrays.copyOf(directionRules, directionRules.length + 1);
+            rules[directionRules.length] = rule;
+            return new RuleIndex(thresholds, rules);
+        }
+        int type = rule.getType().ordinal();
+        TreeMap<Double, AlertRule[]> tree = thresholds[type] != null
+                ? new TreeMap<>(thresholds[type]) : new TreeMap<>();
+        AlertRule[] existing = tree.getOrDefault(rule.getThreshold(), NO_RULES);
+        AlertRule[] rules = Arrays.copyOf(existing, existing.length + 1);
+        rules[existing.length] = rule;
+        tree.put(rule.getThreshold(), rules);
+        NavigableMap<Double, AlertRule[]>[] newThresholds = thresholds.clone();
+        newThresholds[type] = tree;
+        return new RuleIndex(newThresholds, directionRules);
+    }
+
+    /**
+     * Get the index without the given rule, or this index if the rule is not in it.
+     */
+    RuleIndex without(AlertRule rule) {
+        if (rule.getType() == AlertRule.Type.DIRECTION_FLIP) {
+            AlertRule[] rules = remove(directionRules, rule);
+            return rules == directionRules ? this : new RuleIndex(thresholds, rules);
+        }
+        int type = rule.getType().ordinal();
+        NavigableMap<Double, AlertRule[]> current = thresholds[type];
+        AlertRule[] existing = current != null ? current.get(rule.getThreshold()) : null;
+        if (existing == null) {
+            return this;
+        }
+        AlertRule[] rules = remove(existing, rule);
+        if (rules == existing) {
+            return this;
+        }
+        TreeMap<Double, AlertRule[]> tree = new TreeMap<>(current);
+        if (rules.length == 0) {
+            tree.remove(rule.getThreshold());
+        } else {
+            tree.put(rule.getThreshold(), rules);
+        }
+        NavigableMap<Double, AlertRule[]>[] newThresholds = thresholds.clone();
+        newThresholds[type] = tree.isEmpty() ? null : tree;
+        return new RuleIndex(newThresholds, directionRules);
+    }
+
+    /**
+     * Pass every rule to the action, for listing.
+     */
+    void forEach(Consumer<AlertRule> action) {
+        for (NavigableMap<Double, AlertRule[]> tree : thresholds) {
+            if (tree != null) {
+                for (AlertRule[] rules : tree.values()) {
+                    for (AlertRule rule : rules) {
+                        action.accept(rule);
+                    }
+                }
+            }
+        }
+        for (AlertRule rule : directionRules) {
+            action.accept(rule);
+        }
+    }
+
+    /**
+     * Pass the price and change rules fired by a tick from {@code previousPrice} to {@code price}.
+     */
+    void matchTick(double previousPrice, double price, double changePercentage, Consumer<AlertRule> fired) {
+        if (price > previousPrice) {
+            // Crossed upwards: previousPrice <= threshold < price
+            emit(tree(AlertRule.Type.PRICE_ABOVE), previousPrice, true, price, false, fired);
+        } else if (price < previousPrice) {
+            // Crossed downwards: price < threshold <= previousPrice
+            emit(tree(AlertRule.Type.PRICE_BELOW), price, false, previousPrice, true, fired);
+        }
+        if (!Double.isNaN(changePercentage)) {
+            NavigableMap<Double, AlertRule[]> above = tree(AlertRule.Type.CHANGE_ABOVE);
+            if (above != null) {
+                emitAll(above.headMap(changePercentage, true).values(), fired);
+            }
+            NavigableMap<Double, AlertRule[]> below = tree(AlertRule.Type.CHANGE_BELOW);
+            if (below != null) {
+                emitAll(below.tailMap(changePercentage, true).values(), fired);
+            }
+        }
+    }
+
+    /**
+     * Pass the trend rules fired by a trend update.
+     */
+    void matchTrend(double previousVolatility, double volatility, boolean directionChanged,
+                    Consumer<AlertRule> fired) {
+        if (volatility > previousVolatility) {
+            emit(tree(AlertRule.Type.VOLATILITY_ABOVE), previousVolatility, true, volatility, false, fired);
+        }
+        if (directionChanged) {
+            for (AlertRule rule : directionRules) {
+                fired.accept(rule);
+            }
+        }
+    }
+
+    private NavigableMap<Double, AlertRule[]> tree(AlertRule.Type type) {
+        return thresholds[type.ordinal()];
+    }
+
+    private static void emit(NavigableMap<Double, AlertRule[]> tree, double from, boolean fromInclusive, double to,
+                             boolean toInclusive, Consumer<AlertRule> fired) {
+        if (tree != null) {
+            emitAll(tree.subMap(from, fromInclusive, to, toInclusive).values(), fired);
+        }
+    }
+
+    private static void emitAll(Collection<AlertRule[]> matches, Consumer<AlertRule> fired) {
+        for (AlertRule[] rules : matches) {
+            for (AlertRule rule : rules) {
+                fired.accept(rule);
+            }
+        }
+    }
+
+    private static AlertRule[] remove(AlertRule[] rules, AlertRule rule) {
+        for (int i = 0; i < rules.length; i++) {
+            if (rules[i] == rule) {
+                AlertRule[] result = new AlertRule[rules.length - 1];
+                System.arraycopy(rules, 0, result, 0, i);
+                System.arraycopy(rules, i + 1, result, i, rules.length - i - 1);
+                return result;
+            }
+        }
+        return rules;
+    }
+}
@@ -1,19 +1,61 @@
 package com.buildingtracker.app;
 
+import com.buildingtracker.export.ExportFormat;
+import com.buildingtracker.export.PriceHistoryExporter;
+import com.buildingtracker.ingest.FeedFormat;
+import com.buildingtracker.ingest.ImportResult;
+import com.buildingtracker.ingest.PriceFeedImporter;
 import com.buildingtracker.model.Building;
+import com.buildingtracker.server.PriceApiServer;
 import com.buildingtracker.service.BuildingService;
+import com.buildingtracker.service.ConsoleEventListener;
+import com.buildingtracker.service.ServiceEventListener;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
 
 /**
  * Main application class demonstrating the Building Price Tracker functionality.
+ *
+ * <p>Run with {@code serve [port]} to serve the stored buildings over the HTTP query API on localhost instead;
+ * see {@link PriceApiServer}. Run with {@code import <feed.csv|feed.ndjson> [threads]} to bulk import a price feed
+ * into the stored buildings; see {@link PriceFeedImporter}. Run with
+ * {@code export <file.csv|file.ndjson|file.bin> [threads]} to export every stored price history to one file, or with
+ * {@code export <directory> <csv|ndjson|binary> <partitions>} to one file per partition; see
+ * {@link PriceHistoryExporter}.
  */
 public class BuildingPriceTrackerApp {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && "serve".equals(args[0])) {
+            serve(args.length > 1 ? Integer.parseInt(args[1]) : PriceApiServer.DEFAULT_PORT);
+            return;
+        }
+        if (args.length > 1 && "import".equals(args[0])) {
+            importFeed(Paths.get(args[1]), args.length > 2 ? Integer.parseInt(args[2])
+                    : Runtime.getRuntime().availableProcessors());
+            return;
+        }
+        if (args.length > 1 && "export".equals(args[0])) {
+            if (args.length > 3) {
+                exportPartitioned(Paths.get(args[1]), ExportFormat.valueOf(args[2].toUpperCase(Locale.ROOT)),
+                        Integer.parseInt(args[3]));
+            } else {
+                exportHistory(Paths.get(args[1]), args.length > 2 ? Integer.parseInt(args[2])
+                        : Runtime.getRuntime().availableProcessors());
+            }
+            return;
+        }
+
         System.out.println("========================================");
         System.out.println("Welcome to Building Price Tracker");
         System.out.println("========================================\n");
 
         // Initialize the service
         BuildingService service = new BuildingService();
+        // The demo shows every operation, including each price update
+        service.setEventListener(new ConsoleEventListener(ServiceEventListener.Level.DEBUG));
 
         try {
             // Create and add buildings
@@ -81,4 +123,55 @@ public class BuildingPriceTrackerApp {
         System.out.println("Building Price Tracker - Session Complete");
         System.out.println("========================================");
     }
-}
\ No newline at end of file
+
+    /**
+     * Serve the stored buildings until the JVM is shut down.
+     */
+    private static void serve(int port) throws IOException {
+        // Before the JDK server classes load; see PriceApiServer. An explicit setting wins.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        BuildingService service = new BuildingService();
+        PriceApiServer server = new PriceApiServer(service, port);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "price-api-shutdown"));
+        System.out.println("Serving the building price API on http://localhost:" + server.getPort() + "/ with "
+                + (server.usesVirtualThreads() ? "virtual threads." : "a platform thread pool."));
+        // The server's dispatcher thread keeps the JVM running
+    }
+
+    /**
+     * Import a price feed into the stored buildings, printing progress after each block.
+     */
+    private static void importFeed(Path feed, int threads) {
+        BuildingService service = new BuildingService();
+        // Per-block summaries come from the importer instead
+        service.setEventListener(ServiceEventListener.NONE);
+        try (PriceFeedImporter importer = new PriceFeedImporter(service, threads)) {
+            ImportResult result = importer.importFile(feed, FeedFormat.forFile(feed), progress ->
+                    System.out.printf("%5.1f%%  %,d rows, %,d rejected, %,.0f rows/s%n", progress.getProgress() * 100,
+                            progress.getRowCount(), progress.getRejectedCount(), progress.getRowsPerSecond()));
+            System.out.println(result);
+            for (String sample : result.getRejectedSamples()) {
+                System.out.println("  rejected " + sample);
+            }
+        }
+    }
+
+    private static void exportHistory(Path file, int threads) {
+        BuildingService service = new BuildingService();
+        service.setEventListener(ServiceEventListener.NONE);
+        try (PriceHistoryExporter exporter = new PriceHistoryExporter(service, threads)) {
+            System.out.println(exporter.exportAll(file));
+        }
+    }
+
+    private static void exportPartitioned(Path directory, ExportFormat format, int partitions) {
+        BuildingService service = new BuildingService();
+        service.setEventListener(ServiceEventListener.NONE);
+        try (PriceHistoryExporter exporter = new PriceHistoryExporter(service, partitions)) {
+            System.out.println(exporter.exportAllPartitioned(directory, format, partitions));
+        }
+    }
+}
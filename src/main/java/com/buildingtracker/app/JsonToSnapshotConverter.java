@@ -0,0 +1,22 @@
+package com.buildingtracker.app;
+
+import com.buildingtracker.storage.MappedSnapshotBuildingStorage;
+
+/**
+ * Converts a JSON storage file into the memory-mapped binary snapshot format.
+ *
+ * <p>Usage: {@code JsonToSnapshotConverter [jsonFile] [snapshotFile]}, defaulting to {@code buildings.json} and
+ * {@code buildings.snapshot}.
+ */
+public class JsonToSnapshotConverter {
+    public static void main(String[] args) {
+        String jsonPath = args.length > 0 ? args[0] : "buildings.json";
+        String snapshotPath = args.length > 1 ? args[1] : "buildings.snapshot";
+
+        long start = System.nanoTime();
+        MappedSnapshotBuildingStorage.convertFromJson(jsonPath, snapshotPath);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println("Converted " + jsonPath + " to " + snapshotPath + " in " + elapsedMillis + " ms.");
+    }
+}
@@ -0,0 +1,12 @@
+package com.buildingtracker.event;
+
+/**
+ * Signalled to a subscriber with the {@link OverflowPolicy#CANCEL} policy that fell a full buffer behind.
+ */
+public class BufferOverflowException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public BufferOverflowException(String message) {
+        super(message);
+    }
+}
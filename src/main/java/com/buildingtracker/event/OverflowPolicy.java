@@ -0,0 +1,13 @@
+package com.buildingtracker.event;
+
+/**
+ * What a subscription does with a new event when its buffer is full.
+ */
+public enum OverflowPolicy {
+    /** Discard the oldest buffered event, so the subscriber keeps up with the latest state. */
+    DROP_OLDEST,
+    /** Discard the new event, so the subscriber sees an unbroken prefix of the stream. */
+    DROP_NEWEST,
+    /** Cancel the subscription and signal {@link BufferOverflowException} once buffered events are delivered. */
+    CANCEL
+}
@@ -0,0 +1,111 @@
+package com.buildingtracker.event;
+
+import com.buildingtracker.model.PriceTrend;
+
+/**
+ * Immutable notification of a change to a building, emitted by {@link PriceEventPublisher}.
+ */
+public final class PriceEvent {
+
+    /**
+     * Kind of change.
+     */
+    public enum Type {
+        BUILDING_ADDED,
+        PRICE_CHANGED,
+        TREND_CHANGED,
+        BUILDING_DELETED
+    }
+
+    private final Type type;
+    private final String buildingName;
+    private final long timestamp;
+    private final double previousPrice;
+    private final double price;
+    private final double changePercentage;
+    private final PriceTrend trend;
+
+    private PriceEvent(Type type, String buildingName, long timestamp, double previousPrice, double price,
+                       double changePercentage, PriceTrend trend) {
+        this.type = type;
+        this.buildingName = buildingName;
+        this.timestamp = timestamp;
+        this.previousPrice = previousPrice;
+        this.price = price;
+        this.changePercentage = changePercentage;
+        this.trend = trend;
+    }
+
+    public static PriceEvent buildingAdded(String buildingName, double price, long timestamp) {
+        return new PriceEvent(Type.BUILDING_ADDED, buildingName, timestamp, Double.NaN, price, Double.NaN, null);
+    }
+
+    public static PriceEvent priceChanged(String buildingName, double previousPrice, double price,
+                                          double changePercentage, long timestamp) {
+        return new PriceEvent(Type.PRICE_CHANGED, buildingName, timestamp, previousPrice, price, changePercentage,
+                null);
+    }
+
+    /**
+     * Create a trend event. The trend must not be modified afterwards.
+     */
+    public static PriceEvent trendChanged(String buildingName, double price, PriceTrend trend, long timestamp) {
+        return new PriceEvent(Type.TREND_CHANGED, buildingName, timestamp, Double.NaN, price, Double.NaN, trend);
+    }
+
+    public static PriceEvent buildingDeleted(String buildingName, long timestamp) {
+        return new PriceEvent(Type.BUILDING_DELETED, buildingName, timestamp, Double.NaN, Double.NaN, Double.NaN,
+                null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getBuildingName() {
+        return buildingName;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Get the price before a price change, or {@code NaN} for other events.
+     */
+    public double getPreviousPrice() {
+        return previousPrice;
+    }
+
+    /**
+     * Get the building's price after the event, or {@code NaN} for deletions.
+     */
+    public double getPrice() {
+        return price;
+    }
+
+    /**
+     * Get the change percentage of a price change, or {@code NaN} for other events.
+     */
+    public double getChangePercentage() {
+        return changePercentage;
+    }
+
+    /**
+     * Get the new trend of a trend change, or {@code null} for other events.
+     */
+    public PriceTrend getTrend() {
+        return trend;
+    }
+
+    @Override
+    public String toString() {
+        return "PriceEvent{" +
+                "type=" + type +
+                ", building='" + buildingName + '\'' +
+                ", price=" + price +
+                (trend != null ? ", trend=" + trend : "") +
+                ", timestamp=" + timestamp +
+                '}';
+    }
+}
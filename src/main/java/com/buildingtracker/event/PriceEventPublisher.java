@@ -0,0 +1,303 @@
+package com.buildingtracker.event;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Push-based stream of {@link PriceEvent}s with per-subscriber backpressure.
+ *
+ * <p>Every subscription has its own bounded buffer. {@link #publish(PriceEvent)} only appends to those buffers,
+ * so it never blocks on a subscriber; when a buffer is full the subscription's {@link OverflowPolicy} decides
+ * what is lost. Buffered events are delivered on the executor as soon as the subscriber has requested them,
+ * with at most one delivery task running per subscription, so each subscriber sees its events in publication
+ * order and is never called concurrently. A delivery task hands the executor back after a bounded number of
+ * events, so one busy subscriber cannot starve the others; subscribers that block should still pass events on to
+ * a thread of their own or use a publisher with a dedicated executor.
+ *
+ * <p>Subscribers are expected to request events as they process them; see {@link Flow.Subscription}.
+ */
+public class PriceEventPublisher implements Flow.Publisher<PriceEvent>, AutoCloseable {
+    private static final int DEFAULT_BUFFER_CAPACITY = 1024;
+    // Events delivered per task before a subscription yields the executor to other subscriptions
+    private static final int MAX_EVENTS_PER_TASK = 256;
+
+    private final Executor executor;
+    private final int defaultBufferCapacity;
+    private final OverflowPolicy defaultPolicy;
+    private final CopyOnWriteArrayList<BufferedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final LongAdder publishedEvents = new LongAdder();
+    private final LongAdder droppedEvents = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * Constructor delivering on the common fork-join pool, with buffers of 1024 events that drop the oldest.
+     */
+    public PriceEventPublisher() {
+        this(ForkJoinPool.commonPool(), DEFAULT_BUFFER_CAPACITY, OverflowPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * Constructor with the delivery executor, and the buffer size and policy used by
+     * {@link #subscribe(Flow.Subscriber)}.
+     */
+    public PriceEventPublisher(Executor executor, int bufferCapacity, OverflowPolicy policy) {
+        if (executor == null || policy == null) {
+            throw new IllegalArgumentException("Executor and overflow policy cannot be null.");
+        }
+        if (bufferCapacity <= 0) {
+            throw new IllegalArgumentException("Buffer capacity must be positive.");
+        }
+        this.executor = executor;
+        this.defaultBufferCapacity = bufferCapacity;
+        this.defaultPolicy = policy;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super PriceEvent> subscriber) {
+        subscribe(subscriber, defaultBufferCapacity, defaultPolicy);
+    }
+
+    /**
+     * Subscribe with a buffer size and overflow policy of its own.
+     */
+    public void subscribe(Flow.Subscriber<? super PriceEvent> subscriber, int bufferCapacity,
+                          OverflowPolicy policy) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        if (bufferCapacity <= 0 || policy == null) {
+            throw new IllegalArgumentException("Buffer capacity must be positive and policy cannot be null.");
+        }
+        BufferedSubscription subscription = new BufferedSubscription(subscriber, bufferCapacity, policy);
+        subscriber.onSubscribe(subscription);
+        subscriptions.add(subscription);
+        if (closed) {
+            // Closed before or while subscribing
+            subscriptions.remove(subscription);
+            subscription.complete();
+        }
+    }
+
+    /**
+     * Whether anyone is subscribed. Lets producers skip building events nobody receives.
+     */
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Append an event to every subscriber's buffer. Never blocks; ignored once the publisher is closed.
+     */
+    public void publish(PriceEvent event) {
+        Objects.requireNonNull(event, "event");
+        if (closed) {
+            return;
+        }
+        publishedEvents.increment();
+        for (BufferedSubscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    public long getPublishedCount() {
+        return publishedEvents.sum();
+    }
+
+    /**
+     * Get the number of events lost to full buffers, over all subscribers.
+     */
+    public long getDroppedCount() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Stop publishing and complete every subscription once its buffered events are delivered.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (BufferedSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+        subscriptions.clear();
+    }
+
+    /**
+     * One subscriber's buffer and demand. Buffer, demand and state are guarded by the subscription's monitor;
+     * the work-in-progress counter ensures a single delivery task at a time.
+     */
+    private final class BufferedSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super PriceEvent> subscriber;
+        private final int capacity;
+        private final OverflowPolicy policy;
+        private final ArrayDeque<PriceEvent> buffer = new ArrayDeque<>();
+        private final AtomicInteger workInProgress = new AtomicInteger();
+        private long demand;
+        private boolean cancelled;
+        private boolean completing;
+        private boolean terminated;
+        private Throwable pendingError;
+        // Invalid requests fail at once; overflow errors first deliver what was already requested
+        private boolean errorImmediately;
+
+        BufferedSubscription(Flow.Subscriber<? super PriceEvent> subscriber, int capacity, OverflowPolicy policy) {
+            this.subscriber = subscriber;
+            this.capacity = capacity;
+            this.policy = policy;
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (n <= 0) {
+                    pendingError = new IllegalArgumentException("Requested " + n + " events; must be positive.");
+                    errorImmediately = true;
+                    buffer.clear();
+                } else {
+                    demand += n;
+                    if (demand < 0) {
+                        // Overflowed: treat as unbounded
+                        demand = Long.MAX_VALUE;
+                    }
+                }
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                buffer.clear();
+            }
+            subscriptions.remove(this);
+        }
+
+        void offer(PriceEvent event) {
+            boolean signal;
+            synchronized (this) {
+                if (cancelled || completing || pendingError != null) {
+                    return;
+                }
+                if (buffer.size() >= capacity) {
+                    droppedEvents.increment();
+                    if (policy == OverflowPolicy.DROP_NEWEST) {
+                        return;
+                    }
+                    if (policy == OverflowPolicy.CANCEL) {
+                        pendingError = new BufferOverflowException(
+                                "Subscriber fell " + capacity + " events behind and was cancelled.");
+                        subscriptions.remove(this);
+                        signal = true;
+                    } else {
+                        buffer.pollFirst();
+                        buffer.addLast(event);
+                        signal = demand > 0;
+                    }
+                } else {
+                    buffer.addLast(event);
+                    signal = demand > 0;
+                }
+            }
+            if (signal) {
+                schedule();
+            }
+        }
+
+        void complete() {
+            synchronized (this) {
+                completing = true;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (workInProgress.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // No way to deliver any more
+                    cancel();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (drain()) {
+                    // Yielded with events left; keep the work-in-progress count so nobody else schedules
+                    try {
+                        executor.execute(this);
+                    } catch (RejectedExecutionException e) {
+                        cancel();
+                    }
+                    return;
+                }
+                missed = workInProgress.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Deliver buffered events while there is demand.
+         *
+         * @return whether delivery stopped at the per-task limit with events left to deliver
+         */
+        private boolean drain() {
+            for (int delivered = 0; ; delivered++) {
+                if (delivered == MAX_EVENTS_PER_TASK) {
+                    return true;
+                }
+                PriceEvent next = null;
+                Throwable error = null;
+                synchronized (this) {
+                    if (cancelled || terminated) {
+                        buffer.clear();
+                        return false;
+                    }
+                    if (pendingError != null && (errorImmediately || buffer.isEmpty() || demand == 0)) {
+                        terminated = true;
+                        error = pendingError;
+                        buffer.clear();
+                    } else if (demand > 0 && !buffer.isEmpty()) {
+                        next = buffer.pollFirst();
+                        demand--;
+                    } else if (completing && buffer.isEmpty()) {
+                        terminated = true;
+                    } else {
+                        return false;
+                    }
+                }
+
+                if (next == null) {
+                    subscriptions.remove(this);
+                }
+                try {
+                    if (error != null) {
+                        subscriber.onError(error);
+                        return false;
+                    }
+                    if (next == null) {
+                        subscriber.onComplete();
+                        return false;
+                    }
+                    subscriber.onNext(next);
+                } catch (RuntimeException e) {
+                    // A subscriber must not throw; treat it as cancelled
+                    cancel();
+                    return false;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.buildingtracker.export;
+
+import com.buildingtracker.model.Building;
+import com.buildingtracker.model.PriceSeries;
+import com.buildingtracker.model.PriceTrend;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Reader for files written by {@link PriceHistoryExporter} in the {@link ExportFormat#BINARY} format.
+ */
+public final class BinaryExportReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private BinaryExportReader() {
+    }
+
+    /**
+     * Stream the buildings of an export file to the action, one at a time, with their exported trend and
+     * history; trend exports give buildings without history.
+     *
+     * @return the number of buildings read
+     */
+    public static int forEachBuilding(Path file, Consumer<Building> action) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file),
+                BUFFER_SIZE))) {
+            if (in.readInt() != ExportRenderer.MAGIC || in.readInt() != ExportRenderer.FORMAT_VERSION) {
+                throw new IOException("Not a binary price export: " + file);
+            }
+            int count = 0;
+            for (byte marker = in.readByte(); marker != ExportRenderer.END_OF_EXPORT; marker = in.readByte()) {
+                if (marker != ExportRenderer.BUILDING_RECORD) {
+                    throw new IOException("Corrupt binary price export " + file + " after " + count + " buildings.");
+                }
+                action.accept(readBuilding(in));
+                count++;
+            }
+            return count;
+        } catch (EOFException e) {
+            throw new UncheckedIOException("Truncated binary price export " + file, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read binary price export " + file, e);
+        }
+    }
+
+    private static Building readBuilding(DataInputStream in) throws IOException {
+        String name = readString(in);
+        String address = readString(in);
+        double currentPrice = in.readDouble();
+        PriceTrend trend = null;
+        if (in.readBoolean()) {
+            trend = new PriceTrend(readString(in), in.readDouble(), in.readDouble());
+        }
+        int size = (int) readVarLong(in);
+        long[] timestamps = new long[size];
+        double[] prices = new double[size];
+        double[] changePercentages = new double[size];
+        long timestamp = 0;
+        for (int i = 0; i < size; i++) {
+            long zigzag = readVarLong(in);
+            timestamp += (zigzag >>> 1) ^ -(zigzag & 1);
+            timestamps[i] = timestamp;
+            prices[i] = in.readDouble();
+            changePercentages[i] = in.readDouble();
+        }
+        return Building.withLazyHistory(name, address, currentPrice, trend, size,
+                () -> PriceSeries.wrap(timestamps, prices, changePercentages));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = (int) readVarLong(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in binary price export.");
+    }
+}
@@ -0,0 +1,18 @@
+package com.buildingtracker.export;
+
+/**
+ * What {@link PriceHistoryExporter} writes for each building.
+ */
+public enum ExportContent {
+    /**
+     * Every price history entry: one row per entry in the text formats, with the building's trend and full history
+     * in the binary format.
+     */
+    HISTORY,
+
+    /**
+     * One row per building with its address, current price, trend and history size. The binary format writes the
+     * same records as for {@link #HISTORY} without the history entries.
+     */
+    TRENDS
+}
@@ -0,0 +1,60 @@
+package com.buildingtracker.export;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Output formats written by {@link PriceHistoryExporter}.
+ *
+ * <p>The text formats write timestamps as ISO-8601 instants in UTC with milliseconds, prices exactly, and change
+ * percentages, average changes and volatilities rounded to four decimals. Missing values are empty CSV fields or
+ * JSON nulls. History exports in either text format can be imported again with
+ * {@link com.buildingtracker.ingest.PriceFeedImporter}.
+ */
+public enum ExportFormat {
+    /**
+     * Comma-separated rows under a header line, with fields quoted where needed.
+     */
+    CSV(".csv"),
+
+    /**
+     * One flat JSON object per line.
+     */
+    NDJSON(".ndjson"),
+
+    /**
+     * Compact binary records holding every value exactly, read back with {@link BinaryExportReader}.
+     */
+    BINARY(".bin");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Get the file extension used for partition files, including the dot.
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Pick the format from a file extension: {@code .csv}, {@code .ndjson} or {@code .jsonl}, or {@code .bin}.
+     */
+    public static ExportFormat forFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return NDJSON;
+        }
+        if (name.endsWith(".bin")) {
+            return BINARY;
+        }
+        throw new IllegalArgumentException("Cannot tell the export format of '" + file.getFileName()
+                + "'; expected a .csv, .ndjson, .jsonl or .bin file.");
+    }
+}
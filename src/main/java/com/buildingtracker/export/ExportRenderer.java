@@ -0,0 +1,581 @@
+package com.buildingtracker.export;
+
+import com.buildingtracker.model.BuildingSnapshot;
+import com.buildingtracker.model.PriceSeries;
+import com.buildingtracker.model.PriceTrend;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * Renders buildings in one {@link ExportFormat} into a reusable byte buffer, for one thread at a time.
+ *
+ * <p>Values are written as bytes straight into the buffer: numbers digit by digit without going through strings
+ * where possible, and timestamps from a cached rendering of the current day, so a row costs no allocation beyond
+ * the occasional number that has no short exact decimal form. A building's name is encoded once per building,
+ * not once per row.
+ *
+ * <p>With a sink channel the buffer is drained to it whenever the next row would not fit, so memory stays bounded
+ * whatever the history size. Without one the buffer grows to hold everything rendered until {@link #drainTo}.
+ */
+final class ExportRenderer {
+    static final int PERCENT_DIGITS = 4;
+    static final int MAGIC = 0x42505458;  // "BPTX"
+    static final int FORMAT_VERSION = 1;
+    static final byte BUILDING_RECORD = 1;
+    static final byte END_OF_EXPORT = 0;
+    static final int DEFAULT_BUFFER_BYTES = 256 * 1024;
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    // Beyond 2^53 not every integer is a double, so scaled values are no longer exact
+    private static final double MAX_EXACT_LONG = 9_007_199_254_740_992.0;
+    private static final int MAX_EXACT_DECIMALS = 8;
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8};
+    // Longest number written: Double.toString or a long with sign
+    private static final int MAX_NUMBER_BYTES = 26;
+    private static final int MAX_TIMESTAMP_BYTES = 32;
+    private static final byte[] CSV_HISTORY_HEADER = ascii("building,timestamp,price,change_percentage\n");
+    private static final byte[] CSV_TRENDS_HEADER =
+            ascii("building,address,current_price,trend,average_change,volatility,history_size\n");
+    private static final byte[] JSON_TIMESTAMP = ascii(",\"timestamp\":\"");
+    private static final byte[] JSON_PRICE = ascii("\",\"price\":");
+    private static final byte[] JSON_CHANGE = ascii(",\"changePercentage\":");
+    private static final byte[] JSON_NULL = ascii("null");
+
+    private final ExportFormat format;
+    private final ExportContent content;
+    private final FileChannel sink;
+    private byte[] buffer;
+    private int size;
+    private long bytesDrained;
+    // Epoch day of the last rendered timestamp and its "yyyy-MM-ddT" prefix
+    private long cachedDay = Long.MIN_VALUE;
+    private final byte[] dayPrefix = new byte[11];
+
+    ExportRenderer(ExportFormat format, ExportContent content, FileChannel sink, int initialCapacity) {
+        this.format = format;
+        this.content = content;
+        this.sink = sink;
+        this.buffer = new byte[Math.max(initialCapacity, 1024)];
+    }
+
+    /**
+     * Write what precedes the first building: the CSV header line, or the binary magic and version.
+     */
+    void writeHeader() throws IOException {
+        if (format == ExportFormat.CSV) {
+            writeBytes(content == ExportContent.HISTORY ? CSV_HISTORY_HEADER : CSV_TRENDS_HEADER);
+        } else if (format == ExportFormat.BINARY) {
+            ensure(2 * Integer.BYTES);
+            writeInt(MAGIC);
+            writeInt(FORMAT_VERSION);
+        }
+    }
+
+    /**
+     * Write what follows the last building: the end marker of the binary format.
+     */
+    void writeFooter() throws IOException {
+        if (format == ExportFormat.BINARY) {
+            ensure(1);
+            buffer[size++] = END_OF_EXPORT;
+        }
+    }
+
+    /**
+     * Render one building.
+     *
+     * @return the number of rows or history entries written
+     */
+    long writeBuilding(BuildingSnapshot building) throws IOException {
+        if (format == ExportFormat.BINARY) {
+            return writeBinaryRecord(building);
+        }
+        if (content == ExportContent.TRENDS) {
+            writeTrendRow(building);
+            return 1;
+        }
+        PriceSeries history = building.getHistory();
+        int count = history.size();
+        if (count == 0) {
+            return 0;
+        }
+        byte[] prefix = rowPrefix(building.getName());
+        boolean csv = format == ExportFormat.CSV;
+        int maxRowBytes = prefix.length + MAX_TIMESTAMP_BYTES + 2 * MAX_NUMBER_BYTES + 64;
+        for (int i = 0; i < count; i++) {
+            ensure(maxRowBytes);
+            System.arraycopy(prefix, 0, buffer, size, prefix.length);
+            size += prefix.length;
+            writeTimestamp(history.getTimestamp(i));
+            if (csv) {
+                buffer[size++] = ',';
+                writeExact(history.getPrice(i));
+                buffer[size++] = ',';
+                writeRounded(history.getChangePercentage(i), PERCENT_DIGITS);
+                buffer[size++] = '\n';
+            } else {
+                System.arraycopy(JSON_PRICE, 0, buffer, size, JSON_PRICE.length);
+                size += JSON_PRICE.length;
+                writeExact(history.getPrice(i));
+                System.arraycopy(JSON_CHANGE, 0, buffer, size, JSON_CHANGE.length);
+                size += JSON_CHANGE.length;
+                writeRounded(history.getChangePercentage(i), PERCENT_DIGITS);
+                buffer[size++] = '}';
+                buffer[size++] = '\n';
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of bytes rendered and not yet drained.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get the number of bytes written to the sink or by {@link #drainTo} so far.
+     */
+    long getBytesDrained() {
+        return bytesDrained;
+    }
+
+    /**
+     * Write the rendered bytes to the channel at its position and empty the buffer for reuse.
+     */
+    void drainTo(FileChannel channel) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, size);
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytesDrained += size;
+        size = 0;
+    }
+
+    /**
+     * The fixed start of every history row of a building: its encoded name and what follows up to the timestamp.
+     */
+    private byte[] rowPrefix(String name) throws IOException {
+        ensure(encodedBound(name) + JSON_TIMESTAMP.length + 16);
+        int start = size;
+        if (format == ExportFormat.CSV) {
+            writeCsvString(name);
+            buffer[size++] = ',';
+        } else {
+            writeAscii("{\"building\":");
+            writeJsonString(name);
+            System.arraycopy(JSON_TIMESTAMP, 0, buffer, size, JSON_TIMESTAMP.length);
+            size += JSON_TIMESTAMP.length;
+        }
+        byte[] prefix = Arrays.copyOfRange(buffer, start, size);
+        size = start;
+        return prefix;
+    }
+
+    private void writeTrendRow(BuildingSnapshot building) throws IOException {
+        PriceTrend trend = building.getRecentTrend();
+        String direction = trend != null ? trend.getTrendDirection() : null;
+        ensure(encodedBound(building.getName()) + encodedBound(building.getAddress()) + encodedBound(direction)
+                + 4 * MAX_NUMBER_BYTES + 128);
+        if (format == ExportFormat.CSV) {
+            writeCsvString(building.getName());
+            buffer[size++] = ',';
+            writeCsvString(building.getAddress());
+            buffer[size++] = ',';
+            writeExact(building.getCurrentPrice());
+            buffer[size++] = ',';
+            writeCsvString(direction);
+            buffer[size++] = ',';
+            if (trend != null) {
+                writeRounded(trend.getAverageChange(), PERCENT_DIGITS);
+            }
+            buffer[size++] = ',';
+            if (trend != null) {
+                writeRounded(trend.getVolatility(), PERCENT_DIGITS);
+            }
+            buffer[size++] = ',';
+            writeLong(building.getHistoryLength());
+        } else {
+            writeAscii("{\"building\":");
+            writeJsonString(building.getName());
+            writeAscii(",\"address\":");
+            writeJsonString(building.getAddress());
+            writeAscii(",\"currentPrice\":");
+            writeExact(building.getCurrentPrice());
+            writeAscii(",\"trend\":");
+            writeJsonString(direction);
+            writeAscii(",\"averageChange\":");
+            writeRounded(trend != null ? trend.getAverageChange() : Double.NaN, PERCENT_DIGITS);
+            writeAscii(",\"volatility\":");
+            writeRounded(trend != null ? trend.getVolatility() : Double.NaN, PERCENT_DIGITS);
+            writeAscii(",\"historySize\":");
+            writeLong(building.getHistoryLength());
+            buffer[size++] = '}';
+        }
+        buffer[size++] = '\n';
+    }
+
+    /**
+     * Binary record: marker, name, nullable address, current price, optional trend, then the history size and
+     * entries as a zigzag varint timestamp delta from the previous entry, the price and the change percentage.
+     */
+    private long writeBinaryRecord(BuildingSnapshot building) throws IOException {
+        PriceTrend trend = building.getRecentTrend();
+        String direction = trend != null ? trend.getTrendDirection() : null;
+        ensure(encodedBound(building.getName()) + encodedBound(building.getAddress()) + encodedBound(direction)
+                + 64);
+        buffer[size++] = BUILDING_RECORD;
+        writeBinaryString(building.getName());
+        writeBinaryString(building.getAddress());
+        writeDouble(building.getCurrentPrice());
+        if (trend == null) {
+            buffer[size++] = 0;
+        } else {
+            buffer[size++] = 1;
+            writeBinaryString(direction);
+            writeDouble(trend.getAverageChange());
+            writeDouble(trend.getVolatility());
+        }
+
+        PriceSeries history = content == ExportContent.HISTORY ? building.getHistory() : null;
+        int count = history != null ? history.size() : 0;
+        writeVarLong(count);
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            ensure(10 + 2 * Double.BYTES);
+            long timestamp = history.getTimestamp(i);
+            long delta = timestamp - previous;
+            writeVarLong((delta << 1) ^ (delta >> 63));
+            writeDouble(history.getPrice(i));
+            writeDouble(history.getChangePercentage(i));
+            previous = timestamp;
+        }
+        return content == ExportContent.HISTORY ? count : 1;
+    }
+
+    /**
+     * Write an ISO-8601 instant with milliseconds in UTC. Only a change of day formats a date; the time of day
+     * is computed from the milliseconds.
+     */
+    private void writeTimestamp(long millis) {
+        long day = Math.floorDiv(millis, MILLIS_PER_DAY);
+        if (day != cachedDay && !cacheDay(day)) {
+            // Years without four digits, far outside any real feed
+            writeAscii(DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochMilli(millis)));
+            return;
+        }
+        System.arraycopy(dayPrefix, 0, buffer, size, dayPrefix.length);
+        size += dayPrefix.length;
+        int millisOfDay = (int) (millis - day * MILLIS_PER_DAY);
+        int seconds = millisOfDay / 1000;
+        writeTwoDigits(seconds / 3600);
+        buffer[size++] = ':';
+        writeTwoDigits(seconds / 60 % 60);
+        buffer[size++] = ':';
+        writeTwoDigits(seconds % 60);
+        buffer[size++] = '.';
+        int fraction = millisOfDay % 1000;
+        buffer[size++] = (byte) ('0' + fraction / 100);
+        writeTwoDigits(fraction % 100);
+        buffer[size++] = 'Z';
+    }
+
+    private boolean cacheDay(long day) {
+        LocalDate date = LocalDate.ofEpochDay(day);
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            return false;
+        }
+        dayPrefix[0] = (byte) ('0' + year / 1000);
+        dayPrefix[1] = (byte) ('0' + year / 100 % 10);
+        dayPrefix[2] = (byte) ('0' + year / 10 % 10);
+        dayPrefix[3] = (byte) ('0' + year % 10);
+        dayPrefix[4] = '-';
+        dayPrefix[5] = (byte) ('0' + date.getMonthValue() / 10);
+        dayPrefix[6] = (byte) ('0' + date.getMonthValue() % 10);
+        dayPrefix[7] = '-';
+        dayPrefix[8] = (byte) ('0' + date.getDayOfMonth() / 10);
+        dayPrefix[9] = (byte) ('0' + date.getDayOfMonth() % 10);
+        dayPrefix[10] = 'T';
+        cachedDay = day;
+        return true;
+    }
+
+    private void writeTwoDigits(int value) {
+        buffer[size++] = (byte) ('0' + value / 10);
+        buffer[size++] = (byte) ('0' + value % 10);
+    }
+
+    /**
+     * Write a number so that parsing it gives back exactly the same double: the shortest decimal with up to
+     * {@value #MAX_EXACT_DECIMALS} decimals that does, such as every price in cents, or else
+     * {@link Double#toString}. Non-finite values are written as a missing value.
+     */
+    private void writeExact(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            writeMissing();
+            return;
+        }
+        for (int decimals = 0; decimals <= MAX_EXACT_DECIMALS; decimals++) {
+            double scaled = value * POWERS_OF_TEN[decimals];
+            if (Math.abs(scaled) >= MAX_EXACT_LONG) {
+                break;
+            }
+            // Both the scaled value and the power of ten are exact, so the division is the correctly rounded
+            // decimal, which is what a parser returns
+            if (scaled == Math.rint(scaled) && scaled / POWERS_OF_TEN[decimals] == value) {
+                writeFixed((long) scaled, decimals);
+                return;
+            }
+        }
+        writeAscii(Double.toString(value));
+    }
+
+    /**
+     * Write a number rounded half up to at most the given number of decimals, without trailing zeros.
+     */
+    private void writeRounded(double value, int decimals) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            writeMissing();
+            return;
+        }
+        double scaled = value * POWERS_OF_TEN[decimals];
+        if (Math.abs(scaled) >= MAX_EXACT_LONG) {
+            writeExact(value);
+            return;
+        }
+        long units = Math.round(scaled);
+        while (decimals > 0 && units % 10 == 0) {
+            units /= 10;
+            decimals--;
+        }
+        writeFixed(units, decimals);
+    }
+
+    /**
+     * Write {@code units / 10^decimals} in plain decimal notation.
+     */
+    private void writeFixed(long units, int decimals) {
+        if (units < 0) {
+            buffer[size++] = '-';
+            units = -units;
+        }
+        long scale = (long) POWERS_OF_TEN[decimals];
+        writeLong(units / scale);
+        if (decimals > 0) {
+            buffer[size++] = '.';
+            long fraction = units % scale;
+            for (int i = decimals - 1; i >= 0; i--) {
+                buffer[size + i] = (byte) ('0' + fraction % 10);
+                fraction /= 10;
+            }
+            size += decimals;
+        }
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            buffer[size++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[size + i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size += digits;
+    }
+
+    private void writeMissing() {
+        if (format == ExportFormat.NDJSON) {
+            System.arraycopy(JSON_NULL, 0, buffer, size, JSON_NULL.length);
+            size += JSON_NULL.length;
+        }
+    }
+
+    /**
+     * Write a CSV field, quoted if it contains a separator, quote or line break. Null is an empty field.
+     */
+    private void writeCsvString(String value) {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writeUtf8(value);
+            return;
+        }
+        buffer[size++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                buffer[size++] = '"';
+                buffer[size++] = '"';
+            } else {
+                i = writeUtf8Char(value, i);
+            }
+        }
+        buffer[size++] = '"';
+    }
+
+    /**
+     * Write a JSON string literal, or {@code null}.
+     */
+    private void writeJsonString(String value) {
+        if (value == null) {
+            writeMissing();
+            return;
+        }
+        buffer[size++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                buffer[size++] = '\\';
+                buffer[size++] = (byte) c;
+            } else if (c == '\n') {
+                buffer[size++] = '\\';
+                buffer[size++] = 'n';
+            } else if (c < 0x20) {
+                writeAscii(String.format("\\u%04x", (int) c));
+            } else {
+                i = writeUtf8Char(value, i);
+            }
+        }
+        buffer[size++] = '"';
+    }
+
+    /**
+     * Write a nullable string as a varint of its UTF-8 length plus one, 0 for null, and its bytes.
+     */
+    private void writeBinaryString(String value) {
+        if (value == null) {
+            buffer[size++] = 0;
+            return;
+        }
+        int lengthAt = size;
+        // Reserve the longest varint, then move the bytes down once the length is known
+        size += 5;
+        writeUtf8(value);
+        int length = size - lengthAt - 5;
+        size = lengthAt;
+        writeVarLong(length + 1L);
+        System.arraycopy(buffer, lengthAt + 5, buffer, size, length);
+        size += length;
+    }
+
+    private void writeUtf8(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            i = writeUtf8Char(value, i);
+        }
+    }
+
+    /**
+     * Encode the character at {@code index}, or the surrogate pair starting there, and return the index of its
+     * last char. Unpaired surrogates become '?', as in {@link String#getBytes}.
+     */
+    private int writeUtf8Char(String value, int index) {
+        char c = value.charAt(index);
+        if (c < 0x80) {
+            buffer[size++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[size++] = (byte) (0xc0 | c >> 6);
+            buffer[size++] = (byte) (0x80 | c & 0x3f);
+        } else if (Character.isHighSurrogate(c) && index + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(index + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(index + 1));
+            buffer[size++] = (byte) (0xf0 | codePoint >> 18);
+            buffer[size++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+            buffer[size++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+            buffer[size++] = (byte) (0x80 | codePoint & 0x3f);
+            return index + 1;
+        } else if (Character.isSurrogate(c)) {
+            buffer[size++] = '?';
+        } else {
+            buffer[size++] = (byte) (0xe0 | c >> 12);
+            buffer[size++] = (byte) (0x80 | c >> 6 & 0x3f);
+            buffer[size++] = (byte) (0x80 | c & 0x3f);
+        }
+        return index;
+    }
+
+    private void writeAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            buffer[size++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void writeVarLong(long value) {
+        while ((value & ~0x7fL) != 0) {
+            buffer[size++] = (byte) (value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    private void writeInt(int value) {
+        buffer[size++] = (byte) (value >>> 24);
+        buffer[size++] = (byte) (value >>> 16);
+        buffer[size++] = (byte) (value >>> 8);
+        buffer[size++] = (byte) value;
+    }
+
+    private void writeDouble(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (bits >>> shift);
+        }
+    }
+
+    /**
+     * Make room for {@code bytes} more bytes, draining to the sink if there is one and growing the buffer
+     * otherwise, or if a single write is larger than the buffer.
+     */
+    private void ensure(int bytes) throws IOException {
+        if (size + bytes <= buffer.length) {
+            return;
+        }
+        if (sink != null && size > 0) {
+            drainTo(sink);
+            if (bytes <= buffer.length) {
+                return;
+            }
+        }
+        buffer = Arrays.copyOf(buffer, Math.max(size + bytes, buffer.length * 2));
+    }
+
+    /**
+     * Upper bound of the bytes a string takes in any format: every char escaped in JSON's longest form.
+     */
+    private static int encodedBound(String value) {
+        return value == null ? 8 : value.length() * 6 + 8;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,65 @@
+package com.buildingtracker.export;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of an export: the files written, how many buildings and rows they hold, and the throughput.
+ */
+public final class ExportResult {
+    private final List<Path> files;
+    private final int buildingCount;
+    private final long rowCount;
+    private final long bytesWritten;
+    private final long elapsedNanos;
+
+    ExportResult(List<Path> files, int buildingCount, long rowCount, long bytesWritten, long elapsedNanos) {
+        this.files = Collections.unmodifiableList(files);
+        this.buildingCount = buildingCount;
+        this.rowCount = rowCount;
+        this.bytesWritten = bytesWritten;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Get the files written: the target file, or one file per partition in partition order.
+     */
+    public List<Path> getFiles() {
+        return files;
+    }
+
+    public int getBuildingCount() {
+        return buildingCount;
+    }
+
+    /**
+     * Get the number of history entries written, or of buildings for a trend export.
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : rowCount * 1e9 / elapsedNanos;
+    }
+
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : bytesWritten * 1e9 / elapsedNanos / (1024 * 1024);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ExportResult{files=%d, buildings=%d, rows=%d, bytes=%d, %d ms, %.0f rows/s, %.1f MB/s}",
+                files.size(), buildingCount, rowCount, bytesWritten, getElapsedMillis(), getRowsPerSecond(),
+                getMegabytesPerSecond());
+    }
+}
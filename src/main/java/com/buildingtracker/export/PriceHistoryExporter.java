@@ -0,0 +1,416 @@
+package com.buildingtracker.export;
+
+import com.buildingtracker.model.Building;
+import com.buildingtracker.model.BuildingSnapshot;
+import com.buildingtracker.service.BuildingService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Export of building price histories or trends to CSV, NDJSON or a compact binary file.
+ *
+ * <p>Exports work on {@link BuildingSnapshot}s, so they never block updates and every building is written as of
+ * one moment; {@link #selectAll()} takes them from the service's portfolio snapshot, so that the whole export is
+ * consistent. Rows are rendered by {@link ExportFormat}-specific code straight into reusable byte buffers and
+ * written to a file channel, without a string per value or a print call per line.
+ *
+ * <p>{@link #export} writes one file: the buildings are cut into batches of about {@link #DEFAULT_BATCH_ROWS}
+ * rows, rendered in parallel in waves of one batch per thread and written in order while the next wave renders.
+ * {@link #exportPartitioned} instead writes one self-contained file per partition, each rendered and written by
+ * its own thread, for consumers that read partitions in parallel.
+ */
+public class PriceHistoryExporter implements AutoCloseable {
+    /**
+     * Default batch size: large enough that per-batch work is negligible, small enough for a wave to fit the heap.
+     */
+    public static final int DEFAULT_BATCH_ROWS = 64 * 1024;
+
+    private final BuildingService service;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final int parallelism;
+    private volatile ExportContent content = ExportContent.HISTORY;
+    private volatile int batchRows = DEFAULT_BATCH_ROWS;
+
+    /**
+     * Constructor with one rendering thread per processor.
+     */
+    public PriceHistoryExporter(BuildingService service) {
+        this(service, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor with a pool of the given number of rendering threads, shut down by {@link #close()}.
+     */
+    public PriceHistoryExporter(BuildingService service, int threads) {
+        this(service, newExportExecutor(threads), threads, true);
+    }
+
+    /**
+     * Constructor with the executor batches are rendered on and how many batches to render at once. The executor
+     * is not shut down by {@link #close()}.
+     */
+    public PriceHistoryExporter(BuildingService service, ExecutorService executor, int parallelism) {
+        this(service, executor, parallelism, false);
+    }
+
+    private PriceHistoryExporter(BuildingService service, ExecutorService executor, int parallelism,
+                                 boolean ownsExecutor) {
+        if (service == null) {
+            throw new IllegalArgumentException("Service cannot be null.");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null.");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive.");
+        }
+        this.service = service;
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * Choose between exporting every history entry, the default, or one trend row per building.
+     */
+    public void setContent(ExportContent content) {
+        if (content == null) {
+            throw new IllegalArgumentException("Export content cannot be null.");
+        }
+        this.content = content;
+    }
+
+    public ExportContent getContent() {
+        return content;
+    }
+
+    /**
+     * Set the nominal number of rows per batch; batches end at the first building boundary after it.
+     */
+    public void setBatchRows(int batchRows) {
+        if (batchRows <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive.");
+        }
+        this.batchRows = batchRows;
+    }
+
+    public int getBatchRows() {
+        return batchRows;
+    }
+
+    /**
+     * Get every building of the service, in no particular order: from one portfolio snapshot, or in bounded cache
+     * mode, where there is none, by snapshotting each building as it is read from storage.
+     */
+    public List<BuildingSnapshot> selectAll() {
+        if (service.getCacheStats() == null) {
+            return service.getPortfolioSnapshot().getBuildings();
+        }
+        List<Building> buildings = service.getAllBuildings();
+        List<BuildingSnapshot> snapshots = new ArrayList<>(buildings.size());
+        for (Building building : buildings) {
+            snapshots.add(building.snapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * Get the named buildings in the given order.
+     *
+     * @throws IllegalArgumentException if a building does not exist
+     */
+    public List<BuildingSnapshot> select(Collection<String> buildingNames) {
+        if (buildingNames == null) {
+            throw new IllegalArgumentException("Building names cannot be null.");
+        }
+        List<BuildingSnapshot> snapshots = new ArrayList<>(buildingNames.size());
+        for (String name : buildingNames) {
+            BuildingSnapshot snapshot = name != null ? service.getBuildingSnapshot(name) : null;
+            if (snapshot == null) {
+                throw new IllegalArgumentException("Building '" + name + "' not found.");
+            }
+            snapshots.add(snapshot);
+        }
+        return snapshots;
+    }
+
+    /**
+     * Export every building to a file whose format is given by its extension.
+     */
+    public ExportResult exportAll(Path file) {
+        return export(selectAll(), file, ExportFormat.forFile(file));
+    }
+
+    /**
+     * Export the buildings to one file, replacing it if it exists. Returns when the file is complete.
+     */
+    public ExportResult export(List<BuildingSnapshot> buildings, Path file, ExportFormat format) {
+        if (buildings == null || file == null || format == null) {
+            throw new IllegalArgumentException("Buildings, export file and format cannot be null.");
+        }
+        ExportContent content = this.content;
+        long start = System.nanoTime();
+        List<int[]> batches = split(buildings, content, batchRows);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ExportRenderer edges = new ExportRenderer(format, content, null, 1024);
+            edges.writeHeader();
+            edges.drainTo(channel);
+
+            Deque<ExportRenderer> free = new ArrayDeque<>();
+            long rows = 0;
+            long bytes = edges.getBytesDrained();
+            int next = 0;
+            List<ExportRenderer> renderers = new ArrayList<>(parallelism);
+            List<Future<Long>> wave = submitWave(buildings, batches, next, format, content, free, renderers);
+            while (!wave.isEmpty()) {
+                List<Long> rendered = await(wave, file);
+                next += rendered.size();
+                List<ExportRenderer> done = renderers;
+                renderers = new ArrayList<>(parallelism);
+                // Render the next wave while this one is written
+                wave = submitWave(buildings, batches, next, format, content, free, renderers);
+                try {
+                    for (int i = 0; i < done.size(); i++) {
+                        ExportRenderer renderer = done.get(i);
+                        bytes += renderer.size();
+                        renderer.drainTo(channel);
+                        rows += rendered.get(i);
+                        free.push(renderer);
+                    }
+                } catch (IOException | RuntimeException | Error e) {
+                    cancel(wave);
+                    throw e;
+                }
+            }
+
+            edges.writeFooter();
+            bytes += edges.size();
+            edges.drainTo(channel);
+            return new ExportResult(Collections.singletonList(file), buildings.size(), rows, bytes,
+                    System.nanoTime() - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to export price history to " + file, e);
+        }
+    }
+
+    /**
+     * Export every building to {@code partitions} files in the directory, in the given format.
+     */
+    public ExportResult exportAllPartitioned(Path directory, ExportFormat format, int partitions) {
+        return exportPartitioned(selectAll(), directory, format, partitions);
+    }
+
+    /**
+     * Export the buildings to {@code partitions} files named {@code part-00000} and up with the format's
+     * extension, creating the directory if needed and replacing existing partition files. Each partition holds a
+     * contiguous run of the buildings with about the same number of rows, and is a complete file of its format
+     * that can be read on its own.
+     */
+    public ExportResult exportPartitioned(List<BuildingSnapshot> buildings, Path directory, ExportFormat format,
+                                          int partitions) {
+        if (buildings == null || directory == null || format == null) {
+            throw new IllegalArgumentException("Buildings, export directory and format cannot be null.");
+        }
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("Partition count must be positive.");
+        }
+        ExportContent content = this.content;
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create export directory " + directory, e);
+        }
+
+        List<int[]> ranges = partition(buildings, content, partitions);
+        List<Path> files = new ArrayList<>(partitions);
+        List<Future<long[]>> tasks = new ArrayList<>(partitions);
+        for (int p = 0; p < partitions; p++) {
+            Path file = directory.resolve(String.format("part-%05d%s", p, format.getExtension()));
+            int from = ranges.get(p)[0];
+            int to = ranges.get(p)[1];
+            files.add(file);
+            tasks.add(executor.submit(() -> writePartition(buildings.subList(from, to), file, format, content)));
+        }
+        long rows = 0;
+        long bytes = 0;
+        try {
+            for (long[] written : await(tasks, directory)) {
+                rows += written[0];
+                bytes += written[1];
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to export price history to " + directory, e);
+        }
+        return new ExportResult(files, buildings.size(), rows, bytes, System.nanoTime() - start);
+    }
+
+    /**
+     * Shut down the rendering executor if this exporter created it.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private List<Future<Long>> submitWave(List<BuildingSnapshot> buildings, List<int[]> batches, int first,
+                                          ExportFormat format, ExportContent content, Deque<ExportRenderer> free,
+                                          List<ExportRenderer> renderers) {
+        List<Future<Long>> wave = new ArrayList<>(parallelism);
+        for (int i = first; i < Math.min(batches.size(), first + parallelism); i++) {
+            int from = batches.get(i)[0];
+            int to = batches.get(i)[1];
+            ExportRenderer renderer = !free.isEmpty() ? free.pop()
+                    : new ExportRenderer(format, content, null, ExportRenderer.DEFAULT_BUFFER_BYTES);
+            renderers.add(renderer);
+            wave.add(executor.submit(() -> {
+                long rows = 0;
+                for (int b = from; b < to; b++) {
+                    rows += renderer.writeBuilding(buildings.get(b));
+                }
+                return rows;
+            }));
+        }
+        return wave;
+    }
+
+    /**
+     * Write one partition file with a renderer that drains to it as it fills.
+     *
+     * @return the rows and bytes written
+     */
+    private static long[] writePartition(List<BuildingSnapshot> buildings, Path file, ExportFormat format,
+                                         ExportContent content) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ExportRenderer renderer = new ExportRenderer(format, content, channel, ExportRenderer.DEFAULT_BUFFER_BYTES);
+            renderer.writeHeader();
+            long rows = 0;
+            for (BuildingSnapshot building : buildings) {
+                rows += renderer.writeBuilding(building);
+            }
+            renderer.writeFooter();
+            renderer.drainTo(channel);
+            return new long[]{rows, renderer.getBytesDrained()};
+        }
+    }
+
+    private static <T> List<T> await(List<Future<T>> tasks, Path target) throws IOException {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> task : tasks) {
+                results.add(task.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            cancel(tasks);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while exporting to " + target + ".", e);
+        } catch (ExecutionException e) {
+            cancel(tasks);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Failed to render export to " + target + ".", cause);
+        }
+    }
+
+    private static void cancel(List<? extends Future<?>> tasks) {
+        for (Future<?> task : tasks) {
+            task.cancel(true);
+        }
+    }
+
+    /**
+     * Cut the buildings into runs of at least {@code rowsPerBatch} rows, except the last.
+     */
+    private static List<int[]> split(List<BuildingSnapshot> buildings, ExportContent content, int rowsPerBatch) {
+        List<int[]> batches = new ArrayList<>();
+        int from = 0;
+        long rows = 0;
+        for (int i = 0; i < buildings.size(); i++) {
+            rows += rows(buildings.get(i), content);
+            if (rows >= rowsPerBatch) {
+                batches.add(new int[]{from, i + 1});
+                from = i + 1;
+                rows = 0;
+            }
+        }
+        if (from < buildings.size()) {
+            batches.add(new int[]{from, buildings.size()});
+        }
+        return batches;
+    }
+
+    /**
+     * Cut the buildings into exactly {@code partitions} contiguous runs of about equal rows; some may be empty.
+     */
+    private static List<int[]> partition(List<BuildingSnapshot> buildings, ExportContent content, int partitions) {
+        long total = 0;
+        for (BuildingSnapshot building : buildings) {
+            total += rows(building, content);
+        }
+        List<int[]> ranges = new ArrayList<>(partitions);
+        int from = 0;
+        long rows = 0;
+        for (int p = 0; p < partitions; p++) {
+            long target = p == partitions - 1 ? Long.MAX_VALUE : total * (p + 1) / partitions;
+            int to = from;
+            while (to < buildings.size() && rows < target) {
+                rows += rows(buildings.get(to), content);
+                to++;
+            }
+            ranges.add(new int[]{from, to});
+            from = to;
+        }
+        return ranges;
+    }
+
+    /**
+     * Weigh a building by its history size, plus one so that buildings without history are spread too.
+     */
+    private static long rows(BuildingSnapshot building, ExportContent content) {
+        return content == ExportContent.HISTORY ? building.getHistoryLength() + 1L : 1L;
+    }
+
+    private static ExecutorService newExportExecutor(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive.");
+        }
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, "price-export-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(threads, factory);
+    }
+}
@@ -0,0 +1,37 @@
+package com.buildingtracker.ingest;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Line-oriented price feed formats understood by {@link PriceFeedImporter}.
+ */
+public enum FeedFormat {
+    /**
+     * Comma-separated {@code building,price,timestamp} rows, optionally quoted. A first line naming a
+     * {@code price} column is a header, which may reorder the columns or add others; the timestamp column is
+     * optional.
+     */
+    CSV,
+
+    /**
+     * One flat JSON object per line with {@code building} (or {@code name}), {@code price} and an optional
+     * {@code timestamp}. Other fields are ignored.
+     */
+    NDJSON;
+
+    /**
+     * Pick the format from a file extension: {@code .csv}, or {@code .ndjson}, {@code .jsonl} and {@code .json}.
+     */
+    public static FeedFormat forFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl") || name.endsWith(".json")) {
+            return NDJSON;
+        }
+        throw new IllegalArgumentException("Cannot tell the feed format of '" + file.getFileName()
+                + "'; expected a .csv, .ndjson or .jsonl file.");
+    }
+}
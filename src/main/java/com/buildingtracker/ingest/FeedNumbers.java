@@ -0,0 +1,237 @@
+package com.buildingtracker.ingest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses prices and timestamps straight from the bytes of a mapped feed, without a string per field. Values the
+ * fast paths do not cover, such as exponents or more than 15 significant digits, fall back to the JDK parser.
+ */
+final class FeedNumbers {
+    /**
+     * Returned by {@link #parseTimestamp} for text that is not a timestamp.
+     */
+    static final long INVALID_TIMESTAMP = Long.MIN_VALUE;
+
+    /**
+     * Largest digit count whose value a double holds exactly.
+     */
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final int MILLIS_PER_MINUTE = 60_000;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    /**
+     * Powers of ten that are exact doubles, so one division by them is correctly rounded.
+     */
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        double power = 1.0;
+        for (int i = 0; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = power;
+            power *= 10.0;
+        }
+    }
+
+    private FeedNumbers() {
+    }
+
+    /**
+     * Parse a decimal number from the bytes {@code [from, to)}, or return NaN if they are not one.
+     */
+    static double parseDecimal(ByteBuffer buffer, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int significantDigits = 0;
+        int fractionDigits = 0;
+        boolean anyDigit = false;
+        boolean point = false;
+        for (; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                anyDigit = true;
+                if (point) {
+                    fractionDigits++;
+                }
+                if (mantissa == 0 && b == '0') {
+                    continue;
+                }
+                if (++significantDigits > MAX_EXACT_DIGITS) {
+                    return parseSlowly(buffer, from, to);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+            } else if (b == '.' && !point) {
+                point = true;
+            } else {
+                return parseSlowly(buffer, from, to);
+            }
+        }
+        if (!anyDigit) {
+            return Double.NaN;
+        }
+        if (fractionDigits >= POWERS_OF_TEN.length) {
+            return parseSlowly(buffer, from, to);
+        }
+        double value = mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parse a timestamp from the bytes {@code [from, to)}: epoch milliseconds, or an ISO-8601 date or date-time
+     * such as {@code 2024-03-01}, {@code 2024-03-01T09:30:00.250Z} or {@code 2024-03-01 09:30+01:00}. Times
+     * without an offset are UTC. Returns {@link #INVALID_TIMESTAMP} if the bytes are neither.
+     */
+    static long parseTimestamp(ByteBuffer buffer, int from, int to) {
+        if (from >= to) {
+            return INVALID_TIMESTAMP;
+        }
+        if (to - from > 4 && buffer.get(from + 4) == '-') {
+            return parseIsoTimestamp(buffer, from, to);
+        }
+        if (to - from > 18) {
+            return INVALID_TIMESTAMP;
+        }
+        long millis = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID_TIMESTAMP;
+            }
+            millis = millis * 10 + digit;
+        }
+        return millis;
+    }
+
+    private static long parseIsoTimestamp(ByteBuffer buffer, int from, int to) {
+        if (to - from < 10 || buffer.get(from + 4) != '-' || buffer.get(from + 7) != '-') {
+            return INVALID_TIMESTAMP;
+        }
+        int year = digits(buffer, from, 4);
+        int month = digits(buffer, from + 5, 2);
+        int day = digits(buffer, from + 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            return INVALID_TIMESTAMP;
+        }
+        long millis = daysFromCivil(year, month, day) * MILLIS_PER_DAY;
+        int i = from + 10;
+        if (i == to) {
+            return millis;
+        }
+
+        byte separator = buffer.get(i);
+        if ((separator != 'T' && separator != ' ') || to - i < 6 || buffer.get(i + 3) != ':') {
+            return INVALID_TIMESTAMP;
+        }
+        int hour = digits(buffer, i + 1, 2);
+        int minute = digits(buffer, i + 4, 2);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return INVALID_TIMESTAMP;
+        }
+        millis += (hour * 60L + minute) * MILLIS_PER_MINUTE;
+        i += 6;
+        if (i < to && buffer.get(i) == ':') {
+            int second = to - i >= 3 ? digits(buffer, i + 1, 2) : -1;
+            if (second < 0 || second > 59) {
+                return INVALID_TIMESTAMP;
+            }
+            millis += second * 1000L;
+            i += 3;
+            if (i < to && buffer.get(i) == '.') {
+                int fractionStart = ++i;
+                int fraction = 0;
+                while (i < to && buffer.get(i) >= '0' && buffer.get(i) <= '9') {
+                    if (i - fractionStart < 3) {
+                        fraction = fraction * 10 + (buffer.get(i) - '0');
+                    }
+                    i++;
+                }
+                int fractionDigits = i - fractionStart;
+                if (fractionDigits == 0 || fractionDigits > 9) {
+                    return INVALID_TIMESTAMP;
+                }
+                for (int d = fractionDigits; d < 3; d++) {
+                    fraction *= 10;
+                }
+                millis += fraction;
+            }
+        }
+
+        if (i == to) {
+            return millis;
+        }
+        byte zone = buffer.get(i);
+        if (zone == 'Z') {
+            return i + 1 == to ? millis : INVALID_TIMESTAMP;
+        }
+        if (zone != '+' && zone != '-') {
+            return INVALID_TIMESTAMP;
+        }
+        int offsetHours = to - i >= 3 ? digits(buffer, i + 1, 2) : -1;
+        i += 3;
+        if (i < to && buffer.get(i) == ':') {
+            i++;
+        }
+        int offsetMinutes = to - i == 2 ? digits(buffer, i, 2) : to == i ? 0 : -1;
+        if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) {
+            return INVALID_TIMESTAMP;
+        }
+        long offset = (offsetHours * 60L + offsetMinutes) * MILLIS_PER_MINUTE;
+        return zone == '+' ? millis - offset : millis + offset;
+    }
+
+    /**
+     * Read {@code count} decimal digits, or return -1 if one of the bytes is not a digit.
+     */
+    private static int digits(ByteBuffer buffer, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /**
+     * Days since 1970-01-01 of a proleptic Gregorian date.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - 719_468;
+    }
+
+    private static double parseSlowly(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = from; i < to; i++) {
+            byte b = bytes[i - from] = buffer.get(i);
+            // Only plain decimal notation; Double.parseDouble would also take hex, "NaN" and type suffixes
+            if ((b < '0' || b > '9') && b != '.' && b != '-' && b != '+' && b != 'e' && b != 'E') {
+                return Double.NaN;
+            }
+        }
+        try {
+            return Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,540 @@
+package com.buildingtracker.ingest;
+
+import com.buildingtracker.model.PriceSeries;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses one chunk of a feed, a run of complete lines in a mapped buffer, into a tick series per building.
+ *
+ * <p>Fields are located and parsed in place in the buffer. Building names go through a small open-addressing table
+ * keyed on their bytes, so each distinct name becomes a string once per chunk however many rows it has. A parser is
+ * used by one thread for one chunk.
+ */
+final class FeedParser {
+    private static final int SAMPLE_TEXT_LIMIT = 120;
+
+    private static final int FIELD_BUILDING = 0;
+    private static final int FIELD_PRICE = 1;
+    private static final int FIELD_TIMESTAMP = 2;
+    private static final byte[][] FIELD_KEYS = {
+            ascii("building"), ascii("name"), ascii("price"), ascii("timestamp"), ascii("time"), ascii("date")
+    };
+    private static final int[] FIELD_OF_KEY = {
+            FIELD_BUILDING, FIELD_BUILDING, FIELD_PRICE, FIELD_TIMESTAMP, FIELD_TIMESTAMP, FIELD_TIMESTAMP
+    };
+
+    /**
+     * Why a row was rejected before reaching the service.
+     */
+    enum RowError {
+        MALFORMED("Malformed row"),
+        MISSING_BUILDING("Missing building name"),
+        INVALID_PRICE("Invalid price"),
+        INVALID_TIMESTAMP("Invalid timestamp");
+
+        final String reason;
+
+        RowError(String reason) {
+            this.reason = reason;
+        }
+    }
+
+    /**
+     * Ticks and counters of one parsed chunk.
+     */
+    static final class ParsedChunk {
+        /** Ticks per building in feed order, with names in order of first appearance. */
+        final Map<String, PriceSeries> ticks;
+        final long rows;
+        final long[] rejectedByError;
+        final List<String> rejectedSamples;
+
+        ParsedChunk(Map<String, PriceSeries> ticks, long rows, long[] rejectedByError, List<String> rejectedSamples) {
+            this.ticks = ticks;
+            this.rows = rows;
+            this.rejectedByError = rejectedByError;
+            this.rejectedSamples = rejectedSamples;
+        }
+    }
+
+    private final FeedFormat format;
+    private final int buildingColumn;
+    private final int priceColumn;
+    private final int timestampColumn;
+    private final int columnsNeeded;
+    private final long defaultTimestamp;
+    private final int maxSamples;
+
+    // Name table: slots hold entry indexes, -1 when free
+    private int[] slots = new int[64];
+    private byte[][] keys = new byte[16][];
+    private int[] hashes = new int[16];
+    private String[] names = new String[16];
+    private PriceSeries[] series = new PriceSeries[16];
+    private int entryCount;
+
+    // Fields of the current row, as byte ranges of the buffer; a start of -1 means absent
+    private int nameStart;
+    private int nameEnd;
+    private boolean nameEscaped;
+    private int priceStart;
+    private int priceEnd;
+    private int timestampStart;
+    private int timestampEnd;
+    private boolean lastStringEscaped;
+
+    private long rows;
+    private final long[] rejectedByError = new long[RowError.values().length];
+    private final List<String> rejectedSamples = new ArrayList<>();
+
+    /**
+     * Constructor. The column indexes apply to CSV only; a timestamp column of -1 means rows have no timestamp and
+     * get {@code defaultTimestamp}, as do NDJSON rows without one.
+     */
+    FeedParser(FeedFormat format, int buildingColumn, int priceColumn, int timestampColumn, long defaultTimestamp,
+               int maxSamples) {
+        this.format = format;
+        this.buildingColumn = buildingColumn;
+        this.priceColumn = priceColumn;
+        this.timestampColumn = timestampColumn;
+        this.columnsNeeded = Math.max(buildingColumn, Math.max(priceColumn, timestampColumn)) + 1;
+        this.defaultTimestamp = defaultTimestamp;
+        this.maxSamples = maxSamples;
+        Arrays.fill(slots, -1);
+    }
+
+    /**
+     * Parse every line of the buffer, which starts at {@code fileOffset} in the feed.
+     */
+    ParsedChunk parse(ByteBuffer buffer, long fileOffset) {
+        int limit = buffer.limit();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            if (skipWhitespace(buffer, lineStart, lineEnd) < lineEnd) {
+                rows++;
+                RowError error = format == FeedFormat.CSV
+                        ? parseCsvRow(buffer, lineStart, lineEnd)
+                        : parseJsonRow(buffer, lineStart, lineEnd);
+                if (error == null) {
+                    error = addTick(buffer);
+                }
+                if (error != null) {
+                    reject(error, buffer, fileOffset, lineStart, lineEnd);
+                }
+            }
+            lineStart = next;
+        }
+
+        Map<String, PriceSeries> ticks = new LinkedHashMap<>(entryCount * 2);
+        for (int i = 0; i < entryCount; i++) {
+            ticks.put(names[i], series[i]);
+        }
+        return new ParsedChunk(ticks, rows, rejectedByError, rejectedSamples);
+    }
+
+    private RowError parseCsvRow(ByteBuffer buffer, int from, int to) {
+        clearFields();
+        int column = 0;
+        int pos = from;
+        while (true) {
+            int start;
+            int end;
+            boolean escaped = false;
+            while (pos < to && buffer.get(pos) == ' ') {
+                pos++;
+            }
+            if (pos < to && buffer.get(pos) == '"') {
+                start = ++pos;
+                while (true) {
+                    if (pos >= to) {
+                        return RowError.MALFORMED;
+                    }
+                    if (buffer.get(pos) == '"') {
+                        if (pos + 1 < to && buffer.get(pos + 1) == '"') {
+                            escaped = true;
+                            pos += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    pos++;
+                }
+                end = pos++;
+                while (pos < to && buffer.get(pos) == ' ') {
+                    pos++;
+                }
+                if (pos < to && buffer.get(pos) != ',') {
+                    return RowError.MALFORMED;
+                }
+            } else {
+                start = pos;
+                while (pos < to && buffer.get(pos) != ',') {
+                    pos++;
+                }
+                end = pos;
+                while (end > start && buffer.get(end - 1) == ' ') {
+                    end--;
+                }
+            }
+
+            if (column == buildingColumn) {
+                nameStart = start;
+                nameEnd = end;
+                nameEscaped = escaped;
+            } else if (column == priceColumn) {
+                priceStart = start;
+                priceEnd = end;
+            } else if (column == timestampColumn) {
+                timestampStart = start;
+                timestampEnd = end;
+            }
+            column++;
+            if (pos >= to || column == columnsNeeded) {
+                break;
+            }
+            pos++;
+        }
+        return column < columnsNeeded ? RowError.MALFORMED : null;
+    }
+
+    private RowError parseJsonRow(ByteBuffer buffer, int from, int to) {
+        clearFields();
+        int pos = skipWhitespace(buffer, from, to);
+        if (pos >= to || buffer.get(pos) != '{') {
+            return RowError.MALFORMED;
+        }
+        pos = skipWhitespace(buffer, pos + 1, to);
+        if (pos < to && buffer.get(pos) == '}') {
+            pos++;
+        } else {
+            while (true) {
+                if (pos >= to || buffer.get(pos) != '"') {
+                    return RowError.MALFORMED;
+                }
+                int keyStart = pos + 1;
+                pos = stringEnd(buffer, keyStart, to);
+                if (pos < 0) {
+                    return RowError.MALFORMED;
+                }
+                int field = lastStringEscaped ? -1 : fieldOf(buffer, keyStart, pos);
+                pos = skipWhitespace(buffer, pos + 1, to);
+                if (pos >= to || buffer.get(pos) != ':') {
+                    return RowError.MALFORMED;
+                }
+                pos = skipWhitespace(buffer, pos + 1, to);
+                if (pos >= to) {
+                    return RowError.MALFORMED;
+                }
+
+                int valueStart;
+                int valueEnd;
+                boolean string = false;
+                byte first = buffer.get(pos);
+                if (first == '"') {
+                    valueStart = pos + 1;
+                    valueEnd = stringEnd(buffer, valueStart, to);
+                    if (valueEnd < 0) {
+                        return RowError.MALFORMED;
+                    }
+                    string = true;
+                    pos = valueEnd + 1;
+                } else if (first == '{' || first == '[') {
+                    pos = compositeEnd(buffer, pos, to);
+                    if (pos < 0) {
+                        return RowError.MALFORMED;
+                    }
+                    valueStart = -1;
+                    valueEnd = -1;
+                    field = -1;
+                } else {
+                    valueStart = pos;
+                    while (pos < to && buffer.get(pos) != ',' && buffer.get(pos) != '}' && buffer.get(pos) > ' ') {
+                        pos++;
+                    }
+                    valueEnd = pos;
+                    if (isNull(buffer, valueStart, valueEnd)) {
+                        field = -1;
+                    }
+                }
+
+                if (field == FIELD_BUILDING && string) {
+                    nameStart = valueStart;
+                    nameEnd = valueEnd;
+                    nameEscaped = lastStringEscaped;
+                } else if (field == FIELD_PRICE) {
+                    priceStart = valueStart;
+                    priceEnd = valueEnd;
+                } else if (field == FIELD_TIMESTAMP) {
+                    timestampStart = valueStart;
+                    timestampEnd = valueEnd;
+                }
+
+                pos = skipWhitespace(buffer, pos, to);
+                if (pos >= to) {
+                    return RowError.MALFORMED;
+                }
+                byte separator = buffer.get(pos++);
+                if (separator == '}') {
+                    break;
+                }
+                if (separator != ',') {
+                    return RowError.MALFORMED;
+                }
+                pos = skipWhitespace(buffer, pos, to);
+            }
+        }
+        return skipWhitespace(buffer, pos, to) < to ? RowError.MALFORMED : null;
+    }
+
+    private RowError addTick(ByteBuffer buffer) {
+        if (nameStart < 0 || skipWhitespace(buffer, nameStart, nameEnd) == nameEnd) {
+            return RowError.MISSING_BUILDING;
+        }
+        if (priceStart < 0) {
+            return RowError.INVALID_PRICE;
+        }
+        double price = FeedNumbers.parseDecimal(buffer, priceStart, priceEnd);
+        if (Double.isNaN(price)) {
+            return RowError.INVALID_PRICE;
+        }
+        long timestamp = timestampStart < 0
+                ? defaultTimestamp
+                : FeedNumbers.parseTimestamp(buffer, timestampStart, timestampEnd);
+        if (timestamp == FeedNumbers.INVALID_TIMESTAMP) {
+            return RowError.INVALID_TIMESTAMP;
+        }
+
+        int entry;
+        if (nameEscaped) {
+            String name = format == FeedFormat.CSV
+                    ? utf8(buffer, nameStart, nameEnd).replace("\"\"", "\"")
+                    : unescapeJson(utf8(buffer, nameStart, nameEnd));
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            entry = entryFor(ByteBuffer.wrap(bytes), 0, bytes.length);
+        } else {
+            entry = entryFor(buffer, nameStart, nameEnd);
+        }
+        series[entry].add(price, timestamp, Double.NaN);
+        return null;
+    }
+
+    /**
+     * Find or add the name table entry for the name in bytes {@code [from, to)}.
+     */
+    private int entryFor(ByteBuffer buffer, int from, int to) {
+        int hash = 0x811c9dc5;
+        for (int i = from; i < to; i++) {
+            hash = (hash ^ (buffer.get(i) & 0xff)) * 0x01000193;
+        }
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        for (int entry = slots[slot]; entry >= 0; entry = slots[slot]) {
+            if (hashes[entry] == hash && sameBytes(keys[entry], buffer, from, to)) {
+                return entry;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        byte[] key = new byte[to - from];
+        for (int i = from; i < to; i++) {
+            key[i - from] = buffer.get(i);
+        }
+        if (entryCount == keys.length) {
+            int capacity = entryCount * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            names = Arrays.copyOf(names, capacity);
+            series = Arrays.copyOf(series, capacity);
+        }
+        int entry = entryCount++;
+        keys[entry] = key;
+        hashes[entry] = hash;
+        names[entry] = new String(key, StandardCharsets.UTF_8);
+        series[entry] = new PriceSeries();
+        slots[slot] = entry;
+        if (entryCount * 2 > slots.length) {
+            rehash();
+        }
+        return entry;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        Arrays.fill(slots, -1);
+        int mask = slots.length - 1;
+        for (int entry = 0; entry < entryCount; entry++) {
+            int slot = hashes[entry] & mask;
+            while (slots[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = entry;
+        }
+    }
+
+    private void reject(RowError error, ByteBuffer buffer, long fileOffset, int from, int to) {
+        rejectedByError[error.ordinal()]++;
+        if (rejectedSamples.size() < maxSamples) {
+            int end = Math.min(to, from + SAMPLE_TEXT_LIMIT);
+            rejectedSamples.add("offset " + (fileOffset + from) + ": " + error.reason + ": "
+                    + utf8(buffer, from, end) + (end < to ? "..." : ""));
+        }
+    }
+
+    private void clearFields() {
+        nameStart = -1;
+        nameEnd = -1;
+        nameEscaped = false;
+        priceStart = -1;
+        priceEnd = -1;
+        timestampStart = -1;
+        timestampEnd = -1;
+    }
+
+    /**
+     * Find the closing quote of a JSON string whose content starts at {@code from}, or return -1 if the line ends
+     * first. Records in {@link #lastStringEscaped} whether the string contains escapes.
+     */
+    private int stringEnd(ByteBuffer buffer, int from, int to) {
+        lastStringEscaped = false;
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b == '"') {
+                return i;
+            }
+            if (b == '\\') {
+                lastStringEscaped = true;
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Skip a nested object or array starting at {@code from}, returning the position after it or -1.
+     */
+    private int compositeEnd(ByteBuffer buffer, int from, int to) {
+        int depth = 0;
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b == '"') {
+                i = stringEnd(buffer, i + 1, to);
+                if (i < 0) {
+                    return -1;
+                }
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if ((b == '}' || b == ']') && --depth == 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int fieldOf(ByteBuffer buffer, int from, int to) {
+        for (int k = 0; k < FIELD_KEYS.length; k++) {
+            if (sameBytes(FIELD_KEYS[k], buffer, from, to)) {
+                return FIELD_OF_KEY[k];
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isNull(ByteBuffer buffer, int from, int to) {
+        return to - from == 4 && buffer.get(from) == 'n' && buffer.get(from + 1) == 'u'
+                && buffer.get(from + 2) == 'l' && buffer.get(from + 3) == 'l';
+    }
+
+    private static boolean sameBytes(byte[] key, ByteBuffer buffer, int from, int to) {
+        if (key.length != to - from) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != buffer.get(from + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipWhitespace(ByteBuffer buffer, int from, int to) {
+        int i = from;
+        while (i < to && (buffer.get(i) == ' ' || buffer.get(i) == '\t' || buffer.get(i) == '\r')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String utf8(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = from; i < to; i++) {
+            bytes[i - from] = buffer.get(i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Resolve the escapes of a JSON string's content. Invalid escapes are kept as written.
+     */
+    private static String unescapeJson(String text) {
+        StringBuilder result = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != '\\' || i + 1 == text.length()) {
+                result.append(c);
+                continue;
+            }
+            char escape = text.charAt(++i);
+            switch (escape) {
+                case 'b':
+                    result.append('\b');
+                    break;
+                case 'f':
+                    result.append('\f');
+                    break;
+                case 'n':
+                    result.append('\n');
+                    break;
+                case 'r':
+                    result.append('\r');
+                    break;
+                case 't':
+                    result.append('\t');
+                    break;
+                case 'u':
+                    if (i + 4 < text.length()) {
+                        try {
+                            result.append((char) Integer.parseInt(text.substring(i + 1, i + 5), 16));
+                            i += 4;
+                            break;
+                        } catch (NumberFormatException e) {
+                            // Not a valid escape; keep it as written
+                        }
+                    }
+                    result.append('\\').append(escape);
+                    break;
+                default:
+                    result.append(escape);
+            }
+        }
+        return result.toString();
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,18 @@
+package com.buildingtracker.ingest;
+
+/**
+ * Receives progress reports from a running import.
+ */
+@FunctionalInterface
+public interface ImportProgressListener {
+    /**
+     * Listener that ignores progress.
+     */
+    ImportProgressListener NONE = progress -> { };
+
+    /**
+     * Called on the importing thread after each block of the feed has been applied, and once more with the final
+     * result, for which {@link ImportResult#isComplete()} is true.
+     */
+    void onProgress(ImportResult progress);
+}
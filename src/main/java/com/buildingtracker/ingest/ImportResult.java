@@ -0,0 +1,115 @@
+package com.buildingtracker.ingest;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Progress or outcome of a feed import: how much of the feed has been read, how many rows were applied or rejected
+ * and why, and the throughput so far.
+ */
+public final class ImportResult {
+    private final long bytesRead;
+    private final long totalBytes;
+    private final long rowCount;
+    private final long appliedCount;
+    private final long rejectedCount;
+    private final Map<String, Long> rejectedByReason;
+    private final List<String> rejectedSamples;
+    private final int buildingCount;
+    private final long elapsedNanos;
+    private final boolean complete;
+
+    ImportResult(long bytesRead, long totalBytes, long rowCount, long appliedCount, long rejectedCount,
+                 Map<String, Long> rejectedByReason, List<String> rejectedSamples, int buildingCount,
+                 long elapsedNanos, boolean complete) {
+        this.bytesRead = bytesRead;
+        this.totalBytes = totalBytes;
+        this.rowCount = rowCount;
+        this.appliedCount = appliedCount;
+        this.rejectedCount = rejectedCount;
+        this.rejectedByReason = Collections.unmodifiableMap(rejectedByReason);
+        this.rejectedSamples = Collections.unmodifiableList(rejectedSamples);
+        this.buildingCount = buildingCount;
+        this.elapsedNanos = elapsedNanos;
+        this.complete = complete;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Get the fraction of the feed read so far, between 0 and 1.
+     */
+    public double getProgress() {
+        return totalBytes == 0 ? 1.0 : (double) bytesRead / totalBytes;
+    }
+
+    /**
+     * Get the number of non-blank rows read, applied or not.
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getAppliedCount() {
+        return appliedCount;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Get the rejected row count per reason, such as malformed rows, unknown buildings or out-of-order ticks.
+     */
+    public Map<String, Long> getRejectedByReason() {
+        return rejectedByReason;
+    }
+
+    /**
+     * Get up to a few examples of rejected rows with their byte offset or building, for finding bad input.
+     */
+    public List<String> getRejectedSamples() {
+        return rejectedSamples;
+    }
+
+    /**
+     * Get the number of distinct building names in the rows read.
+     */
+    public int getBuildingCount() {
+        return buildingCount;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : rowCount * 1e9 / elapsedNanos;
+    }
+
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : bytesRead * 1e9 / elapsedNanos / (1024 * 1024);
+    }
+
+    /**
+     * Whether the whole feed has been imported. Progress reports before the last are incomplete.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ImportResult{%.1f%% of %d bytes, rows=%d, applied=%d, rejected=%d, buildings=%d, "
+                        + "%d ms, %.0f rows/s, %.1f MB/s%s}", getProgress() * 100, totalBytes, rowCount,
+                appliedCount, rejectedCount, buildingCount, getElapsedMillis(), getRowsPerSecond(),
+                getMegabytesPerSecond(), rejectedByReason.isEmpty() ? "" : ", rejectedByReason=" + rejectedByReason);
+    }
+}
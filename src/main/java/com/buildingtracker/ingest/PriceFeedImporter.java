@@ -0,0 +1,497 @@
+package com.buildingtracker.ingest;
+
+import com.buildingtracker.model.PriceSeries;
+import com.buildingtracker.service.BatchResult;
+import com.buildingtracker.service.BuildingService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulk import of price feeds in CSV or NDJSON into a {@link BuildingService}.
+ *
+ * <p>The feed is memory-mapped and cut into chunks of about {@link #DEFAULT_CHUNK_BYTES} at line boundaries. Chunks
+ * are parsed in parallel, in waves of one chunk per thread, by parsers that read fields in place from the mapped
+ * bytes. Each wave's ticks are then merged per building in feed order, sorted by timestamp and applied with
+ * {@link BuildingService#recordPriceHistory(Map)}: one lock, trend update and storage write per building and wave
+ * instead of per row. The next wave is parsed while the current one is applied.
+ *
+ * <p>Rows of one building may be out of order within a wave; across waves they must not go back in time, or the
+ * older ticks are rejected. Rejected rows never stop the import: they are counted by reason, with a few examples,
+ * in the {@link ImportResult}. Buildings must exist before their prices are imported.
+ *
+ * <p>Every wave ends in a storage write of the buildings it changed, so large imports are best run against a
+ * storage that writes per building rather than rewriting one file, or with a larger chunk size.
+ */
+public class PriceFeedImporter implements AutoCloseable {
+    /**
+     * Default chunk size: large enough that per-chunk work is negligible, small enough for a wave to fit the heap.
+     */
+    public static final int DEFAULT_CHUNK_BYTES = 16 * 1024 * 1024;
+    private static final int MAX_REJECTED_SAMPLES = 20;
+    private static final int SCAN_BUFFER_BYTES = 64 * 1024;
+
+    private final BuildingService service;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final int parallelism;
+    private volatile int chunkBytes = DEFAULT_CHUNK_BYTES;
+
+    /**
+     * Constructor with one parsing thread per processor.
+     */
+    public PriceFeedImporter(BuildingService service) {
+        this(service, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor with a pool of the given number of parsing threads, shut down by {@link #close()}.
+     */
+    public PriceFeedImporter(BuildingService service, int threads) {
+        this(service, newImportExecutor(threads), threads, true);
+    }
+
+    /**
+     * Constructor with the executor chunks are parsed on and how many chunks to parse at once. The executor is not
+     * shut down by {@link #close()}.
+     */
+    public PriceFeedImporter(BuildingService service, ExecutorService executor, int parallelism) {
+        this(service, executor, parallelism, false);
+    }
+
+    private PriceFeedImporter(BuildingService service, ExecutorService executor, int parallelism,
+                              boolean ownsExecutor) {
+        if (service == null) {
+            throw new IllegalArgumentException("Service cannot be null.");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null.");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive.");
+        }
+        this.service = service;
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * Set the nominal chunk size; chunks end at the first line break after it.
+     */
+    public void setChunkBytes(int chunkBytes) {
+        if (chunkBytes <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive.");
+        }
+        this.chunkBytes = chunkBytes;
+    }
+
+    public int getChunkBytes() {
+        return chunkBytes;
+    }
+
+    /**
+     * Import a feed whose format is given by its file extension, without progress reports.
+     */
+    public ImportResult importFile(Path file) {
+        return importFile(file, FeedFormat.forFile(file), ImportProgressListener.NONE);
+    }
+
+    /**
+     * Import a feed, reporting progress to the listener after each wave of chunks. Returns when the whole feed has
+     * been applied.
+     */
+    public ImportResult importFile(Path file, FeedFormat format, ImportProgressListener listener) {
+        if (file == null || format == null) {
+            throw new IllegalArgumentException("Feed file and format cannot be null.");
+        }
+        ImportProgressListener progressListener = listener == null ? ImportProgressListener.NONE : listener;
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            FeedLayout layout = readLayout(channel, format, System.currentTimeMillis());
+            List<long[]> chunks = split(channel, layout.dataStart, size);
+            Progress progress = new Progress(size, start);
+
+            int next = 0;
+            List<Future<FeedParser.ParsedChunk>> wave = submitWave(channel, chunks, next, layout);
+            while (!wave.isEmpty()) {
+                List<FeedParser.ParsedChunk> parsed = await(wave, file);
+                next += parsed.size();
+                // Parse the next wave while this one is applied
+                wave = submitWave(channel, chunks, next, layout);
+                try {
+                    Map<String, PriceSeries> ticks = merge(parsed);
+                    BatchResult applied = service.recordPriceHistory(ticks);
+                    progress.add(parsed, ticks, applied, chunks.get(next - 1)[1]);
+                } catch (RuntimeException | Error e) {
+                    cancel(wave);
+                    throw e;
+                }
+                progressListener.onProgress(progress.result(next == chunks.size()));
+            }
+            ImportResult result = progress.result(true);
+            if (chunks.isEmpty()) {
+                progressListener.onProgress(result);
+            }
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to import price feed " + file, e);
+        }
+    }
+
+    /**
+     * Shut down the parsing executor if this importer created it.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private List<Future<FeedParser.ParsedChunk>> submitWave(FileChannel channel, List<long[]> chunks, int first,
+                                                           FeedLayout layout) {
+        List<Future<FeedParser.ParsedChunk>> wave = new ArrayList<>(parallelism);
+        for (int i = first; i < Math.min(chunks.size(), first + parallelism); i++) {
+            long chunkStart = chunks.get(i)[0];
+            long chunkEnd = chunks.get(i)[1];
+            wave.add(executor.submit(() -> {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart,
+                        chunkEnd - chunkStart);
+                return layout.newParser().parse(buffer, chunkStart);
+            }));
+        }
+        return wave;
+    }
+
+    private static List<FeedParser.ParsedChunk> await(List<Future<FeedParser.ParsedChunk>> wave, Path file)
+            throws IOException {
+        List<FeedParser.ParsedChunk> parsed = new ArrayList<>(wave.size());
+        try {
+            for (Future<FeedParser.ParsedChunk> future : wave) {
+                parsed.add(future.get());
+            }
+            return parsed;
+        } catch (InterruptedException e) {
+            cancel(wave);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while importing " + file + ".", e);
+        } catch (ExecutionException e) {
+            cancel(wave);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Failed to parse " + file + ".", cause);
+        }
+    }
+
+    private static void cancel(List<Future<FeedParser.ParsedChunk>> wave) {
+        for (Future<FeedParser.ParsedChunk> future : wave) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Concatenate the chunks' ticks per building in chunk order, then stably sort each building's ticks by
+     * timestamp, so rows with equal timestamps keep their feed order.
+     */
+    private static Map<String, PriceSeries> merge(List<FeedParser.ParsedChunk> parsed) {
+        Map<String, PriceSeries> merged;
+        if (parsed.size() == 1) {
+            merged = parsed.get(0).ticks;
+        } else {
+            merged = new LinkedHashMap<>();
+            for (FeedParser.ParsedChunk chunk : parsed) {
+                for (Map.Entry<String, PriceSeries> entry : chunk.ticks.entrySet()) {
+                    PriceSeries existing = merged.putIfAbsent(entry.getKey(), entry.getValue());
+                    if (existing != null) {
+                        PriceSeries more = entry.getValue();
+                        for (int i = 0; i < more.size(); i++) {
+                            existing.add(more.getPrice(i), more.getTimestamp(i), Double.NaN);
+                        }
+                    }
+                }
+            }
+        }
+        for (PriceSeries ticks : merged.values()) {
+            sortByTimestamp(ticks);
+        }
+        return merged;
+    }
+
+    private static void sortByTimestamp(PriceSeries ticks) {
+        int size = ticks.size();
+        long[] timestamps = new long[size];
+        boolean sorted = true;
+        for (int i = 0; i < size; i++) {
+            timestamps[i] = ticks.getTimestamp(i);
+            sorted &= i == 0 || timestamps[i - 1] <= timestamps[i];
+        }
+        if (sorted) {
+            return;
+        }
+        double[] prices = new double[size];
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            prices[i] = ticks.getPrice(i);
+            order[i] = i;
+        }
+        mergeSort(order, new int[size], timestamps, 0, size);
+        for (int i = 0; i < size; i++) {
+            ticks.set(i, prices[order[i]], timestamps[order[i]], Double.NaN);
+        }
+    }
+
+    /**
+     * Stable sort of {@code order[from, to)} by timestamp.
+     */
+    private static void mergeSort(int[] order, int[] scratch, long[] timestamps, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(order, scratch, timestamps, from, middle);
+        mergeSort(order, scratch, timestamps, middle, to);
+        if (timestamps[order[middle - 1]] <= timestamps[order[middle]]) {
+            return;
+        }
+        System.arraycopy(order, from, scratch, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && timestamps[scratch[left]] <= timestamps[scratch[right]])) {
+                order[i] = scratch[left++];
+            } else {
+                order[i] = scratch[right++];
+            }
+        }
+    }
+
+    /**
+     * Cut {@code [dataStart, size)} into chunks of about the chunk size, each ending after a line break or at the
+     * end of the file.
+     */
+    private List<long[]> split(FileChannel channel, long dataStart, long size) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        ByteBuffer scan = ByteBuffer.allocate(SCAN_BUFFER_BYTES);
+        long start = dataStart;
+        while (start < size) {
+            long end = Math.min(size, start + chunkBytes);
+            if (end < size) {
+                end = lineEnd(channel, scan, end - 1, size);
+            }
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("Line at offset " + start + " is longer than 2 GB.");
+            }
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * Get the position after the first line break at or after {@code from}, or the file size if there is none.
+     */
+    private static long lineEnd(FileChannel channel, ByteBuffer scan, long from, long size) throws IOException {
+        long position = from;
+        while (position < size) {
+            scan.clear();
+            int read = channel.read(scan, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Read the start of the feed: skip a byte order mark and, for CSV, work out the columns from the header line
+     * or, without one, from the first row.
+     */
+    private static FeedLayout readLayout(FileChannel channel, FeedFormat format, long defaultTimestamp)
+            throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(SCAN_BUFFER_BYTES);
+        channel.read(head, 0);
+        head.flip();
+        int dataStart = 0;
+        if (head.remaining() >= 3 && (head.get(0) & 0xff) == 0xef && (head.get(1) & 0xff) == 0xbb
+                && (head.get(2) & 0xff) == 0xbf) {
+            dataStart = 3;
+        }
+        if (format == FeedFormat.NDJSON) {
+            return new FeedLayout(format, dataStart, 0, 0, -1, defaultTimestamp);
+        }
+
+        int lineEnd = dataStart;
+        while (lineEnd < head.limit() && head.get(lineEnd) != '\n') {
+            lineEnd++;
+        }
+        byte[] line = new byte[lineEnd - dataStart];
+        for (int i = 0; i < line.length; i++) {
+            line[i] = head.get(dataStart + i);
+        }
+        String[] columns = new String(line, StandardCharsets.UTF_8).trim().split(",", -1);
+        int building = -1;
+        int price = -1;
+        int timestamp = -1;
+        for (int i = 0; i < columns.length; i++) {
+            String column = columns[i].trim().replace("\"", "").toLowerCase(Locale.ROOT);
+            if (column.equals("building") || column.equals("name") || column.equals("building_name")) {
+                building = building < 0 ? i : building;
+            } else if (column.equals("price")) {
+                price = price < 0 ? i : price;
+            } else if (column.equals("timestamp") || column.equals("time") || column.equals("date")) {
+                timestamp = timestamp < 0 ? i : timestamp;
+            }
+        }
+        if (price < 0) {
+            // No header: building, price and optionally a timestamp
+            return new FeedLayout(format, dataStart, 0, 1, columns.length > 2 ? 2 : -1, defaultTimestamp);
+        }
+        if (building < 0) {
+            throw new IllegalArgumentException("CSV header names a price but no building column: "
+                    + String.join(",", columns));
+        }
+        long headerEnd = lineEnd < head.limit() ? lineEnd + 1 : channel.size();
+        return new FeedLayout(format, headerEnd, building, price, timestamp, defaultTimestamp);
+    }
+
+    private static ExecutorService newImportExecutor(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive.");
+        }
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, "feed-import-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(threads, factory);
+    }
+
+    /**
+     * Feed layout found by {@link #readLayout}, creating a parser per chunk.
+     */
+    private static final class FeedLayout {
+        final FeedFormat format;
+        final long dataStart;
+        final int buildingColumn;
+        final int priceColumn;
+        final int timestampColumn;
+        final long defaultTimestamp;
+
+        FeedLayout(FeedFormat format, long dataStart, int buildingColumn, int priceColumn,
+                          int timestampColumn, long defaultTimestamp) {
+            this.format = format;
+            this.dataStart = dataStart;
+            this.buildingColumn = buildingColumn;
+            this.priceColumn = priceColumn;
+            this.timestampColumn = timestampColumn;
+            this.defaultTimestamp = defaultTimestamp;
+        }
+
+        FeedParser newParser() {
+            return new FeedParser(format, buildingColumn, priceColumn, timestampColumn, defaultTimestamp,
+                    MAX_REJECTED_SAMPLES);
+        }
+    }
+
+    /**
+     * Running totals of an import, on the importing thread.
+     */
+    private static final class Progress {
+        private final long totalBytes;
+        private final long startNanos;
+        private final Map<String, Long> rejectedByReason = new LinkedHashMap<>();
+        private final List<String> rejectedSamples = new ArrayList<>();
+        private final Set<String> buildings = new HashSet<>();
+        private long bytesRead;
+        private long rowCount;
+        private long appliedCount;
+        private long rejectedCount;
+
+        Progress(long totalBytes, long startNanos) {
+            this.totalBytes = totalBytes;
+            this.startNanos = startNanos;
+        }
+
+        void add(List<FeedParser.ParsedChunk> parsed, Map<String, PriceSeries> ticks, BatchResult applied,
+                 long waveEnd) {
+            FeedParser.RowError[] errors = FeedParser.RowError.values();
+            for (FeedParser.ParsedChunk chunk : parsed) {
+                rowCount += chunk.rows;
+                for (int i = 0; i < errors.length; i++) {
+                    addRejected(errors[i].reason, chunk.rejectedByError[i]);
+                }
+                for (String sample : chunk.rejectedSamples) {
+                    addSample(sample);
+                }
+            }
+            for (BatchResult.Failure failure : applied.getFailures()) {
+                String reason = failure.getReason();
+                addRejected(reason.endsWith("not found.") ? "Building not found" : trimPeriod(reason),
+                        failure.getCount());
+                addSample(failure.toString());
+            }
+            buildings.addAll(ticks.keySet());
+            appliedCount += applied.getAppliedCount();
+            bytesRead = waveEnd;
+        }
+
+        ImportResult result(boolean complete) {
+            return new ImportResult(complete ? totalBytes : bytesRead, totalBytes, rowCount, appliedCount,
+                    rejectedCount, new LinkedHashMap<>(rejectedByReason), new ArrayList<>(rejectedSamples),
+                    buildings.size(), System.nanoTime() - startNanos, complete);
+        }
+
+        private void addRejected(String reason, long count) {
+            if (count > 0) {
+                rejectedByReason.merge(reason, count, Long::sum);
+                rejectedCount += count;
+            }
+        }
+
+        private void addSample(String sample) {
+            if (rejectedSamples.size() < MAX_REJECTED_SAMPLES) {
+                rejectedSamples.add(sample);
+            }
+        }
+
+        private static String trimPeriod(String reason) {
+            return reason.endsWith(".") ? reason.substring(0, reason.length() - 1) : reason;
+        }
+    }
+}
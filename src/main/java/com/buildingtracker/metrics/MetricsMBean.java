@@ -0,0 +1,107 @@
+package com.buildingtracker.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ReflectionException;
+
+/**
+ * Read-only JMX view of a {@link MetricsRegistry}. Attributes are derived from the registry on every request,
+ * so metrics created after registration show up without registering again.
+ */
+final class MetricsMBean implements DynamicMBean {
+    private static final String[] HISTOGRAM_SUFFIXES = {".count", ".mean", ".p50", ".p99", ".max"};
+
+    private final MetricsRegistry registry;
+
+    MetricsMBean(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Counter counter = registry.getCounters().get(attribute);
+        if (counter != null) {
+            return counter.get();
+        }
+        LongSupplier gauge = registry.getGauges().get(attribute);
+        if (gauge != null) {
+            return gauge.getAsLong();
+        }
+        int dot = attribute.lastIndexOf('.');
+        LatencyHistogram histogram = dot > 0 ? registry.getHistograms().get(attribute.substring(0, dot)) : null;
+        if (histogram != null) {
+            HistogramSnapshot snapshot = histogram.snapshot();
+            switch (attribute.substring(dot)) {
+                case ".count":
+                    return snapshot.getCount();
+                case ".mean":
+                    return snapshot.getMean();
+                case ".p50":
+                    return (double) snapshot.getValueAtPercentile(50);
+                case ".p99":
+                    return (double) snapshot.getValueAtPercentile(99);
+                case ".max":
+                    return (double) snapshot.getMax();
+                default:
+                    break;
+            }
+        }
+        throw new AttributeNotFoundException("No metric named " + attribute);
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList result = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                result.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // Left out, as the DynamicMBean contract allows
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (String name : registry.getCounters().keySet()) {
+            attributes.add(new MBeanAttributeInfo(name, "long", "Counter", true, false, false));
+        }
+        for (String name : registry.getGauges().keySet()) {
+            attributes.add(new MBeanAttributeInfo(name, "long", "Gauge", true, false, false));
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : registry.getHistograms().entrySet()) {
+            for (String suffix : HISTOGRAM_SUFFIXES) {
+                String type = suffix.equals(".count") ? "long" : "double";
+                attributes.add(new MBeanAttributeInfo(entry.getKey() + suffix, type,
+                        "Latency histogram, nanoseconds", true, false, false));
+            }
+        }
+        return new MBeanInfo(MetricsMBean.class.getName(), "Building price tracker metrics",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+}
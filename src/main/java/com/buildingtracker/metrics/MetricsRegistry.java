@@ -0,0 +1,187 @@
+package com.buildingtracker.metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Named counters, gauges and latency histograms.
+ *
+ * <p>Metrics are created on first use and live as long as the registry. Callers on hot paths look a metric up
+ * once and keep the returned instance, so recording never touches the registry's map. The registry can be
+ * published as a JMX MBean and written as text or CSV, on demand or periodically through {@link MetricsReporter}.
+ */
+public class MetricsRegistry {
+    /**
+     * Default JMX object name used by {@link #registerMBean()}.
+     */
+    public static final String DEFAULT_OBJECT_NAME = "com.buildingtracker:type=Metrics";
+
+    /**
+     * Output format of {@link #write(Appendable, Format)}.
+     */
+    public enum Format {
+        TEXT,
+        CSV
+    }
+
+    static final String CSV_HEADER = "timestamp,name,type,value,count,mean,p50,p90,p99,p999,max";
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final ConcurrentSkipListMap<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+
+    /**
+     * Get the counter with the given name, creating it on first use.
+     */
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(checkName(name), k -> new Counter());
+    }
+
+    /**
+     * Get the latency histogram with the given name, creating it on first use.
+     */
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(checkName(name), k -> new LatencyHistogram());
+    }
+
+    /**
+     * Register a gauge read whenever the metrics are reported, replacing any gauge of the same name.
+     */
+    public void gauge(String name, LongSupplier value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Gauge supplier cannot be null.");
+        }
+        gauges.put(checkName(name), value);
+    }
+
+    public SortedMap<String, Counter> getCounters() {
+        return Collections.unmodifiableSortedMap(counters);
+    }
+
+    public SortedMap<String, LatencyHistogram> getHistograms() {
+        return Collections.unmodifiableSortedMap(histograms);
+    }
+
+    public SortedMap<String, LongSupplier> getGauges() {
+        return Collections.unmodifiableSortedMap(gauges);
+    }
+
+    /**
+     * Write every metric in the given format. CSV output includes the header line.
+     */
+    public void write(Appendable out, Format format) throws IOException {
+        if (format == Format.CSV) {
+            out.append(CSV_HEADER).append('\n');
+            writeCsvRows(out, System.currentTimeMillis());
+        } else {
+            writeText(out);
+        }
+    }
+
+    /**
+     * Get every metric as text.
+     */
+    public String dump() {
+        StringBuilder text = new StringBuilder();
+        try {
+            writeText(text);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new IllegalStateException(e);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Publish the registry on the platform MBean server under {@link #DEFAULT_OBJECT_NAME}.
+     */
+    public ObjectName registerMBean() {
+        return registerMBean(DEFAULT_OBJECT_NAME);
+    }
+
+    /**
+     * Publish the registry on the platform MBean server. Counters and gauges appear as attributes named after
+     * them, histograms as attributes with {@code .count}, {@code .mean}, {@code .p50}, {@code .p99} and
+     * {@code .max} suffixes.
+     */
+    public ObjectName registerMBean(String objectName) {
+        try {
+            ObjectName name = new ObjectName(objectName);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new MetricsMBean(this), name);
+            return name;
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register metrics MBean " + objectName, e);
+        }
+    }
+
+    /**
+     * Remove an MBean published by {@link #registerMBean(String)}.
+     */
+    public void unregisterMBean(ObjectName name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to unregister metrics MBean " + name, e);
+        }
+    }
+
+    /**
+     * Write one CSV row per metric, without the header.
+     */
+    void writeCsvRows(Appendable out, long timestamp) throws IOException {
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            out.append(Long.toString(timestamp)).append(',').append(entry.getKey()).append(",counter,")
+                    .append(Long.toString(entry.getValue().get())).append(",,,,,,,\n");
+        }
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            out.append(Long.toString(timestamp)).append(',').append(entry.getKey()).append(",gauge,")
+                    .append(Long.toString(entry.getValue().getAsLong())).append(",,,,,,,\n");
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            HistogramSnapshot snapshot = entry.getValue().snapshot();
+            out.append(Long.toString(timestamp)).append(',').append(entry.getKey()).append(",histogram,,")
+                    .append(Long.toString(snapshot.getCount())).append(',')
+                    .append(String.format(Locale.ROOT, "%.1f", snapshot.getMean()));
+            for (double percentile : PERCENTILES) {
+                out.append(',').append(Long.toString(snapshot.getValueAtPercentile(percentile)));
+            }
+            out.append(',').append(Long.toString(snapshot.getMax())).append('\n');
+        }
+    }
+
+    private void writeText(Appendable out) throws IOException {
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            out.append(String.format(Locale.ROOT, "%-40s %,d%n", entry.getKey(), entry.getValue().get()));
+        }
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            out.append(String.format(Locale.ROOT, "%-40s %,d%n", entry.getKey(), entry.getValue().getAsLong()));
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            HistogramSnapshot snapshot = entry.getValue().snapshot();
+            out.append(String.format(Locale.ROOT,
+                    "%-40s count=%,d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus%n",
+                    entry.getKey(), snapshot.getCount(), snapshot.getMean() / 1e3,
+                    snapshot.getValueAtPercentile(50) / 1e3, snapshot.getValueAtPercentile(90) / 1e3,
+                    snapshot.getValueAtPercentile(99) / 1e3, snapshot.getValueAtPercentile(99.9) / 1e3,
+                    snapshot.getMax() / 1e3));
+        }
+    }
+
+    private static String checkName(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Metric name cannot be null or empty.");
+        }
+        return name;
+    }
+}
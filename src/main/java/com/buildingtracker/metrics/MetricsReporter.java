@@ -0,0 +1,137 @@
+package com.buildingtracker.metrics;
+
+import com.buildingtracker.service.ConsoleEventListener;
+import com.buildingtracker.service.ServiceEventListener;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically writes a {@link MetricsRegistry} to a console stream or appends it to a file.
+ *
+ * <p>Text output starts each report with a timestamp line. CSV output writes the header once, when the stream
+ * is new or the file is empty, followed by one row per metric per report, so a file accumulates a time series.
+ *
+ * <p>A failed scheduled report does not stop the schedule; it is reported as a {@link ServiceEventListener.Level#WARN}
+ * event, printed to {@code System.err} unless another listener is set.
+ */
+public class MetricsReporter implements AutoCloseable {
+    private final MetricsRegistry registry;
+    private final MetricsRegistry.Format format;
+    private final PrintStream stream;
+    private final Path file;
+    private final ScheduledExecutorService scheduler;
+    private volatile ServiceEventListener events =
+            new ConsoleEventListener(ServiceEventListener.Level.WARN, System.err);
+    private boolean headerWritten;
+
+    /**
+     * Constructor reporting to a stream, e.g. {@code System.out}.
+     */
+    public MetricsReporter(MetricsRegistry registry, PrintStream stream, MetricsRegistry.Format format,
+                           long periodMillis) {
+        this(registry, stream, null, format, periodMillis);
+    }
+
+    /**
+     * Constructor appending reports to a file, which is created if missing.
+     */
+    public MetricsReporter(MetricsRegistry registry, Path file, MetricsRegistry.Format format, long periodMillis) {
+        this(registry, null, file, format, periodMillis);
+    }
+
+    private MetricsReporter(MetricsRegistry registry, PrintStream stream, Path file, MetricsRegistry.Format format,
+                            long periodMillis) {
+        if (registry == null || format == null || (stream == null && file == null)) {
+            throw new IllegalArgumentException("Registry, format and target cannot be null.");
+        }
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("Report period must be positive.");
+        }
+        this.registry = registry;
+        this.format = format;
+        this.stream = stream;
+        this.file = file;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::reportQuietly, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Write one report now.
+     */
+    public synchronized void report() {
+        long now = System.currentTimeMillis();
+        StringBuilder text = new StringBuilder();
+        try {
+            if (format == MetricsRegistry.Format.CSV) {
+                if (!headerWritten && (file == null || !Files.exists(file) || Files.size(file) == 0)) {
+                    text.append(MetricsRegistry.CSV_HEADER).append('\n');
+                }
+                registry.writeCsvRows(text, now);
+            } else {
+                text.append("=== Metrics at ").append(Instant.ofEpochMilli(now)).append(" ===\n");
+                text.append(registry.dump());
+            }
+            headerWritten = true;
+
+            if (stream != null) {
+                stream.print(text);
+                stream.flush();
+            } else {
+                Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write metrics to " + file, e);
+        }
+    }
+
+    /**
+     * Report failures of scheduled reports to the given listener.
+     */
+    public void setEventListener(ServiceEventListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Event listener cannot be null.");
+        }
+        this.events = listener;
+    }
+
+    /**
+     * Stop reporting and write a final report.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        report();
+    }
+
+    private void reportQuietly() {
+        try {
+            report();
+        } catch (RuntimeException e) {
+            // A failed report must not cancel the schedule
+            ServiceEventListener listener = events;
+            if (listener.isEnabled(ServiceEventListener.Level.WARN)) {
+                listener.onEvent(ServiceEventListener.Level.WARN, "Metrics report failed: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -1,20 +1,51 @@
 package com.buildingtracker.model;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * Represents a building with pricing information.
+ *
+ * <p>A building has a single writer at a time. Every completed update publishes an immutable
+ * {@link BuildingSnapshot}, which other threads read through {@link #snapshot()} without locking.
+ *
+ * <p>A building created with {@link #withLazyHistory} defers decoding its price history until the history, the
+ * trend window or the rollups are first needed; name, address, price and trend are available at once. Its
+ * snapshots are published without decoding and decode the history when their own history is first read.
+ *
+ * <p>The {@link PriceRollups} are only built when a window query first asks for them, and from then on are kept
+ * up to date by every tick, so buildings whose windows are never queried pay nothing for them.
  */
 public class Building implements Serializable {
     private static final long serialVersionUID = 1L;
+    private static final AtomicLong GENERATIONS = new AtomicLong();
 
     private String name;
     private String address;
     private double currentPrice;
-    private List<PriceHistory> priceHistoryList;
+    private PriceSeries priceSeries;
     private PriceTrend recentTrend;
+    private RollingTrendWindow trendWindow;
+    // Null until first requested, and again after a history rewrite
+    private PriceRollups priceRollups;
+    private transient List<PriceHistory> priceHistoryView;
+    private transient volatile BuildingSnapshot snapshot;
+    private transient long version;
+    // Unique per instance within the JVM, assigned on the first publish
+    private transient long generation;
+    // Incremented whenever existing history entries are replaced or removed rather than appended to
+    private transient int historyRevision;
+    // Non-null until a lazily loaded history has been decoded
+    private transient volatile Supplier<PriceSeries> historyLoader;
+    private transient int pendingHistorySize;
+    // History of the snapshots published before the decode; null once decoded
+    private transient PendingHistory pendingHistory;
 
     /**
      * Constructor with name and address.
@@ -23,8 +54,10 @@ public class Building implements Serializable {
         this.name = name;
         this.address = address;
         this.currentPrice = 0.0;
-        this.priceHistoryList = new ArrayList<>();
+        this.priceSeries = new PriceSeries();
         this.recentTrend = new PriceTrend();
+        this.trendWindow = new RollingTrendWindow();
+        publish();
     }
 
     /**
@@ -33,6 +66,32 @@ public class Building implements Serializable {
     public Building(String name, String address, double currentPrice) {
         this(name, address);
         this.currentPrice = currentPrice;
+        publish();
+    }
+
+    private Building(String name, String address, double currentPrice, PriceTrend recentTrend, int historySize,
+                     Supplier<PriceSeries> historyLoader) {
+        this.name = name;
+        this.address = address;
+        this.currentPrice = currentPrice;
+        this.recentTrend = recentTrend != null ? recentTrend : new PriceTrend();
+        this.pendingHistorySize = historySize;
+        this.historyLoader = historyLoader;
+        this.pendingHistory = new PendingHistory(this);
+        publish();
+    }
+
+    /**
+     * Create a building whose price history is decoded by {@code historyLoader} on first use. The loader is called
+     * at most once and must return a writable series holding {@code historySize} entries; the stored trend is
+     * kept as is rather than recomputed.
+     */
+    public static Building withLazyHistory(String name, String address, double currentPrice, PriceTrend recentTrend,
+                                           int historySize, Supplier<PriceSeries> historyLoader) {
+        if (historyLoader == null) {
+            throw new IllegalArgumentException("History loader cannot be null.");
+        }
+        return new Building(name, address, currentPrice, recentTrend, historySize, historyLoader);
     }
 
     // Getters and Setters
@@ -42,6 +101,7 @@ public class Building implements Serializable {
 
     public void setName(String name) {
         this.name = name;
+        publish();
     }
 
     public String getAddress() {
@@ -50,6 +110,7 @@ public class Building implements Serializable {
 
     public void setAddress(String address) {
         this.address = address;
+        publish();
     }
 
     public double getCurrentPrice() {
@@ -58,14 +119,54 @@ public class Building implements Serializable {
 
     public void setCurrentPrice(double currentPrice) {
         this.currentPrice = currentPrice;
+        publish();
     }
 
+    /**
+     * Get the price history as a list view over the columnar series. Entries are materialized on access, so
+     * changing a returned {@link PriceHistory} does not change the history; use {@code set} on the list instead.
+     */
     public List<PriceHistory> getPriceHistoryList() {
-        return priceHistoryList;
+        ensureHistoryLoaded();
+        if (priceHistoryView == null) {
+            priceHistoryView = new PriceHistoryView();
+        }
+        return priceHistoryView;
     }
 
+    /**
+     * Replace the price history with a copy of the given entries.
+     */
     public void setPriceHistoryList(List<PriceHistory> priceHistoryList) {
-        this.priceHistoryList = priceHistoryList;
+        ensureHistoryLoaded();
+        this.priceSeries = priceHistoryList != null ? PriceSeries.of(priceHistoryList) : new PriceSeries();
+        historyRevision++;
+        rebuildTrendWindow(trendWindow.getCapacity());
+        priceRollups = null;
+        publish();
+    }
+
+    /**
+     * Get the live price series. Only the thread updating the building may use it; other threads should read
+     * {@link BuildingSnapshot#getHistory()} instead.
+     */
+    public PriceSeries getPriceSeries() {
+        ensureHistoryLoaded();
+        return priceSeries;
+    }
+
+    /**
+     * Get the per-minute, per-hour and per-day rollups of the price history, building them from the history on the
+     * first call. Like {@link #getPriceSeries()}, only for the thread updating the building.
+     */
+    public PriceRollups getPriceRollups() {
+        ensureHistoryLoaded();
+        if (priceRollups == null) {
+            PriceRollups rollups = new PriceRollups();
+            rollups.rebuild(priceSeries);
+            priceRollups = rollups;
+        }
+        return priceRollups;
     }
 
     public PriceTrend getRecentTrend() {
@@ -74,92 +175,187 @@ public class Building implements Serializable {
 
     public void setRecentTrend(PriceTrend recentTrend) {
         this.recentTrend = recentTrend;
+        publish();
+    }
+
+    /**
+     * Get the most recently published consistent view of this building. Safe to call from any thread.
+     */
+    public BuildingSnapshot snapshot() {
+        BuildingSnapshot current = snapshot;
+        if (current == null) {
+            // Not yet published, e.g. after Java deserialization
+            publish();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    /**
+     * Get the number of price history entries, without decoding a lazily loaded history.
+     */
+    public int getHistorySize() {
+        return historyLoader != null ? pendingHistorySize : priceSeries.size();
+    }
+
+    /**
+     * Whether the price history has been decoded. Always true unless created with {@link #withLazyHistory}.
+     */
+    public boolean isHistoryLoaded() {
+        return historyLoader == null;
+    }
+
+    /**
+     * Get the number of most recent entries the trend is computed over.
+     */
+    public int getTrendWindowSize() {
+        ensureHistoryLoaded();
+        return trendWindow.getCapacity();
+    }
+
+    /**
+     * Change the number of most recent entries the trend is computed over and recompute the trend.
+     */
+    public void setTrendWindowSize(int windowSize) {
+        ensureHistoryLoaded();
+        rebuildTrendWindow(windowSize);
+        updateTrend();
     }
 
     /**
      * Add a price history record.
      */
     public void addPriceHistory(PriceHistory history) {
-        if (this.priceHistoryList == null) {
-            this.priceHistoryList = new ArrayList<>();
+        addPriceHistory(history.getPrice(), history.getTimestamp(), history.getChangePercentage());
+        publish();
+    }
+
+    /**
+     * Add a price history record without allocating a {@link PriceHistory} object. Like
+     * {@link #recordPrice(double, long)} this does not publish a new snapshot; finish with {@link #updateTrend()}.
+     */
+    public void addPriceHistory(double price, long timestamp, double changePercentage) {
+        ensureHistoryLoaded();
+        this.priceSeries.add(price, timestamp, changePercentage);
+        this.trendWindow.push(changePercentage);
+        if (this.priceRollups != null) {
+            this.priceRollups.add(timestamp, price);
         }
-        this.priceHistoryList.add(history);
     }
 
     /**
      * Update the current price and record history.
      */
     public void updatePrice(double newPrice) {
+        updatePrice(newPrice, System.currentTimeMillis());
+    }
+
+    /**
+     * Update the current price with an explicit timestamp and record history.
+     */
+    public void updatePrice(double newPrice, long timestamp) {
+        recordPrice(newPrice, timestamp);
+        updateTrend();
+    }
+
+    /**
+     * Set the current price and record history without refreshing {@link #getRecentTrend()} or publishing a
+     * snapshot. Used when several ticks are applied at once; call {@link #updateTrend()} after the last one.
+     */
+    public void recordPrice(double newPrice, long timestamp) {
         double changePercentage = 0.0;
         if (this.currentPrice > 0) {
             changePercentage = ((newPrice - this.currentPrice) / this.currentPrice) * 100;
         }
 
-        PriceHistory history = new PriceHistory(newPrice, System.currentTimeMillis(), changePercentage);
-        addPriceHistory(history);
+        addPriceHistory(newPrice, timestamp, changePercentage);
 
         this.currentPrice = newPrice;
-        updateTrend();
     }
 
     /**
-     * Update the recent trend based on price history.
+     * Move price history recorded before the cutoff into the compressed cold tier. Archived entries stay
+     * readable through the history list, series and snapshots; only their storage changes.
+     *
+     * @return the number of entries archived
      */
-    public void updateTrend() {
-        if (this.priceHistoryList == null || this.priceHistoryList.isEmpty()) {
-            this.recentTrend = new PriceTrend();
-            return;
+    public int archiveHistoryBefore(long cutoffTimestamp) {
+        ensureHistoryLoaded();
+        int archived = priceSeries.archiveBefore(cutoffTimestamp);
+        if (archived > 0) {
+            publish();
         }
-
-        List<PriceHistory> recentEntries = getRecentEntries(10);
-        this.recentTrend = calculateTrend(recentEntries);
+        return archived;
     }
 
     /**
-     * Get the most recent N price entries.
+     * Update the recent trend from the rolling window over the latest price history entries.
      */
-    private List<PriceHistory> getRecentEntries(int count) {
-        int startIndex = Math.max(0, this.priceHistoryList.size() - count);
-        return new ArrayList<>(this.priceHistoryList.subList(startIndex, this.priceHistoryList.size()));
+    public void updateTrend() {
+        ensureHistoryLoaded();
+        this.recentTrend = trendWindow.toTrend();
+        publish();
     }
 
     /**
-     * Calculate trend from given price history entries.
+     * Publish the current state for readers on other threads.
      */
-    private PriceTrend calculateTrend(List<PriceHistory> entries) {
-        if (entries.isEmpty()) {
-            return new PriceTrend();
+    private void publish() {
+        version++;
+        if (generation == 0) {
+            generation = GENERATIONS.incrementAndGet();
         }
+        if (historyLoader != null) {
+            snapshot = new BuildingSnapshot(name, address, currentPrice, recentTrend, pendingHistorySize,
+                    pendingHistory, version, generation, historyRevision);
+            return;
+        }
+        snapshot = new BuildingSnapshot(name, address, currentPrice, recentTrend, priceSeries.view(), version,
+                generation, historyRevision);
+    }
 
-        double totalChange = 0;
-        double maxChange = Double.NEGATIVE_INFINITY;
-        double minChange = Double.POSITIVE_INFINITY;
-
-        for (PriceHistory entry : entries) {
-            double change = entry.getChangePercentage();
-            totalChange += change;
-            maxChange = Math.max(maxChange, change);
-            minChange = Math.min(minChange, change);
+    private void ensureHistoryLoaded() {
+        if (historyLoader != null) {
+            loadHistory();
         }
+    }
 
-        double averageChange = totalChange / entries.size();
-        String trendDirection = determineTrendDirection(averageChange);
-        double volatility = maxChange - minChange;
+    /**
+     * Decode a lazily loaded history and rebuild the trend window from it. Synchronized because a
+     * reader of a snapshot's history may race the writer to trigger the load.
+     */
+    private synchronized void loadHistory() {
+        Supplier<PriceSeries> loader = historyLoader;
+        if (loader == null) {
+            return;
+        }
+        PriceSeries loaded = loader.get();
+        this.priceSeries = loaded != null ? loaded : new PriceSeries();
+        rebuildTrendWindow(RollingTrendWindow.DEFAULT_WINDOW_SIZE);
+        this.priceRollups = null;
+        // Volatile write that makes the fields above visible to threads that see the history as loaded
+        historyLoader = null;
+        publish();
+        // Snapshots published before the decode share the view of the first one published after it
+        pendingHistory.history = snapshot.getHistory();
+        pendingHistory = null;
+    }
 
-        return new PriceTrend(trendDirection, averageChange, volatility);
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ensureHistoryLoaded();
+        out.defaultWriteObject();
     }
 
     /**
-     * Determine trend direction based on average change.
+     * Refill the trend window from the tail of the price series.
      */
-    private String determineTrendDirection(double averageChange) {
-        if (averageChange > 0.5) {
-            return "UP";
-        } else if (averageChange < -0.5) {
-            return "DOWN";
-        } else {
-            return "STABLE";
+    private void rebuildTrendWindow(int windowSize) {
+        RollingTrendWindow window = new RollingTrendWindow(windowSize);
+        int size = priceSeries.size();
+        for (int i = Math.max(0, size - windowSize); i < size; i++) {
+            window.push(priceSeries.getChangePercentage(i));
         }
+        this.trendWindow = window;
     }
 
     @Override
@@ -168,8 +364,88 @@ public class Building implements Serializable {
                 + "name='" + name + '\''
                 + ", address='" + address + '\''
                 + ", currentPrice=" + currentPrice
-                + ", priceHistoryCount=" + (priceHistoryList != null ? priceHistoryList.size() : 0)
+                + ", priceHistoryCount=" + getHistorySize()
                 + ", trend=" + recentTrend
                 + '}';
     }
-}
\ No newline at end of file
+
+    /**
+     * History of the snapshots published before a lazily loaded history was decoded. Reading it decodes the
+     * building's history once, under the building's lock, and keeps the view published by that decode.
+     */
+    private static final class PendingHistory implements Supplier<PriceSeries> {
+        private final Building building;
+        private volatile PriceSeries history;
+
+        private PendingHistory(Building building) {
+            this.building = building;
+        }
+
+        @Override
+        public PriceSeries get() {
+            PriceSeries loaded = history;
+            if (loaded == null) {
+                building.loadHistory();
+                loaded = history;
+            }
+            return loaded;
+        }
+    }
+
+    /**
+     * Lazy list view over the price series. Appends go through {@link #addPriceHistory(PriceHistory)}; like an
+     * {@code ArrayList}, entries can also be replaced and removed anywhere, which leaves the current price as is.
+     */
+    private class PriceHistoryView extends AbstractList<PriceHistory> implements RandomAccess {
+        @Override
+        public PriceHistory get(int index) {
+            return priceSeries.get(index);
+        }
+
+        @Override
+        public int size() {
+            return priceSeries.size();
+        }
+
+        @Override
+        public boolean add(PriceHistory history) {
+            addPriceHistory(history);
+            return true;
+        }
+
+        @Override
+        public PriceHistory set(int index, PriceHistory history) {
+            PriceHistory previous = priceSeries.get(index);
+            priceSeries.set(index, history.getPrice(), history.getTimestamp(), history.getChangePercentage());
+            historyRevision++;
+            if (index >= priceSeries.size() - trendWindow.getCapacity()) {
+                rebuildTrendWindow(trendWindow.getCapacity());
+            }
+            priceRollups = null;
+            publish();
+            return previous;
+        }
+
+        @Override
+        public PriceHistory remove(int index) {
+            PriceHistory previous = priceSeries.get(index);
+            priceSeries.remove(index);
+            historyRevision++;
+            if (index >= priceSeries.size() - trendWindow.getCapacity()) {
+                rebuildTrendWindow(trendWindow.getCapacity());
+            }
+            priceRollups = null;
+            publish();
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            priceSeries.clear();
+            historyRevision++;
+            trendWindow.clear();
+            priceRollups = null;
+            publish();
+        }
+    }
+}
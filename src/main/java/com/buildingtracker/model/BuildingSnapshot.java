@@ -0,0 +1,140 @@
+package com.buildingtracker.model;
+
+import java.io.Serializable;
+import java.util.function.Supplier;
+
+/**
+ * Immutable point-in-time view of a building's price, trend and history.
+ *
+ * <p>Snapshots are published by the writer after each completed update, so readers on other threads see
+ * price, trend and history from the same update without taking a lock. The history is a read-only
+ * {@link PriceSeries} view that shares storage with the live series. A building whose history has not been decoded
+ * yet publishes snapshots that know only the history's length, and decode it when it is first read.
+ */
+public final class BuildingSnapshot implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+    private final String address;
+    private final double currentPrice;
+    private final PriceTrend recentTrend;
+    // Null until decoded if published before a lazily loaded history was decoded
+    private final PriceSeries history;
+    private final transient Supplier<PriceSeries> pendingHistory;
+    private final int historyLength;
+    private final long version;
+    private final long generation;
+    private final int historyRevision;
+    // Time-ordered copy of the history, made on first use if entries were added out of order
+    private transient volatile PriceSeries historyByTime;
+
+    BuildingSnapshot(String name, String address, double currentPrice, PriceTrend recentTrend,
+                     PriceSeries history, long version, long generation, int historyRevision) {
+        this.name = name;
+        this.address = address;
+        this.currentPrice = currentPrice;
+        this.recentTrend = recentTrend;
+        this.history = history;
+        this.pendingHistory = null;
+        this.historyLength = history.size();
+        this.version = version;
+        this.generation = generation;
+        this.historyRevision = historyRevision;
+    }
+
+    BuildingSnapshot(String name, String address, double currentPrice, PriceTrend recentTrend, int historyLength,
+                     Supplier<PriceSeries> pendingHistory, long version, long generation, int historyRevision) {
+        this.name = name;
+        this.address = address;
+        this.currentPrice = currentPrice;
+        this.recentTrend = recentTrend;
+        this.history = null;
+        this.pendingHistory = pendingHistory;
+        this.historyLength = historyLength;
+        this.version = version;
+        this.generation = generation;
+        this.historyRevision = historyRevision;
+    }
+
+    // Getters
+    public String getName() {
+        return name;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public double getCurrentPrice() {
+        return currentPrice;
+    }
+
+    public PriceTrend getRecentTrend() {
+        return recentTrend;
+    }
+
+    /**
+     * Get the read-only price history as of this snapshot, decoding the building's history if it was not yet.
+     */
+    public PriceSeries getHistory() {
+        return history != null ? history : pendingHistory.get();
+    }
+
+    /**
+     * Get the history in timestamp order, for time searches: the history itself, or if entries were added out of
+     * order, a sorted copy made once per snapshot.
+     */
+    public PriceSeries getHistoryByTime() {
+        PriceSeries sorted = historyByTime;
+        if (sorted == null) {
+            sorted = getHistory().sortedByTime().view();
+            historyByTime = sorted;
+        }
+        return sorted;
+    }
+
+    public int getHistoryLength() {
+        return historyLength;
+    }
+
+    /**
+     * Get the number of updates published for the building before this snapshot; increases with every update.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the number identifying the building instance that published this snapshot, unique within the JVM. A
+     * building deleted and added again, or dropped from memory and loaded again, gets a new generation and restarts
+     * its versions, so generation and version together identify a snapshot's content.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Get the number of times the building's history had been rewritten, rather than appended to, before this
+     * snapshot. Two snapshots with the same revision share their common prefix of entries.
+     */
+    public int getHistoryRevision() {
+        return historyRevision;
+    }
+
+    private Object writeReplace() {
+        return history != null ? this : new BuildingSnapshot(name, address, currentPrice, recentTrend,
+                pendingHistory.get(), version, generation, historyRevision);
+    }
+
+    @Override
+    public String toString() {
+        return "BuildingSnapshot{"
+                + "name='" + name + '\''
+                + ", address='" + address + '\''
+                + ", currentPrice=" + currentPrice
+                + ", priceHistoryCount=" + historyLength
+                + ", trend=" + recentTrend
+                + ", version=" + version
+                + '}';
+    }
+}
@@ -0,0 +1,383 @@
+package com.buildingtracker.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable, compressed run of price history entries, used as the cold tier of a {@link PriceSeries}.
+ *
+ * <p>Entries are bit-packed one after another:
+ * <ul>
+ *   <li>timestamps as delta-of-delta, so evenly spaced ticks cost one bit each;</li>
+ *   <li>prices as deltas of whole cents when every price in the block is an exact cent amount, and otherwise
+ *   Gorilla-style as the XOR with the previous price, storing only the bits that differ;</li>
+ *   <li>change percentages as the XOR with the change recomputed from the two prices, which is zero, and costs
+ *   one bit, whenever the entry was recorded through {@link Building#recordPrice(double, long)}.</li>
+ * </ul>
+ * The bit stream is then deflated when that makes it smaller. Decoding is exact for every value.
+ */
+final class CompressedPriceBlock implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // Bucket widths for signed values; a width of 0 encodes zero and the last bucket always fits
+    private static final int[] TIMESTAMP_WIDTHS = {0, 7, 12, 20, 32, 64};
+    private static final int[] CENTS_WIDTHS = {0, 8, 16, 24, 32, 64};
+    private static final double CENTS = 100.0;
+
+    private final int count;
+    private final long firstTimestamp;
+    private final long lastTimestamp;
+    private final boolean scaledCents;
+    private final boolean deflated;
+    private final int rawLength;
+    private final byte[] data;
+
+    private CompressedPriceBlock(int count, long firstTimestamp, long lastTimestamp, boolean scaledCents,
+                                 boolean deflated, int rawLength, byte[] data) {
+        this.count = count;
+        this.firstTimestamp = firstTimestamp;
+        this.lastTimestamp = lastTimestamp;
+        this.scaledCents = scaledCents;
+        this.deflated = deflated;
+        this.rawLength = rawLength;
+        this.data = data;
+    }
+
+    /**
+     * Compress {@code count} entries of the given columns, starting at {@code from}.
+     */
+    static CompressedPriceBlock encode(long[] timestamps, double[] prices, double[] changePercentages,
+                                       int from, int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Block must hold at least one entry.");
+        }
+        boolean scaled = true;
+        for (int i = from; i < from + count && scaled; i++) {
+            scaled = isExactCents(prices[i]);
+        }
+
+        BitWriter out = new BitWriter(count * 16);
+        XorState priceState = new XorState();
+        XorState changeState = new XorState();
+        long previousTimestamp = 0;
+        long previousDelta = 0;
+        long previousCents = 0;
+        double previousPrice = 0.0;
+        for (int i = 0; i < count; i++) {
+            long timestamp = timestamps[from + i];
+            double price = prices[from + i];
+            if (i == 0) {
+                out.writeBits(timestamp, 64);
+            } else {
+                long delta = timestamp - previousTimestamp;
+                writeBucketed(out, delta - previousDelta, TIMESTAMP_WIDTHS);
+                previousDelta = delta;
+            }
+            previousTimestamp = timestamp;
+
+            if (scaled) {
+                long cents = Math.round(price * CENTS);
+                writeBucketed(out, cents - previousCents, CENTS_WIDTHS);
+                previousCents = cents;
+            } else {
+                writeXor(out, Double.doubleToRawLongBits(price) ^ Double.doubleToRawLongBits(previousPrice),
+                        priceState);
+            }
+
+            double derived = i == 0 ? 0.0 : deriveChange(previousPrice, price);
+            writeXor(out, Double.doubleToRawLongBits(changePercentages[from + i]) ^ Double.doubleToRawLongBits(derived),
+                    changeState);
+            previousPrice = price;
+        }
+
+        byte[] raw = out.toByteArray();
+        byte[] packed = deflate(raw);
+        boolean useDeflated = packed != null;
+        return new CompressedPriceBlock(count, timestamps[from], timestamps[from + count - 1], scaled, useDeflated,
+                raw.length, useDeflated ? packed : raw);
+    }
+
+    int size() {
+        return count;
+    }
+
+    long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    /**
+     * Approximate heap footprint in bytes.
+     */
+    long estimatedBytes() {
+        return 48L + 16 + data.length;
+    }
+
+    /**
+     * Decompress every entry of the block.
+     */
+    Decoded decode() {
+        BitReader in = new BitReader(deflated ? inflate(data, rawLength) : data);
+        long[] timestamps = new long[count];
+        double[] prices = new double[count];
+        double[] changePercentages = new double[count];
+        XorState priceState = new XorState();
+        XorState changeState = new XorState();
+        long previousTimestamp = 0;
+        long previousDelta = 0;
+        long previousCents = 0;
+        double previousPrice = 0.0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0) {
+                previousTimestamp = in.readBits(64);
+            } else {
+                previousDelta += readBucketed(in, TIMESTAMP_WIDTHS);
+                previousTimestamp += previousDelta;
+            }
+            timestamps[i] = previousTimestamp;
+
+            double price;
+            if (scaledCents) {
+                previousCents += readBucketed(in, CENTS_WIDTHS);
+                price = previousCents / CENTS;
+            } else {
+                price = Double.longBitsToDouble(Double.doubleToRawLongBits(previousPrice) ^ readXor(in, priceState));
+            }
+            prices[i] = price;
+
+            double derived = i == 0 ? 0.0 : deriveChange(previousPrice, price);
+            changePercentages[i] = Double.longBitsToDouble(Double.doubleToRawLongBits(derived) ^ readXor(in, changeState));
+            previousPrice = price;
+        }
+        return new Decoded(this, timestamps, prices, changePercentages);
+    }
+
+    /**
+     * Same formula as {@link Building#recordPrice(double, long)}, so recorded changes cost a single bit.
+     */
+    private static double deriveChange(double previousPrice, double price) {
+        return previousPrice > 0 ? ((price - previousPrice) / previousPrice) * 100 : 0.0;
+    }
+
+    private static boolean isExactCents(double price) {
+        if (Double.isNaN(price) || Double.isInfinite(price) || Math.abs(price) >= 1e13) {
+            return false;
+        }
+        long cents = Math.round(price * CENTS);
+        return Double.doubleToRawLongBits(cents / CENTS) == Double.doubleToRawLongBits(price);
+    }
+
+    private static void writeBucketed(BitWriter out, long value, int[] widths) {
+        for (int bucket = 0; bucket < widths.length; bucket++) {
+            if (fits(value, widths[bucket])) {
+                // Prefix code: one 1 bit per skipped bucket, ended by a 0 unless this is the last bucket
+                for (int i = 0; i < bucket; i++) {
+                    out.writeBits(1, 1);
+                }
+                if (bucket < widths.length - 1) {
+                    out.writeBits(0, 1);
+                }
+                out.writeBits(value, widths[bucket]);
+                return;
+            }
+        }
+    }
+
+    private static long readBucketed(BitReader in, int[] widths) {
+        int bucket = 0;
+        while (bucket < widths.length - 1 && in.readBits(1) == 1) {
+            bucket++;
+        }
+        int width = widths[bucket];
+        if (width == 0) {
+            return 0;
+        }
+        long raw = in.readBits(width);
+        return width == 64 ? raw : (raw << (64 - width)) >> (64 - width);
+    }
+
+    private static boolean fits(long value, int width) {
+        if (width == 0) {
+            return value == 0;
+        }
+        if (width == 64) {
+            return true;
+        }
+        long limit = 1L << (width - 1);
+        return value >= -limit && value < limit;
+    }
+
+    private static void writeXor(BitWriter out, long xor, XorState state) {
+        if (xor == 0) {
+            out.writeBits(0, 1);
+            return;
+        }
+        out.writeBits(1, 1);
+        int leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (state.leading >= 0 && leading >= state.leading && trailing >= state.trailing) {
+            // Meaningful bits fit in the previous window
+            out.writeBits(0, 1);
+            out.writeBits(xor >>> state.trailing, 64 - state.leading - state.trailing);
+        } else {
+            int length = 64 - leading - trailing;
+            out.writeBits(1, 1);
+            out.writeBits(leading, 5);
+            out.writeBits(length == 64 ? 0 : length, 6);
+            out.writeBits(xor >>> trailing, length);
+            state.leading = leading;
+            state.trailing = trailing;
+        }
+    }
+
+    private static long readXor(BitReader in, XorState state) {
+        if (in.readBits(1) == 0) {
+            return 0;
+        }
+        if (in.readBits(1) == 0) {
+            return in.readBits(64 - state.leading - state.trailing) << state.trailing;
+        }
+        int leading = (int) in.readBits(5);
+        int length = (int) in.readBits(6);
+        if (length == 0) {
+            length = 64;
+        }
+        state.leading = leading;
+        state.trailing = 64 - leading - length;
+        return in.readBits(length) << state.trailing;
+    }
+
+    /**
+     * Deflate the bit stream, returning {@code null} unless that makes it smaller.
+     */
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] buffer = new byte[raw.length];
+            int length = deflater.deflate(buffer);
+            return deflater.finished() && length < raw.length ? Arrays.copyOf(buffer, length) : null;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] packed, int rawLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(packed);
+            byte[] raw = new byte[rawLength];
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                length += inflater.inflate(raw, length, rawLength - length);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed price block.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Decompressed columns of one block. Immutable, so it can be cached and shared between threads.
+     */
+    static final class Decoded {
+        final CompressedPriceBlock block;
+        final long[] timestamps;
+        final double[] prices;
+        final double[] changePercentages;
+
+        private Decoded(CompressedPriceBlock block, long[] timestamps, double[] prices, double[] changePercentages) {
+            this.block = block;
+            this.timestamps = timestamps;
+            this.prices = prices;
+            this.changePercentages = changePercentages;
+        }
+    }
+
+    /**
+     * Leading and trailing zero window of the last XOR written with explicit bounds.
+     */
+    private static final class XorState {
+        private int leading = -1;
+        private int trailing;
+    }
+
+    private static final class BitWriter {
+        private long[] words;
+        private long bitCount;
+
+        BitWriter(int initialBits) {
+            this.words = new long[Math.max(1, (initialBits + 63) >>> 6)];
+        }
+
+        /**
+         * Append the low {@code bits} bits of {@code value}, most significant first.
+         */
+        void writeBits(long value, int bits) {
+            if (bits == 0) {
+                return;
+            }
+            if (bits < 64) {
+                value &= (1L << bits) - 1;
+            }
+            int index = (int) (bitCount >>> 6);
+            int free = 64 - (int) (bitCount & 63);
+            if (index + 1 >= words.length) {
+                words = Arrays.copyOf(words, words.length * 2 + 2);
+            }
+            if (bits <= free) {
+                words[index] |= value << (free - bits);
+            } else {
+                words[index] |= value >>> (bits - free);
+                words[index + 1] |= value << (64 - (bits - free));
+            }
+            bitCount += bits;
+        }
+
+        byte[] toByteArray() {
+            byte[] bytes = new byte[(int) ((bitCount + 7) >>> 3)];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) (words[i >>> 3] >>> (56 - ((i & 7) << 3)));
+            }
+            return bytes;
+        }
+    }
+
+    private static final class BitReader {
+        private final long[] words;
+        private long position;
+
+        BitReader(byte[] bytes) {
+            // One spare word, so a read never has to check for the end of the array
+            this.words = new long[((bytes.length + 7) >>> 3) + 1];
+            for (int i = 0; i < bytes.length; i++) {
+                words[i >>> 3] |= (bytes[i] & 0xFFL) << (56 - ((i & 7) << 3));
+            }
+        }
+
+        long readBits(int bits) {
+            if (bits == 0) {
+                return 0;
+            }
+            int index = (int) (position >>> 6);
+            int offset = (int) (position & 63);
+            int available = 64 - offset;
+            position += bits;
+            if (bits <= available) {
+                return (words[index] << offset) >>> (64 - bits);
+            }
+            long high = words[index] & ((1L << available) - 1);
+            int rest = bits - available;
+            return (high << rest) | (words[index + 1] >>> (64 - rest));
+        }
+    }
+}
@@ -11,6 +11,8 @@ import java.time.format.DateTimeFormatter;
  */
 public class PriceHistory implements Serializable {
     private static final long serialVersionUID = 1L;
+    // Immutable and thread safe, so built once rather than per call
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     private double price;
     private long timestamp;
@@ -63,8 +65,7 @@ public class PriceHistory implements Serializable {
     public String getFormattedDateTime() {
         Instant instant = Instant.ofEpochMilli(timestamp);
         LocalDateTime dateTime = LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        return dateTime.format(formatter);
+        return dateTime.format(DATE_TIME_FORMAT);
     }
 
     @Override
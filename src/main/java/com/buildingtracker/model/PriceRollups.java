@@ -0,0 +1,336 @@
+package com.buildingtracker.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pre-aggregated per-minute, per-hour and per-day price rollups for one building.
+ *
+ * <p>Each tick updates one bucket per resolution in O(1). A window query is split into whole days, then whole
+ * hours and finally minutes at its edges, so it reads O(buckets) rather than O(ticks). Minute and hour buckets
+ * are only retained for a limited time; parts of a window older than that are answered from the next coarser
+ * resolution, rounded outward to its bucket boundaries. Bucket boundaries are in UTC.
+ */
+public class PriceRollups implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    public static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    public static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    public static final long DEFAULT_MINUTE_RETENTION = TimeUnit.DAYS.toMillis(2);
+    public static final long DEFAULT_HOUR_RETENTION = TimeUnit.DAYS.toMillis(400);
+
+    private final Rollup minutes;
+    private final Rollup hours;
+    private final Rollup days;
+
+    /**
+     * Constructor with default retention.
+     */
+    public PriceRollups() {
+        this(DEFAULT_MINUTE_RETENTION, DEFAULT_HOUR_RETENTION);
+    }
+
+    /**
+     * Constructor with custom retention for minute and hour buckets. Day buckets are kept forever.
+     */
+    public PriceRollups(long minuteRetentionMillis, long hourRetentionMillis) {
+        if (minuteRetentionMillis < HOUR || hourRetentionMillis < DAY) {
+            throw new IllegalArgumentException("Minute retention must cover an hour and hour retention a day.");
+        }
+        this.minutes = new Rollup(MINUTE, minuteRetentionMillis);
+        this.hours = new Rollup(HOUR, hourRetentionMillis);
+        this.days = new Rollup(DAY, Long.MAX_VALUE);
+    }
+
+    /**
+     * Record a tick in every resolution.
+     */
+    public void add(long timestamp, double price) {
+        minutes.add(timestamp, price);
+        hours.add(timestamp, price);
+        days.add(timestamp, price);
+    }
+
+    /**
+     * Remove all buckets.
+     */
+    public void clear() {
+        minutes.clear();
+        hours.clear();
+        days.clear();
+    }
+
+    /**
+     * Rebuild the rollups from a price series.
+     */
+    public void rebuild(PriceSeries series) {
+        clear();
+        for (int i = 0, size = series.size(); i < size; i++) {
+            add(series.getTimestamp(i), series.getPrice(i));
+        }
+    }
+
+    /**
+     * Aggregate all ticks in {@code [from, to)}. The range is widened to whole minutes, and further to whole
+     * hours or days where finer buckets have expired.
+     */
+    public PriceWindowStats query(long from, long to) {
+        PriceWindowStats.Accumulator accumulator = new PriceWindowStats.Accumulator();
+        if (from >= to) {
+            return accumulator.build(from, to);
+        }
+
+        long cursor = floorTo(from, MINUTE);
+        long end = ceilTo(to, MINUTE);
+
+        // Only day buckets exist before the hour retention horizon
+        if (cursor < hours.retainedFrom) {
+            long regionEnd = ceilTo(Math.min(end, hours.retainedFrom), DAY);
+            days.aggregate(floorTo(cursor, DAY), regionEnd, accumulator);
+            cursor = regionEnd;
+        }
+        // Hour and day buckets exist before the minute retention horizon
+        if (cursor < end && cursor < minutes.retainedFrom) {
+            long regionStart = floorTo(cursor, HOUR);
+            long regionEnd = ceilTo(Math.min(end, minutes.retainedFrom), HOUR);
+            collect(regionStart, regionEnd, hours, accumulator);
+            cursor = regionEnd;
+        }
+        if (cursor < end) {
+            collect(cursor, end, minutes, accumulator);
+        }
+        return accumulator.build(from, to);
+    }
+
+    /**
+     * Cover {@code [from, to)} with the coarsest buckets that fit, down to {@code finest}. Both bounds must be
+     * aligned to the finest resolution.
+     */
+    private void collect(long from, long to, Rollup finest, PriceWindowStats.Accumulator accumulator) {
+        if (from >= to) {
+            return;
+        }
+        long dayStart = ceilTo(from, DAY);
+        long dayEnd = floorTo(to, DAY);
+        if (dayStart < dayEnd) {
+            days.aggregate(dayStart, dayEnd, accumulator);
+            collectHours(from, dayStart, finest, accumulator);
+            collectHours(dayEnd, to, finest, accumulator);
+        } else {
+            collectHours(from, to, finest, accumulator);
+        }
+    }
+
+    private void collectHours(long from, long to, Rollup finest, PriceWindowStats.Accumulator accumulator) {
+        if (from >= to) {
+            return;
+        }
+        if (finest == hours) {
+            hours.aggregate(from, to, accumulator);
+            return;
+        }
+        long hourStart = ceilTo(from, HOUR);
+        long hourEnd = floorTo(to, HOUR);
+        if (hourStart < hourEnd) {
+            hours.aggregate(hourStart, hourEnd, accumulator);
+            minutes.aggregate(from, hourStart, accumulator);
+            minutes.aggregate(hourEnd, to, accumulator);
+        } else {
+            minutes.aggregate(from, to, accumulator);
+        }
+    }
+
+    private static long floorTo(long timestamp, long width) {
+        return Math.floorDiv(timestamp, width) * width;
+    }
+
+    private static long ceilTo(long timestamp, long width) {
+        long floor = floorTo(timestamp, width);
+        return floor == timestamp ? floor : floor + width;
+    }
+
+    /**
+     * Buckets of one resolution, ordered by start time, in parallel primitive arrays. Expired buckets are
+     * dropped from the head and the arrays compacted once more than half of them is dead.
+     */
+    private static final class Rollup implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private static final int DEFAULT_CAPACITY = 4;
+        private static final long[] EMPTY_LONGS = new long[0];
+        private static final double[] EMPTY_DOUBLES = new double[0];
+        private static final int[] EMPTY_INTS = new int[0];
+
+        private final long width;
+        private final long retention;
+        private long retainedFrom = Long.MIN_VALUE;
+
+        // Arrays start out shared and empty so that buildings without ticks cost nothing
+        private long[] starts = EMPTY_LONGS;
+        private long[] firstTimestamps = EMPTY_LONGS;
+        private long[] lastTimestamps = EMPTY_LONGS;
+        private double[] mins = EMPTY_DOUBLES;
+        private double[] maxs = EMPTY_DOUBLES;
+        private double[] firsts = EMPTY_DOUBLES;
+        private double[] lasts = EMPTY_DOUBLES;
+        private double[] sums = EMPTY_DOUBLES;
+        private int[] counts = EMPTY_INTS;
+        private int head;
+        private int size;
+
+        private Rollup(long width, long retention) {
+            this.width = width;
+            this.retention = retention;
+        }
+
+        private void add(long timestamp, double price) {
+            long start = floorTo(timestamp, width);
+            if (start < retainedFrom) {
+                return;
+            }
+
+            int index;
+            if (size > head && starts[size - 1] == start) {
+                index = size - 1;
+            } else if (size == head || starts[size - 1] < start) {
+                index = insertAt(size, start);
+            } else {
+                int found = Arrays.binarySearch(starts, head, size, start);
+                index = found >= 0 ? found : insertAt(-found - 1, start);
+            }
+
+            if (counts[index] == 0) {
+                mins[index] = price;
+                maxs[index] = price;
+                firsts[index] = price;
+                lasts[index] = price;
+                firstTimestamps[index] = timestamp;
+                lastTimestamps[index] = timestamp;
+            } else {
+                mins[index] = Math.min(mins[index], price);
+                maxs[index] = Math.max(maxs[index], price);
+                if (timestamp < firstTimestamps[index]) {
+                    firstTimestamps[index] = timestamp;
+                    firsts[index] = price;
+                }
+                if (timestamp >= lastTimestamps[index]) {
+                    lastTimestamps[index] = timestamp;
+                    lasts[index] = price;
+                }
+            }
+            sums[index] += price;
+            counts[index]++;
+
+            if (index == size - 1) {
+                expire(start);
+            }
+        }
+
+        /**
+         * Fold every bucket starting in {@code [from, to)} into the accumulator.
+         */
+        private void aggregate(long from, long to, PriceWindowStats.Accumulator accumulator) {
+            if (from >= to || size == head) {
+                return;
+            }
+            int index = Arrays.binarySearch(starts, head, size, from);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            for (; index < size && starts[index] < to; index++) {
+                accumulator.add(counts[index], mins[index], maxs[index], firsts[index], firstTimestamps[index],
+                        lasts[index], lastTimestamps[index], sums[index]);
+            }
+        }
+
+        private void clear() {
+            head = 0;
+            size = 0;
+            retainedFrom = Long.MIN_VALUE;
+            Arrays.fill(counts, 0);
+        }
+
+        /**
+         * Open an empty bucket at the given position, shifting later buckets right.
+         */
+        private int insertAt(int index, long start) {
+            if (size == starts.length) {
+                if (head > 0) {
+                    int shift = head;
+                    compact();
+                    index -= shift;
+                } else {
+                    grow();
+                }
+            }
+            if (index < size) {
+                int moved = size - index;
+                System.arraycopy(starts, index, starts, index + 1, moved);
+                System.arraycopy(firstTimestamps, index, firstTimestamps, index + 1, moved);
+                System.arraycopy(lastTimestamps, index, lastTimestamps, index + 1, moved);
+                System.arraycopy(mins, index, mins, index + 1, moved);
+                System.arraycopy(maxs, index, maxs, index + 1, moved);
+                System.arraycopy(firsts, index, firsts, index + 1, moved);
+                System.arraycopy(lasts, index, lasts, index + 1, moved);
+                System.arraycopy(sums, index, sums, index + 1, moved);
+                System.arraycopy(counts, index, counts, index + 1, moved);
+            }
+            starts[index] = start;
+            sums[index] = 0.0;
+            counts[index] = 0;
+            size++;
+            return index;
+        }
+
+        /**
+         * Drop buckets that fell out of the retention period relative to the newest bucket.
+         */
+        private void expire(long newestStart) {
+            if (retention == Long.MAX_VALUE || newestStart - retention <= retainedFrom) {
+                return;
+            }
+            long horizon = floorTo(newestStart - retention, width);
+            if (horizon <= retainedFrom) {
+                return;
+            }
+            retainedFrom = horizon;
+            while (head < size && starts[head] < horizon) {
+                counts[head] = 0;
+                head++;
+            }
+            if (head > (size >> 1)) {
+                compact();
+            }
+        }
+
+        private void compact() {
+            int live = size - head;
+            System.arraycopy(starts, head, starts, 0, live);
+            System.arraycopy(firstTimestamps, head, firstTimestamps, 0, live);
+            System.arraycopy(lastTimestamps, head, lastTimestamps, 0, live);
+            System.arraycopy(mins, head, mins, 0, live);
+            System.arraycopy(maxs, head, maxs, 0, live);
+            System.arraycopy(firsts, head, firsts, 0, live);
+            System.arraycopy(lasts, head, lasts, 0, live);
+            System.arraycopy(sums, head, sums, 0, live);
+            System.arraycopy(counts, head, counts, 0, live);
+            head = 0;
+            size = live;
+        }
+
+        private void grow() {
+            int capacity = Math.max(DEFAULT_CAPACITY, starts.length + (starts.length >> 1));
+            starts = Arrays.copyOf(starts, capacity);
+            firstTimestamps = Arrays.copyOf(firstTimestamps, capacity);
+            lastTimestamps = Arrays.copyOf(lastTimestamps, capacity);
+            mins = Arrays.copyOf(mins, capacity);
+            maxs = Arrays.copyOf(maxs, capacity);
+            firsts = Arrays.copyOf(firsts, capacity);
+            lasts = Arrays.copyOf(lasts, capacity);
+            sums = Arrays.copyOf(sums, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+    }
+}
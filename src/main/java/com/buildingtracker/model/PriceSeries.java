@@ -0,0 +1,693 @@
+package com.buildingtracker.model;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Columnar store for a building's price history.
+ *
+ * <p>Timestamps, prices and change percentages are kept in parallel primitive arrays instead of one
+ * {@link PriceHistory} object per tick, which removes the per-entry object header and reference. The arrays
+ * grow geometrically like an {@code ArrayList}.
+ *
+ * <p>A series is not thread safe, but {@link #view()} hands out read-only views that stay valid while the owner
+ * keeps appending: entries below a view's size are never overwritten in place, only copied into new arrays.
+ *
+ * <p>Old entries can be moved into a compressed cold tier with {@link #archiveBefore(long)}. Archived entries
+ * keep their indices and stay readable through the same accessors; reading one decompresses its block of
+ * {@value #ARCHIVE_BLOCK_SIZE} entries, and the last decoded block is cached, so sequential scans decode each
+ * block once.
+ *
+ * <p>Time searches ({@link #floorIndex(long)}, {@link #ceilingIndex(long)}, {@link #range(long, long, int)}) use
+ * a sparse skip index holding the timestamp of every {@value #SKIP_INTERVAL}th entry. It is aligned with the
+ * archive blocks, so a search binary-searches the skip index, then one block, and decodes at most one of them.
+ */
+public class PriceSeries implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int DEFAULT_CAPACITY = 8;
+    static final int ARCHIVE_BLOCK_SIZE = 1024;
+    static final int SKIP_INTERVAL = ARCHIVE_BLOCK_SIZE;
+    private static final CompressedPriceBlock[] NO_BLOCKS = new CompressedPriceBlock[0];
+    private static final int[] NO_STARTS = new int[0];
+    private static final long[] NO_TIMESTAMPS = new long[0];
+
+    private long[] timestamps;
+    private double[] prices;
+    private double[] changePercentages;
+    private int size;
+    // Cold tier holding the first archivedSize entries; both arrays are replaced, never modified in place
+    private CompressedPriceBlock[] archive = NO_BLOCKS;
+    private int[] archiveStarts = NO_STARTS;
+    private int archivedSize;
+    private final boolean readOnly;
+    // Set once a view shares the arrays; in-place edits must copy them first
+    private transient boolean shared;
+    // Last decompressed block; immutable, so a stale read by another thread only costs a decode
+    private transient CompressedPriceBlock.Decoded decoded;
+    // Time index, rebuilt on deserialization: the timestamp of every SKIP_INTERVAL-th entry, whether timestamps
+    // never decrease, and the last timestamp. Skip slots are appended in place, rewritten only in a copy once shared.
+    private transient long[] skipTimestamps = NO_TIMESTAMPS;
+    private transient boolean skipShared;
+    private transient boolean timeOrdered = true;
+    private transient long lastTimestamp;
+
+    /**
+     * Default constructor.
+     */
+    public PriceSeries() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor with initial capacity.
+     */
+    public PriceSeries(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative.");
+        }
+        this.timestamps = new long[initialCapacity];
+        this.prices = new double[initialCapacity];
+        this.changePercentages = new double[initialCapacity];
+        this.readOnly = false;
+    }
+
+    private PriceSeries(PriceSeries source) {
+        this.timestamps = source.timestamps;
+        this.prices = source.prices;
+        this.changePercentages = source.changePercentages;
+        this.size = source.size;
+        this.archive = source.archive;
+        this.archiveStarts = source.archiveStarts;
+        this.archivedSize = source.archivedSize;
+        this.skipTimestamps = source.skipTimestamps;
+        this.timeOrdered = source.timeOrdered;
+        this.lastTimestamp = source.lastTimestamp;
+        this.readOnly = true;
+    }
+
+    /**
+     * Create a series holding a copy of the given history entries.
+     */
+    public static PriceSeries of(List<PriceHistory> history) {
+        PriceSeries series = new PriceSeries(Math.max(DEFAULT_CAPACITY, history.size()));
+        for (PriceHistory entry : history) {
+            series.add(entry);
+        }
+        return series;
+    }
+
+    /**
+     * Create a series that takes ownership of the given columns, which must have equal lengths and must not be
+     * modified by the caller afterwards. Used by storage to hand over bulk-decoded history without copying.
+     */
+    public static PriceSeries wrap(long[] timestamps, double[] prices, double[] changePercentages) {
+        if (timestamps.length != prices.length || prices.length != changePercentages.length) {
+            throw new IllegalArgumentException("Price series columns must have the same length.");
+        }
+        PriceSeries series = new PriceSeries(0);
+        series.timestamps = timestamps;
+        series.prices = prices;
+        series.changePercentages = changePercentages;
+        series.size = timestamps.length;
+        series.rebuildTimeIndex();
+        return series;
+    }
+
+    public int size() {
+        return archivedSize + size;
+    }
+
+    /**
+     * Get the number of entries held in the compressed cold tier. They are always the first entries.
+     */
+    public int getArchivedSize() {
+        return archivedSize;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Get a read-only view of the current entries in O(1). The view shares the backing arrays and keeps its
+     * size, so it is unaffected by later appends, edits or clears of this series.
+     */
+    public PriceSeries view() {
+        if (readOnly) {
+            return this;
+        }
+        shared = true;
+        skipShared = true;
+        return new PriceSeries(this);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public long getTimestamp(int index) {
+        checkIndex(index);
+        if (index >= archivedSize) {
+            return timestamps[index - archivedSize];
+        }
+        CompressedPriceBlock.Decoded block = decodedBlock(index);
+        return block.timestamps[index - archiveStarts[blockIndex(index)]];
+    }
+
+    public double getPrice(int index) {
+        checkIndex(index);
+        if (index >= archivedSize) {
+            return prices[index - archivedSize];
+        }
+        CompressedPriceBlock.Decoded block = decodedBlock(index);
+        return block.prices[index - archiveStarts[blockIndex(index)]];
+    }
+
+    public double getChangePercentage(int index) {
+        checkIndex(index);
+        if (index >= archivedSize) {
+            return changePercentages[index - archivedSize];
+        }
+        CompressedPriceBlock.Decoded block = decodedBlock(index);
+        return block.changePercentages[index - archiveStarts[blockIndex(index)]];
+    }
+
+    /**
+     * Materialize the entry at the given index as a new {@link PriceHistory} object.
+     */
+    public PriceHistory get(int index) {
+        checkIndex(index);
+        if (index >= archivedSize) {
+            int hot = index - archivedSize;
+            return new PriceHistory(prices[hot], timestamps[hot], changePercentages[hot]);
+        }
+        CompressedPriceBlock.Decoded block = decodedBlock(index);
+        int offset = index - archiveStarts[blockIndex(index)];
+        return new PriceHistory(block.prices[offset], block.timestamps[offset], block.changePercentages[offset]);
+    }
+
+    /**
+     * Append an entry.
+     */
+    public void add(double price, long timestamp, double changePercentage) {
+        checkWritable();
+        int index = size();
+        if (index % SKIP_INTERVAL == 0) {
+            appendSkip(index / SKIP_INTERVAL, timestamp);
+        }
+        if (index > 0 && timestamp < lastTimestamp) {
+            timeOrdered = false;
+        }
+        lastTimestamp = timestamp;
+        if (size == timestamps.length) {
+            grow();
+        }
+        timestamps[size] = timestamp;
+        prices[size] = price;
+        changePercentages[size] = changePercentage;
+        size++;
+    }
+
+    /**
+     * Append an entry copied from a {@link PriceHistory} object.
+     */
+    public void add(PriceHistory history) {
+        add(history.getPrice(), history.getTimestamp(), history.getChangePercentage());
+    }
+
+    /**
+     * Overwrite the entry at the given index. Overwriting an archived entry recompresses its block.
+     */
+    public void set(int index, double price, long timestamp, double changePercentage) {
+        checkWritable();
+        checkIndex(index);
+        updateTimeIndex(index, timestamp);
+        if (index < archivedSize) {
+            setArchived(index, price, timestamp, changePercentage);
+            return;
+        }
+        index -= archivedSize;
+        if (shared) {
+            timestamps = timestamps.clone();
+            prices = prices.clone();
+            changePercentages = changePercentages.clone();
+            shared = false;
+        }
+        timestamps[index] = timestamp;
+        prices[index] = price;
+        changePercentages[index] = changePercentage;
+    }
+
+    /**
+     * Remove the entry at the given index and shift the later entries down, like {@code ArrayList.remove}.
+     * Removing an archived entry recompresses its block.
+     */
+    public void remove(int index) {
+        checkWritable();
+        checkIndex(index);
+        if (index < archivedSize) {
+            removeArchived(index);
+        } else {
+            int hot = index - archivedSize;
+            if (shared) {
+                timestamps = timestamps.clone();
+                prices = prices.clone();
+                changePercentages = changePercentages.clone();
+                shared = false;
+            }
+            int moved = size - hot - 1;
+            System.arraycopy(timestamps, hot + 1, timestamps, hot, moved);
+            System.arraycopy(prices, hot + 1, prices, hot, moved);
+            System.arraycopy(changePercentages, hot + 1, changePercentages, hot, moved);
+            size--;
+        }
+        refreshTimeIndexFrom(index);
+    }
+
+    /**
+     * Remove all entries, archived ones included, and release the backing arrays.
+     */
+    public void clear() {
+        checkWritable();
+        timestamps = new long[DEFAULT_CAPACITY];
+        prices = new double[DEFAULT_CAPACITY];
+        changePercentages = new double[DEFAULT_CAPACITY];
+        size = 0;
+        archive = NO_BLOCKS;
+        archiveStarts = NO_STARTS;
+        archivedSize = 0;
+        decoded = null;
+        shared = false;
+        skipTimestamps = NO_TIMESTAMPS;
+        skipShared = false;
+        timeOrdered = true;
+        lastTimestamp = 0;
+    }
+
+    /**
+     * Whether timestamps never decrease from one entry to the next. Appending an entry older than the last one, for
+     * example through {@link Building#addPriceHistory(PriceHistory)}, clears this; time searches then need
+     * {@link #sortedByTime()}.
+     */
+    public boolean isTimeOrdered() {
+        return timeOrdered;
+    }
+
+    /**
+     * Get the index of the last entry recorded at or before the timestamp, or -1 if there is none.
+     *
+     * @throws IllegalStateException if the series is not in timestamp order
+     */
+    public int floorIndex(long timestamp) {
+        checkTimeOrdered();
+        // Last segment starting at or before the timestamp; the floor entry is in it
+        int low = 0;
+        int high = (size() + SKIP_INTERVAL - 1) / SKIP_INTERVAL - 1;
+        int segment = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (skipTimestamps[middle] <= timestamp) {
+                segment = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (segment < 0) {
+            return -1;
+        }
+
+        int floor = segment * SKIP_INTERVAL;
+        low = floor + 1;
+        high = Math.min(size(), floor + SKIP_INTERVAL) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (getTimestamp(middle) <= timestamp) {
+                floor = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return floor;
+    }
+
+    /**
+     * Get the index of the first entry recorded at or after the timestamp, or {@link #size()} if there is none.
+     *
+     * @throws IllegalStateException if the series is not in timestamp order
+     */
+    public int ceilingIndex(long timestamp) {
+        if (timestamp == Long.MIN_VALUE) {
+            checkTimeOrdered();
+            return 0;
+        }
+        return floorIndex(timestamp - 1) + 1;
+    }
+
+    /**
+     * Copy the entries recorded in {@code [from, to]} into a new series of at most {@code maxPoints} entries. If
+     * there are more, the range is divided into {@code maxPoints} equal intervals and the last entry of each
+     * non-empty interval is kept, which is the price as of the interval's end.
+     *
+     * @throws IllegalStateException if the series is not in timestamp order
+     */
+    public PriceSeries range(long from, long to, int maxPoints) {
+        if (to < from) {
+            throw new IllegalArgumentException("Range end must not be before its start.");
+        }
+        if (maxPoints <= 0) {
+            throw new IllegalArgumentException("Point count must be positive.");
+        }
+        int first = ceilingIndex(from);
+        int last = floorIndex(to);
+        int count = last - first + 1;
+        if (count <= 0) {
+            return new PriceSeries(0);
+        }
+        PriceSeries result = new PriceSeries(Math.min(count, maxPoints));
+        if (count <= maxPoints) {
+            for (int i = first; i <= last; i++) {
+                result.add(getPrice(i), getTimestamp(i), getChangePercentage(i));
+            }
+            return result;
+        }
+
+        double span = (double) to - from + 1;
+        int next = first;
+        for (int interval = 1; interval <= maxPoints && next <= last; interval++) {
+            long end = interval == maxPoints ? to : from + (long) (span * interval / maxPoints) - 1;
+            int lastInInterval = floorIndex(end);
+            if (lastInInterval >= next) {
+                result.add(getPrice(lastInInterval), getTimestamp(lastInInterval),
+                        getChangePercentage(lastInInterval));
+                next = lastInInterval + 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get this series if it is in timestamp order, or else a new series with its entries sorted by timestamp.
+     * The sort is stable, so entries with equal timestamps keep their order, and entries keep their recorded
+     * change percentages.
+     */
+    public PriceSeries sortedByTime() {
+        if (timeOrdered) {
+            return this;
+        }
+        int count = size();
+        long[] sourceTimestamps = new long[count];
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            sourceTimestamps[i] = getTimestamp(i);
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> sourceTimestamps[i]));
+        long[] sortedTimestamps = new long[count];
+        double[] sortedPrices = new double[count];
+        double[] sortedChanges = new double[count];
+        for (int i = 0; i < count; i++) {
+            int source = order[i];
+            sortedTimestamps[i] = sourceTimestamps[source];
+            sortedPrices[i] = getPrice(source);
+            sortedChanges[i] = getChangePercentage(source);
+        }
+        return wrap(sortedTimestamps, sortedPrices, sortedChanges);
+    }
+
+    /**
+     * Move the leading entries recorded before {@code cutoffTimestamp} into the compressed cold tier. Entries are
+     * expected in timestamp order; archiving stops at the first entry at or after the cutoff. A partly filled
+     * last block is merged with the new entries, so repeated small archive runs still compress well.
+     *
+     * @return the number of entries archived
+     */
+    public int archiveBefore(long cutoffTimestamp) {
+        checkWritable();
+        int count = 0;
+        while (count < size && timestamps[count] < cutoffTimestamp) {
+            count++;
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        // Reopen a partly filled last block so it is packed together with the new entries
+        int keptBlocks = archive.length;
+        int merged = 0;
+        long[] newTimestamps = Arrays.copyOf(timestamps, count);
+        double[] newPrices = Arrays.copyOf(prices, count);
+        double[] newChanges = Arrays.copyOf(changePercentages, count);
+        if (keptBlocks > 0 && archive[keptBlocks - 1].size() < ARCHIVE_BLOCK_SIZE) {
+            CompressedPriceBlock.Decoded last = archive[--keptBlocks].decode();
+            merged = last.timestamps.length;
+            newTimestamps = concat(last.timestamps, newTimestamps);
+            newPrices = concat(last.prices, newPrices);
+            newChanges = concat(last.changePercentages, newChanges);
+        }
+
+        int total = merged + count;
+        int blockCount = keptBlocks + (total + ARCHIVE_BLOCK_SIZE - 1) / ARCHIVE_BLOCK_SIZE;
+        CompressedPriceBlock[] newArchive = Arrays.copyOf(archive, blockCount);
+        int[] newStarts = Arrays.copyOf(archiveStarts, blockCount);
+        int start = archivedSize - merged;
+        for (int block = keptBlocks, offset = 0; block < blockCount; block++, offset += ARCHIVE_BLOCK_SIZE) {
+            int length = Math.min(ARCHIVE_BLOCK_SIZE, total - offset);
+            newArchive[block] = CompressedPriceBlock.encode(newTimestamps, newPrices, newChanges, offset, length);
+            newStarts[block] = start + offset;
+        }
+
+        // Copy the remaining hot entries, so views keep the arrays they share
+        int remaining = size - count;
+        int capacity = Math.max(DEFAULT_CAPACITY, remaining);
+        long[] hotTimestamps = new long[capacity];
+        double[] hotPrices = new double[capacity];
+        double[] hotChanges = new double[capacity];
+        System.arraycopy(timestamps, count, hotTimestamps, 0, remaining);
+        System.arraycopy(prices, count, hotPrices, 0, remaining);
+        System.arraycopy(changePercentages, count, hotChanges, 0, remaining);
+        timestamps = hotTimestamps;
+        prices = hotPrices;
+        changePercentages = hotChanges;
+        size = remaining;
+        archive = newArchive;
+        archiveStarts = newStarts;
+        archivedSize += count;
+        shared = false;
+        return count;
+    }
+
+    /**
+     * Shrink the backing arrays to the current size.
+     */
+    public void trimToSize() {
+        checkWritable();
+        if (size < timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, size);
+            prices = Arrays.copyOf(prices, size);
+            changePercentages = Arrays.copyOf(changePercentages, size);
+            shared = false;
+        }
+    }
+
+    /**
+     * Approximate heap footprint of the backing arrays and the archive in bytes.
+     */
+    public long estimatedBytes() {
+        return 3L * 16 + (long) timestamps.length * (Long.BYTES + 2 * Double.BYTES) + getArchivedBytes();
+    }
+
+    /**
+     * Approximate heap footprint of the compressed cold tier in bytes.
+     */
+    public long getArchivedBytes() {
+        long bytes = 0;
+        for (CompressedPriceBlock block : archive) {
+            bytes += block.estimatedBytes() + Integer.BYTES;
+        }
+        return bytes;
+    }
+
+    private void appendSkip(int slot, long timestamp) {
+        if (slot == skipTimestamps.length) {
+            skipTimestamps = Arrays.copyOf(skipTimestamps, Math.max(4, slot * 2));
+            skipShared = false;
+        }
+        skipTimestamps[slot] = timestamp;
+    }
+
+    /**
+     * Keep the time index right when the entry at {@code index} gets a new timestamp. Called before the write.
+     */
+    private void updateTimeIndex(int index, long timestamp) {
+        int last = size() - 1;
+        if (timeOrdered && ((index > 0 && getTimestamp(index - 1) > timestamp)
+                || (index < last && getTimestamp(index + 1) < timestamp))) {
+            timeOrdered = false;
+        }
+        if (index == last) {
+            lastTimestamp = timestamp;
+        }
+        if (index % SKIP_INTERVAL == 0) {
+            if (skipShared) {
+                skipTimestamps = skipTimestamps.clone();
+                skipShared = false;
+            }
+            skipTimestamps[index / SKIP_INTERVAL] = timestamp;
+        }
+    }
+
+    /**
+     * Bring the time index up to date after the entries from {@code index} on moved down by one.
+     */
+    private void refreshTimeIndexFrom(int index) {
+        if (!timeOrdered) {
+            // The removed entry may have been the only one out of order
+            rebuildTimeIndex();
+            return;
+        }
+        int count = size();
+        int slots = (count + SKIP_INTERVAL - 1) / SKIP_INTERVAL;
+        // A fresh copy, as views may share the current one
+        skipTimestamps = Arrays.copyOf(skipTimestamps, slots);
+        skipShared = false;
+        for (int slot = (index + SKIP_INTERVAL - 1) / SKIP_INTERVAL; slot < slots; slot++) {
+            skipTimestamps[slot] = getTimestamp(slot * SKIP_INTERVAL);
+        }
+        lastTimestamp = count > 0 ? getTimestamp(count - 1) : 0;
+    }
+
+    private void rebuildTimeIndex() {
+        int count = size();
+        skipTimestamps = new long[(count + SKIP_INTERVAL - 1) / SKIP_INTERVAL];
+        skipShared = false;
+        timeOrdered = true;
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            long timestamp = getTimestamp(i);
+            if (i % SKIP_INTERVAL == 0) {
+                skipTimestamps[i / SKIP_INTERVAL] = timestamp;
+            }
+            if (i > 0 && timestamp < previous) {
+                timeOrdered = false;
+            }
+            previous = timestamp;
+        }
+        lastTimestamp = previous;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        rebuildTimeIndex();
+    }
+
+    private void setArchived(int index, double price, long timestamp, double changePercentage) {
+        int block = blockIndex(index);
+        CompressedPriceBlock.Decoded current = archive[block].decode();
+        long[] blockTimestamps = current.timestamps;
+        double[] blockPrices = current.prices;
+        double[] blockChanges = current.changePercentages;
+        int offset = index - archiveStarts[block];
+        blockTimestamps[offset] = timestamp;
+        blockPrices[offset] = price;
+        blockChanges[offset] = changePercentage;
+        CompressedPriceBlock[] newArchive = archive.clone();
+        newArchive[block] = CompressedPriceBlock.encode(blockTimestamps, blockPrices, blockChanges, 0,
+                blockTimestamps.length);
+        archive = newArchive;
+        decoded = null;
+    }
+
+    private void removeArchived(int index) {
+        int block = blockIndex(index);
+        CompressedPriceBlock.Decoded current = archive[block].decode();
+        int offset = index - archiveStarts[block];
+        int length = current.timestamps.length - 1;
+        CompressedPriceBlock[] newArchive;
+        int[] newStarts;
+        if (length == 0) {
+            newArchive = new CompressedPriceBlock[archive.length - 1];
+            newStarts = new int[archive.length - 1];
+            System.arraycopy(archive, 0, newArchive, 0, block);
+            System.arraycopy(archive, block + 1, newArchive, block, newArchive.length - block);
+            System.arraycopy(archiveStarts, 0, newStarts, 0, block);
+            System.arraycopy(archiveStarts, block + 1, newStarts, block, newStarts.length - block);
+        } else {
+            // The decoded columns are private to this call, so they can be shifted in place
+            System.arraycopy(current.timestamps, offset + 1, current.timestamps, offset, length - offset);
+            System.arraycopy(current.prices, offset + 1, current.prices, offset, length - offset);
+            System.arraycopy(current.changePercentages, offset + 1, current.changePercentages, offset,
+                    length - offset);
+            newArchive = archive.clone();
+            newArchive[block] = CompressedPriceBlock.encode(current.timestamps, current.prices,
+                    current.changePercentages, 0, length);
+            newStarts = archiveStarts.clone();
+            block++;
+        }
+        for (int later = block; later < newStarts.length; later++) {
+            newStarts[later]--;
+        }
+        archive = newArchive;
+        archiveStarts = newStarts;
+        archivedSize--;
+        decoded = null;
+    }
+
+    private CompressedPriceBlock.Decoded decodedBlock(int index) {
+        CompressedPriceBlock block = archive[blockIndex(index)];
+        CompressedPriceBlock.Decoded cached = decoded;
+        if (cached == null || cached.block != block) {
+            cached = block.decode();
+            decoded = cached;
+        }
+        return cached;
+    }
+
+    private int blockIndex(int index) {
+        int found = Arrays.binarySearch(archiveStarts, index);
+        return found >= 0 ? found : -found - 2;
+    }
+
+    private static long[] concat(long[] first, long[] second) {
+        long[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private static double[] concat(double[] first, double[] second) {
+        double[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private void grow() {
+        int newCapacity = Math.max(DEFAULT_CAPACITY, timestamps.length + (timestamps.length >> 1));
+        timestamps = Arrays.copyOf(timestamps, newCapacity);
+        prices = Arrays.copyOf(prices, newCapacity);
+        changePercentages = Arrays.copyOf(changePercentages, newCapacity);
+        shared = false;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Price series view is read-only.");
+        }
+    }
+
+    private void checkTimeOrdered() {
+        if (!timeOrdered) {
+            throw new IllegalStateException("Price series is not in timestamp order; use sortedByTime().");
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.buildingtracker.model;
+
+import java.io.Serializable;
+
+/**
+ * Aggregated price statistics over a time window.
+ */
+public class PriceWindowStats implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long from;
+    private final long to;
+    private final long count;
+    private final double min;
+    private final double max;
+    private final double first;
+    private final double last;
+    private final double sum;
+    private final long firstTimestamp;
+    private final long lastTimestamp;
+
+    private PriceWindowStats(long from, long to, Accumulator accumulator) {
+        this.from = from;
+        this.to = to;
+        this.count = accumulator.count;
+        this.min = accumulator.min;
+        this.max = accumulator.max;
+        this.first = accumulator.first;
+        this.last = accumulator.last;
+        this.sum = accumulator.sum;
+        this.firstTimestamp = accumulator.firstTimestamp;
+        this.lastTimestamp = accumulator.lastTimestamp;
+    }
+
+    // Getters
+    public long getFrom() {
+        return from;
+    }
+
+    public long getTo() {
+        return to;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getFirst() {
+        return first;
+    }
+
+    public double getLast() {
+        return last;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    /**
+     * Get the mean price of all ticks in the window.
+     */
+    public double getAverage() {
+        return count == 0 ? 0.0 : sum / count;
+    }
+
+    /**
+     * Get the percentage change from the first to the last price in the window.
+     */
+    public double getChangePercentage() {
+        if (count == 0 || first <= 0) {
+            return 0.0;
+        }
+        return ((last - first) / first) * 100;
+    }
+
+    /**
+     * Get the range between the highest and lowest price as a percentage of the lowest.
+     */
+    public double getVolatility() {
+        if (count == 0 || min <= 0) {
+            return 0.0;
+        }
+        return ((max - min) / min) * 100;
+    }
+
+    /**
+     * Get the trend direction over the window (UP, DOWN or STABLE).
+     */
+    public String getTrendDirection() {
+        return RollingTrendWindow.determineTrendDirection(getChangePercentage());
+    }
+
+    @Override
+    public String toString() {
+        return "PriceWindowStats{"
+                + "count=" + count
+                + ", first=" + first
+                + ", last=" + last
+                + ", min=" + min
+                + ", max=" + max
+                + ", change=" + String.format("%.2f", getChangePercentage()) + "%"
+                + ", direction='" + getTrendDirection() + '\''
+                + '}';
+    }
+
+    /**
+     * Mergeable partial aggregate used while a window is assembled from buckets.
+     */
+    public static final class Accumulator {
+        private long count;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double first;
+        private double last;
+        private double sum;
+        private long firstTimestamp = Long.MAX_VALUE;
+        private long lastTimestamp = Long.MIN_VALUE;
+
+        /**
+         * Fold in a bucket (or a single tick, with count 1).
+         */
+        public void add(long bucketCount, double bucketMin, double bucketMax, double bucketFirst,
+                        long bucketFirstTimestamp, double bucketLast, long bucketLastTimestamp, double bucketSum) {
+            if (bucketCount == 0) {
+                return;
+            }
+            count += bucketCount;
+            min = Math.min(min, bucketMin);
+            max = Math.max(max, bucketMax);
+            sum += bucketSum;
+            if (bucketFirstTimestamp < firstTimestamp) {
+                firstTimestamp = bucketFirstTimestamp;
+                first = bucketFirst;
+            }
+            if (bucketLastTimestamp >= lastTimestamp) {
+                lastTimestamp = bucketLastTimestamp;
+                last = bucketLast;
+            }
+        }
+
+        public PriceWindowStats build(long from, long to) {
+            if (count == 0) {
+                min = 0.0;
+                max = 0.0;
+                firstTimestamp = 0L;
+                lastTimestamp = 0L;
+            }
+            return new PriceWindowStats(from, to, this);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.buildingtracker.model;
+
+import java.io.Serializable;
+
+/**
+ * Incrementally maintained trend over the most recent N change percentages.
+ *
+ * <p>Values live in a fixed ring buffer. The window keeps two monotonic deques for the maximum and minimum, so each
+ * {@link #push(double)} is O(1) amortized and allocates nothing. The sum behind the average is not kept running,
+ * as repeated add/subtract drifts and could flip the direction at the thresholds; it is summed from the ring,
+ * oldest value first exactly like a fresh scan of the window, when the average is next read and then cached.
+ */
+public class RollingTrendWindow implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int DEFAULT_WINDOW_SIZE = 10;
+
+    private static final double UP_THRESHOLD = 0.5;
+    private static final double DOWN_THRESHOLD = -0.5;
+
+    private final int capacity;
+    private final double[] values;
+    // Monotonic deques of push sequence numbers; values[seq % capacity] holds the value
+    private final long[] maxDeque;
+    private final long[] minDeque;
+    private int maxHead;
+    private int maxSize;
+    private int minHead;
+    private int minSize;
+
+    private long pushes;
+    private int count;
+    // Sum of the window, valid until the next push
+    private double sum;
+    private boolean sumValid = true;
+
+    /**
+     * Constructor with the default window size.
+     */
+    public RollingTrendWindow() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Constructor with custom window size.
+     */
+    public RollingTrendWindow(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Window size must be positive.");
+        }
+        this.capacity = capacity;
+        this.values = new double[capacity];
+        this.maxDeque = new long[capacity];
+        this.minDeque = new long[capacity];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Add a value, evicting the oldest one once the window is full.
+     */
+    public void push(double value) {
+        if (count == capacity) {
+            long oldest = pushes - capacity;
+            if (maxSize > 0 && maxDeque[maxHead] == oldest) {
+                maxHead = (maxHead + 1) % capacity;
+                maxSize--;
+            }
+            if (minSize > 0 && minDeque[minHead] == oldest) {
+                minHead = (minHead + 1) % capacity;
+                minSize--;
+            }
+            count--;
+        }
+
+        long seq = pushes++;
+        values[slot(seq)] = value;
+        sumValid = false;
+        count++;
+
+        while (maxSize > 0 && values[slot(maxDeque[(maxHead + maxSize - 1) % capacity])] <= value) {
+            maxSize--;
+        }
+        maxDeque[(maxHead + maxSize) % capacity] = seq;
+        maxSize++;
+
+        while (minSize > 0 && values[slot(minDeque[(minHead + minSize - 1) % capacity])] >= value) {
+            minSize--;
+        }
+        minDeque[(minHead + minSize) % capacity] = seq;
+        minSize++;
+    }
+
+    /**
+     * Remove all values.
+     */
+    public void clear() {
+        pushes = 0;
+        count = 0;
+        sum = 0.0;
+        sumValid = true;
+        maxHead = 0;
+        maxSize = 0;
+        minHead = 0;
+        minSize = 0;
+    }
+
+    public double getAverage() {
+        if (count == 0) {
+            return 0.0;
+        }
+        if (!sumValid) {
+            sum = sumWindow();
+            sumValid = true;
+        }
+        return sum / count;
+    }
+
+    public double getMax() {
+        return count == 0 ? 0.0 : values[slot(maxDeque[maxHead])];
+    }
+
+    public double getMin() {
+        return count == 0 ? 0.0 : values[slot(minDeque[minHead])];
+    }
+
+    /**
+     * Build the trend for the current window contents.
+     */
+    public PriceTrend toTrend() {
+        if (count == 0) {
+            return new PriceTrend();
+        }
+        double averageChange = getAverage();
+        return new PriceTrend(determineTrendDirection(averageChange), averageChange, getMax() - getMin());
+    }
+
+    /**
+     * Determine trend direction based on average change.
+     */
+    public static String determineTrendDirection(double averageChange) {
+        if (averageChange > UP_THRESHOLD) {
+            return "UP";
+        } else if (averageChange < DOWN_THRESHOLD) {
+            return "DOWN";
+        } else {
+            return "STABLE";
+        }
+    }
+
+    /**
+     * Sum the values from the oldest to the newest, matching a fresh scan of the window.
+     */
+    private double sumWindow() {
+        double total = 0;
+        for (long seq = pushes - count; seq < pushes; seq++) {
+            total += values[slot(seq)];
+        }
+        return total;
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % capacity);
+    }
+}
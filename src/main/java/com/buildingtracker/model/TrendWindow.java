@@ -0,0 +1,29 @@
+package com.buildingtracker.model;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Standard wall-clock windows for trend queries.
+ */
+public enum TrendWindow {
+    ONE_DAY("1d", TimeUnit.DAYS.toMillis(1)),
+    SEVEN_DAYS("7d", TimeUnit.DAYS.toMillis(7)),
+    THIRTY_DAYS("30d", TimeUnit.DAYS.toMillis(30)),
+    ONE_YEAR("365d", TimeUnit.DAYS.toMillis(365));
+
+    private final String label;
+    private final long durationMillis;
+
+    TrendWindow(String label, long durationMillis) {
+        this.label = label;
+        this.durationMillis = durationMillis;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+}
@@ -0,0 +1,137 @@
+package com.buildingtracker.server;
+
+import com.buildingtracker.model.BuildingSnapshot;
+import com.buildingtracker.model.PriceSeries;
+import com.buildingtracker.model.PriceTrend;
+import com.buildingtracker.service.BatchResult;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Renders API responses with Gson's streaming writer straight into a byte array, so no intermediate object tree
+ * is built. Non-finite numbers, such as the change percentage of a first price, are written as {@code null}.
+ */
+final class JsonResponses {
+
+    /**
+     * Writes one response document.
+     */
+    @FunctionalInterface
+    interface Body {
+        void write(JsonWriter writer) throws IOException;
+    }
+
+    private JsonResponses() {
+    }
+
+    static byte[] render(Body body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            body.write(writer);
+        } catch (IOException e) {
+            // Only the in-memory stream is written to
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static byte[] building(BuildingSnapshot building) {
+        return render(writer -> {
+            writer.beginObject();
+            writer.name("name").value(building.getName());
+            writer.name("address").value(building.getAddress());
+            number(writer.name("price"), building.getCurrentPrice());
+            writer.name("historyLength").value(building.getHistoryLength());
+            writer.name("version").value(building.getVersion());
+            writer.name("trend");
+            trend(writer, building.getRecentTrend());
+            writer.endObject();
+        });
+    }
+
+    static byte[] trend(BuildingSnapshot building) {
+        return render(writer -> {
+            writer.beginObject();
+            writer.name("name").value(building.getName());
+            writer.name("trend");
+            trend(writer, building.getRecentTrend());
+            writer.endObject();
+        });
+    }
+
+    /**
+     * Render the history entries {@code [offset, offset + limit)}, oldest first.
+     */
+    static byte[] history(BuildingSnapshot building, int offset, int limit) {
+        PriceSeries history = building.getHistory();
+        int total = history.size();
+        int end = (int) Math.min(total, (long) offset + limit);
+        return render(writer -> {
+            writer.beginObject();
+            writer.name("name").value(building.getName());
+            writer.name("total").value(total);
+            writer.name("offset").value(offset);
+            writer.name("limit").value(limit);
+            writer.name("entries").beginArray();
+            for (int i = offset; i < end; i++) {
+                writer.beginObject();
+                writer.name("timestamp").value(history.getTimestamp(i));
+                number(writer.name("price"), history.getPrice(i));
+                number(writer.name("changePercentage"), history.getChangePercentage(i));
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+        });
+    }
+
+    static byte[] batchResult(BatchResult result) {
+        return render(writer -> {
+            writer.beginObject();
+            writer.name("applied").value(result.getAppliedCount());
+            writer.name("buildings").value(result.getBuildingCount());
+            writer.name("failed").value(result.getFailedCount());
+            writer.name("failures").beginArray();
+            for (BatchResult.Failure failure : result.getFailures()) {
+                writer.beginObject();
+                if (failure.getUpdate() != null) {
+                    writer.name("building").value(failure.getUpdate().getBuildingName());
+                    number(writer.name("price"), failure.getUpdate().getPrice());
+                }
+                writer.name("reason").value(failure.getReason());
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+        });
+    }
+
+    static byte[] error(String message) {
+        return render(writer -> writer.beginObject().name("error").value(message).endObject());
+    }
+
+    private static void trend(JsonWriter writer, PriceTrend trend) throws IOException {
+        if (trend == null) {
+            writer.nullValue();
+            return;
+        }
+        writer.beginObject();
+        writer.name("direction").value(trend.getTrendDirection());
+        number(writer.name("averageChange"), trend.getAverageChange());
+        number(writer.name("volatility"), trend.getVolatility());
+        writer.endObject();
+    }
+
+    private static void number(JsonWriter writer, double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            writer.nullValue();
+        } else {
+            writer.value(value);
+        }
+    }
+}
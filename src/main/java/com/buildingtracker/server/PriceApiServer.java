@@ -0,0 +1,440 @@
+package com.buildingtracker.server;
+
+import com.buildingtracker.metrics.Counter;
+import com.buildingtracker.metrics.LatencyHistogram;
+import com.buildingtracker.metrics.MetricsRegistry;
+import com.buildingtracker.model.BuildingSnapshot;
+import com.buildingtracker.service.BatchResult;
+import com.buildingtracker.service.BuildingService;
+import com.buildingtracker.service.PriceUpdate;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * HTTP query API over a {@link BuildingService}, built on the JDK's {@code com.sun.net.httpserver}.
+ *
+ * <p>Endpoints, with building names URL-encoded:
+ * <ul>
+ *   <li>{@code GET /buildings/{name}}: price, address, history length, version and trend</li>
+ *   <li>{@code GET /buildings/{name}/history?offset=0&limit=100}: a page of the price history, oldest first</li>
+ *   <li>{@code GET /buildings/{name}/trend}: the recent trend</li>
+ *   <li>{@code POST /prices}: a JSON array of {@code {"building", "price", "timestamp"}} objects, recorded as one
+ *   batch; the timestamp is optional</li>
+ * </ul>
+ *
+ * <p>Every building response is rendered from one {@link BuildingSnapshot} and carries an ETag made of the
+ * snapshot's generation and version, which changes with every update of the building. A request whose
+ * {@code If-None-Match} matches is answered with 304 and no body, and the rendered building and trend documents
+ * are kept until the building changes, so repeated reads of an unchanged building are not serialized again.
+ *
+ * <p>Requests are handled on virtual threads when the JDK provides them (Java 21 and later) and on a fixed pool
+ * of platform threads otherwise. Latencies and response counts are recorded in the service's metrics registry
+ * under {@code http.*}.
+ *
+ * <p>The JDK server writes headers and body separately, so with Nagle's algorithm on, the body of a keep-alive
+ * response waits for the client's delayed ACK of the headers, about 40 ms per request. Run the JVM with
+ * {@code -Dsun.net.httpserver.nodelay=true}, as {@code BuildingPriceTrackerApp serve} does for itself; the JDK reads
+ * the property once, when its server classes load.
+ */
+public class PriceApiServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = 8080;
+
+    private static final String BUILDINGS_PATH = "/buildings/";
+    private static final String PRICES_PATH = "/prices";
+    private static final int DEFAULT_HISTORY_PAGE = 100;
+    private static final int MAX_HISTORY_PAGE = 1000;
+    private static final int MAX_BATCH_UPDATES = 100_000;
+    // Rendered documents kept for unchanged buildings; cleared when full
+    private static final int MAX_CACHED_RESPONSES = 10_000;
+    private static final String JSON = "application/json; charset=utf-8";
+
+    private final BuildingService service;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final ConcurrentHashMap<String, CachedResponse> responseCache = new ConcurrentHashMap<>();
+    private final String etagPrefix = Long.toHexString(System.currentTimeMillis()) + "-";
+
+    private final LatencyHistogram buildingLatency;
+    private final LatencyHistogram historyLatency;
+    private final LatencyHistogram trendLatency;
+    private final LatencyHistogram pricesLatency;
+    private final Counter notModified;
+    private final Counter cacheHits;
+    private final Counter clientErrors;
+    private final Counter serverErrors;
+
+    /**
+     * Constructor listening on the loopback interface.
+     *
+     * @param port the port, or 0 for any free one
+     */
+    public PriceApiServer(BuildingService service, int port) throws IOException {
+        this(service, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Constructor listening on the given address. The server does not accept requests until started.
+     */
+    public PriceApiServer(BuildingService service, InetSocketAddress address) throws IOException {
+        if (service == null || address == null) {
+            throw new IllegalArgumentException("Service and address cannot be null.");
+        }
+        this.service = service;
+
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : newPlatformThreadExecutor();
+
+        MetricsRegistry metrics = service.getMetrics();
+        this.buildingLatency = metrics.histogram("http.building");
+        this.historyLatency = metrics.histogram("http.history");
+        this.trendLatency = metrics.histogram("http.trend");
+        this.pricesLatency = metrics.histogram("http.prices");
+        this.notModified = metrics.counter("http.notModified");
+        this.cacheHits = metrics.counter("http.cacheHits");
+        this.clientErrors = metrics.counter("http.clientErrors");
+        this.serverErrors = metrics.counter("http.serverErrors");
+
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext(BUILDINGS_PATH, this::handleBuildings);
+        server.createContext(PRICES_PATH, this::handlePrices);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Get the address the server listens on, with the actual port when constructed with port 0.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Whether requests are handled on virtual threads rather than a platform thread pool.
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Stop accepting connections, give exchanges in progress a second to finish and stop the request threads.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        responseCache.clear();
+    }
+
+    private void handleBuildings(HttpExchange exchange) {
+        long start = System.nanoTime();
+        LatencyHistogram latency = buildingLatency;
+        try {
+            String[] segments = exchange.getRequestURI().getRawPath().substring(BUILDINGS_PATH.length()).split("/");
+            String resource = segments.length == 2 ? segments[1] : "";
+            if ("history".equals(resource)) {
+                latency = historyLatency;
+            } else if ("trend".equals(resource)) {
+                latency = trendLatency;
+            } else if (segments.length != 1 || segments[0].isEmpty()) {
+                throw new HttpError(404, "Not found.");
+            }
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                throw new HttpError(405, "Only GET is supported here.");
+            }
+
+            // Percent-decoding only: a '+' in a path is literal, not a form-encoded space
+            String name = URLDecoder.decode(segments[0].replace("+", "%2B"), StandardCharsets.UTF_8);
+            BuildingSnapshot building = service.getBuildingSnapshot(name);
+            if (building == null) {
+                throw new HttpError(404, "Building '" + name + "' not found.");
+            }
+            String etag = etag(building);
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+                notModified.increment();
+                // Consumes the empty request body; otherwise the JDK server drops the connection after a 304
+                exchange.getRequestBody().close();
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            byte[] body;
+            if (latency == historyLatency) {
+                String query = exchange.getRequestURI().getRawQuery();
+                int offset = intParameter(query, "offset", 0);
+                int limit = intParameter(query, "limit", DEFAULT_HISTORY_PAGE);
+                if (offset < 0 || limit <= 0 || limit > MAX_HISTORY_PAGE) {
+                    throw new HttpError(400, "Offset must be non-negative and limit between 1 and "
+                            + MAX_HISTORY_PAGE + ".");
+                }
+                body = JsonResponses.history(building, offset, limit);
+            } else if (latency == trendLatency) {
+                body = cached("trend/" + name, etag, () -> JsonResponses.trend(building));
+            } else {
+                body = cached("building/" + name, etag, () -> JsonResponses.building(building));
+            }
+            send(exchange, 200, body);
+        } catch (HttpError e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            // Malformed escapes in the building name
+            sendError(exchange, 400, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            sendError(exchange, 500, "Internal error: " + e.getMessage());
+        } finally {
+            exchange.close();
+            latency.recordSince(start);
+        }
+    }
+
+    private void handlePrices(HttpExchange exchange) {
+        long start = System.nanoTime();
+        try {
+            if (!PRICES_PATH.equals(exchange.getRequestURI().getRawPath())) {
+                throw new HttpError(404, "Not found.");
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                throw new HttpError(405, "Only POST is supported here.");
+            }
+            BatchResult result = service.recordPriceChanges(readUpdates(exchange));
+            send(exchange, 200, JsonResponses.batchResult(result));
+        } catch (HttpError e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            sendError(exchange, 500, "Internal error: " + e.getMessage());
+        } finally {
+            exchange.close();
+            pricesLatency.recordSince(start);
+        }
+    }
+
+    /**
+     * Stream the posted updates out of the request body.
+     */
+    private static List<PriceUpdate> readUpdates(HttpExchange exchange) throws IOException {
+        List<PriceUpdate> updates = new ArrayList<>();
+        JsonReader reader = new JsonReader(new BufferedReader(
+                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)));
+        try {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (updates.size() == MAX_BATCH_UPDATES) {
+                    throw new HttpError(413, "At most " + MAX_BATCH_UPDATES + " updates per request.");
+                }
+                String building = null;
+                double price = Double.NaN;
+                long timestamp = Long.MIN_VALUE;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "building":
+                            building = reader.nextString();
+                            break;
+                        case "price":
+                            price = reader.nextDouble();
+                            break;
+                        case "timestamp":
+                            timestamp = reader.nextLong();
+                            break;
+                        default:
+                            reader.skipValue();
+                            break;
+                    }
+                }
+                reader.endObject();
+                if (building == null || Double.isNaN(price)) {
+                    throw new HttpError(400, "Every update needs a building and a price.");
+                }
+                updates.add(timestamp != Long.MIN_VALUE
+                        ? new PriceUpdate(building, price, timestamp)
+                        : new PriceUpdate(building, price));
+            }
+            reader.endArray();
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new HttpError(400, "Expected a single JSON array of updates.");
+            }
+        } catch (IllegalStateException | NumberFormatException | IOException e) {
+            // Gson reports syntax and type errors as these; a failing connection is reported the same way
+            throw new HttpError(400, "Malformed request body: " + e.getMessage());
+        }
+        return updates;
+    }
+
+    /**
+     * Get the rendered document for an unchanged building, or render and keep it.
+     */
+    private byte[] cached(String key, String etag, Supplier<byte[]> renderer) {
+        CachedResponse cached = responseCache.get(key);
+        if (cached != null && cached.etag.equals(etag)) {
+            cacheHits.increment();
+            return cached.body;
+        }
+        byte[] body = renderer.get();
+        if (responseCache.size() >= MAX_CACHED_RESPONSES) {
+            responseCache.clear();
+        }
+        responseCache.put(key, new CachedResponse(etag, body));
+        return body;
+    }
+
+    private void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) {
+        if (status >= 500) {
+            serverErrors.increment();
+        } else {
+            clientErrors.increment();
+        }
+        exchange.getResponseHeaders().remove("ETag");
+        try {
+            send(exchange, status, JsonResponses.error(message));
+        } catch (IOException | RuntimeException e) {
+            // The client has gone or the headers were already sent; nothing more can be reported
+        }
+    }
+
+    /**
+     * Derive the entity tag of a building's responses. Every update publishes a new snapshot with a higher
+     * version; the generation tells apart equal versions of a building deleted and added again or reloaded, and
+     * the server's start time tells apart those of an earlier run.
+     */
+    private String etag(BuildingSnapshot building) {
+        return "\"" + etagPrefix + Long.toHexString(building.getGeneration()) + "-" + building.getVersion() + "\"";
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int intParameter(String query, String name, int defaultValue) {
+        if (query == null) {
+            return defaultValue;
+        }
+        for (String parameter : query.split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0 && parameter.substring(0, equals).equals(name)) {
+                try {
+                    return Integer.parseInt(parameter.substring(equals + 1));
+                } catch (NumberFormatException e) {
+                    throw new HttpError(400, "Parameter '" + name + "' must be an integer.");
+                }
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Create a virtual-thread-per-task executor through reflection, so the server still compiles and runs on
+     * Java 11.
+     *
+     * @return the executor, or {@code null} when the JDK has no virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Before Java 21, or Java 19 and 20 without preview features
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformThreadExecutor() {
+        int threads = Math.max(8, 4 * Runtime.getRuntime().availableProcessors());
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, "price-api-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(threads, factory);
+    }
+
+    /**
+     * Rendered response of a building as of the snapshot with the given entity tag.
+     */
+    private static final class CachedResponse {
+        final String etag;
+        final byte[] body;
+
+        CachedResponse(String etag, byte[] body) {
+            this.etag = etag;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Request failure answered with the given status and a JSON error message.
+     */
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
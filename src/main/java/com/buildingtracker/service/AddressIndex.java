@@ -0,0 +1,134 @@
+package com.buildingtracker.service;
+
+import java.util.Arrays;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Secondary index from address to the IDs of the buildings located there.
+ *
+ * <p>The index doubles as the address dictionary: {@link #add(String, int)} returns the one string instance kept
+ * per distinct address, which the service stores in the building, so buildings at the same address share it. Each
+ * address's IDs are a sorted array with spare capacity, published with its count in an immutable entry that is
+ * replaced on change, so lookups read it without locking. New buildings get the highest ID so far, so adding one
+ * usually writes the next spare slot, past the count of every published entry, and grows the array by doubling;
+ * other inserts and removals copy it. The sorted address set answers prefix queries.
+ */
+final class AddressIndex {
+    private static final int[] NO_IDS = new int[0];
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final NavigableSet<String> sortedAddresses = new ConcurrentSkipListSet<>();
+
+    private static final class Entry {
+        final String address;
+        // Shared with earlier entries of the address, which never read past their own count
+        final int[] buildingIds;
+        final int count;
+
+        Entry(String address, int[] buildingIds, int count) {
+            this.address = address;
+            this.buildingIds = buildingIds;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Register a building under its address and return the shared instance of the address.
+     */
+    String add(String address, int buildingId) {
+        Entry entry = entries.compute(address, (key, current) -> {
+            if (current == null) {
+                sortedAddresses.add(key);
+                return new Entry(key, new int[]{buildingId}, 1);
+            }
+            int[] ids = current.buildingIds;
+            int count = current.count;
+            if (ids[count - 1] < buildingId) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                ids[count] = buildingId;
+                return new Entry(current.address, ids, count + 1);
+            }
+            int position = Arrays.binarySearch(ids, 0, count, buildingId);
+            if (position >= 0) {
+                return current;
+            }
+            int insertAt = -position - 1;
+            int[] inserted = new int[Math.max(count + 1, ids.length)];
+            System.arraycopy(ids, 0, inserted, 0, insertAt);
+            inserted[insertAt] = buildingId;
+            System.arraycopy(ids, insertAt, inserted, insertAt + 1, count - insertAt);
+            return new Entry(current.address, inserted, count + 1);
+        });
+        return entry.address;
+    }
+
+    /**
+     * Remove a building from its address entry, dropping the entry once it is empty.
+     */
+    void remove(String address, int buildingId) {
+        entries.computeIfPresent(address, (key, current) -> {
+            int position = Arrays.binarySearch(current.buildingIds, 0, current.count, buildingId);
+            if (position < 0) {
+                return current;
+            }
+            if (current.count == 1) {
+                sortedAddresses.remove(key);
+                return null;
+            }
+            // Copied, so that a later add cannot overwrite a slot an earlier entry still reads
+            int[] ids = new int[current.count - 1];
+            System.arraycopy(current.buildingIds, 0, ids, 0, position);
+            System.arraycopy(current.buildingIds, position + 1, ids, position, ids.length - position);
+            return new Entry(current.address, ids, ids.length);
+        });
+    }
+
+    /**
+     * Get the shared instance of an indexed address, or the address itself if it is not indexed.
+     */
+    String intern(String address) {
+        Entry entry = entries.get(address);
+        return entry != null ? entry.address : address;
+    }
+
+    /**
+     * Get the IDs of the buildings at the address, in ascending order, in a new array.
+     */
+    int[] get(String address) {
+        Entry entry = entries.get(address);
+        return entry != null ? Arrays.copyOf(entry.buildingIds, entry.count) : NO_IDS;
+    }
+
+    /**
+     * Get the IDs of the buildings whose address starts with the prefix, ordered by address.
+     */
+    int[] getByPrefix(String prefix) {
+        int[] result = NO_IDS;
+        int count = 0;
+        for (String address : sortedAddresses.tailSet(prefix, true)) {
+            if (!address.startsWith(prefix)) {
+                break;
+            }
+            Entry entry = entries.get(address);
+            if (entry == null) {
+                // Removed since the set was read
+                continue;
+            }
+            if (count + entry.count > result.length) {
+                result = Arrays.copyOf(result, Math.max(count + entry.count, result.length * 2));
+            }
+            System.arraycopy(entry.buildingIds, 0, result, count, entry.count);
+            count += entry.count;
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    void clear() {
+        entries.clear();
+        sortedAddresses.clear();
+    }
+}
@@ -0,0 +1,116 @@
+package com.buildingtracker.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a batch price ingestion: how many updates were applied and which ones were rejected.
+ */
+public class BatchResult {
+    private int appliedCount;
+    private int buildingCount;
+    private int failedCount;
+    private final List<Failure> failures = new ArrayList<>();
+
+    public int getAppliedCount() {
+        return appliedCount;
+    }
+
+    /**
+     * Get the number of buildings that received at least one update, counted once per storage write.
+     */
+    public int getBuildingCount() {
+        return buildingCount;
+    }
+
+    /**
+     * Get the number of rejected updates, including those summarized by a {@link Failure} with a count above one.
+     */
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    public List<Failure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    void recordApplied(int updates) {
+        appliedCount += updates;
+    }
+
+    void recordBuilding() {
+        buildingCount++;
+    }
+
+    void recordFailure(PriceUpdate update, String reason) {
+        recordFailures(update, reason, 1);
+    }
+
+    /**
+     * Record {@code count} updates rejected for the same reason, with the first of them as the example.
+     */
+    void recordFailures(PriceUpdate firstUpdate, String reason, int count) {
+        failures.add(new Failure(firstUpdate, reason, count));
+        failedCount += count;
+    }
+
+    /**
+     * Fold another result into this one.
+     */
+    void merge(BatchResult other) {
+        appliedCount += other.appliedCount;
+        buildingCount += other.buildingCount;
+        failedCount += other.failedCount;
+        failures.addAll(other.failures);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{"
+                + "applied=" + appliedCount
+                + ", buildings=" + buildingCount
+                + ", failed=" + failedCount
+                + '}';
+    }
+
+    /**
+     * A rejected update and the reason it was rejected. Bulk ingestion reports the updates of one building rejected
+     * for the same reason as one failure, with the first of them as the update.
+     */
+    public static class Failure {
+        private final PriceUpdate update;
+        private final String reason;
+        private final int count;
+
+        Failure(PriceUpdate update, String reason, int count) {
+            this.update = update;
+            this.reason = reason;
+            this.count = count;
+        }
+
+        public PriceUpdate getUpdate() {
+            return update;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        /**
+         * Get the number of rejected updates this failure stands for.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return update + ": " + reason + (count > 1 ? " (" + count + " updates)" : "");
+        }
+    }
+}
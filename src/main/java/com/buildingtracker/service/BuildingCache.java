@@ -0,0 +1,212 @@
+package com.buildingtracker.service;
+
+import com.buildingtracker.model.Building;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bookkeeping for {@link BuildingService}'s bounded cache mode: recency order and estimated weight of resident
+ * buildings, which of them are dirty, and hit, miss and eviction counters. The service owns the buildings
+ * themselves and performs loads, write-backs and evictions under its building locks.
+ *
+ * <p>State is kept in primitive arrays indexed by building ID: weights, and the links of an intrusive doubly
+ * linked list that runs from the least to the most recently used building.
+ */
+class BuildingCache {
+    // Name, address, trend, rolling window and object headers
+    private static final long BASE_BUILDING_BYTES = 512;
+    // Three history columns with growth slack, plus a share of the minute rollups
+    private static final long ESTIMATED_BYTES_PER_ENTRY = 64;
+    private static final int NONE = -1;
+
+    private final long maxBytes;
+    // Weight per ID, 0 when not resident; weights are always positive
+    private long[] weights = new long[0];
+    private int[] previous = new int[0];
+    private int[] next = new int[0];
+    private int leastRecent = NONE;
+    private int mostRecent = NONE;
+    private int residentCount;
+    private long residentBytes;
+    private final BitSet dirty = new BitSet();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder writeBacks = new LongAdder();
+
+    BuildingCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache budget must be positive.");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Estimate the heap held by a building without decoding a lazily loaded history.
+     */
+    static long weigh(Building building) {
+        return BASE_BUILDING_BYTES + building.getHistorySize() * ESTIMATED_BYTES_PER_ENTRY;
+    }
+
+    /**
+     * Record a lookup answered from memory and mark the building as most recently used.
+     */
+    synchronized void recordHit(int id) {
+        if (isResident(id)) {
+            unlink(id);
+            linkMostRecent(id);
+        }
+        hits.increment();
+    }
+
+    /**
+     * Register a building just loaded from storage.
+     */
+    synchronized void admit(int id, Building building) {
+        misses.increment();
+        put(id, building);
+    }
+
+    /**
+     * Register a building created in memory and already persisted.
+     */
+    synchronized void add(int id, Building building) {
+        put(id, building);
+    }
+
+    /**
+     * Mark a resident building as changed since it was last persisted, and refresh its weight.
+     */
+    synchronized void markDirty(int id, Building building) {
+        dirty.set(id);
+        put(id, building);
+    }
+
+    synchronized boolean isDirty(int id) {
+        return dirty.get(id);
+    }
+
+    synchronized void markClean(int id) {
+        dirty.clear(id);
+    }
+
+    synchronized int[] dirtyIds() {
+        return dirty.stream().toArray();
+    }
+
+    void recordWriteBack() {
+        writeBacks.increment();
+    }
+
+    /**
+     * Forget an evicted or deleted building.
+     */
+    synchronized void remove(int id, boolean evicted) {
+        if (isResident(id)) {
+            unlink(id);
+            residentBytes -= weights[id];
+            weights[id] = 0;
+            residentCount--;
+            if (evicted) {
+                evictions.increment();
+            }
+        }
+        dirty.clear(id);
+    }
+
+    synchronized boolean isOverBudget() {
+        return residentBytes > maxBytes;
+    }
+
+    /**
+     * Get the least recently used buildings whose combined weight covers the excess over the budget, never
+     * including {@code protectedId}.
+     */
+    synchronized int[] evictionCandidates(int protectedId) {
+        int[] candidates = new int[8];
+        int count = 0;
+        long excess = residentBytes - maxBytes;
+        for (int id = leastRecent; id != NONE && excess > 0; id = next[id]) {
+            if (id == protectedId) {
+                continue;
+            }
+            if (count == candidates.length) {
+                candidates = Arrays.copyOf(candidates, count * 2);
+            }
+            candidates[count++] = id;
+            excess -= weights[id];
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    synchronized void clear() {
+        weights = new long[0];
+        previous = new int[0];
+        next = new int[0];
+        leastRecent = NONE;
+        mostRecent = NONE;
+        residentCount = 0;
+        residentBytes = 0;
+        dirty.clear();
+    }
+
+    synchronized CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), writeBacks.sum(), residentCount,
+                residentBytes, maxBytes);
+    }
+
+    private void put(int id, Building building) {
+        long weight = weigh(building);
+        if (isResident(id)) {
+            residentBytes += weight - weights[id];
+            unlink(id);
+        } else {
+            ensureCapacity(id);
+            residentBytes += weight;
+            residentCount++;
+        }
+        weights[id] = weight;
+        linkMostRecent(id);
+    }
+
+    private boolean isResident(int id) {
+        return id >= 0 && id < weights.length && weights[id] != 0;
+    }
+
+    private void ensureCapacity(int id) {
+        if (id >= weights.length) {
+            int capacity = Math.max(id + 1, weights.length * 2);
+            weights = Arrays.copyOf(weights, capacity);
+            previous = Arrays.copyOf(previous, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+    }
+
+    private void unlink(int id) {
+        int before = previous[id];
+        int after = next[id];
+        if (before != NONE) {
+            next[before] = after;
+        } else {
+            leastRecent = after;
+        }
+        if (after != NONE) {
+            previous[after] = before;
+        } else {
+            mostRecent = before;
+        }
+    }
+
+    private void linkMostRecent(int id) {
+        previous[id] = mostRecent;
+        next[id] = NONE;
+        if (mostRecent != NONE) {
+            next[mostRecent] = id;
+        } else {
+            leastRecent = id;
+        }
+        mostRecent = id;
+    }
+}
@@ -0,0 +1,170 @@
+package com.buildingtracker.service;
+
+import com.buildingtracker.model.Building;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Dictionary from building names to compact integer IDs, and the resident buildings by ID.
+ *
+ * <p>IDs are assigned densely from 0 and never reused, so an ID kept after its building was deleted finds nothing
+ * rather than another building. Names and buildings live in pages of {@value #PAGE_SIZE} slots that never move
+ * once allocated, so growing the directory copies only the page table, and a lookup by ID is two array reads
+ * without locking. Registering a name is the only operation that hashes it; everything after works on the ID.
+ */
+final class BuildingDirectory {
+    private static final int PAGE_SHIFT = 10;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    // Copied on growth; pages are shared between copies
+    private volatile Page[] pages = new Page[0];
+
+    private static final class Page {
+        final AtomicReferenceArray<String> names = new AtomicReferenceArray<>(PAGE_SIZE);
+        final AtomicReferenceArray<Building> buildings = new AtomicReferenceArray<>(PAGE_SIZE);
+    }
+
+    /**
+     * Assign an ID to a new name, or return -1 if the name is already registered.
+     */
+    int register(String name) {
+        int[] assigned = {-1};
+        ids.computeIfAbsent(name, key -> {
+            assigned[0] = allocate(key);
+            return assigned[0];
+        });
+        return assigned[0];
+    }
+
+    /**
+     * Get the ID of a name, registering it if it is new.
+     */
+    int idOrRegister(String name) {
+        return ids.computeIfAbsent(name, this::allocate);
+    }
+
+    /**
+     * Get the ID of a name, or -1 if it is not registered.
+     */
+    int idOf(String name) {
+        if (name == null) {
+            return -1;
+        }
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Get the name registered under an ID, or null if there is none.
+     */
+    String nameOf(int id) {
+        Page page = page(id);
+        return page != null ? page.names.get(id & PAGE_MASK) : null;
+    }
+
+    /**
+     * Get the resident building with the given ID, or null.
+     */
+    Building get(int id) {
+        Page page = page(id);
+        return page != null ? page.buildings.get(id & PAGE_MASK) : null;
+    }
+
+    /**
+     * Make a building resident under its registered ID, or drop it from memory with {@code null}. Caller must
+     * hold the building's lock.
+     */
+    void set(int id, Building building) {
+        page(id).buildings.set(id & PAGE_MASK, building);
+    }
+
+    /**
+     * Forget a name and its building. Caller must hold the building's lock.
+     */
+    void unregister(int id) {
+        Page page = page(id);
+        String name = page.names.getAndSet(id & PAGE_MASK, null);
+        page.buildings.set(id & PAGE_MASK, null);
+        if (name != null) {
+            ids.remove(name, id);
+        }
+    }
+
+    /**
+     * Forget every name whose ID is not in {@code kept}. Not safe against concurrent updates.
+     */
+    void retainOnly(BitSet kept) {
+        int limit = idLimit();
+        for (int id = kept.nextClearBit(0); id < limit; id = kept.nextClearBit(id + 1)) {
+            if (nameOf(id) != null) {
+                unregister(id);
+            }
+        }
+    }
+
+    /**
+     * Drop every building from memory, keeping the names and their IDs. Not safe against concurrent updates.
+     */
+    void clearBuildings() {
+        for (Page page : pages) {
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                page.buildings.set(i, null);
+            }
+        }
+    }
+
+    /**
+     * Get one more than the highest ID assigned so far; IDs of deleted buildings below it find nothing.
+     */
+    int idLimit() {
+        return nextId.get();
+    }
+
+    /**
+     * Get the number of registered names.
+     */
+    int size() {
+        return ids.size();
+    }
+
+    private int allocate(String name) {
+        int id = nextId.getAndIncrement();
+        if (id < 0) {
+            throw new IllegalStateException("Building IDs exhausted.");
+        }
+        int index = id >>> PAGE_SHIFT;
+        Page[] current = pages;
+        if (index >= current.length || current[index] == null) {
+            synchronized (this) {
+                current = pages;
+                if (index >= current.length) {
+                    current = Arrays.copyOf(current, Math.max(index + 1, current.length * 2));
+                } else if (current[index] == null) {
+                    current = current.clone();
+                }
+                for (int i = 0; i <= index; i++) {
+                    if (current[i] == null) {
+                        current[i] = new Page();
+                    }
+                }
+                pages = current;
+            }
+        }
+        // Published to readers by the map entry that hands out the ID
+        current[index].names.set(id & PAGE_MASK, name);
+        return id;
+    }
+
+    private Page page(int id) {
+        Page[] current = pages;
+        int index = id >>> PAGE_SHIFT;
+        return id >= 0 && index < current.length ? current[index] : null;
+    }
+}
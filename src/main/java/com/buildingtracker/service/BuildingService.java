@@ -1,18 +1,80 @@
 package com.buildingtracker.service;
 
+import com.buildingtracker.alert.AlertEngine;
+import com.buildingtracker.event.PriceEvent;
+import com.buildingtracker.event.PriceEventPublisher;
+import com.buildingtracker.metrics.MetricsRegistry;
 import com.buildingtracker.model.Building;
+import com.buildingtracker.model.BuildingSnapshot;
+import com.buildingtracker.model.PriceHistory;
+import com.buildingtracker.model.PriceSeries;
+import com.buildingtracker.model.PriceTrend;
+import com.buildingtracker.model.PriceWindowStats;
+import com.buildingtracker.model.TrendWindow;
 import com.buildingtracker.storage.BuildingStorage;
 import com.buildingtracker.storage.JsonBuildingStorage;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
 /**
  * Service layer for managing buildings and their prices.
+ *
+ * <p>Every building gets a compact integer ID when it is added or loaded, and the name-based methods resolve the
+ * name to its ID once and work on the ID from then on. Callers that keep IDs, such as feeds addressing the same
+ * buildings over and over, can skip that lookup through {@link #getBuildingId(String)} and the methods taking an
+ * ID. IDs are assigned per service instance and are not persisted, so storage stays keyed by name; they stay
+ * stable across {@link #refreshCache()} but not across restarts. A secondary index maps addresses to building IDs
+ * and keeps one shared string per distinct address; its sorted address set answers address prefix queries.
+ *
+ * <p>The service is thread safe. Updates to the same building are serialized through a striped lock keyed by
+ * building ID, while updates to different buildings run in parallel. Readers that need price, history and
+ * trend from the same update use {@link #getBuildingSnapshot(String)}, which never blocks writers; reports that
+ * need every building as of the same moment use {@link #getPortfolioSnapshot()}.
+ *
+ * <p>By default every building stays in memory and every change is written through to storage. In bounded cache
+ * mode only the name dictionary and address index are kept for all buildings; buildings are loaded on demand through
+ * {@link BuildingStorage#loadBuilding(String)} and the least recently used ones are evicted once their estimated
+ * size exceeds the heap budget. Price and address changes are then written back on eviction or {@link #flush()}
+ * instead of on every update, while additions and deletions still go straight to storage.
+ *
+ * <p>Operation latencies and update counts are recorded in a {@link MetricsRegistry}, and completed operations
+ * are reported to a {@link ServiceEventListener}, by default printing INFO and above to the console. Every
+ * recorded tick and trend update is evaluated by the {@link AlertEngine}, if one is set, while the building is
+ * still locked, so alerts of one building are fired in tick order. The same changes are pushed as
+ * {@link PriceEvent}s to subscribers of {@link #getPriceEvents()}, again in order per building.
  */
 public class BuildingService {
+    private static final int DEFAULT_LOCK_STRIPES = 256;
+    // Reasons for rejecting a tick, returned by rejectTick and compared by identity
+    private static final String INVALID_PRICE = "Price must be a non-negative number.";
+    private static final String OUT_OF_ORDER = "Older than the building's latest price.";
+
     private BuildingStorage storage;
-    private List<Building> buildingCache;
+    // Names and IDs of every stored building, and the resident buildings by ID
+    private final BuildingDirectory directory = new BuildingDirectory();
+    private final AddressIndex addressIndex = new AddressIndex();
+    private final StripedLocks buildingLocks = new StripedLocks(DEFAULT_LOCK_STRIPES);
+    // Bounded cache mode only: recency and dirty tracking
+    private final BuildingCache cache;
+    private volatile ServiceMetrics metrics = new ServiceMetrics(new MetricsRegistry());
+    private volatile ServiceEventListener events = new ConsoleEventListener(ServiceEventListener.Level.INFO);
+    private volatile AlertEngine alerts;
+    private final PriceEventPublisher priceEvents = new PriceEventPublisher();
+    // Null until first requested; afterwards brought up to date under every building lock by readers that see changes
+    private volatile PortfolioSnapshot portfolio;
+    // Names of the buildings changed since the portfolio was assembled by ID, recorded under the building's lock
+    private final Map<Integer, String> portfolioChanges = new ConcurrentHashMap<>();
 
     /**
      * Constructor with default JSON storage.
@@ -26,119 +88,741 @@ public class BuildingService {
      */
     public BuildingService(BuildingStorage storage) {
         this.storage = storage;
-        this.buildingCache = storage.loadBuildings();
+        this.cache = null;
+        rebuildIndexes(storage.loadBuildings());
+    }
+
+    /**
+     * Constructor for bounded cache mode, keeping at most about {@code maxCachedBytes} of buildings in memory.
+     * Startup streams the stored buildings once to build the name dictionary and address index.
+     */
+    public BuildingService(BuildingStorage storage, long maxCachedBytes) {
+        this.storage = storage;
+        this.cache = new BuildingCache(maxCachedBytes);
+        rebuildDirectory();
     }
 
     /**
      * Add a new building.
+     *
+     * @return the ID assigned to the building
      */
-    public void addBuilding(Building building) {
+    public int addBuilding(Building building) {
         if (building == null || building.getName() == null || building.getName().trim().isEmpty()) {
             throw new IllegalArgumentException("Building and name cannot be null or empty.");
         }
+        long start = System.nanoTime();
 
-        // Check if building already exists
-        if (buildingCache.stream().anyMatch(b -> b.getName().equals(building.getName()))) {
+        // Registering the name is the duplicate check
+        int id = directory.register(building.getName());
+        if (id < 0) {
             throw new IllegalArgumentException("Building with name '" + building.getName() + "' already exists.");
         }
+        ReentrantLock lock = lockBuilding(id);
+        try {
+            directory.set(id, building);
+            if (cache != null) {
+                cache.add(id, building);
+            }
+            indexAddress(building, id);
+            storage.saveBuilding(building);
+            notePortfolioChange(id, building);
+            if (priceEvents.hasSubscribers()) {
+                priceEvents.publish(PriceEvent.buildingAdded(building.getName(), building.getCurrentPrice(),
+                        System.currentTimeMillis()));
+            }
+        } finally {
+            lock.unlock();
+        }
+        evictIfNeeded(id);
+        metrics.addBuilding.recordSince(start);
+        if (events.isEnabled(ServiceEventListener.Level.INFO)) {
+            events.onEvent(ServiceEventListener.Level.INFO,
+                    "Building '" + building.getName() + "' added successfully.");
+        }
+        return id;
+    }
 
-        buildingCache.add(building);
-        storage.saveBuilding(building);
-        System.out.println("Building '" + building.getName() + "' added successfully.");
+    /**
+     * Get the ID of a building, or -1 if there is no building with that name.
+     */
+    public int getBuildingId(String name) {
+        return directory.idOf(name);
+    }
+
+    /**
+     * Get the name of the building with the given ID, or null if there is none.
+     */
+    public String getBuildingName(int buildingId) {
+        return directory.nameOf(buildingId);
     }
 
     /**
-     * Get a building by name.
+     * Get a building by name. In bounded cache mode a building that is not resident is loaded from storage, and
+     * a building returned earlier may since have been evicted; changes to an evicted instance are not persisted.
      */
     public Building getBuilding(String name) {
-        return buildingCache.stream()
-                .filter(b -> b.getName().equals(name))
-                .findFirst()
-                .orElse(null);
+        return getBuilding(directory.idOf(name));
+    }
+
+    /**
+     * Get a building by ID, like {@link #getBuilding(String)}.
+     */
+    public Building getBuilding(int buildingId) {
+        long start = System.nanoTime();
+        Building building = lookupBuilding(buildingId);
+        metrics.getBuilding.recordSince(start);
+        return building;
     }
 
     /**
-     * Get all buildings.
+     * Look up a building like {@link #getBuilding(int)}, without recording a metric.
+     */
+    private Building lookupBuilding(int id) {
+        Building building = directory.get(id);
+        if (cache == null) {
+            return building;
+        }
+        if (building != null) {
+            cache.recordHit(id);
+            return building;
+        }
+        return directory.nameOf(id) != null ? loadIntoCache(id) : null;
+    }
+
+    /**
+     * Get a consistent, read-only view of a building's price, trend and history without blocking writers.
+     */
+    public BuildingSnapshot getBuildingSnapshot(String name) {
+        return getBuildingSnapshot(directory.idOf(name));
+    }
+
+    /**
+     * Get a read-only view of the building with the given ID, like {@link #getBuildingSnapshot(String)}.
+     */
+    public BuildingSnapshot getBuildingSnapshot(int buildingId) {
+        Building building = lookupBuilding(buildingId);
+        return building != null ? building.snapshot() : null;
+    }
+
+    private BuildingSnapshot requireSnapshot(String buildingName) {
+        BuildingSnapshot snapshot = getBuildingSnapshot(buildingName);
+        if (snapshot == null) {
+            throw new IllegalArgumentException("Building '" + buildingName + "' not found.");
+        }
+        return snapshot;
+    }
+
+    /**
+     * Get a consistent, read-only view of every building as of the same moment. Writers only record which buildings
+     * they changed; the portfolio is assembled here, from the snapshots each building already publishes, and reused
+     * until the next change. After a change this briefly holds every building lock while it replaces the snapshots
+     * of the buildings changed since the previous portfolio, which takes time proportional to the number of those
+     * buildings, not to the portfolio size, and never decodes a lazily loaded history. Only the first request
+     * visits every building.
+     *
+     * @throws IllegalStateException in bounded cache mode, where not every building is in memory
+     */
+    public PortfolioSnapshot getPortfolioSnapshot() {
+        if (cache != null) {
+            throw new IllegalStateException("Portfolio snapshots are not available in bounded cache mode.");
+        }
+        PortfolioSnapshot current = portfolio;
+        if (current != null && portfolioChanges.isEmpty()) {
+            return current;
+        }
+        buildingLocks.lockAll();
+        try {
+            // Complete while every lock is held, since changes are recorded under the changed building's lock
+            current = portfolio != null ? applyPortfolioChanges(portfolio) : assemblePortfolio();
+            portfolio = current;
+            // Cleared only after publishing, so a reader that finds no changes also finds this portfolio
+            portfolioChanges.clear();
+            return current;
+        } finally {
+            buildingLocks.unlockAll();
+        }
+    }
+
+    /**
+     * Assemble the portfolio from every resident building. Caller must hold every building lock.
+     */
+    private PortfolioSnapshot assemblePortfolio() {
+        PortfolioSnapshot assembled = PortfolioSnapshot.EMPTY;
+        for (int id = 0, limit = directory.idLimit(); id < limit; id++) {
+            Building building = directory.get(id);
+            if (building != null) {
+                assembled = assembled.with(building.snapshot());
+            }
+        }
+        return assembled;
+    }
+
+    /**
+     * Bring the previous portfolio up to date with the buildings changed since. Caller must hold every building
+     * lock.
+     */
+    private PortfolioSnapshot applyPortfolioChanges(PortfolioSnapshot previous) {
+        PortfolioSnapshot assembled = previous;
+        for (Map.Entry<Integer, String> change : portfolioChanges.entrySet()) {
+            Building building = directory.get(change.getKey());
+            if (building != null) {
+                BuildingSnapshot snapshot = building.snapshot();
+                if (assembled.get(snapshot.getName()) != snapshot) {
+                    assembled = assembled.with(snapshot);
+                }
+            } else {
+                int current = directory.idOf(change.getValue());
+                if (current < 0 || directory.get(current) == null) {
+                    // Deleted, and not added again under a new ID
+                    assembled = assembled.without(change.getValue());
+                }
+            }
+        }
+        return assembled;
+    }
+
+    /**
+     * Get all buildings located at the given address.
+     */
+    public List<Building> getBuildingsByAddress(String address) {
+        if (address == null) {
+            return new ArrayList<>();
+        }
+        return resolveIds(addressIndex.get(address));
+    }
+
+    /**
+     * Get all buildings whose address starts with the given prefix, ordered by address.
+     */
+    public List<Building> getBuildingsByAddressPrefix(String prefix) {
+        if (prefix == null) {
+            return new ArrayList<>();
+        }
+        return resolveIds(addressIndex.getByPrefix(prefix));
+    }
+
+    /**
+     * Get all buildings. The instances are live and may change while they are read; use
+     * {@link #getPortfolioSnapshot()} for a consistent view. In bounded cache mode this reads every building from
+     * storage, substituting resident instances, without adding the others to the cache.
      */
     public List<Building> getAllBuildings() {
-        return new ArrayList<>(buildingCache);
+        if (cache == null) {
+            List<Building> buildings = new ArrayList<>(directory.size());
+            for (int id = 0, limit = directory.idLimit(); id < limit; id++) {
+                Building building = directory.get(id);
+                if (building != null) {
+                    buildings.add(building);
+                }
+            }
+            return buildings;
+        }
+        List<Building> buildings = new ArrayList<>(directory.size());
+        storage.forEachBuilding(stored -> {
+            Building resident = directory.get(directory.idOf(stored.getName()));
+            buildings.add(resident != null ? resident : stored);
+        });
+        return buildings;
+    }
+
+    /**
+     * Get the bounded cache counters, or {@code null} when every building is kept in memory.
+     */
+    public CacheStats getCacheStats() {
+        return cache != null ? cache.stats() : null;
+    }
+
+    /**
+     * Get the registry the service records its metrics in.
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics.registry;
+    }
+
+    /**
+     * Record metrics in the given registry from now on, e.g. one shared with an instrumented storage.
+     */
+    public void setMetricsRegistry(MetricsRegistry registry) {
+        if (registry == null) {
+            throw new IllegalArgumentException("Metrics registry cannot be null.");
+        }
+        this.metrics = new ServiceMetrics(registry);
+    }
+
+    /**
+     * Report completed operations to the given listener, e.g. {@link ServiceEventListener#NONE} to keep the
+     * update path free of console output.
+     */
+    public void setEventListener(ServiceEventListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Event listener cannot be null.");
+        }
+        this.events = listener;
+    }
+
+    /**
+     * Get the stream of building added, price changed, trend changed and deleted events. Subscribers get a
+     * bounded buffer each, so a slow subscriber loses events instead of slowing down updates.
+     */
+    public PriceEventPublisher getPriceEvents() {
+        return priceEvents;
     }
 
     /**
-     * Record a price change for a building.
+     * Evaluate every recorded tick against the rules of the given engine, or stop evaluating with {@code null}.
+     */
+    public void setAlertEngine(AlertEngine alertEngine) {
+        this.alerts = alertEngine;
+    }
+
+    /**
+     * Record a price change for a building, timestamped now, or at its latest history entry if that is later.
+     *
+     * @throws IllegalArgumentException if the building does not exist or the price is not a finite non-negative
+     *                                  number
      */
     public void recordPriceChange(String buildingName, double newPrice) {
-        Building building = getBuilding(buildingName);
-        if (building == null) {
-            throw new IllegalArgumentException("Building '" + buildingName + "' not found.");
+        applyPriceChange(resolve(buildingName), buildingName, newPrice);
+    }
+
+    /**
+     * Record a price change for the building with the given ID.
+     */
+    public void recordPriceChange(int buildingId, double newPrice) {
+        applyPriceChange(buildingId, null, newPrice);
+    }
+
+    /**
+     * Record a price change, naming the building in errors by {@code buildingName}, or by ID if it is null.
+     */
+    private void applyPriceChange(int id, String buildingName, double newPrice) {
+        ServiceMetrics metrics = this.metrics;
+        AlertEngine alerts = this.alerts;
+        long start = System.nanoTime();
+        Building building;
+        ReentrantLock lock = lockBuilding(id);
+        try {
+            building = lookupBuilding(id);
+            if (building == null) {
+                throw new IllegalArgumentException(buildingName != null
+                        ? "Building '" + buildingName + "' not found."
+                        : "Building with ID " + id + " not found.");
+            }
+
+            long latest = latestTimestamp(building);
+            // Stamped by us, so kept in order even if the history runs ahead of the clock
+            long timestamp = Math.max(System.currentTimeMillis(), latest);
+            String rejection = rejectTick(newPrice, timestamp, latest);
+            if (rejection != null) {
+                throw new IllegalArgumentException(rejection);
+            }
+
+            PriceTrend previousTrend = building.getRecentTrend();
+            recordTick(building, newPrice, timestamp, alerts);
+            refreshTrend(building, previousTrend, timestamp, metrics, alerts);
+            notePortfolioChange(id, building);
+            persist(id, building);
+        } finally {
+            lock.unlock();
+        }
+        evictIfNeeded(id);
+        metrics.priceUpdates.increment();
+        metrics.recordPriceChange.recordSince(start);
+        if (events.isEnabled(ServiceEventListener.Level.DEBUG)) {
+            events.onEvent(ServiceEventListener.Level.DEBUG,
+                    "Price updated for '" + building.getName() + "' to: " + newPrice);
         }
+    }
 
-        if (newPrice < 0) {
-            throw new IllegalArgumentException("Price cannot be negative.");
+    /**
+     * Record a batch of price changes.
+     *
+     * <p>Updates are grouped by building and applied in the order given. Each building's trend is recomputed
+     * once, after its last update, unless the alert engine has trend rules for it, in which case it is recomputed
+     * and evaluated after every update. Every changed building is persisted in a single storage write. Updates
+     * for unknown buildings, with invalid prices or older than the building's latest price are reported in the
+     * result instead of aborting the batch.
+     */
+    public BatchResult recordPriceChanges(Collection<PriceUpdate> updates) {
+        BatchResult result = new BatchResult();
+        if (updates == null || updates.isEmpty()) {
+            return result;
+        }
+        ServiceMetrics metrics = this.metrics;
+        AlertEngine alerts = this.alerts;
+        long start = System.nanoTime();
+
+        Map<String, List<PriceUpdate>> updatesByBuilding = new LinkedHashMap<>();
+        for (PriceUpdate update : updates) {
+            if (update == null || update.getBuildingName() == null) {
+                result.recordFailure(update, "Building name cannot be null.");
+                continue;
+            }
+            updatesByBuilding.computeIfAbsent(update.getBuildingName(), k -> new ArrayList<>()).add(update);
         }
 
-        building.updatePrice(newPrice);
-        storage.saveBuilding(building);
-        System.out.println("Price updated for '" + buildingName + "' to: " + newPrice);
+        List<Building> changed = new ArrayList<>(updatesByBuilding.size());
+        for (Map.Entry<String, List<PriceUpdate>> entry : updatesByBuilding.entrySet()) {
+            int id = directory.idOf(entry.getKey());
+            ReentrantLock lock = lockBuilding(id);
+            try {
+                Building building = lookupBuilding(id);
+                if (building == null) {
+                    for (PriceUpdate update : entry.getValue()) {
+                        result.recordFailure(update, "Building '" + entry.getKey() + "' not found.");
+                    }
+                    continue;
+                }
+
+                int applied = 0;
+                long latest = latestTimestamp(building);
+                PriceTrend previousTrend = building.getRecentTrend();
+                boolean trendPerTick = alerts != null && alerts.hasTrendRules(entry.getKey());
+                for (PriceUpdate update : entry.getValue()) {
+                    String rejection = rejectTick(update.getPrice(), update.getTimestamp(), latest);
+                    if (rejection != null) {
+                        result.recordFailure(update, rejection);
+                        continue;
+                    }
+                    recordTick(building, update.getPrice(), update.getTimestamp(), alerts);
+                    latest = update.getTimestamp();
+                    applied++;
+                    if (trendPerTick) {
+                        // Trend rules see every crossing inside the batch, not just the trend after it
+                        refreshTrend(building, previousTrend, latest, metrics, alerts);
+                        previousTrend = building.getRecentTrend();
+                    }
+                }
+
+                if (applied > 0) {
+                    if (!trendPerTick) {
+                        // Publishes the snapshot that storage reads, so the batch write needs no building locks
+                        refreshTrend(building, previousTrend, latest, metrics, alerts);
+                    }
+                    notePortfolioChange(id, building);
+                    if (cache != null) {
+                        // Marked while locked, so an eviction later in the batch writes the changes back
+                        cache.markDirty(id, building);
+                    }
+                    changed.add(building);
+                    result.recordApplied(applied);
+                    result.recordBuilding();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        if (cache == null) {
+            storage.saveBuildingBatch(changed);
+        } else {
+            evictIfNeeded(-1);
+        }
+        metrics.priceUpdates.add(result.getAppliedCount());
+        metrics.rejectedUpdates.add(result.getFailedCount());
+        metrics.recordPriceChanges.recordSince(start);
+        if (events.isEnabled(ServiceEventListener.Level.INFO)) {
+            events.onEvent(ServiceEventListener.Level.INFO, "Batch recorded: " + result.getAppliedCount()
+                    + " price updates for " + result.getBuildingCount() + " buildings, " + result.getFailedCount()
+                    + " rejected.");
+        }
+        return result;
     }
 
     /**
-     * Update building information.
+     * Record a stream of price changes in batches of {@code batchSize}, so that arbitrarily long feeds are
+     * processed without holding them in memory.
      */
-    public void updateBuilding(String buildingName, String newAddress, double newPrice) {
-        Building building = getBuilding(buildingName);
-        if (building == null) {
-            throw new IllegalArgumentException("Building '" + buildingName + "' not found.");
+    public BatchResult recordPriceChanges(Stream<PriceUpdate> updates, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive.");
+        }
+
+        BatchResult total = new BatchResult();
+        List<PriceUpdate> batch = new ArrayList<>(batchSize);
+        Iterator<PriceUpdate> iterator = updates.iterator();
+        while (iterator.hasNext()) {
+            batch.add(iterator.next());
+            if (batch.size() == batchSize) {
+                total.merge(recordPriceChanges(batch));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            total.merge(recordPriceChanges(batch));
+        }
+        return total;
+    }
+
+    /**
+     * Record price ticks for several buildings at once, such as a block of an imported feed. Each series holds one
+     * building's ticks in timestamp order; its change percentages are ignored and recomputed.
+     *
+     * <p>Works like {@link #recordPriceChanges(Collection)} without an update object per tick: each building's
+     * trend is recomputed once, or per tick for buildings with trend alert rules, and every changed building is
+     * persisted in a single storage write. Ticks with an
+     * invalid price, or older than the building's latest price, are rejected so that every history stays in
+     * timestamp order; rejected ticks are reported once per building and reason.
+     */
+    public BatchResult recordPriceHistory(Map<String, PriceSeries> ticksByBuilding) {
+        BatchResult result = new BatchResult();
+        if (ticksByBuilding == null || ticksByBuilding.isEmpty()) {
+            return result;
+        }
+        ServiceMetrics metrics = this.metrics;
+        AlertEngine alerts = this.alerts;
+        long start = System.nanoTime();
+
+        List<Building> changed = new ArrayList<>(ticksByBuilding.size());
+        for (Map.Entry<String, PriceSeries> entry : ticksByBuilding.entrySet()) {
+            String name = entry.getKey();
+            PriceSeries ticks = entry.getValue();
+            if (ticks == null || ticks.isEmpty()) {
+                continue;
+            }
+            int id = directory.idOf(name);
+            ReentrantLock lock = lockBuilding(id);
+            try {
+                Building building = lookupBuilding(id);
+                if (building == null) {
+                    result.recordFailures(tickUpdate(name, ticks, 0), "Building '" + name + "' not found.",
+                            ticks.size());
+                    continue;
+                }
+
+                long latest = latestTimestamp(building);
+                PriceTrend previousTrend = building.getRecentTrend();
+                boolean trendPerTick = alerts != null && alerts.hasTrendRules(name);
+                int applied = 0;
+                int invalid = 0;
+                int firstInvalid = -1;
+                int outOfOrder = 0;
+                int firstOutOfOrder = -1;
+                for (int i = 0; i < ticks.size(); i++) {
+                    double price = ticks.getPrice(i);
+                    long timestamp = ticks.getTimestamp(i);
+                    String rejection = rejectTick(price, timestamp, latest);
+                    if (rejection == INVALID_PRICE) {
+                        firstInvalid = invalid++ == 0 ? i : firstInvalid;
+                    } else if (rejection == OUT_OF_ORDER) {
+                        firstOutOfOrder = outOfOrder++ == 0 ? i : firstOutOfOrder;
+                    } else {
+                        recordTick(building, price, timestamp, alerts);
+                        latest = timestamp;
+                        applied++;
+                        if (trendPerTick) {
+                            refreshTrend(building, previousTrend, latest, metrics, alerts);
+                            previousTrend = building.getRecentTrend();
+                        }
+                    }
+                }
+                if (invalid > 0) {
+                    result.recordFailures(tickUpdate(name, ticks, firstInvalid), INVALID_PRICE, invalid);
+                }
+                if (outOfOrder > 0) {
+                    result.recordFailures(tickUpdate(name, ticks, firstOutOfOrder), OUT_OF_ORDER, outOfOrder);
+                }
+
+                if (applied > 0) {
+                    if (!trendPerTick) {
+                        refreshTrend(building, previousTrend, latest, metrics, alerts);
+                    }
+                    notePortfolioChange(id, building);
+                    if (cache != null) {
+                        cache.markDirty(id, building);
+                    }
+                    changed.add(building);
+                    result.recordApplied(applied);
+                    result.recordBuilding();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        if (cache == null) {
+            storage.saveBuildingBatch(changed);
+        } else {
+            evictIfNeeded(-1);
+        }
+        metrics.priceUpdates.add(result.getAppliedCount());
+        metrics.rejectedUpdates.add(result.getFailedCount());
+        metrics.recordPriceHistory.recordSince(start);
+        if (events.isEnabled(ServiceEventListener.Level.INFO)) {
+            events.onEvent(ServiceEventListener.Level.INFO, "Price history recorded: " + result.getAppliedCount()
+                    + " ticks for " + result.getBuildingCount() + " buildings, " + result.getFailedCount()
+                    + " rejected.");
         }
+        return result;
+    }
 
-        if (newAddress != null && !newAddress.trim().isEmpty()) {
-            building.setAddress(newAddress);
+    /**
+     * Get price statistics for a building over the given window, ending now.
+     */
+    public PriceWindowStats getWindowTrend(String buildingName, TrendWindow window) {
+        long now = System.currentTimeMillis();
+        return getWindowTrend(buildingName, now - window.getDurationMillis(), now);
+    }
+
+    /**
+     * Get price statistics for a building over the time range {@code [from, to)}, answered from its rollups.
+     */
+    public PriceWindowStats getWindowTrend(String buildingName, long from, long to) {
+        int id = resolve(buildingName);
+        ReentrantLock lock = lockBuilding(id);
+        try {
+            Building building = lookupBuilding(id);
+            if (building == null) {
+                throw new IllegalArgumentException("Building '" + buildingName + "' not found.");
+            }
+            return building.getPriceRollups().query(from, to);
+        } finally {
+            lock.unlock();
         }
+    }
+
+    /**
+     * Get the price in effect for a building at the given time: the last history entry recorded at or before it,
+     * or null if the building had no price yet. Answered by binary search over the building's snapshot, without
+     * taking its lock.
+     */
+    public PriceHistory getPriceAsOf(String buildingName, long timestamp) {
+        PriceSeries history = requireSnapshot(buildingName).getHistoryByTime();
+        int index = history.floorIndex(timestamp);
+        return index >= 0 ? history.get(index) : null;
+    }
+
+    /**
+     * Get a building's history entries recorded in {@code [from, to]}, in timestamp order and downsampled to at
+     * most {@code maxPoints} entries; see {@link PriceSeries#range(long, long, int)}.
+     */
+    public PriceSeries getPriceRange(String buildingName, long from, long to, int maxPoints) {
+        return requireSnapshot(buildingName).getHistoryByTime().range(from, to, maxPoints);
+    }
 
-        if (newPrice >= 0) {
-            building.updatePrice(newPrice);
+    /**
+     * Get price statistics for a building over every standard window, ending now.
+     */
+    public Map<TrendWindow, PriceWindowStats> getWindowTrends(String buildingName) {
+        int id = resolve(buildingName);
+        ReentrantLock lock = lockBuilding(id);
+        try {
+            Building building = lookupBuilding(id);
+            if (building == null) {
+                throw new IllegalArgumentException("Building '" + buildingName + "' not found.");
+            }
+
+            long now = System.currentTimeMillis();
+            Map<TrendWindow, PriceWindowStats> trends = new EnumMap<>(TrendWindow.class);
+            for (TrendWindow window : TrendWindow.values()) {
+                trends.put(window, building.getPriceRollups().query(now - window.getDurationMillis(), now));
+            }
+            return trends;
+        } finally {
+            lock.unlock();
         }
+    }
 
-        storage.saveBuilding(building);
-        System.out.println("Building '" + buildingName + "' updated successfully.");
+    /**
+     * Update building information.
+     */
+    public void updateBuilding(String buildingName, String newAddress, double newPrice) {
+        int id = resolve(buildingName);
+        ReentrantLock lock = lockBuilding(id);
+        try {
+            Building building = lookupBuilding(id);
+            if (building == null) {
+                throw new IllegalArgumentException("Building '" + buildingName + "' not found.");
+            }
+            long latest = latestTimestamp(building);
+            long timestamp = Math.max(System.currentTimeMillis(), latest);
+            if (newPrice >= 0) {
+                // Checked before anything changes, so a rejected price leaves the address as it was
+                String rejection = rejectTick(newPrice, timestamp, latest);
+                if (rejection != null) {
+                    throw new IllegalArgumentException(rejection);
+                }
+            }
+
+            if (newAddress != null && !newAddress.trim().isEmpty()) {
+                unindexAddress(building.getAddress(), id);
+                building.setAddress(addressIndex.add(newAddress, id));
+            }
+
+            if (newPrice >= 0) {
+                PriceTrend previousTrend = building.getRecentTrend();
+                recordTick(building, newPrice, timestamp, alerts);
+                refreshTrend(building, previousTrend, timestamp, metrics, alerts);
+            }
+
+            notePortfolioChange(id, building);
+            persist(id, building);
+        } finally {
+            lock.unlock();
+        }
+        evictIfNeeded(id);
+        if (events.isEnabled(ServiceEventListener.Level.INFO)) {
+            events.onEvent(ServiceEventListener.Level.INFO, "Building '" + buildingName + "' updated successfully.");
+        }
     }
 
     /**
      * Delete a building.
      */
     public void deleteBuilding(String buildingName) {
-        Building building = getBuilding(buildingName);
-        if (building == null) {
-            throw new IllegalArgumentException("Building '" + buildingName + "' not found.");
-        }
+        int id = resolve(buildingName);
+        ReentrantLock lock = lockBuilding(id);
+        try {
+            Building building = lookupBuilding(id);
+            if (building == null) {
+                throw new IllegalArgumentException("Building '" + buildingName + "' not found.");
+            }
 
-        buildingCache.remove(building);
-        storage.deleteBuilding(buildingName);
+            directory.unregister(id);
+            unindexAddress(building.getAddress(), id);
+            notePortfolioChange(id, building);
+            if (cache != null) {
+                cache.remove(id, false);
+            }
+            storage.deleteBuilding(buildingName);
+            if (priceEvents.hasSubscribers()) {
+                priceEvents.publish(PriceEvent.buildingDeleted(buildingName, System.currentTimeMillis()));
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
-     * Get building price history.
+     * Print a building's price history. For exporting histories use
+     * {@link com.buildingtracker.export.PriceHistoryExporter} instead.
      */
     public void printPriceHistory(String buildingName) {
-        Building building = getBuilding(buildingName);
+        BuildingSnapshot building = getBuildingSnapshot(buildingName);
         if (building == null) {
             System.out.println("Building '" + buildingName + "' not found.");
             return;
         }
 
-        System.out.println("\n=== Price History for " + buildingName + " ===");
-        if (building.getPriceHistoryList().isEmpty()) {
-            System.out.println("No price history available.");
+        // One print call for the whole history instead of one per entry
+        StringBuilder out = new StringBuilder("\n=== Price History for ").append(buildingName).append(" ===\n");
+        PriceSeries history = building.getHistory();
+        if (history.isEmpty()) {
+            out.append("No price history available.\n");
         } else {
-            building.getPriceHistoryList().forEach(System.out::println);
+            for (int i = 0; i < history.size(); i++) {
+                out.append(history.get(i)).append('\n');
+            }
         }
+        System.out.print(out);
     }
 
     /**
      * Get building trend information.
      */
     public void printTrendInfo(String buildingName) {
-        Building building = getBuilding(buildingName);
+        BuildingSnapshot building = getBuildingSnapshot(buildingName);
         if (building == null) {
             System.out.println("Building '" + buildingName + "' not found.");
             return;
@@ -152,19 +836,347 @@ public class BuildingService {
      * Print all buildings information.
      */
     public void printAllBuildings() {
-        System.out.println("\n=== All Buildings ===");
-        if (buildingCache.isEmpty()) {
-            System.out.println("No buildings available.");
+        StringBuilder out = new StringBuilder("\n=== All Buildings ===\n");
+        List<Building> buildings = getAllBuildings();
+        if (buildings.isEmpty()) {
+            out.append("No buildings available.\n");
         } else {
-            buildingCache.forEach(System.out::println);
+            for (Building building : buildings) {
+                out.append(building).append('\n');
+            }
         }
+        System.out.print(out);
     }
 
     /**
-     * Refresh cache from storage.
+     * Refresh cache from storage. Must not run concurrently with updates. In bounded cache mode dirty buildings
+     * are written back first, then every building is dropped from memory and the indexes are rebuilt. Buildings
+     * still in storage keep their IDs.
      */
     public void refreshCache() {
-        this.buildingCache = storage.loadBuildings();
-        System.out.println("Cache refreshed from storage.");
+        if (cache == null) {
+            rebuildIndexes(storage.loadBuildings());
+            // Rebuilt from the new instances on the next request
+            portfolio = null;
+        } else {
+            flush();
+            rebuildDirectory();
+        }
+        if (events.isEnabled(ServiceEventListener.Level.INFO)) {
+            events.onEvent(ServiceEventListener.Level.INFO, "Cache refreshed from storage.");
+        }
+    }
+
+    /**
+     * Write every dirty building back to storage. Does nothing unless in bounded cache mode, where changes are
+     * otherwise only persisted on eviction.
+     */
+    public void flush() {
+        if (cache == null) {
+            return;
+        }
+        for (int id : cache.dirtyIds()) {
+            ReentrantLock lock = lockBuilding(id);
+            try {
+                Building building = directory.get(id);
+                if (building != null && cache.isDirty(id)) {
+                    storage.saveBuilding(building);
+                    cache.markClean(id);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Move price history older than {@code maxAgeMillis} into each building's compressed cold tier. Only
+     * in-memory buildings with a decoded history are affected; the history itself is unchanged, so nothing is
+     * persisted.
+     *
+     * @return the number of entries archived
+     */
+    public long archivePriceHistory(long maxAgeMillis) {
+        if (maxAgeMillis < 0) {
+            throw new IllegalArgumentException("Age cannot be negative.");
+        }
+        long cutoff = System.currentTimeMillis() - maxAgeMillis;
+        long archived = 0;
+        for (int id = 0, limit = directory.idLimit(); id < limit; id++) {
+            if (directory.get(id) == null) {
+                continue;
+            }
+            ReentrantLock lock = lockBuilding(id);
+            try {
+                Building building = directory.get(id);
+                if (building != null && building.isHistoryLoaded()) {
+                    int count = building.archiveHistoryBefore(cutoff);
+                    if (count > 0) {
+                        // Lets the next portfolio release the hot arrays the archived entries were copied from
+                        notePortfolioChange(id, building);
+                        archived += count;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (events.isEnabled(ServiceEventListener.Level.INFO)) {
+            events.onEvent(ServiceEventListener.Level.INFO, "Archived " + archived + " price history entries.");
+        }
+        return archived;
+    }
+
+    /**
+     * Why a tick cannot be recorded for a building whose latest history entry is at {@code latestTimestamp}, or null
+     * if it can. Every ingest path checks ticks here, so none of them can store a price that is not a finite,
+     * non-negative number or break the timestamp order of a history.
+     *
+     * @return null, {@link #INVALID_PRICE} or {@link #OUT_OF_ORDER}
+     */
+    private static String rejectTick(double price, long timestamp, long latestTimestamp) {
+        if (!(price >= 0) || price == Double.POSITIVE_INFINITY) {
+            return INVALID_PRICE;
+        }
+        if (timestamp < latestTimestamp) {
+            return OUT_OF_ORDER;
+        }
+        return null;
+    }
+
+    /**
+     * Get the timestamp of a building's latest history entry, or {@link Long#MIN_VALUE} if it has none.
+     */
+    private static long latestTimestamp(Building building) {
+        PriceSeries history = building.getPriceSeries();
+        return history.isEmpty() ? Long.MIN_VALUE : history.getTimestamp(history.size() - 1);
+    }
+
+    /**
+     * Record one price tick, evaluate it against the alert rules and publish it. Caller must hold the building's
+     * lock.
+     */
+    private void recordTick(Building building, double price, long timestamp, AlertEngine alerts) {
+        double previousPrice = building.getCurrentPrice();
+        building.recordPrice(price, timestamp);
+        boolean publish = priceEvents.hasSubscribers();
+        if (alerts != null || publish) {
+            PriceSeries history = building.getPriceSeries();
+            double changePercentage = history.getChangePercentage(history.size() - 1);
+            if (alerts != null) {
+                alerts.onTick(building.getName(), previousPrice, price, changePercentage, timestamp);
+            }
+            if (publish) {
+                priceEvents.publish(PriceEvent.priceChanged(building.getName(), previousPrice, price,
+                        changePercentage, timestamp));
+            }
+        }
+    }
+
+    /**
+     * Recompute the trend, publishing a new snapshot, evaluate it against the alert rules and publish an event
+     * if it changed. Caller must hold the building's lock.
+     */
+    private void refreshTrend(Building building, PriceTrend previousTrend, long timestamp, ServiceMetrics metrics,
+                              AlertEngine alerts) {
+        long start = System.nanoTime();
+        building.updateTrend();
+        metrics.trendUpdate.recordSince(start);
+        PriceTrend trend = building.getRecentTrend();
+        if (alerts != null) {
+            alerts.onTrendUpdate(building.getName(), previousTrend, trend, timestamp);
+        }
+        if (priceEvents.hasSubscribers() && !sameTrend(previousTrend, trend)) {
+            priceEvents.publish(PriceEvent.trendChanged(building.getName(), building.getCurrentPrice(), trend,
+                    timestamp));
+        }
+    }
+
+    /**
+     * Record a changed building for the next portfolio request, once portfolio snapshots have been requested.
+     * Caller must hold the building's lock, so that a reader holding every lock sees each recorded change in the
+     * building's snapshot. A building changed again before that request is recorded once.
+     */
+    private void notePortfolioChange(int id, Building building) {
+        if (portfolio != null) {
+            portfolioChanges.put(id, building.getName());
+        }
+    }
+
+    private static PriceUpdate tickUpdate(String buildingName, PriceSeries ticks, int index) {
+        return new PriceUpdate(buildingName, ticks.getPrice(index), ticks.getTimestamp(index));
+    }
+
+    private static boolean sameTrend(PriceTrend a, PriceTrend b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return Objects.equals(a.getTrendDirection(), b.getTrendDirection())
+                && a.getAverageChange() == b.getAverageChange()
+                && a.getVolatility() == b.getVolatility();
+    }
+
+    /**
+     * Resolve a building name to its ID, or -1 if there is no such building.
+     */
+    private int resolve(String buildingName) {
+        if (buildingName == null) {
+            throw new IllegalArgumentException("Building name cannot be null.");
+        }
+        return directory.idOf(buildingName);
+    }
+
+    /**
+     * Acquire the lock guarding the building with the given ID. Unknown IDs share a stripe with some building,
+     * which is harmless since the lookup under the lock then finds nothing.
+     */
+    private ReentrantLock lockBuilding(int id) {
+        ReentrantLock lock = buildingLocks.lockFor(id);
+        lock.lock();
+        return lock;
+    }
+
+    /**
+     * Persist a changed building: immediately, or in bounded cache mode by marking it for write-back. Caller
+     * must hold the building's lock.
+     */
+    private void persist(int id, Building building) {
+        if (cache == null) {
+            storage.saveBuilding(building);
+        } else {
+            cache.markDirty(id, building);
+        }
+    }
+
+    /**
+     * Load a building that is not resident and admit it to the cache.
+     */
+    private Building loadIntoCache(int id) {
+        Building building;
+        ReentrantLock lock = lockBuilding(id);
+        try {
+            building = directory.get(id);
+            if (building != null) {
+                // Loaded by another thread while waiting for the lock
+                cache.recordHit(id);
+                return building;
+            }
+            String name = directory.nameOf(id);
+            building = name != null ? storage.loadBuilding(name) : null;
+            if (building == null) {
+                return null;
+            }
+            String address = building.getAddress();
+            String shared = address != null ? addressIndex.intern(address) : null;
+            if (shared != address) {
+                building.setAddress(shared);
+            }
+            directory.set(id, building);
+            cache.admit(id, building);
+        } finally {
+            lock.unlock();
+        }
+        evictIfNeeded(id);
+        return building;
+    }
+
+    /**
+     * Evict least recently used buildings until the cache is within budget, writing dirty ones back first.
+     * Buildings whose lock is held by another thread are skipped rather than waited for, so the budget may be
+     * exceeded briefly under contention.
+     */
+    private void evictIfNeeded(int protectedId) {
+        if (cache == null || !cache.isOverBudget()) {
+            return;
+        }
+        for (int id : cache.evictionCandidates(protectedId)) {
+            ReentrantLock lock = buildingLocks.lockFor(id);
+            if (!lock.tryLock()) {
+                continue;
+            }
+            try {
+                Building building = directory.get(id);
+                if (building == null) {
+                    continue;
+                }
+                if (cache.isDirty(id)) {
+                    storage.saveBuilding(building);
+                    cache.recordWriteBack();
+                }
+                directory.set(id, null);
+                cache.remove(id, true);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Drop every resident building and rebuild the name dictionary and address index by streaming the stored
+     * buildings.
+     */
+    private void rebuildDirectory() {
+        directory.clearBuildings();
+        addressIndex.clear();
+        cache.clear();
+        BitSet stored = new BitSet();
+        storage.forEachBuilding(building -> {
+            int id = directory.idOrRegister(building.getName());
+            stored.set(id);
+            if (building.getAddress() != null) {
+                addressIndex.add(building.getAddress(), id);
+            }
+        });
+        directory.retainOnly(stored);
+    }
+
+    /**
+     * Replace the resident buildings and the indexes with the given buildings.
+     */
+    private void rebuildIndexes(List<Building> buildings) {
+        directory.clearBuildings();
+        addressIndex.clear();
+        BitSet stored = new BitSet();
+        for (Building building : buildings) {
+            int id = directory.idOrRegister(building.getName());
+            stored.set(id);
+            directory.set(id, building);
+            indexAddress(building, id);
+        }
+        directory.retainOnly(stored);
+    }
+
+    /**
+     * Register a building under its address, switching the building to the shared instance of the address.
+     */
+    private void indexAddress(Building building, int id) {
+        String address = building.getAddress();
+        if (address == null) {
+            return;
+        }
+        String shared = addressIndex.add(address, id);
+        if (shared != address) {
+            building.setAddress(shared);
+        }
+    }
+
+    private void unindexAddress(String address, int id) {
+        if (address != null) {
+            addressIndex.remove(address, id);
+        }
+    }
+
+    /**
+     * Resolve building IDs to the buildings, skipping any deleted since.
+     */
+    private List<Building> resolveIds(int[] ids) {
+        List<Building> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Building building = lookupBuilding(id);
+            if (building != null) {
+                result.add(building);
+            }
+        }
+        return result;
     }
-}
\ No newline at end of file
+}
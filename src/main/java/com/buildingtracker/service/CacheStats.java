@@ -0,0 +1,81 @@
+package com.buildingtracker.service;
+
+/**
+ * Point-in-time counters of the bounded building cache.
+ */
+public final class CacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long writeBackCount;
+    private final int residentBuildings;
+    private final long residentBytes;
+    private final long maxBytes;
+
+    CacheStats(long hitCount, long missCount, long evictionCount, long writeBackCount, int residentBuildings,
+               long residentBytes, long maxBytes) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.writeBackCount = writeBackCount;
+        this.residentBuildings = residentBuildings;
+        this.residentBytes = residentBytes;
+        this.maxBytes = maxBytes;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Get the fraction of lookups of stored buildings answered without loading, or 0 before any lookup.
+     */
+    public double getHitRate() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Get the number of dirty buildings written to storage on eviction.
+     */
+    public long getWriteBackCount() {
+        return writeBackCount;
+    }
+
+    public int getResidentBuildings() {
+        return residentBuildings;
+    }
+
+    /**
+     * Get the estimated heap held by resident buildings.
+     */
+    public long getResidentBytes() {
+        return residentBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{"
+                + "hits=" + hitCount
+                + ", misses=" + missCount
+                + ", hitRate=" + String.format("%.2f", getHitRate() * 100) + "%"
+                + ", evictions=" + evictionCount
+                + ", writeBacks=" + writeBackCount
+                + ", resident=" + residentBuildings
+                + ", residentBytes=" + residentBytes
+                + ", maxBytes=" + maxBytes
+                + '}';
+    }
+}
@@ -0,0 +1,39 @@
+package com.buildingtracker.service;
+
+import java.io.PrintStream;
+
+/**
+ * Prints events at or above a minimum level to a console stream.
+ */
+public class ConsoleEventListener implements ServiceEventListener {
+    private final Level minimumLevel;
+    private final PrintStream out;
+
+    /**
+     * Constructor printing to {@code System.out}, as looked up at each event.
+     */
+    public ConsoleEventListener(Level minimumLevel) {
+        this(minimumLevel, null);
+    }
+
+    /**
+     * Constructor printing to the given stream.
+     */
+    public ConsoleEventListener(Level minimumLevel, PrintStream out) {
+        if (minimumLevel == null) {
+            throw new IllegalArgumentException("Minimum level cannot be null.");
+        }
+        this.minimumLevel = minimumLevel;
+        this.out = out;
+    }
+
+    @Override
+    public boolean isEnabled(Level level) {
+        return level.compareTo(minimumLevel) >= 0;
+    }
+
+    @Override
+    public void onEvent(Level level, String message) {
+        (out != null ? out : System.out).println(message);
+    }
+}
@@ -0,0 +1,233 @@
+package com.buildingtracker.service;
+
+import com.buildingtracker.model.Building;
+import com.buildingtracker.model.BuildingSnapshot;
+import com.buildingtracker.model.PriceSeries;
+import com.buildingtracker.model.PriceTrend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Portfolio-wide analytics over every building of a {@link BuildingService}.
+ *
+ * <p>Each query works on building snapshots and is expressed as a mergeable partial aggregate, evaluated either
+ * with a parallel stream on a fork-join pool or serially on the calling thread. Both modes return the same
+ * results, apart from floating point rounding in sums, so the serial mode can be used to check the parallel one.
+ *
+ * <p>Unless the service is in bounded cache mode, a query reads a single {@link PortfolioSnapshot}, so all of its
+ * buildings are seen as of the same moment.
+ */
+public class PortfolioAnalyticsService {
+
+    /**
+     * How a query is evaluated.
+     */
+    public enum ExecutionMode {
+        PARALLEL,
+        SERIAL
+    }
+
+    // Highest average change first; ties broken by name so both modes agree
+    private static final Comparator<BuildingSnapshot> BY_AVERAGE_CHANGE =
+            Comparator.comparingDouble(PortfolioAnalyticsService::averageChange)
+                    .reversed()
+                    .thenComparing(BuildingSnapshot::getName, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final BuildingService buildingService;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor using the common fork-join pool.
+     */
+    public PortfolioAnalyticsService(BuildingService buildingService) {
+        this(buildingService, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor with a dedicated fork-join pool.
+     */
+    public PortfolioAnalyticsService(BuildingService buildingService, ForkJoinPool pool) {
+        this.buildingService = buildingService;
+        this.pool = pool;
+    }
+
+    /**
+     * Get the portfolio summary: building count, total value, mean change and trend direction counts.
+     */
+    public PortfolioSummary getSummary(ExecutionMode mode) {
+        return evaluate(mode, () -> snapshots(mode).collect(
+                PortfolioSummary::new, PortfolioSummary::add, PortfolioSummary::combine));
+    }
+
+    /**
+     * Get the {@code n} buildings with the highest trend average change, highest first.
+     */
+    public List<BuildingSnapshot> getTopGainers(int n, ExecutionMode mode) {
+        return topN(n, BY_AVERAGE_CHANGE, mode);
+    }
+
+    /**
+     * Get the {@code n} buildings with the lowest trend average change, lowest first.
+     */
+    public List<BuildingSnapshot> getTopLosers(int n, ExecutionMode mode) {
+        return topN(n, BY_AVERAGE_CHANGE.reversed(), mode);
+    }
+
+    /**
+     * Get trend volatility percentiles (nearest rank) for the given percentiles in the range 0 to 100.
+     */
+    public double[] getVolatilityPercentiles(double[] percentiles, ExecutionMode mode) {
+        for (double percentile : percentiles) {
+            if (percentile < 0 || percentile > 100 || Double.isNaN(percentile)) {
+                throw new IllegalArgumentException("Percentiles must be between 0 and 100.");
+            }
+        }
+
+        double[] volatilities = evaluate(mode, () -> snapshots(mode)
+                .mapToDouble(b -> b.getRecentTrend() != null ? b.getRecentTrend().getVolatility() : 0.0)
+                .toArray());
+        if (mode == ExecutionMode.PARALLEL) {
+            Arrays.parallelSort(volatilities);
+        } else {
+            Arrays.sort(volatilities);
+        }
+
+        double[] result = new double[percentiles.length];
+        if (volatilities.length == 0) {
+            return result;
+        }
+        for (int i = 0; i < percentiles.length; i++) {
+            int rank = (int) Math.ceil(percentiles[i] / 100.0 * volatilities.length);
+            result[i] = volatilities[Math.max(0, rank - 1)];
+        }
+        return result;
+    }
+
+    /**
+     * Value the portfolio at the given time, with each building at the last price it recorded at or before it.
+     * Each building's price is found by binary search over its history, so the cost grows with the building count
+     * and only logarithmically with history length.
+     */
+    public PortfolioValuation getPortfolioValueAsOf(long timestamp, ExecutionMode mode) {
+        return evaluate(mode, () -> snapshots(mode).collect(
+                () -> new PortfolioValuation(timestamp), PortfolioValuation::add, PortfolioValuation::combine));
+    }
+
+    /**
+     * Get the total portfolio value at each point {@code from, from + step, ...} up to and including {@code to}.
+     * A building contributes the last price recorded at or before each point, and nothing before its first
+     * recorded price.
+     */
+    public double[] getPortfolioValueOverTime(long from, long to, long step, ExecutionMode mode) {
+        if (step <= 0 || to < from) {
+            throw new IllegalArgumentException("Step must be positive and the range must not be empty.");
+        }
+        long points = (to - from) / step + 1;
+        if (points > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many points in the requested range.");
+        }
+        int pointCount = (int) points;
+
+        return evaluate(mode, () -> snapshots(mode).collect(
+                () -> new double[pointCount],
+                (totals, building) -> addValueOverTime(totals, building.getHistoryByTime(), from, step),
+                (left, right) -> {
+                    for (int i = 0; i < left.length; i++) {
+                        left[i] += right[i];
+                    }
+                }));
+    }
+
+    /**
+     * Add one building's value at each point to the running totals, in a single pass over its history from the
+     * first point on.
+     */
+    private static void addValueOverTime(double[] totals, PriceSeries history, long from, long step) {
+        int size = history.size();
+        int floor = history.floorIndex(from);
+        int index = floor + 1;
+        double lastPrice = floor >= 0 ? history.getPrice(floor) : Double.NaN;
+        for (int point = 0; point < totals.length; point++) {
+            long time = from + point * step;
+            while (index < size && history.getTimestamp(index) <= time) {
+                lastPrice = history.getPrice(index);
+                index++;
+            }
+            if (!Double.isNaN(lastPrice)) {
+                totals[point] += lastPrice;
+            }
+        }
+    }
+
+    private List<BuildingSnapshot> topN(int n, Comparator<BuildingSnapshot> order, ExecutionMode mode) {
+        if (n <= 0) {
+            return new ArrayList<>();
+        }
+
+        // Each partition keeps a heap of its n best buildings, with the worst of them on top
+        Comparator<BuildingSnapshot> worstFirst = order.reversed();
+        PriorityQueue<BuildingSnapshot> best = evaluate(mode, () -> snapshots(mode).collect(
+                () -> new PriorityQueue<>(worstFirst),
+                (heap, building) -> offerBounded(heap, building, n, order),
+                (left, right) -> right.forEach(b -> offerBounded(left, b, n, order))));
+
+        List<BuildingSnapshot> result = new ArrayList<>(best);
+        result.sort(order);
+        return Collections.unmodifiableList(result);
+    }
+
+    private static void offerBounded(PriorityQueue<BuildingSnapshot> heap, BuildingSnapshot building, int n,
+                                     Comparator<BuildingSnapshot> order) {
+        if (heap.size() < n) {
+            heap.add(building);
+        } else if (order.compare(building, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(building);
+        }
+    }
+
+    private Stream<BuildingSnapshot> snapshots(ExecutionMode mode) {
+        if (buildingService.getCacheStats() == null) {
+            List<BuildingSnapshot> buildings = buildingService.getPortfolioSnapshot().getBuildings();
+            return mode == ExecutionMode.PARALLEL ? buildings.parallelStream() : buildings.stream();
+        }
+        List<Building> buildings = buildingService.getAllBuildings();
+        Stream<Building> stream = mode == ExecutionMode.PARALLEL ? buildings.parallelStream() : buildings.stream();
+        return stream.map(Building::snapshot);
+    }
+
+    /**
+     * Run a query in the configured pool for parallel mode, or directly on the caller for serial mode.
+     */
+    private <T> T evaluate(ExecutionMode mode, Supplier<T> query) {
+        if (mode == ExecutionMode.SERIAL) {
+            return query.get();
+        }
+        try {
+            return pool.submit(query::get).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while computing portfolio analytics.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Portfolio analytics failed.", cause);
+        }
+    }
+
+    private static double averageChange(BuildingSnapshot building) {
+        PriceTrend trend = building.getRecentTrend();
+        return trend != null ? trend.getAverageChange() : 0.0;
+    }
+}
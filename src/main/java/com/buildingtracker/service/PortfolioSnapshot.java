@@ -0,0 +1,378 @@
+package com.buildingtracker.service;
+
+import com.buildingtracker.model.BuildingSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Immutable, versioned point-in-time view of every building of a {@link BuildingService}.
+ *
+ * <p>The buildings are kept in a persistent hash array mapped trie of {@link BuildingSnapshot}s keyed by name.
+ * Replacing or removing one building copies only the nodes on the path to it, at most seven arrays of up to 32
+ * slots, and shares the rest of the trie with the previous version. That lets the service bring the previous
+ * portfolio up to date by replacing only the buildings that changed, while a reader keeps a consistent view of
+ * every building's price, trend and history for as long as it holds on to it.
+ */
+public final class PortfolioSnapshot implements Iterable<BuildingSnapshot> {
+    static final PortfolioSnapshot EMPTY = new PortfolioSnapshot(BitmapNode.EMPTY, 0, 0L, 0L);
+
+    private static final int BITS_PER_LEVEL = 5;
+    private static final int LEVEL_MASK = (1 << BITS_PER_LEVEL) - 1;
+
+    private final BitmapNode root;
+    private final int size;
+    private final long totalHistoryLength;
+    private final long version;
+    // Materialized on first request; racing readers build equal lists
+    private volatile List<BuildingSnapshot> buildings;
+
+    private PortfolioSnapshot(BitmapNode root, int size, long totalHistoryLength, long version) {
+        this.root = root;
+        this.size = size;
+        this.totalHistoryLength = totalHistoryLength;
+        this.version = version;
+    }
+
+    /**
+     * Get the number of building replacements and removals applied before this portfolio; increases whenever the
+     * portfolio changes.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get the named building as of this portfolio, or {@code null} if it was not tracked.
+     */
+    public BuildingSnapshot get(String name) {
+        return name != null ? root.get(name, hash(name), 0) : null;
+    }
+
+    public boolean contains(String name) {
+        return get(name) != null;
+    }
+
+    /**
+     * Get the number of price history entries over all buildings as of this portfolio.
+     */
+    public long getTotalHistoryLength() {
+        return totalHistoryLength;
+    }
+
+    /**
+     * Get every building, in no particular order. The list is built on the first call and shared afterwards.
+     */
+    public List<BuildingSnapshot> getBuildings() {
+        List<BuildingSnapshot> result = buildings;
+        if (result == null) {
+            List<BuildingSnapshot> collected = new ArrayList<>(size);
+            root.forEach(collected::add);
+            result = Collections.unmodifiableList(collected);
+            buildings = result;
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<BuildingSnapshot> iterator() {
+        return getBuildings().iterator();
+    }
+
+    @Override
+    public void forEach(Consumer<? super BuildingSnapshot> action) {
+        Objects.requireNonNull(action, "action");
+        root.forEach(action);
+    }
+
+    /**
+     * Get a portfolio with the building's snapshot added or replacing the one of the same name.
+     */
+    PortfolioSnapshot with(BuildingSnapshot snapshot) {
+        String name = Objects.requireNonNull(snapshot.getName(), "Building name cannot be null.");
+        Change change = new Change();
+        BitmapNode updated = root.put(snapshot, hash(name), 0, change);
+        if (updated == root) {
+            return this;
+        }
+        BuildingSnapshot previous = change.previous;
+        if (previous == null) {
+            return new PortfolioSnapshot(updated, size + 1, totalHistoryLength + snapshot.getHistoryLength(),
+                    version + 1);
+        }
+        return new PortfolioSnapshot(updated, size,
+                totalHistoryLength + snapshot.getHistoryLength() - previous.getHistoryLength(), version + 1);
+    }
+
+    /**
+     * Get a portfolio without the named building.
+     */
+    PortfolioSnapshot without(String name) {
+        Objects.requireNonNull(name, "Building name cannot be null.");
+        Change change = new Change();
+        // The root never collapses into its parent, so it stays a bitmap node
+        BitmapNode updated = (BitmapNode) root.remove(name, hash(name), 0, change);
+        if (change.previous == null) {
+            return this;
+        }
+        return new PortfolioSnapshot(updated, size - 1, totalHistoryLength - change.previous.getHistoryLength(),
+                version + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "PortfolioSnapshot{"
+                + "buildings=" + size
+                + ", totalHistoryLength=" + totalHistoryLength
+                + ", version=" + version
+                + '}';
+    }
+
+    private static int hash(String name) {
+        int h = name.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Building replaced or removed by an update, if any.
+     */
+    private static final class Change {
+        BuildingSnapshot previous;
+    }
+
+    /**
+     * Trie node. Slots hold either a {@link BuildingSnapshot} or a child node.
+     */
+    private abstract static class Node {
+        abstract BuildingSnapshot get(String name, int hash, int shift);
+
+        abstract Node put(BuildingSnapshot snapshot, int hash, int shift, Change change);
+
+        /**
+         * Remove the named building.
+         *
+         * @return the node without it; {@code null} when it becomes empty, or the remaining snapshot when only
+         * one is left, so the parent can hold it directly
+         */
+        abstract Object remove(String name, int hash, int shift, Change change);
+
+        abstract void forEach(Consumer<? super BuildingSnapshot> action);
+    }
+
+    /**
+     * Inner node indexed by five bits of the hash per level; only occupied slots are stored.
+     */
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] slots;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        @Override
+        BuildingSnapshot get(String name, int hash, int shift) {
+            int bit = 1 << ((hash >>> shift) & LEVEL_MASK);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = slots[Integer.bitCount(bitmap & (bit - 1))];
+            if (slot instanceof Node) {
+                return ((Node) slot).get(name, hash, shift + BITS_PER_LEVEL);
+            }
+            BuildingSnapshot snapshot = (BuildingSnapshot) slot;
+            return name.equals(snapshot.getName()) ? snapshot : null;
+        }
+
+        @Override
+        BitmapNode put(BuildingSnapshot snapshot, int hash, int shift, Change change) {
+            int bit = 1 << ((hash >>> shift) & LEVEL_MASK);
+            int index = Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                Object[] inserted = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, inserted, 0, index);
+                inserted[index] = snapshot;
+                System.arraycopy(slots, index, inserted, index + 1, slots.length - index);
+                return new BitmapNode(bitmap | bit, inserted);
+            }
+
+            Object slot = slots[index];
+            Object replacement;
+            if (slot instanceof Node) {
+                Node child = (Node) slot;
+                replacement = child.put(snapshot, hash, shift + BITS_PER_LEVEL, change);
+                if (replacement == child) {
+                    return this;
+                }
+            } else {
+                BuildingSnapshot existing = (BuildingSnapshot) slot;
+                if (existing == snapshot) {
+                    change.previous = existing;
+                    return this;
+                }
+                if (existing.getName().equals(snapshot.getName())) {
+                    change.previous = existing;
+                    replacement = snapshot;
+                } else {
+                    replacement = pair(existing, hash(existing.getName()), snapshot, hash,
+                            shift + BITS_PER_LEVEL);
+                }
+            }
+            return withSlot(index, replacement);
+        }
+
+        @Override
+        Object remove(String name, int hash, int shift, Change change) {
+            int bit = 1 << ((hash >>> shift) & LEVEL_MASK);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = Integer.bitCount(bitmap & (bit - 1));
+            Object slot = slots[index];
+            Object replacement;
+            if (slot instanceof Node) {
+                replacement = ((Node) slot).remove(name, hash, shift + BITS_PER_LEVEL, change);
+                if (replacement == slot) {
+                    return this;
+                }
+            } else {
+                BuildingSnapshot existing = (BuildingSnapshot) slot;
+                if (!name.equals(existing.getName())) {
+                    return this;
+                }
+                change.previous = existing;
+                replacement = null;
+            }
+
+            if (replacement != null) {
+                if (replacement instanceof BuildingSnapshot && slots.length == 1 && shift > 0) {
+                    // Only one building left below this node; let the parent hold it directly
+                    return replacement;
+                }
+                return withSlot(index, replacement);
+            }
+            if (slots.length == 1) {
+                return shift > 0 ? null : EMPTY;
+            }
+            if (slots.length == 2 && shift > 0 && slots[1 - index] instanceof BuildingSnapshot) {
+                return slots[1 - index];
+            }
+            Object[] removed = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, removed, 0, index);
+            System.arraycopy(slots, index + 1, removed, index, slots.length - index - 1);
+            return new BitmapNode(bitmap & ~bit, removed);
+        }
+
+        @Override
+        void forEach(Consumer<? super BuildingSnapshot> action) {
+            for (Object slot : slots) {
+                if (slot instanceof Node) {
+                    ((Node) slot).forEach(action);
+                } else {
+                    action.accept((BuildingSnapshot) slot);
+                }
+            }
+        }
+
+        private BitmapNode withSlot(int index, Object slot) {
+            Object[] copy = slots.clone();
+            copy[index] = slot;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        /**
+         * Build the subtree holding two buildings whose hashes agree below {@code shift}.
+         */
+        private static Node pair(BuildingSnapshot a, int hashA, BuildingSnapshot b, int hashB, int shift) {
+            if (shift >= Integer.SIZE) {
+                return new CollisionNode(new BuildingSnapshot[] {a, b});
+            }
+            int bitA = 1 << ((hashA >>> shift) & LEVEL_MASK);
+            int bitB = 1 << ((hashB >>> shift) & LEVEL_MASK);
+            if (bitA == bitB) {
+                return new BitmapNode(bitA, new Object[] {pair(a, hashA, b, hashB, shift + BITS_PER_LEVEL)});
+            }
+            Object[] slots = Integer.compareUnsigned(bitA, bitB) < 0 ? new Object[] {a, b} : new Object[] {b, a};
+            return new BitmapNode(bitA | bitB, slots);
+        }
+    }
+
+    /**
+     * Leaf node for buildings whose names have the same full hash.
+     */
+    private static final class CollisionNode extends Node {
+        private final BuildingSnapshot[] entries;
+
+        CollisionNode(BuildingSnapshot[] entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        BuildingSnapshot get(String name, int hash, int shift) {
+            for (BuildingSnapshot entry : entries) {
+                if (name.equals(entry.getName())) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        Node put(BuildingSnapshot snapshot, int hash, int shift, Change change) {
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i].getName().equals(snapshot.getName())) {
+                    change.previous = entries[i];
+                    if (entries[i] == snapshot) {
+                        return this;
+                    }
+                    BuildingSnapshot[] copy = entries.clone();
+                    copy[i] = snapshot;
+                    return new CollisionNode(copy);
+                }
+            }
+            BuildingSnapshot[] appended = Arrays.copyOf(entries, entries.length + 1);
+            appended[entries.length] = snapshot;
+            return new CollisionNode(appended);
+        }
+
+        @Override
+        Object remove(String name, int hash, int shift, Change change) {
+            for (int i = 0; i < entries.length; i++) {
+                if (name.equals(entries[i].getName())) {
+                    change.previous = entries[i];
+                    if (entries.length == 2) {
+                        return entries[1 - i];
+                    }
+                    BuildingSnapshot[] removed = new BuildingSnapshot[entries.length - 1];
+                    System.arraycopy(entries, 0, removed, 0, i);
+                    System.arraycopy(entries, i + 1, removed, i, entries.length - i - 1);
+                    return new CollisionNode(removed);
+                }
+            }
+            return this;
+        }
+
+        @Override
+        void forEach(Consumer<? super BuildingSnapshot> action) {
+            for (BuildingSnapshot entry : entries) {
+                action.accept(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.buildingtracker.service;
+
+import com.buildingtracker.model.BuildingSnapshot;
+import com.buildingtracker.model.PriceTrend;
+
+/**
+ * Mergeable portfolio-wide aggregate: building count, total value, mean trend change and trend direction counts.
+ *
+ * <p>Partial summaries are built per partition with {@link #add(BuildingSnapshot)} and merged with
+ * {@link #combine(PortfolioSummary)}, so the same code serves serial and parallel evaluation.
+ */
+public class PortfolioSummary {
+    private long buildingCount;
+    private double totalValue;
+    private double averageChangeSum;
+    private double volatilitySum;
+    private long upCount;
+    private long downCount;
+    private long stableCount;
+
+    /**
+     * Fold one building into this partial summary.
+     */
+    public void add(BuildingSnapshot building) {
+        buildingCount++;
+        totalValue += building.getCurrentPrice();
+        PriceTrend trend = building.getRecentTrend();
+        if (trend == null) {
+            stableCount++;
+            return;
+        }
+        averageChangeSum += trend.getAverageChange();
+        volatilitySum += trend.getVolatility();
+        String direction = trend.getTrendDirection();
+        if ("UP".equals(direction)) {
+            upCount++;
+        } else if ("DOWN".equals(direction)) {
+            downCount++;
+        } else {
+            stableCount++;
+        }
+    }
+
+    /**
+     * Merge another partial summary into this one.
+     */
+    public PortfolioSummary combine(PortfolioSummary other) {
+        buildingCount += other.buildingCount;
+        totalValue += other.totalValue;
+        averageChangeSum += other.averageChangeSum;
+        volatilitySum += other.volatilitySum;
+        upCount += other.upCount;
+        downCount += other.downCount;
+        stableCount += other.stableCount;
+        return this;
+    }
+
+    // Getters
+    public long getBuildingCount() {
+        return buildingCount;
+    }
+
+    public double getTotalValue() {
+        return totalValue;
+    }
+
+    /**
+     * Get the mean of every building's trend average change.
+     */
+    public double getMeanAverageChange() {
+        return buildingCount == 0 ? 0.0 : averageChangeSum / buildingCount;
+    }
+
+    public double getMeanVolatility() {
+        return buildingCount == 0 ? 0.0 : volatilitySum / buildingCount;
+    }
+
+    public long getUpCount() {
+        return upCount;
+    }
+
+    public long getDownCount() {
+        return downCount;
+    }
+
+    public long getStableCount() {
+        return stableCount;
+    }
+
+    @Override
+    public String toString() {
+        return "PortfolioSummary{"
+                + "buildings=" + buildingCount
+                + ", totalValue=" + String.format("%.2f", totalValue)
+                + ", meanAverageChange=" + String.format("%.2f", getMeanAverageChange()) + "%"
+                + ", up=" + upCount
+                + ", down=" + downCount
+                + ", stable=" + stableCount
+                + '}';
+    }
+}
@@ -0,0 +1,79 @@
+package com.buildingtracker.service;
+
+import com.buildingtracker.model.BuildingSnapshot;
+import com.buildingtracker.model.PriceSeries;
+
+/**
+ * Mergeable valuation of the portfolio at a point in time: every building's price as of that time, summed.
+ *
+ * <p>Like {@link PortfolioSummary}, partial valuations are built per partition with {@link #add(BuildingSnapshot)}
+ * and merged with {@link #combine(PortfolioValuation)}.
+ */
+public class PortfolioValuation {
+    private final long timestamp;
+    private long pricedCount;
+    private long unpricedCount;
+    private double totalValue;
+
+    /**
+     * Constructor for an empty valuation at the given time.
+     */
+    public PortfolioValuation(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Fold one building into this partial valuation, at the last price it recorded at or before the valuation
+     * time. A building without a price by then is counted as unpriced.
+     */
+    public void add(BuildingSnapshot building) {
+        PriceSeries history = building.getHistoryByTime();
+        int index = history.floorIndex(timestamp);
+        if (index < 0) {
+            unpricedCount++;
+            return;
+        }
+        pricedCount++;
+        totalValue += history.getPrice(index);
+    }
+
+    /**
+     * Merge another partial valuation at the same time into this one.
+     */
+    public PortfolioValuation combine(PortfolioValuation other) {
+        pricedCount += other.pricedCount;
+        unpricedCount += other.unpricedCount;
+        totalValue += other.totalValue;
+        return this;
+    }
+
+    // Getters
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getPricedCount() {
+        return pricedCount;
+    }
+
+    /**
+     * Get the number of buildings that had no recorded price at the valuation time.
+     */
+    public long getUnpricedCount() {
+        return unpricedCount;
+    }
+
+    public double getTotalValue() {
+        return totalValue;
+    }
+
+    @Override
+    public String toString() {
+        return "PortfolioValuation{"
+                + "timestamp=" + timestamp
+                + ", priced=" + pricedCount
+                + ", unpriced=" + unpricedCount
+                + ", totalValue=" + String.format("%.2f", totalValue)
+                + '}';
+    }
+}
@@ -0,0 +1,48 @@
+package com.buildingtracker.service;
+
+/**
+ * A single price tick for a building, used for batch ingestion.
+ */
+public class PriceUpdate {
+    private final String buildingName;
+    private final double price;
+    private final long timestamp;
+
+    /**
+     * Constructor with all fields.
+     */
+    public PriceUpdate(String buildingName, double price, long timestamp) {
+        this.buildingName = buildingName;
+        this.price = price;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Constructor timestamped with the current time.
+     */
+    public PriceUpdate(String buildingName, double price) {
+        this(buildingName, price, System.currentTimeMillis());
+    }
+
+    // Getters
+    public String getBuildingName() {
+        return buildingName;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "PriceUpdate{"
+                + "buildingName='" + buildingName + '\''
+                + ", price=" + price
+                + ", timestamp=" + timestamp
+                + '}';
+    }
+}
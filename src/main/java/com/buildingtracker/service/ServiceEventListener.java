@@ -0,0 +1,43 @@
+package com.buildingtracker.service;
+
+/**
+ * Receives the messages {@link BuildingService} reports about completed operations.
+ *
+ * <p>The service asks {@link #isEnabled(Level)} before building a message, so a disabled level costs no string
+ * concatenation or output on the update path.
+ */
+public interface ServiceEventListener {
+
+    /**
+     * Importance of an event. Per-update messages are {@link #DEBUG}.
+     */
+    enum Level {
+        DEBUG,
+        INFO,
+        WARN
+    }
+
+    /**
+     * Listener that discards every event.
+     */
+    ServiceEventListener NONE = new ServiceEventListener() {
+        @Override
+        public boolean isEnabled(Level level) {
+            return false;
+        }
+
+        @Override
+        public void onEvent(Level level, String message) {
+        }
+    };
+
+    /**
+     * Whether events of the given level are wanted.
+     */
+    boolean isEnabled(Level level);
+
+    /**
+     * Handle an event. Only called for enabled levels.
+     */
+    void onEvent(Level level, String message);
+}
@@ -0,0 +1,32 @@
+package com.buildingtracker.service;
+
+import com.buildingtracker.metrics.Counter;
+import com.buildingtracker.metrics.LatencyHistogram;
+import com.buildingtracker.metrics.MetricsRegistry;
+
+/**
+ * The metrics {@link BuildingService} records, looked up once so the update path never touches the registry.
+ */
+final class ServiceMetrics {
+    final MetricsRegistry registry;
+    final LatencyHistogram addBuilding;
+    final LatencyHistogram getBuilding;
+    final LatencyHistogram recordPriceChange;
+    final LatencyHistogram recordPriceChanges;
+    final LatencyHistogram recordPriceHistory;
+    final LatencyHistogram trendUpdate;
+    final Counter priceUpdates;
+    final Counter rejectedUpdates;
+
+    ServiceMetrics(MetricsRegistry registry) {
+        this.registry = registry;
+        this.addBuilding = registry.histogram("service.addBuilding");
+        this.getBuilding = registry.histogram("service.getBuilding");
+        this.recordPriceChange = registry.histogram("service.recordPriceChange");
+        this.recordPriceChanges = registry.histogram("service.recordPriceChanges");
+        this.recordPriceHistory = registry.histogram("service.recordPriceHistory");
+        this.trendUpdate = registry.histogram("service.trendUpdate");
+        this.priceUpdates = registry.counter("service.priceUpdates");
+        this.rejectedUpdates = registry.counter("service.rejectedUpdates");
+    }
+}
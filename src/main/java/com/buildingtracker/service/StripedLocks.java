@@ -0,0 +1,66 @@
+package com.buildingtracker.service;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks selected by key hash. Updates to the same building always take the same lock, while
+ * updates to different buildings usually take different ones and proceed in parallel.
+ */
+public class StripedLocks {
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    /**
+     * Constructor with a minimum number of stripes, rounded up to a power of two.
+     */
+    public StripedLocks(int minimumStripes) {
+        if (minimumStripes <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive.");
+        }
+        int count = Integer.highestOneBit(minimumStripes - 1) << 1;
+        count = Math.max(1, count);
+        this.stripes = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = count - 1;
+    }
+
+    /**
+     * Get the lock guarding the given key.
+     */
+    public ReentrantLock lockFor(Object key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return stripes[hash & mask];
+    }
+
+    /**
+     * Get the lock guarding the given integer key. Dense keys such as building IDs spread evenly over the stripes.
+     */
+    public ReentrantLock lockFor(int key) {
+        return stripes[(key ^ (key >>> 16)) & mask];
+    }
+
+    /**
+     * Acquire every stripe, always in the same order. Must not be called while holding one of them.
+     */
+    public void lockAll() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    /**
+     * Release every stripe acquired by {@link #lockAll()}.
+     */
+    public void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    public int size() {
+        return stripes.length;
+    }
+}
@@ -1,12 +1,15 @@
 package com.buildingtracker.storage;
 
 import com.buildingtracker.model.Building;
+import com.buildingtracker.model.PriceSeries;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Interface for building storage operations.
  */
-public interface BuildingStorage {
+public interface BuildingStorage extends AutoCloseable {
     /**
      * Save all buildings to storage.
      */
@@ -17,16 +20,73 @@ public interface BuildingStorage {
      */
     List<Building> loadBuildings();
 
+    /**
+     * Pass every stored building to the given action. Implementations that can read one building at a time
+     * override this so callers never hold the full list.
+     */
+    default void forEachBuilding(Consumer<Building> action) {
+        loadBuildings().forEach(action);
+    }
+
     /**
      * Save a single building to storage.
      */
     void saveBuilding(Building building);
 
+    /**
+     * Save several buildings, leaving all others untouched. Implementations override this to persist the whole
+     * batch in a single write.
+     */
+    default void saveBuildingBatch(Collection<Building> buildings) {
+        buildings.forEach(this::saveBuilding);
+    }
+
     /**
      * Load a specific building by name.
      */
     Building loadBuilding(String buildingName);
 
+    /**
+     * Load the price history entries of a building with timestamps in {@code [fromTimestamp, toTimestamp)}, in
+     * history order, or {@code null} if the building is not stored. The default loads the whole building;
+     * backends with an index on timestamps override it to read only the requested range.
+     */
+    default PriceSeries loadPriceHistory(String buildingName, long fromTimestamp, long toTimestamp) {
+        Building building = loadBuilding(buildingName);
+        if (building == null) {
+            return null;
+        }
+        PriceSeries history = building.snapshot().getHistory();
+        PriceSeries range = new PriceSeries();
+        for (int i = 0; i < history.size(); i++) {
+            long timestamp = history.getTimestamp(i);
+            if (timestamp >= fromTimestamp && timestamp < toTimestamp) {
+                range.add(history.getPrice(i), timestamp, history.getChangePercentage(i));
+            }
+        }
+        return range;
+    }
+
+    /**
+     * Load the {@code count} most recently recorded price history entries of a building, oldest first, or
+     * {@code null} if the building is not stored. The default loads the whole building.
+     */
+    default PriceSeries loadLatestPriceHistory(String buildingName, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count cannot be negative.");
+        }
+        Building building = loadBuilding(buildingName);
+        if (building == null) {
+            return null;
+        }
+        PriceSeries history = building.snapshot().getHistory();
+        PriceSeries latest = new PriceSeries(Math.min(count, history.size()));
+        for (int i = Math.max(0, history.size() - count); i < history.size(); i++) {
+            latest.add(history.getPrice(i), history.getTimestamp(i), history.getChangePercentage(i));
+        }
+        return latest;
+    }
+
     /**
      * Delete a building from storage.
      */
@@ -41,4 +101,19 @@ public interface BuildingStorage {
      * Clear all data from storage.
      */
     void clearAll();
+
+    /**
+     * Get the total number of bytes this storage has written since it was created, or -1 if it does not track
+     * them.
+     */
+    default long getBytesWritten() {
+        return -1;
+    }
+
+    /**
+     * Release files, channels or threads held by the storage.
+     */
+    @Override
+    default void close() {
+    }
 }
\ No newline at end of file
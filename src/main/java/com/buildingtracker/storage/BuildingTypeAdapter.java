@@ -0,0 +1,174 @@
+package com.buildingtracker.storage;
+
+import com.buildingtracker.model.Building;
+import com.buildingtracker.model.BuildingSnapshot;
+import com.buildingtracker.model.PriceHistory;
+import com.buildingtracker.model.PriceSeries;
+import com.buildingtracker.model.PriceTrend;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Gson adapter that reads and writes a {@link Building} field by field, one {@link PriceHistory} entry at a
+ * time, without going through reflection or an intermediate JSON tree.
+ *
+ * <p>The document layout is the same as Gson's reflective output for {@link Building}, so files written by
+ * either path can be read by the other.
+ */
+public class BuildingTypeAdapter extends TypeAdapter<Building> {
+
+    @Override
+    public void write(JsonWriter out, Building building) throws IOException {
+        if (building == null) {
+            out.nullValue();
+            return;
+        }
+
+        BuildingSnapshot view = building.snapshot();
+        out.beginObject();
+        out.name("name").value(view.getName());
+        if (view.getAddress() != null) {
+            out.name("address").value(view.getAddress());
+        }
+        out.name("currentPrice").value(view.getCurrentPrice());
+
+        PriceSeries history = view.getHistory();
+        out.name("priceHistoryList").beginArray();
+        for (int i = 0, size = history.size(); i < size; i++) {
+            out.beginObject();
+            out.name("price").value(history.getPrice(i));
+            out.name("timestamp").value(history.getTimestamp(i));
+            out.name("changePercentage").value(history.getChangePercentage(i));
+            out.endObject();
+        }
+        out.endArray();
+
+        PriceTrend trend = view.getRecentTrend();
+        if (trend != null) {
+            out.name("recentTrend").beginObject();
+            if (trend.getTrendDirection() != null) {
+                out.name("trendDirection").value(trend.getTrendDirection());
+            }
+            out.name("averageChange").value(trend.getAverageChange());
+            out.name("volatility").value(trend.getVolatility());
+            out.endObject();
+        }
+        out.endObject();
+    }
+
+    @Override
+    public Building read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        Building building = new Building(null, null);
+        PriceTrend trend = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "name":
+                    building.setName(nextNullableString(in));
+                    break;
+                case "address":
+                    building.setAddress(nextNullableString(in));
+                    break;
+                case "currentPrice":
+                    building.setCurrentPrice(in.nextDouble());
+                    break;
+                case "priceHistoryList":
+                    readPriceHistory(in, building);
+                    break;
+                case "recentTrend":
+                    trend = readTrend(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        if (trend != null) {
+            building.setRecentTrend(trend);
+        } else {
+            building.updateTrend();
+        }
+        return building;
+    }
+
+    private void readPriceHistory(JsonReader in, Building building) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return;
+        }
+
+        in.beginArray();
+        while (in.hasNext()) {
+            double price = 0.0;
+            long timestamp = 0L;
+            double changePercentage = 0.0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "price":
+                        price = in.nextDouble();
+                        break;
+                    case "timestamp":
+                        timestamp = in.nextLong();
+                        break;
+                    case "changePercentage":
+                        changePercentage = in.nextDouble();
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            building.addPriceHistory(price, timestamp, changePercentage);
+        }
+        in.endArray();
+    }
+
+    private PriceTrend readTrend(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        PriceTrend trend = new PriceTrend();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "trendDirection":
+                    trend.setTrendDirection(nextNullableString(in));
+                    break;
+                case "averageChange":
+                    trend.setAverageChange(in.nextDouble());
+                    break;
+                case "volatility":
+                    trend.setVolatility(in.nextDouble());
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return trend;
+    }
+
+    private static String nextNullableString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+}
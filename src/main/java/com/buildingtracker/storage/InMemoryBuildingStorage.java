@@ -0,0 +1,62 @@
+package com.buildingtracker.storage;
+
+import com.buildingtracker.model.Building;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Non-persistent implementation of building storage that keeps building references in memory. Useful for
+ * tests, benchmarks and as the backing store of short-lived services.
+ */
+public class InMemoryBuildingStorage implements BuildingStorage {
+    private final Map<String, Building> buildings = new ConcurrentHashMap<>();
+
+    @Override
+    public void saveBuildings(List<Building> newBuildings) {
+        buildings.clear();
+        for (Building building : newBuildings) {
+            buildings.put(building.getName(), building);
+        }
+    }
+
+    @Override
+    public List<Building> loadBuildings() {
+        return new ArrayList<>(buildings.values());
+    }
+
+    @Override
+    public void saveBuilding(Building building) {
+        buildings.put(building.getName(), building);
+    }
+
+    @Override
+    public void saveBuildingBatch(Collection<Building> batch) {
+        for (Building building : batch) {
+            buildings.put(building.getName(), building);
+        }
+    }
+
+    @Override
+    public Building loadBuilding(String buildingName) {
+        return buildings.get(buildingName);
+    }
+
+    @Override
+    public void deleteBuilding(String buildingName) {
+        buildings.remove(buildingName);
+    }
+
+    @Override
+    public boolean exists() {
+        return !buildings.isEmpty();
+    }
+
+    @Override
+    public void clearAll() {
+        buildings.clear();
+    }
+}
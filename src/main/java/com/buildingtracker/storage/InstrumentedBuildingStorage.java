@@ -0,0 +1,173 @@
+package com.buildingtracker.storage;
+
+import com.buildingtracker.metrics.Counter;
+import com.buildingtracker.metrics.LatencyHistogram;
+import com.buildingtracker.metrics.MetricsRegistry;
+import com.buildingtracker.model.Building;
+import com.buildingtracker.model.PriceSeries;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Decorator that records the latency of every storage operation in a {@link MetricsRegistry}.
+ *
+ * <p>Metrics are named {@code <prefix>.<operation>}, e.g. {@code storage.loadBuilding}. Saved buildings are
+ * counted in {@code <prefix>.buildingsSaved}, and the wrapped storage's {@link #getBytesWritten()} is published
+ * as the gauge {@code <prefix>.bytesWritten}. Failed operations are timed as well.
+ */
+public class InstrumentedBuildingStorage implements BuildingStorage {
+    private static final String DEFAULT_PREFIX = "storage";
+
+    private final BuildingStorage delegate;
+    private final LatencyHistogram saveBuildings;
+    private final LatencyHistogram loadBuildings;
+    private final LatencyHistogram forEachBuilding;
+    private final LatencyHistogram saveBuilding;
+    private final LatencyHistogram saveBuildingBatch;
+    private final LatencyHistogram loadBuilding;
+    private final LatencyHistogram loadPriceHistory;
+    private final LatencyHistogram deleteBuilding;
+    private final Counter buildingsSaved;
+
+    /**
+     * Constructor using the default {@code storage} metric prefix.
+     */
+    public InstrumentedBuildingStorage(BuildingStorage delegate, MetricsRegistry registry) {
+        this(delegate, registry, DEFAULT_PREFIX);
+    }
+
+    /**
+     * Constructor with a metric prefix, to tell several instrumented storages apart in one registry.
+     */
+    public InstrumentedBuildingStorage(BuildingStorage delegate, MetricsRegistry registry, String prefix) {
+        if (delegate == null || registry == null) {
+            throw new IllegalArgumentException("Delegate storage and registry cannot be null.");
+        }
+        this.delegate = delegate;
+        this.saveBuildings = registry.histogram(prefix + ".saveBuildings");
+        this.loadBuildings = registry.histogram(prefix + ".loadBuildings");
+        this.forEachBuilding = registry.histogram(prefix + ".forEachBuilding");
+        this.saveBuilding = registry.histogram(prefix + ".saveBuilding");
+        this.saveBuildingBatch = registry.histogram(prefix + ".saveBuildingBatch");
+        this.loadBuilding = registry.histogram(prefix + ".loadBuilding");
+        this.loadPriceHistory = registry.histogram(prefix + ".loadPriceHistory");
+        this.deleteBuilding = registry.histogram(prefix + ".deleteBuilding");
+        this.buildingsSaved = registry.counter(prefix + ".buildingsSaved");
+        registry.gauge(prefix + ".bytesWritten", delegate::getBytesWritten);
+    }
+
+    @Override
+    public void saveBuildings(List<Building> buildings) {
+        long start = System.nanoTime();
+        try {
+            delegate.saveBuildings(buildings);
+            buildingsSaved.add(buildings.size());
+        } finally {
+            saveBuildings.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Building> loadBuildings() {
+        long start = System.nanoTime();
+        try {
+            return delegate.loadBuildings();
+        } finally {
+            loadBuildings.recordSince(start);
+        }
+    }
+
+    @Override
+    public void forEachBuilding(Consumer<Building> action) {
+        long start = System.nanoTime();
+        try {
+            delegate.forEachBuilding(action);
+        } finally {
+            forEachBuilding.recordSince(start);
+        }
+    }
+
+    @Override
+    public void saveBuilding(Building building) {
+        long start = System.nanoTime();
+        try {
+            delegate.saveBuilding(building);
+            buildingsSaved.increment();
+        } finally {
+            saveBuilding.recordSince(start);
+        }
+    }
+
+    @Override
+    public void saveBuildingBatch(Collection<Building> buildings) {
+        long start = System.nanoTime();
+        try {
+            delegate.saveBuildingBatch(buildings);
+            buildingsSaved.add(buildings.size());
+        } finally {
+            saveBuildingBatch.recordSince(start);
+        }
+    }
+
+    @Override
+    public Building loadBuilding(String buildingName) {
+        long start = System.nanoTime();
+        try {
+            return delegate.loadBuilding(buildingName);
+        } finally {
+            loadBuilding.recordSince(start);
+        }
+    }
+
+    @Override
+    public PriceSeries loadPriceHistory(String buildingName, long fromTimestamp, long toTimestamp) {
+        long start = System.nanoTime();
+        try {
+            return delegate.loadPriceHistory(buildingName, fromTimestamp, toTimestamp);
+        } finally {
+            loadPriceHistory.recordSince(start);
+        }
+    }
+
+    @Override
+    public PriceSeries loadLatestPriceHistory(String buildingName, int count) {
+        long start = System.nanoTime();
+        try {
+            return delegate.loadLatestPriceHistory(buildingName, count);
+        } finally {
+            loadPriceHistory.recordSince(start);
+        }
+    }
+
+    @Override
+    public void deleteBuilding(String buildingName) {
+        long start = System.nanoTime();
+        try {
+            delegate.deleteBuilding(buildingName);
+        } finally {
+            deleteBuilding.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean exists() {
+        return delegate.exists();
+    }
+
+    @Override
+    public void clearAll() {
+        delegate.clearAll();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return delegate.getBytesWritten();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,501 @@
+package com.buildingtracker.storage;
+
+import com.buildingtracker.model.Building;
+import com.buildingtracker.model.BuildingSnapshot;
+import com.buildingtracker.model.PriceSeries;
+import com.buildingtracker.model.PriceTrend;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * JDBC implementation of building storage for an embedded, file-local database. H2 is bundled; any driver that
+ * understands the plain SQL used here, such as SQLite, works with its own JDBC URL.
+ *
+ * <p>The schema is normalized into a {@code buildings} table and a {@code price_history} table keyed by building
+ * and sequence number, with a secondary index on building and timestamp. Time-range and latest-entry queries
+ * therefore read only the requested rows. All inserts use prepared-statement batches, and each public operation
+ * runs in one transaction.
+ *
+ * <p>Saving a building appends only the history entries beyond those already stored, as long as the last stored
+ * entry still matches; otherwise its history is rewritten. Like the write-ahead log, this assumes entries are
+ * appended rather than edited in place.
+ */
+public class JdbcBuildingStorage implements BuildingStorage {
+    private static final String DEFAULT_URL = "jdbc:h2:file:./buildings-db";
+    private static final int BATCH_SIZE = 1_000;
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS buildings ("
+            + "id BIGINT PRIMARY KEY, "
+            + "name VARCHAR(1024) NOT NULL UNIQUE, "
+            + "address VARCHAR(1024), "
+            + "current_price DOUBLE PRECISION NOT NULL, "
+            + "trend_direction VARCHAR(16), "
+            + "average_change DOUBLE PRECISION, "
+            + "volatility DOUBLE PRECISION, "
+            + "history_size INT NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS price_history ("
+            + "building_id BIGINT NOT NULL, "
+            + "seq INT NOT NULL, "
+            + "recorded_at BIGINT NOT NULL, "
+            + "price DOUBLE PRECISION NOT NULL, "
+            + "change_percentage DOUBLE PRECISION NOT NULL, "
+            + "PRIMARY KEY (building_id, seq))",
+        "CREATE INDEX IF NOT EXISTS price_history_building_time ON price_history (building_id, recorded_at)"
+    };
+
+    private static final String SELECT_BUILDING_COLUMNS =
+            "SELECT id, name, address, current_price, trend_direction, average_change, volatility, history_size "
+                    + "FROM buildings";
+    private static final String INSERT_BUILDING =
+            "INSERT INTO buildings (id, name, address, current_price, trend_direction, average_change, volatility, "
+                    + "history_size) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_BUILDING =
+            "UPDATE buildings SET address = ?, current_price = ?, trend_direction = ?, average_change = ?, "
+                    + "volatility = ?, history_size = ? WHERE id = ?";
+    private static final String INSERT_HISTORY =
+            "INSERT INTO price_history (building_id, seq, recorded_at, price, change_percentage) "
+                    + "VALUES (?, ?, ?, ?, ?)";
+    private static final String SELECT_HISTORY_COLUMNS =
+            "SELECT price, recorded_at, change_percentage FROM price_history";
+    private static final String SELECT_HISTORY_ENTRY = SELECT_HISTORY_COLUMNS + " WHERE building_id = ? AND seq = ?";
+    private static final String SELECT_STORED_BUILDING = "SELECT id, history_size FROM buildings WHERE name = ?";
+    private static final String DELETE_HISTORY = "DELETE FROM price_history WHERE building_id = ?";
+
+    private final String jdbcUrl;
+    private final Connection connection;
+
+    /**
+     * Constructor with the default H2 database file.
+     */
+    public JdbcBuildingStorage() {
+        this(DEFAULT_URL);
+    }
+
+    /**
+     * Constructor with a JDBC URL, for example {@code jdbc:h2:file:/data/buildings} or
+     * {@code jdbc:sqlite:buildings.db}. The schema is created if missing.
+     */
+    public JdbcBuildingStorage(String jdbcUrl) {
+        this.jdbcUrl = jdbcUrl;
+        try {
+            this.connection = DriverManager.getConnection(jdbcUrl);
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                for (String ddl : SCHEMA) {
+                    statement.execute(ddl);
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to open database " + jdbcUrl, e);
+        }
+    }
+
+    @Override
+    public synchronized void saveBuildings(List<Building> buildings) {
+        inTransaction("save buildings", () -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM price_history");
+                statement.executeUpdate("DELETE FROM buildings");
+            }
+            writeBuildings(buildings);
+            return null;
+        });
+    }
+
+    @Override
+    public synchronized List<Building> loadBuildings() {
+        List<Building> buildings = new ArrayList<>();
+        forEachBuilding(buildings::add);
+        return buildings;
+    }
+
+    /**
+     * Stream every stored building, merging the building and history tables in one pass each.
+     */
+    @Override
+    public synchronized void forEachBuilding(Consumer<Building> action) {
+        inTransaction("load buildings", () -> {
+            try (Statement buildingStatement = connection.createStatement();
+                 Statement historyStatement = connection.createStatement();
+                 ResultSet buildingRows = buildingStatement.executeQuery(SELECT_BUILDING_COLUMNS + " ORDER BY id");
+                 ResultSet historyRows = historyStatement.executeQuery(
+                         "SELECT building_id, price, recorded_at, change_percentage FROM price_history "
+                                 + "ORDER BY building_id, seq")) {
+                boolean hasHistory = historyRows.next();
+                while (buildingRows.next()) {
+                    long id = buildingRows.getLong(1);
+                    Building building = new Building(buildingRows.getString(2), buildingRows.getString(3),
+                            buildingRows.getDouble(4));
+                    while (hasHistory && historyRows.getLong(1) < id) {
+                        // Rows of a building deleted outside this storage
+                        hasHistory = historyRows.next();
+                    }
+                    while (hasHistory && historyRows.getLong(1) == id) {
+                        building.addPriceHistory(historyRows.getDouble(2), historyRows.getLong(3),
+                                historyRows.getDouble(4));
+                        hasHistory = historyRows.next();
+                    }
+                    applyTrend(building, buildingRows);
+                    action.accept(building);
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public synchronized void saveBuilding(Building building) {
+        saveBuildingBatch(Collections.singletonList(building));
+    }
+
+    @Override
+    public synchronized void saveBuildingBatch(Collection<Building> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        inTransaction("save buildings", () -> {
+            writeBuildings(batch);
+            return null;
+        });
+    }
+
+    @Override
+    public synchronized Building loadBuilding(String buildingName) {
+        return inTransaction("load building '" + buildingName + "'", () -> {
+            try (PreparedStatement select = connection.prepareStatement(SELECT_BUILDING_COLUMNS + " WHERE name = ?")) {
+                select.setString(1, buildingName);
+                try (ResultSet row = select.executeQuery()) {
+                    if (!row.next()) {
+                        return null;
+                    }
+                    Building building = new Building(row.getString(2), row.getString(3), row.getDouble(4));
+                    try (PreparedStatement history = connection.prepareStatement(
+                            SELECT_HISTORY_COLUMNS + " WHERE building_id = ? ORDER BY seq")) {
+                        history.setLong(1, row.getLong(1));
+                        try (ResultSet entries = history.executeQuery()) {
+                            while (entries.next()) {
+                                building.addPriceHistory(entries.getDouble(1), entries.getLong(2),
+                                        entries.getDouble(3));
+                            }
+                        }
+                    }
+                    applyTrend(building, row);
+                    return building;
+                }
+            }
+        });
+    }
+
+    /**
+     * Read only the entries in the time range, through the index on building and timestamp.
+     */
+    @Override
+    public synchronized PriceSeries loadPriceHistory(String buildingName, long fromTimestamp, long toTimestamp) {
+        return inTransaction("load price history of '" + buildingName + "'", () -> {
+            StoredBuilding stored = findBuilding(buildingName);
+            if (stored == null) {
+                return null;
+            }
+            try (PreparedStatement select = connection.prepareStatement(SELECT_HISTORY_COLUMNS
+                    + " WHERE building_id = ? AND recorded_at >= ? AND recorded_at < ? ORDER BY seq")) {
+                select.setLong(1, stored.id);
+                select.setLong(2, fromTimestamp);
+                select.setLong(3, toTimestamp);
+                return readSeries(select);
+            }
+        });
+    }
+
+    /**
+     * Read only the last {@code count} entries, through the primary key on building and sequence number.
+     */
+    @Override
+    public synchronized PriceSeries loadLatestPriceHistory(String buildingName, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count cannot be negative.");
+        }
+        return inTransaction("load price history of '" + buildingName + "'", () -> {
+            StoredBuilding stored = findBuilding(buildingName);
+            if (stored == null) {
+                return null;
+            }
+            try (PreparedStatement select = connection.prepareStatement(SELECT_HISTORY_COLUMNS
+                    + " WHERE building_id = ? AND seq >= ? ORDER BY seq")) {
+                select.setLong(1, stored.id);
+                select.setInt(2, Math.max(0, stored.historySize - count));
+                return readSeries(select);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void deleteBuilding(String buildingName) {
+        inTransaction("delete building '" + buildingName + "'", () -> {
+            StoredBuilding stored = findBuilding(buildingName);
+            if (stored != null) {
+                deleteHistory(stored.id);
+                try (PreparedStatement delete = connection.prepareStatement("DELETE FROM buildings WHERE id = ?")) {
+                    delete.setLong(1, stored.id);
+                    delete.executeUpdate();
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public synchronized boolean exists() {
+        return inTransaction("query " + jdbcUrl, () -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet row = statement.executeQuery("SELECT 1 FROM buildings LIMIT 1")) {
+                return row.next();
+            }
+        });
+    }
+
+    @Override
+    public synchronized void clearAll() {
+        inTransaction("clear " + jdbcUrl, () -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM price_history");
+                statement.executeUpdate("DELETE FROM buildings");
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to close database " + jdbcUrl, e);
+        }
+    }
+
+    /**
+     * Insert or update the given buildings and append or rewrite their history, batching every statement. The
+     * building rows and history deletions are executed before any history row, so history rows never reference a
+     * missing building; the lookups of stored buildings reuse two statements prepared once per call.
+     */
+    private void writeBuildings(Collection<Building> buildings) throws SQLException {
+        // Last write of each name wins, as with repeated single saves
+        Map<String, BuildingSnapshot> snapshots = new LinkedHashMap<>();
+        for (Building building : buildings) {
+            BuildingSnapshot snapshot = building.snapshot();
+            snapshots.put(snapshot.getName(), snapshot);
+        }
+
+        long[] ids = new long[snapshots.size()];
+        int[] firstNewEntries = new int[snapshots.size()];
+        long nextId = -1;
+        try (PreparedStatement selectStored = connection.prepareStatement(SELECT_STORED_BUILDING);
+             PreparedStatement selectEntry = connection.prepareStatement(SELECT_HISTORY_ENTRY);
+             PreparedStatement insertBuilding = connection.prepareStatement(INSERT_BUILDING);
+             PreparedStatement updateBuilding = connection.prepareStatement(UPDATE_BUILDING);
+             PreparedStatement deleteHistory = connection.prepareStatement(DELETE_HISTORY)) {
+            int index = 0;
+            for (BuildingSnapshot snapshot : snapshots.values()) {
+                StoredBuilding stored = findBuilding(selectStored, snapshot.getName());
+                if (stored == null) {
+                    if (nextId < 0) {
+                        nextId = nextBuildingId();
+                    }
+                    ids[index] = nextId++;
+                    bindBuilding(insertBuilding, 2, snapshot);
+                    insertBuilding.setLong(1, ids[index]);
+                    insertBuilding.setString(2, snapshot.getName());
+                    insertBuilding.addBatch();
+                    firstNewEntries[index] = 0;
+                } else {
+                    ids[index] = stored.id;
+                    bindBuilding(updateBuilding, 0, snapshot);
+                    updateBuilding.setLong(7, stored.id);
+                    updateBuilding.addBatch();
+                    if (isAppendOnly(selectEntry, stored, snapshot.getHistory())) {
+                        firstNewEntries[index] = stored.historySize;
+                    } else {
+                        deleteHistory.setLong(1, stored.id);
+                        deleteHistory.addBatch();
+                        firstNewEntries[index] = 0;
+                    }
+                }
+                index++;
+            }
+            // Buildings first, so history rows never reference a missing building
+            insertBuilding.executeBatch();
+            updateBuilding.executeBatch();
+            deleteHistory.executeBatch();
+        }
+
+        try (PreparedStatement insertHistory = connection.prepareStatement(INSERT_HISTORY)) {
+            int pendingHistory = 0;
+            int index = 0;
+            for (BuildingSnapshot snapshot : snapshots.values()) {
+                PriceSeries history = snapshot.getHistory();
+                for (int i = firstNewEntries[index]; i < history.size(); i++) {
+                    insertHistory.setLong(1, ids[index]);
+                    insertHistory.setInt(2, i);
+                    insertHistory.setLong(3, history.getTimestamp(i));
+                    insertHistory.setDouble(4, history.getPrice(i));
+                    insertHistory.setDouble(5, history.getChangePercentage(i));
+                    insertHistory.addBatch();
+                    if (++pendingHistory == BATCH_SIZE) {
+                        insertHistory.executeBatch();
+                        pendingHistory = 0;
+                    }
+                }
+                index++;
+            }
+            insertHistory.executeBatch();
+        }
+    }
+
+    /**
+     * Bind address, price, trend and history size to the statement's parameters after {@code offset}.
+     */
+    private static void bindBuilding(PreparedStatement statement, int offset, BuildingSnapshot snapshot)
+            throws SQLException {
+        PriceTrend trend = snapshot.getRecentTrend();
+        statement.setString(offset + 1, snapshot.getAddress());
+        statement.setDouble(offset + 2, snapshot.getCurrentPrice());
+        if (trend != null) {
+            statement.setString(offset + 3, trend.getTrendDirection());
+            statement.setDouble(offset + 4, trend.getAverageChange());
+            statement.setDouble(offset + 5, trend.getVolatility());
+        } else {
+            statement.setNull(offset + 3, Types.VARCHAR);
+            statement.setNull(offset + 4, Types.DOUBLE);
+            statement.setNull(offset + 5, Types.DOUBLE);
+        }
+        statement.setInt(offset + 6, snapshot.getHistoryLength());
+    }
+
+    /**
+     * Whether the stored history is a prefix of {@code history}, judged by its size and last entry.
+     */
+    private static boolean isAppendOnly(PreparedStatement selectEntry, StoredBuilding stored, PriceSeries history)
+            throws SQLException {
+        if (stored.historySize > history.size()) {
+            return false;
+        }
+        if (stored.historySize == 0) {
+            return true;
+        }
+        int last = stored.historySize - 1;
+        selectEntry.setLong(1, stored.id);
+        selectEntry.setInt(2, last);
+        try (ResultSet row = selectEntry.executeQuery()) {
+            return row.next()
+                    && Double.compare(row.getDouble(1), history.getPrice(last)) == 0
+                    && row.getLong(2) == history.getTimestamp(last)
+                    && Double.compare(row.getDouble(3), history.getChangePercentage(last)) == 0;
+        }
+    }
+
+    private StoredBuilding findBuilding(String buildingName) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(SELECT_STORED_BUILDING)) {
+            return findBuilding(select, buildingName);
+        }
+    }
+
+    private static StoredBuilding findBuilding(PreparedStatement select, String buildingName) throws SQLException {
+        select.setString(1, buildingName);
+        try (ResultSet row = select.executeQuery()) {
+            return row.next() ? new StoredBuilding(row.getLong(1), row.getInt(2)) : null;
+        }
+    }
+
+    private long nextBuildingId() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet row = statement.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM buildings")) {
+            row.next();
+            return row.getLong(1);
+        }
+    }
+
+    private void deleteHistory(long buildingId) throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement(DELETE_HISTORY)) {
+            delete.setLong(1, buildingId);
+            delete.executeUpdate();
+        }
+    }
+
+    private static PriceSeries readSeries(PreparedStatement select) throws SQLException {
+        PriceSeries series = new PriceSeries();
+        try (ResultSet entries = select.executeQuery()) {
+            while (entries.next()) {
+                series.add(entries.getDouble(1), entries.getLong(2), entries.getDouble(3));
+            }
+        }
+        return series;
+    }
+
+    /**
+     * Restore the stored trend, or compute it when none was stored, which also publishes the loaded state.
+     */
+    private static void applyTrend(Building building, ResultSet row) throws SQLException {
+        String direction = row.getString(5);
+        if (direction != null) {
+            building.setRecentTrend(new PriceTrend(direction, row.getDouble(6), row.getDouble(7)));
+        } else {
+            building.updateTrend();
+        }
+    }
+
+    /**
+     * Run {@code work} in a transaction, rolling back on any failure and rethrowing it unchecked.
+     */
+    private <T> T inTransaction(String description, SqlWork<T> work) {
+        try {
+            T result = work.run();
+            connection.commit();
+            return result;
+        } catch (SQLException e) {
+            rollback(e);
+            throw new IllegalStateException("Failed to " + description + " in " + jdbcUrl, e);
+        } catch (RuntimeException | Error e) {
+            // Statements already executed would otherwise be committed by the next transaction
+            rollback(e);
+            throw e;
+        }
+    }
+
+    private void rollback(Throwable failure) {
+        try {
+            connection.rollback();
+        } catch (SQLException rollbackFailure) {
+            failure.addSuppressed(rollbackFailure);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SqlWork<T> {
+        T run() throws SQLException;
+    }
+
+    private static final class StoredBuilding {
+        private final long id;
+        private final int historySize;
+
+        private StoredBuilding(long id, int historySize) {
+            this.id = id;
+            this.historySize = historySize;
+        }
+    }
+}
@@ -1,43 +1,416 @@
-import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.List;
+package com.buildingtracker.storage;
+
+import com.buildingtracker.model.Building;
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Type;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
-public class JsonBuildingStorage {
+/**
+ * JSON file based implementation of building storage.
+ *
+ * <p>In streaming mode the file is read and written one building at a time through buffered file channels,
+ * so no operation needs the whole document or the whole building list in memory at once. Otherwise the file is
+ * handled as a single JSON string, which is simpler but holds several copies of the data during load and save.
+ */
+public class JsonBuildingStorage implements BuildingStorage {
+    private static final String DEFAULT_FILE_PATH = "buildings.json";
+    private static final int BUFFER_SIZE = 64 * 1024;
 
-    private final String filePath;
+    private final Path filePath;
+    private final boolean streaming;
     private final Gson gson;
+    private final BuildingTypeAdapter buildingAdapter = new BuildingTypeAdapter();
+    private final AtomicLong bytesWritten = new AtomicLong();
 
+    /**
+     * Constructor with default file path.
+     */
+    public JsonBuildingStorage() {
+        this(DEFAULT_FILE_PATH);
+    }
+
+    /**
+     * Constructor with custom file path.
+     */
     public JsonBuildingStorage(String filePath) {
-        this.filePath = filePath;
-        this.gson = new Gson();
+        this(filePath, false);
     }
 
-    public void saveBuildings(List<Building> buildings) throws IOException {
-        String json = gson.toJson(buildings);
-        Files.write(Paths.get(filePath), json.getBytes());
+    /**
+     * Constructor with custom file path and choice of streaming mode.
+     */
+    public JsonBuildingStorage(String filePath, boolean streaming) {
+        this.filePath = Paths.get(filePath);
+        this.streaming = streaming;
+        this.gson = new GsonBuilder()
+                .registerTypeAdapter(Building.class, buildingAdapter)
+                .create();
     }
 
-    public List<Building> loadBuildings() throws IOException {
-        Type buildingListType = new TypeToken<List<Building>>(){}.getType();
-        String json = new String(Files.readAllBytes(Paths.get(filePath)));
-        return gson.fromJson(json, buildingListType);
+    /**
+     * Whether reads and writes stream one building at a time.
+     */
+    public boolean isStreaming() {
+        return streaming;
     }
-}
 
-class Building {
-    private String name;
-    private String address;
-    private int floors;
-
-    // Getters and Setters
-    public String getName() { return name; }
-    public void setName(String name) { this.name = name; }
-    public String getAddress() { return address; }
-    public void setAddress(String address) { this.address = address; }
-    public int getFloors() { return floors; }
-    public void setFloors(int floors) { this.floors = floors; }
-}
\ No newline at end of file
+    @Override
+    public synchronized void saveBuildings(List<Building> buildings) {
+        try {
+            if (streaming) {
+                writeStreaming(writer -> {
+                    for (Building building : buildings) {
+                        buildingAdapter.write(writer, building);
+                    }
+                });
+            } else {
+                byte[] json = gson.toJson(buildings).getBytes(StandardCharsets.UTF_8);
+                Files.write(filePath, json);
+                bytesWritten.addAndGet(json.length);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save buildings to " + filePath, e);
+        }
+    }
+
+    @Override
+    public synchronized List<Building> loadBuildings() {
+        if (!exists()) {
+            return new ArrayList<>();
+        }
+
+        if (streaming) {
+            List<Building> buildings = new ArrayList<>();
+            forEachBuilding(buildings::add);
+            return buildings;
+        }
+
+        Type buildingListType = new TypeToken<List<Building>>() { }.getType();
+        try {
+            String json = new String(Files.readAllBytes(filePath), StandardCharsets.UTF_8);
+            List<Building> buildings = gson.fromJson(json, buildingListType);
+            return buildings != null ? buildings : new ArrayList<>();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load buildings from " + filePath, e);
+        }
+    }
+
+    /**
+     * Stream every stored building to the given action, one at a time, regardless of mode. Each building is
+     * eligible for garbage collection as soon as the action returns.
+     */
+    @Override
+    public synchronized void forEachBuilding(Consumer<Building> action) {
+        if (!exists()) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ);
+             JsonReader reader = newReader(channel)) {
+            if (reader.peek() == JsonToken.NULL) {
+                return;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                Building building = buildingAdapter.read(reader);
+                if (building != null) {
+                    action.accept(building);
+                }
+            }
+            reader.endArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read buildings from " + filePath, e);
+        }
+    }
+
+    @Override
+    public synchronized void saveBuilding(Building building) {
+        if (streaming) {
+            rewriteStreaming(Collections.singleton(building.getName()), Collections.singletonList(building));
+            return;
+        }
+
+        List<Building> buildings = loadBuildings();
+        buildings.removeIf(b -> b.getName().equals(building.getName()));
+        buildings.add(building);
+        saveBuildings(buildings);
+    }
+
+    @Override
+    public synchronized void saveBuildingBatch(Collection<Building> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Map<String, Building> replacements = new LinkedHashMap<>();
+        for (Building building : batch) {
+            replacements.put(building.getName(), building);
+        }
+
+        if (streaming) {
+            rewriteStreaming(replacements.keySet(), replacements.values());
+            return;
+        }
+
+        List<Building> buildings = loadBuildings();
+        buildings.removeIf(b -> replacements.containsKey(b.getName()));
+        buildings.addAll(replacements.values());
+        saveBuildings(buildings);
+    }
+
+    @Override
+    public synchronized Building loadBuilding(String buildingName) {
+        Building[] found = new Building[1];
+        forEachBuilding(b -> {
+            if (found[0] == null && b.getName().equals(buildingName)) {
+                found[0] = b;
+            }
+        });
+        return found[0];
+    }
+
+    @Override
+    public synchronized void deleteBuilding(String buildingName) {
+        if (streaming) {
+            if (exists()) {
+                rewriteStreaming(Collections.singleton(buildingName), Collections.emptyList());
+            }
+            return;
+        }
+
+        List<Building> buildings = loadBuildings();
+        if (buildings.removeIf(b -> b.getName().equals(buildingName))) {
+            saveBuildings(buildings);
+        }
+    }
+
+    /**
+     * Get the total number of bytes written to the storage file since this storage was created.
+     */
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    @Override
+    public boolean exists() {
+        return Files.exists(filePath);
+    }
+
+    @Override
+    public synchronized void clearAll() {
+        try {
+            Files.deleteIfExists(filePath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to clear " + filePath, e);
+        }
+    }
+
+    /**
+     * Copy the stored buildings into a new file, dropping the ones named in {@code removed} and appending
+     * {@code replacements}. Kept records are copied token by token, so they are never decoded into buildings and
+     * their numbers keep their exact text.
+     */
+    private void rewriteStreaming(Set<String> removed, Collection<Building> replacements) {
+        try {
+            writeStreaming(writer -> {
+                if (exists()) {
+                    try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ);
+                         JsonReader reader = newReader(channel)) {
+                        copyRecords(reader, writer, removed);
+                    }
+                }
+                for (Building building : replacements) {
+                    buildingAdapter.write(writer, building);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save buildings to " + filePath, e);
+        }
+    }
+
+    /**
+     * Copy every building record of the stored array whose name is not in {@code removed}.
+     */
+    private void copyRecords(JsonReader reader, JsonWriter writer, Set<String> removed) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() == JsonToken.NULL) {
+                // Dropped on load as well
+                reader.nextNull();
+                continue;
+            }
+            copyRecord(reader, writer, removed);
+        }
+        reader.endArray();
+    }
+
+    /**
+     * Copy one building record unless its name is in {@code removed}. Properties before the name, normally none
+     * as the name is written first, are held as JSON trees until the name decides whether the record is kept.
+     */
+    private void copyRecord(JsonReader reader, JsonWriter writer, Set<String> removed) throws IOException {
+        Map<String, JsonElement> leading = new LinkedHashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String property = reader.nextName();
+            if (!property.equals("name")) {
+                leading.put(property, JsonParser.parseReader(reader));
+                continue;
+            }
+            String name = null;
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+            } else {
+                name = reader.nextString();
+            }
+            if (removed.contains(name)) {
+                while (reader.hasNext()) {
+                    reader.nextName();
+                    reader.skipValue();
+                }
+                reader.endObject();
+                return;
+            }
+            writer.beginObject();
+            writeProperties(leading, writer);
+            writer.name("name");
+            if (name != null) {
+                writer.value(name);
+            } else {
+                writer.nullValue();
+            }
+            while (reader.hasNext()) {
+                writer.name(reader.nextName());
+                copyValue(reader, writer);
+            }
+            writer.endObject();
+            reader.endObject();
+            return;
+        }
+        reader.endObject();
+        // A record without a name cannot be a replaced one
+        writer.beginObject();
+        writeProperties(leading, writer);
+        writer.endObject();
+    }
+
+    private void writeProperties(Map<String, JsonElement> properties, JsonWriter writer) throws IOException {
+        for (Map.Entry<String, JsonElement> entry : properties.entrySet()) {
+            writer.name(entry.getKey());
+            gson.toJson(entry.getValue(), writer);
+        }
+    }
+
+    private static void copyValue(JsonReader reader, JsonWriter writer) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_ARRAY:
+                reader.beginArray();
+                writer.beginArray();
+                while (reader.hasNext()) {
+                    copyValue(reader, writer);
+                }
+                reader.endArray();
+                writer.endArray();
+                break;
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                writer.beginObject();
+                while (reader.hasNext()) {
+                    writer.name(reader.nextName());
+                    copyValue(reader, writer);
+                }
+                reader.endObject();
+                writer.endObject();
+                break;
+            case STRING:
+                writer.value(reader.nextString());
+                break;
+            case NUMBER:
+                writer.jsonValue(reader.nextString());
+                break;
+            case BOOLEAN:
+                writer.value(reader.nextBoolean());
+                break;
+            case NULL:
+                reader.nextNull();
+                writer.nullValue();
+                break;
+            default:
+                throw new IOException("Unexpected " + reader.peek() + " in " + reader);
+        }
+    }
+
+    /**
+     * Write the array of building records produced by {@code records} to a temporary file and move it over the
+     * storage file.
+     */
+    private void writeStreaming(RecordSource records) throws IOException {
+        Path parent = filePath.toAbsolutePath().getParent();
+        Path tempFile = Files.createTempFile(parent, filePath.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+                 JsonWriter writer = newWriter(channel)) {
+                writer.beginArray();
+                records.writeTo(writer);
+                writer.endArray();
+            }
+            bytesWritten.addAndGet(Files.size(tempFile));
+            Files.move(tempFile, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static JsonReader newReader(FileChannel channel) {
+        return new JsonReader(new BufferedReader(
+                new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8), BUFFER_SIZE));
+    }
+
+    private static JsonWriter newWriter(FileChannel channel) {
+        return new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8), BUFFER_SIZE));
+    }
+
+    /**
+     * Writes the elements of the stored array.
+     */
+    private interface RecordSource {
+        void writeTo(JsonWriter writer) throws IOException;
+    }
+}
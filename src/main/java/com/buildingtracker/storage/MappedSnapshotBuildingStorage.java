@@ -0,0 +1,521 @@
+package com.buildingtracker.storage;
+
+import com.buildingtracker.model.Building;
+import com.buildingtracker.model.BuildingSnapshot;
+import com.buildingtracker.model.PriceSeries;
+import com.buildingtracker.model.PriceTrend;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Read-optimized building storage in a compact binary snapshot file that is memory mapped on open.
+ *
+ * <p>Layout, all big-endian:
+ * <ul>
+ *   <li>a fixed 32 byte header: magic, format version, building count, directory checksum, directory offset and
+ *   directory length;</li>
+ *   <li>one history block per building: its timestamps, prices and change percentages as three packed columns;</li>
+ *   <li>the building directory: per building its name, address, current price, trend, history size and the offset
+ *   of its history block.</li>
+ * </ul>
+ *
+ * <p>Opening reads only the header and the directory, so startup time depends on the number of buildings and not
+ * on history size. Loaded buildings decode their history from the mapping on first use. The file is mapped in
+ * regions of at most 1 GiB and no history block crosses a region boundary.
+ *
+ * <p>Every save rewrites the file, copying unchanged history blocks byte for byte, so this storage suits startup
+ * snapshots and bulk saves rather than frequent single-building writes. Buildings loaded from a previous version
+ * of the file stay readable after a rewrite because their mapping outlives the file name.
+ */
+public class MappedSnapshotBuildingStorage implements BuildingStorage {
+    private static final String DEFAULT_FILE_PATH = "buildings.snapshot";
+    private static final int MAGIC = 0x4250544D;  // "BPTM"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int ENTRY_BYTES = Long.BYTES + 2 * Double.BYTES;
+    private static final long REGION_SIZE = 1L << 30;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path filePath;
+    private MappedByteBuffer[] regions;
+    private Map<String, DirectoryEntry> directory;
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    /**
+     * Constructor with default file path.
+     */
+    public MappedSnapshotBuildingStorage() {
+        this(DEFAULT_FILE_PATH);
+    }
+
+    /**
+     * Constructor with custom file path.
+     */
+    public MappedSnapshotBuildingStorage(String filePath) {
+        this.filePath = Paths.get(filePath);
+    }
+
+    /**
+     * Write a snapshot file from an existing JSON storage file, streaming one building at a time so that the JSON
+     * document never has to fit in memory.
+     */
+    public static void convertFromJson(String jsonPath, String snapshotPath) {
+        JsonBuildingStorage source = new JsonBuildingStorage(jsonPath, true);
+        if (!source.exists()) {
+            throw new IllegalArgumentException("JSON file not found: " + jsonPath);
+        }
+        MappedSnapshotBuildingStorage target = new MappedSnapshotBuildingStorage(snapshotPath);
+        target.write(writer -> source.forEachBuilding(b -> writer.append(b.snapshot())));
+    }
+
+    @Override
+    public synchronized void saveBuildings(List<Building> buildings) {
+        write(writer -> buildings.forEach(b -> writer.append(b.snapshot())));
+    }
+
+    /**
+     * Get every stored building. Only the directory is decoded; each building decodes its history on first use.
+     */
+    @Override
+    public synchronized List<Building> loadBuildings() {
+        ensureOpen();
+        List<Building> buildings = new ArrayList<>(directory.size());
+        for (DirectoryEntry entry : directory.values()) {
+            buildings.add(entry.toBuilding(regions));
+        }
+        return buildings;
+    }
+
+    @Override
+    public synchronized void forEachBuilding(Consumer<Building> action) {
+        ensureOpen();
+        for (DirectoryEntry entry : directory.values()) {
+            action.accept(entry.toBuilding(regions));
+        }
+    }
+
+    @Override
+    public synchronized void saveBuilding(Building building) {
+        saveBuildingBatch(Collections.singletonList(building));
+    }
+
+    @Override
+    public synchronized void saveBuildingBatch(Collection<Building> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        ensureOpen();
+
+        Map<String, BuildingSnapshot> replacements = new LinkedHashMap<>();
+        for (Building building : batch) {
+            BuildingSnapshot snapshot = building.snapshot();
+            replacements.put(snapshot.getName(), snapshot);
+        }
+        rewrite(replacements);
+    }
+
+    /**
+     * Load a single building through the directory, without touching any other building's data.
+     */
+    @Override
+    public synchronized Building loadBuilding(String buildingName) {
+        ensureOpen();
+        DirectoryEntry entry = directory.get(buildingName);
+        return entry != null ? entry.toBuilding(regions) : null;
+    }
+
+    @Override
+    public synchronized void deleteBuilding(String buildingName) {
+        ensureOpen();
+        if (!directory.containsKey(buildingName)) {
+            return;
+        }
+        Map<String, BuildingSnapshot> replacements = new LinkedHashMap<>();
+        replacements.put(buildingName, null);
+        rewrite(replacements);
+    }
+
+    /**
+     * Get the total number of bytes written to snapshot files since this storage was created.
+     */
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    @Override
+    public boolean exists() {
+        return Files.exists(filePath);
+    }
+
+    @Override
+    public synchronized void clearAll() {
+        try {
+            Files.deleteIfExists(filePath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to clear " + filePath, e);
+        }
+        regions = null;
+        directory = null;
+    }
+
+    /**
+     * Drop the mapping held by this storage. Buildings already loaded keep theirs until they are collected.
+     */
+    @Override
+    public synchronized void close() {
+        regions = null;
+        directory = null;
+    }
+
+    /**
+     * Rewrite the file with the given buildings replaced, or removed where mapped to {@code null}. Unchanged
+     * history blocks are copied straight from the current mapping.
+     */
+    private void rewrite(Map<String, BuildingSnapshot> replacements) {
+        MappedByteBuffer[] currentRegions = regions;
+        Collection<DirectoryEntry> current = directory.values();
+        write(writer -> {
+            for (DirectoryEntry entry : current) {
+                if (!replacements.containsKey(entry.name)) {
+                    writer.copy(entry, currentRegions);
+                }
+            }
+            for (BuildingSnapshot snapshot : replacements.values()) {
+                if (snapshot != null) {
+                    writer.append(snapshot);
+                }
+            }
+        });
+    }
+
+    /**
+     * Write the buildings produced by {@code source} to a temporary file, move it over the storage file and map
+     * the result. Caller must hold the monitor.
+     */
+    private void write(Consumer<SnapshotWriter> source) {
+        try {
+            Path parent = filePath.toAbsolutePath().getParent();
+            Path tempFile = Files.createTempFile(parent, filePath.getFileName().toString(), ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    SnapshotWriter writer = new SnapshotWriter(channel);
+                    try {
+                        source.accept(writer);
+                    } catch (UncheckedIOException e) {
+                        throw e.getCause();
+                    }
+                    writer.finish();
+                    channel.force(true);
+                    bytesWritten.addAndGet(channel.size());
+                }
+                Files.move(tempFile, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save buildings to " + filePath, e);
+        }
+    }
+
+    private void ensureOpen() {
+        if (directory != null) {
+            return;
+        }
+        if (!exists()) {
+            regions = new MappedByteBuffer[0];
+            directory = new LinkedHashMap<>();
+            return;
+        }
+        try {
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open snapshot " + filePath, e);
+        }
+    }
+
+    /**
+     * Map the file and read its header and directory.
+     */
+    private void open() throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("Snapshot file is truncated: " + filePath);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Snapshot file is truncated: " + filePath);
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new IOException("Unrecognized snapshot format in " + filePath);
+            }
+            int count = header.getInt();
+            int expectedCrc = header.getInt();
+            long directoryOffset = header.getLong();
+            long directoryLength = header.getLong();
+            if (directoryOffset < HEADER_SIZE || directoryOffset + directoryLength != fileSize) {
+                throw new IOException("Snapshot file is truncated: " + filePath);
+            }
+
+            Map<String, DirectoryEntry> entries = new LinkedHashMap<>(Math.max(16, count * 4 / 3 + 1));
+            channel.position(directoryOffset);
+            CheckedInputStream checked = new CheckedInputStream(
+                    new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE), new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            for (int i = 0; i < count; i++) {
+                DirectoryEntry entry = DirectoryEntry.read(in);
+                if (entry.historyOffset + (long) entry.historySize * ENTRY_BYTES > directoryOffset) {
+                    throw new IOException("History block out of bounds for '" + entry.name + "' in " + filePath);
+                }
+                entries.put(entry.name, entry);
+            }
+            if ((int) checked.getChecksum().getValue() != expectedCrc) {
+                throw new IOException("Snapshot directory checksum mismatch in " + filePath);
+            }
+
+            int regionCount = (int) ((directoryOffset + REGION_SIZE - 1) / REGION_SIZE);
+            MappedByteBuffer[] mapped = new MappedByteBuffer[regionCount];
+            for (int i = 0; i < regionCount; i++) {
+                long start = i * REGION_SIZE;
+                mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(REGION_SIZE, directoryOffset - start));
+            }
+            this.regions = mapped;
+            this.directory = entries;
+        }
+    }
+
+    /**
+     * Directory record of one building. Holds everything but the history, which stays in the mapping.
+     */
+    private static final class DirectoryEntry {
+        private final String name;
+        private final String address;
+        private final double currentPrice;
+        private final PriceTrend trend;
+        private final int historySize;
+        private final long historyOffset;
+
+        private DirectoryEntry(String name, String address, double currentPrice, PriceTrend trend,
+                               int historySize, long historyOffset) {
+            this.name = name;
+            this.address = address;
+            this.currentPrice = currentPrice;
+            this.trend = trend;
+            this.historySize = historySize;
+            this.historyOffset = historyOffset;
+        }
+
+        static DirectoryEntry read(DataInputStream in) throws IOException {
+            String name = in.readUTF();
+            String address = readNullableUTF(in);
+            double currentPrice = in.readDouble();
+            PriceTrend trend = null;
+            if (in.readBoolean()) {
+                trend = new PriceTrend(readNullableUTF(in), in.readDouble(), in.readDouble());
+            }
+            return new DirectoryEntry(name, address, currentPrice, trend, in.readInt(), in.readLong());
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeUTF(name);
+            writeNullableUTF(out, address);
+            out.writeDouble(currentPrice);
+            out.writeBoolean(trend != null);
+            if (trend != null) {
+                writeNullableUTF(out, trend.getTrendDirection());
+                out.writeDouble(trend.getAverageChange());
+                out.writeDouble(trend.getVolatility());
+            }
+            out.writeInt(historySize);
+            out.writeLong(historyOffset);
+        }
+
+        Building toBuilding(MappedByteBuffer[] regions) {
+            // Each building gets its own trend copy, since PriceTrend is mutable
+            PriceTrend trendCopy = trend != null
+                    ? new PriceTrend(trend.getTrendDirection(), trend.getAverageChange(), trend.getVolatility())
+                    : null;
+            return Building.withLazyHistory(name, address, currentPrice, trendCopy, historySize,
+                    () -> decodeHistory(regions));
+        }
+
+        /**
+         * Bulk-decode the history columns from the mapping.
+         */
+        PriceSeries decodeHistory(MappedByteBuffer[] regions) {
+            long[] timestamps = new long[historySize];
+            double[] prices = new double[historySize];
+            double[] changePercentages = new double[historySize];
+            if (historySize > 0) {
+                ByteBuffer block = historyBlock(regions);
+                block.asLongBuffer().get(timestamps);
+                block.position(block.position() + historySize * Long.BYTES);
+                block.asDoubleBuffer().get(prices);
+                block.position(block.position() + historySize * Double.BYTES);
+                block.asDoubleBuffer().get(changePercentages);
+            }
+            return PriceSeries.wrap(timestamps, prices, changePercentages);
+        }
+
+        /**
+         * Get an independent buffer positioned at this building's history block.
+         */
+        ByteBuffer historyBlock(MappedByteBuffer[] regions) {
+            ByteBuffer block = regions[(int) (historyOffset / REGION_SIZE)].duplicate();
+            int start = (int) (historyOffset % REGION_SIZE);
+            block.position(start).limit(start + historySize * ENTRY_BYTES);
+            return block;
+        }
+    }
+
+    /**
+     * Streams history blocks to the file as buildings are appended, keeping only their directory entries in
+     * memory, then writes the directory and the header.
+     */
+    private static final class SnapshotWriter {
+        private final FileChannel channel;
+        private final OutputStream buffered;
+        private final DataOutputStream out;
+        private final List<DirectoryEntry> entries = new ArrayList<>();
+        private long position = HEADER_SIZE;
+
+        SnapshotWriter(FileChannel channel) throws IOException {
+            this.channel = channel;
+            channel.position(HEADER_SIZE);
+            this.buffered = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            this.out = new DataOutputStream(buffered);
+        }
+
+        void append(BuildingSnapshot snapshot) {
+            PriceSeries history = snapshot.getHistory();
+            int size = history.size();
+            try {
+                long offset = startBlock(size);
+                for (int i = 0; i < size; i++) {
+                    out.writeLong(history.getTimestamp(i));
+                }
+                for (int i = 0; i < size; i++) {
+                    out.writeDouble(history.getPrice(i));
+                }
+                for (int i = 0; i < size; i++) {
+                    out.writeDouble(history.getChangePercentage(i));
+                }
+                position += (long) size * ENTRY_BYTES;
+                entries.add(new DirectoryEntry(snapshot.getName(), snapshot.getAddress(),
+                        snapshot.getCurrentPrice(), snapshot.getRecentTrend(), size, offset));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Copy a stored building's history block unchanged.
+         */
+        void copy(DirectoryEntry entry, MappedByteBuffer[] regions) {
+            try {
+                long offset = startBlock(entry.historySize);
+                ByteBuffer block = entry.historyBlock(regions);
+                byte[] chunk = new byte[Math.min(BUFFER_SIZE, block.remaining())];
+                while (block.hasRemaining()) {
+                    int length = Math.min(chunk.length, block.remaining());
+                    block.get(chunk, 0, length);
+                    out.write(chunk, 0, length);
+                }
+                position += (long) entry.historySize * ENTRY_BYTES;
+                entries.add(new DirectoryEntry(entry.name, entry.address, entry.currentPrice, entry.trend,
+                        entry.historySize, offset));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Pad so that a block of {@code size} entries does not cross a region boundary, and return its offset.
+         */
+        private long startBlock(int size) throws IOException {
+            long length = (long) size * ENTRY_BYTES;
+            if (length > REGION_SIZE) {
+                throw new IOException("Price history of " + size + " entries exceeds the snapshot block limit.");
+            }
+            long regionEnd = (position / REGION_SIZE + 1) * REGION_SIZE;
+            if (position + length > regionEnd) {
+                byte[] padding = new byte[BUFFER_SIZE];
+                while (position < regionEnd) {
+                    int count = (int) Math.min(padding.length, regionEnd - position);
+                    out.write(padding, 0, count);
+                    position += count;
+                }
+            }
+            return position;
+        }
+
+        void finish() throws IOException {
+            long directoryOffset = position;
+            CRC32 crc = new CRC32();
+            CheckedOutputStream checked = new CheckedOutputStream(buffered, crc);
+            DataOutputStream directoryOut = new DataOutputStream(checked);
+            for (DirectoryEntry entry : entries) {
+                entry.write(directoryOut);
+            }
+            directoryOut.flush();
+            long directoryLength = channel.position() - directoryOffset;
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC)
+                    .putInt(FORMAT_VERSION)
+                    .putInt(entries.size())
+                    .putInt((int) crc.getValue())
+                    .putLong(directoryOffset)
+                    .putLong(directoryLength)
+                    .flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+    }
+
+    private static void writeNullableUTF(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableUTF(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,528 @@
+package com.buildingtracker.storage;
+
+import com.buildingtracker.model.Building;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Building storage partitioned over several JSON shard files in one directory.
+ *
+ * <p>Each building lives in the shard chosen by a jump consistent hash of its name, and each shard is a streaming
+ * {@link JsonBuildingStorage} of its own. Single-building reads and writes touch one shard, batches rewrite only
+ * the shards they touch, and full loads and saves process all shards in parallel on the executor. A failed write
+ * can only affect the shard being written.
+ *
+ * <p>The shard count is kept in a manifest next to the shards. Opening the directory with a different count
+ * rebalances it, as does {@link #rebalance(int)}; the consistent hash moves only the buildings whose shard
+ * changes, about {@code 1/n} of them when going from {@code n - 1} to {@code n} shards. Rebalancing writes the
+ * moved buildings to their new shards and updates the manifest before removing them from the old ones, so an
+ * interrupted rebalance leaves at most stray copies, which reads ignore and the next rebalance removes.
+ */
+public class ShardedBuildingStorage implements BuildingStorage {
+    private static final String MANIFEST_FILE = "shards.properties";
+    private static final String SHARD_COUNT_KEY = "shardCount";
+    private static final String HASH_KEY = "hash";
+    private static final String HASH_NAME = "jump-fnv1a64";
+
+    private final Path directory;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    // Read-locked by every operation, write-locked to replace the shards while rebalancing
+    private final ReentrantReadWriteLock shardsLock = new ReentrantReadWriteLock();
+    private JsonBuildingStorage[] shards;
+    // Written by shard storages that a rebalance retired
+    private final AtomicLong retiredBytesWritten = new AtomicLong();
+
+    /**
+     * Constructor with a pool of one thread per shard, up to the number of processors.
+     */
+    public ShardedBuildingStorage(String directory, int shardCount) {
+        this(Paths.get(directory), shardCount, newShardExecutor(shardCount), true);
+    }
+
+    /**
+     * Constructor with the executor shard operations run on. The executor is not shut down by {@link #close()}.
+     */
+    public ShardedBuildingStorage(String directory, int shardCount, ExecutorService executor) {
+        this(Paths.get(directory), shardCount, executor, false);
+    }
+
+    private ShardedBuildingStorage(Path directory, int shardCount, ExecutorService executor, boolean ownsExecutor) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive.");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null.");
+        }
+        this.directory = directory;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create shard directory " + directory, e);
+        }
+
+        int storedCount = readShardCount();
+        this.shards = openShards(storedCount > 0 ? storedCount : shardCount);
+        if (storedCount <= 0) {
+            writeShardCount(shardCount);
+        } else if (storedCount != shardCount) {
+            rebalance(shardCount);
+        }
+    }
+
+    /**
+     * Get the shard of a building name among {@code shardCount} shards. The hash is computed from the name's
+     * characters only, so it is stable across JVMs and releases, as stored shards require.
+     */
+    public static int shardOf(String buildingName, int shardCount) {
+        long key = 0xcbf29ce484222325L;
+        for (int i = 0; i < buildingName.length(); i++) {
+            key ^= buildingName.charAt(i);
+            key *= 0x100000001b3L;
+        }
+        // Jump consistent hash (Lamping and Veach)
+        long bucket = -1;
+        long next = 0;
+        while (next < shardCount) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+
+    public int getShardCount() {
+        shardsLock.readLock().lock();
+        try {
+            return shards.length;
+        } finally {
+            shardsLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void saveBuildings(List<Building> buildings) {
+        shardsLock.readLock().lock();
+        try {
+            List<List<Building>> partitions = partition(buildings, shards.length);
+            List<Callable<Void>> tasks = new ArrayList<>(shards.length);
+            for (int i = 0; i < shards.length; i++) {
+                JsonBuildingStorage shard = shards[i];
+                List<Building> partition = partitions.get(i);
+                tasks.add(() -> {
+                    shard.saveBuildings(partition);
+                    return null;
+                });
+            }
+            runAll(tasks, "saving shards");
+        } finally {
+            shardsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Load every building, reading the shards in parallel. Buildings are returned grouped by shard.
+     */
+    @Override
+    public List<Building> loadBuildings() {
+        shardsLock.readLock().lock();
+        try {
+            List<Callable<List<Building>>> tasks = new ArrayList<>(shards.length);
+            for (int i = 0; i < shards.length; i++) {
+                int index = i;
+                tasks.add(() -> {
+                    List<Building> loaded = new ArrayList<>();
+                    readShard(index, loaded::add);
+                    return loaded;
+                });
+            }
+            List<Building> buildings = new ArrayList<>();
+            for (List<Building> loaded : runAll(tasks, "loading shards")) {
+                buildings.addAll(loaded);
+            }
+            return buildings;
+        } finally {
+            shardsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Read the shards in parallel and pass each building to the action. Calls to the action are serialized, so it
+     * need not be thread safe, but buildings of different shards arrive interleaved.
+     */
+    @Override
+    public void forEachBuilding(Consumer<Building> action) {
+        shardsLock.readLock().lock();
+        try {
+            Object actionLock = new Object();
+            List<Callable<Void>> tasks = new ArrayList<>(shards.length);
+            for (int i = 0; i < shards.length; i++) {
+                int index = i;
+                tasks.add(() -> {
+                    readShard(index, building -> {
+                        synchronized (actionLock) {
+                            action.accept(building);
+                        }
+                    });
+                    return null;
+                });
+            }
+            runAll(tasks, "reading shards");
+        } finally {
+            shardsLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void saveBuilding(Building building) {
+        shardsLock.readLock().lock();
+        try {
+            shardFor(building.getName()).saveBuilding(building);
+        } finally {
+            shardsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Save several buildings, rewriting only the shards they belong to, in parallel.
+     */
+    @Override
+    public void saveBuildingBatch(Collection<Building> buildings) {
+        if (buildings.isEmpty()) {
+            return;
+        }
+        shardsLock.readLock().lock();
+        try {
+            List<List<Building>> partitions = partition(buildings, shards.length);
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < shards.length; i++) {
+                JsonBuildingStorage shard = shards[i];
+                List<Building> partition = partitions.get(i);
+                if (!partition.isEmpty()) {
+                    tasks.add(() -> {
+                        shard.saveBuildingBatch(partition);
+                        return null;
+                    });
+                }
+            }
+            runAll(tasks, "saving shards");
+        } finally {
+            shardsLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Building loadBuilding(String buildingName) {
+        shardsLock.readLock().lock();
+        try {
+            return shardFor(buildingName).loadBuilding(buildingName);
+        } finally {
+            shardsLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteBuilding(String buildingName) {
+        shardsLock.readLock().lock();
+        try {
+            shardFor(buildingName).deleteBuilding(buildingName);
+        } finally {
+            shardsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Check if the shard manifest exists.
+     */
+    @Override
+    public boolean exists() {
+        return Files.exists(directory.resolve(MANIFEST_FILE));
+    }
+
+    /**
+     * Delete every shard. The manifest is kept, so the storage stays usable with its shard count.
+     */
+    @Override
+    public void clearAll() {
+        shardsLock.readLock().lock();
+        try {
+            for (JsonBuildingStorage shard : shards) {
+                shard.clearAll();
+            }
+        } finally {
+            shardsLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long getBytesWritten() {
+        shardsLock.readLock().lock();
+        try {
+            long total = retiredBytesWritten.get();
+            for (JsonBuildingStorage shard : shards) {
+                total += shard.getBytesWritten();
+            }
+            return total;
+        } finally {
+            shardsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Repartition the stored buildings over {@code newShardCount} shards, blocking other operations meanwhile.
+     * Rebalancing to the current count only removes stray copies left by an interrupted rebalance.
+     *
+     * @return the number of buildings moved to another shard
+     */
+    public int rebalance(int newShardCount) {
+        if (newShardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive.");
+        }
+        shardsLock.writeLock().lock();
+        try {
+            JsonBuildingStorage[] oldShards = shards;
+            JsonBuildingStorage[] newShards = new JsonBuildingStorage[newShardCount];
+            System.arraycopy(oldShards, 0, newShards, 0, Math.min(oldShards.length, newShardCount));
+            for (int i = oldShards.length; i < newShardCount; i++) {
+                newShards[i] = openShard(i);
+                // Left over if an earlier shrink was interrupted; its buildings live elsewhere now
+                newShards[i].clearAll();
+            }
+
+            // Collect the buildings that move, and note the old shards that lose any building or hold strays
+            List<List<Building>> moving = new ArrayList<>(newShardCount);
+            for (int i = 0; i < newShardCount; i++) {
+                moving.add(new ArrayList<>());
+            }
+            boolean[] changed = new boolean[oldShards.length];
+            List<Callable<Void>> scans = new ArrayList<>(oldShards.length);
+            for (int i = 0; i < oldShards.length; i++) {
+                int index = i;
+                scans.add(() -> {
+                    oldShards[index].forEachBuilding(building -> {
+                        int target = shardOf(building.getName(), newShardCount);
+                        if (shardOf(building.getName(), oldShards.length) != index) {
+                            changed[index] = true;
+                        } else if (target != index) {
+                            changed[index] = true;
+                            List<Building> destination = moving.get(target);
+                            synchronized (destination) {
+                                destination.add(building);
+                            }
+                        }
+                    });
+                    return null;
+                });
+            }
+            runAll(scans, "scanning shards");
+
+            int moved = 0;
+            List<Callable<Void>> writes = new ArrayList<>();
+            for (int i = 0; i < newShardCount; i++) {
+                JsonBuildingStorage shard = newShards[i];
+                List<Building> incoming = moving.get(i);
+                moved += incoming.size();
+                if (!incoming.isEmpty()) {
+                    writes.add(() -> {
+                        shard.saveBuildingBatch(incoming);
+                        return null;
+                    });
+                }
+            }
+            runAll(writes, "writing moved buildings");
+            writeShardCount(newShardCount);
+            shards = newShards;
+
+            // The new shards are authoritative now; drop what left the old ones
+            List<Callable<Void>> prunes = new ArrayList<>();
+            for (int i = 0; i < oldShards.length; i++) {
+                JsonBuildingStorage shard = oldShards[i];
+                int index = i;
+                if (index >= newShardCount) {
+                    prunes.add(() -> {
+                        shard.clearAll();
+                        retiredBytesWritten.addAndGet(shard.getBytesWritten());
+                        return null;
+                    });
+                } else if (changed[index]) {
+                    prunes.add(() -> {
+                        List<Building> kept = new ArrayList<>();
+                        readShard(index, kept::add);
+                        shard.saveBuildings(kept);
+                        return null;
+                    });
+                }
+            }
+            runAll(prunes, "pruning shards");
+            return moved;
+        } finally {
+            shardsLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Shut down the shard executor if this storage created it.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Pass the buildings of one shard to the action, skipping stray copies that belong to another shard. Caller
+     * must hold the shards lock.
+     */
+    private void readShard(int index, Consumer<Building> action) {
+        int count = shards.length;
+        shards[index].forEachBuilding(building -> {
+            if (shardOf(building.getName(), count) == index) {
+                action.accept(building);
+            }
+        });
+    }
+
+    private JsonBuildingStorage shardFor(String buildingName) {
+        if (buildingName == null) {
+            throw new IllegalArgumentException("Building name cannot be null.");
+        }
+        return shards[shardOf(buildingName, shards.length)];
+    }
+
+    private static List<List<Building>> partition(Collection<Building> buildings, int shardCount) {
+        List<List<Building>> partitions = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (Building building : buildings) {
+            partitions.get(shardOf(building.getName(), shardCount)).add(building);
+        }
+        return partitions;
+    }
+
+    /**
+     * Run the tasks on the executor and wait for all of them; a single task runs on the caller.
+     */
+    private <T> List<T> runAll(List<Callable<T>> tasks, String activity) {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            if (tasks.size() == 1) {
+                results.add(tasks.get(0).call());
+                return results;
+            }
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while " + activity + " in " + directory + ".", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Failed " + activity + " in " + directory + ".", cause);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            // Only thrown by a task run on the caller; the tasks here throw unchecked exceptions only
+            throw new IllegalStateException("Failed " + activity + " in " + directory + ".", e);
+        }
+    }
+
+    private JsonBuildingStorage[] openShards(int count) {
+        JsonBuildingStorage[] opened = new JsonBuildingStorage[count];
+        for (int i = 0; i < count; i++) {
+            opened[i] = openShard(i);
+        }
+        return opened;
+    }
+
+    private JsonBuildingStorage openShard(int index) {
+        return new JsonBuildingStorage(directory.resolve(String.format("shard-%04d.json", index)).toString(), true);
+    }
+
+    /**
+     * Read the shard count from the manifest, or return 0 if there is none.
+     */
+    private int readShardCount() {
+        Path manifest = directory.resolve(MANIFEST_FILE);
+        if (!Files.exists(manifest)) {
+            return 0;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(manifest)) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read shard manifest " + manifest, e);
+        }
+        if (!HASH_NAME.equals(properties.getProperty(HASH_KEY))) {
+            throw new IllegalStateException("Shards in " + directory + " were partitioned with unknown hash '"
+                    + properties.getProperty(HASH_KEY) + "'.");
+        }
+        try {
+            return Integer.parseInt(properties.getProperty(SHARD_COUNT_KEY, ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Invalid shard count in " + manifest + ".", e);
+        }
+    }
+
+    private void writeShardCount(int count) {
+        Path manifest = directory.resolve(MANIFEST_FILE);
+        Properties properties = new Properties();
+        properties.setProperty(SHARD_COUNT_KEY, Integer.toString(count));
+        properties.setProperty(HASH_KEY, HASH_NAME);
+        try {
+            Path tempFile = Files.createTempFile(directory, MANIFEST_FILE, ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(tempFile)) {
+                    properties.store(out, "Building storage shards");
+                }
+                Files.move(tempFile, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write shard manifest " + manifest, e);
+        }
+    }
+
+    private static ExecutorService newShardExecutor(int shardCount) {
+        int threads = Math.max(1, Math.min(shardCount, Runtime.getRuntime().availableProcessors()));
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, "storage-shard-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(threads, factory);
+    }
+}
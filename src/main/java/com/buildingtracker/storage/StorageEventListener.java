@@ -0,0 +1,26 @@
+package com.buildingtracker.storage;
+
+/**
+ * Receives the problems a storage recovers from on its own and therefore cannot report to a caller, such as a
+ * failed background write or a damaged log tail dropped during recovery.
+ */
+public interface StorageEventListener {
+
+    /**
+     * Listener that discards every warning.
+     */
+    StorageEventListener NONE = (message, cause) -> {
+    };
+
+    /**
+     * Listener printing every warning to {@code System.err}, as looked up at each warning.
+     */
+    StorageEventListener STANDARD_ERROR = (message, cause) -> System.err.println(message);
+
+    /**
+     * Handle a warning.
+     *
+     * @param cause the exception behind the warning, or null if there is none
+     */
+    void onWarning(String message, Exception cause);
+}
@@ -0,0 +1,819 @@
+package com.buildingtracker.storage;
+
+import com.buildingtracker.model.Building;
+import com.buildingtracker.model.BuildingSnapshot;
+import com.buildingtracker.model.PriceHistory;
+import com.buildingtracker.model.PriceSeries;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Append-only, log structured implementation of building storage.
+ *
+ * <p>Instead of rewriting the whole portfolio, every save appends only what changed since the building was
+ * last logged: new {@link PriceHistory} entries, and a header record when the address or current price no
+ * longer matches the log. If existing entries were edited or removed instead, which the building reports
+ * through {@link BuildingSnapshot#getHistoryRevision()}, the whole history is logged again as a replacement.
+ * Records are length prefixed and CRC protected, and are written to numbered segment files that roll over at a
+ * fixed size. Callers saving concurrently share a single fsync (group commit).
+ *
+ * <p>Once enough bytes have been logged, the full state is compacted into a snapshot file and the segments it
+ * covers are deleted. On startup the snapshot is loaded and the remaining segments are replayed, after which
+ * every building's trend is recomputed from its history.
+ */
+public class WriteAheadLogBuildingStorage implements BuildingStorage {
+    private static final String DEFAULT_DIRECTORY = "buildings-wal";
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final int SNAPSHOT_MAGIC = 0x42505453;  // "BPTS"
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private static final byte RECORD_BUILDING = 1;
+    private static final byte RECORD_PRICE = 2;
+    private static final byte RECORD_DELETE = 3;
+
+    private static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    private static final long DEFAULT_COMPACTION_BYTES = 256L * 1024 * 1024;
+    private static final int MAX_PENDING_BYTES = 1024 * 1024;
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final long compactionThresholdBytes;
+    private final long syncIntervalMillis;
+    private final StorageEventListener events;
+
+    // Guards the in-memory state and the pending record buffer
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // Held by the thread currently writing and syncing the log; always acquired before writeLock
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Object durableMonitor = new Object();
+
+    private final Map<String, Building> buildings = new LinkedHashMap<>();
+    private final Map<String, LogState> logStates = new LinkedHashMap<>();
+
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(256);
+    private final DataOutputStream recordOut = new DataOutputStream(recordBytes);
+    private final CRC32 crc = new CRC32();
+
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(64 * 1024);
+    private long appendedPosition;
+    private volatile long durablePosition;
+
+    private FileChannel segmentChannel;
+    private long segmentId;
+    private long segmentSize;
+    private long bytesSinceSnapshot;
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    private final ScheduledExecutorService syncScheduler;
+    private volatile boolean closed;
+
+    /**
+     * Constructor with default directory and group commit on every save.
+     */
+    public WriteAheadLogBuildingStorage() {
+        this(DEFAULT_DIRECTORY);
+    }
+
+    /**
+     * Constructor with custom directory and group commit on every save.
+     */
+    public WriteAheadLogBuildingStorage(String directory) {
+        this(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_COMPACTION_BYTES, 0);
+    }
+
+    /**
+     * Constructor with custom segment, compaction and sync settings, printing warnings to {@code System.err}.
+     *
+     * @param syncIntervalMillis 0 to make every save wait for its fsync (shared with concurrent savers), or the
+     *                           interval at which a background thread syncs the log while saves return immediately
+     */
+    public WriteAheadLogBuildingStorage(String directory, long maxSegmentBytes, long compactionThresholdBytes,
+                                        long syncIntervalMillis) {
+        this(directory, maxSegmentBytes, compactionThresholdBytes, syncIntervalMillis,
+                StorageEventListener.STANDARD_ERROR);
+    }
+
+    /**
+     * Constructor with all settings.
+     *
+     * @param syncIntervalMillis 0 to make every save wait for its fsync (shared with concurrent savers), or the
+     *                           interval at which a background thread syncs the log while saves return immediately
+     * @param events             receives failed background syncs and torn log tails truncated during recovery
+     */
+    public WriteAheadLogBuildingStorage(String directory, long maxSegmentBytes, long compactionThresholdBytes,
+                                        long syncIntervalMillis, StorageEventListener events) {
+        if (events == null) {
+            throw new IllegalArgumentException("Event listener cannot be null.");
+        }
+        if (maxSegmentBytes <= 0 || compactionThresholdBytes <= 0 || syncIntervalMillis < 0) {
+            throw new IllegalArgumentException("Segment size and compaction threshold must be positive.");
+        }
+        this.directory = Paths.get(directory);
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.compactionThresholdBytes = compactionThresholdBytes;
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.events = events;
+
+        try {
+            Files.createDirectories(this.directory);
+            recover();
+            openSegment(segmentId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open write-ahead log in " + directory, e);
+        }
+
+        if (syncIntervalMillis > 0) {
+            this.syncScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "wal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncScheduler.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMillis, syncIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            this.syncScheduler = null;
+        }
+    }
+
+    @Override
+    public void saveBuildings(List<Building> newBuildings) {
+        syncLock.lock();
+        writeLock.lock();
+        try {
+            ensureOpen();
+            buildings.clear();
+            logStates.clear();
+            for (Building building : newBuildings) {
+                buildings.put(building.getName(), building);
+            }
+            // Also records what the snapshot holds of each building as its logged state
+            compactLocked();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save buildings to " + directory, e);
+        } finally {
+            writeLock.unlock();
+            syncLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Building> loadBuildings() {
+        writeLock.lock();
+        try {
+            return new ArrayList<>(buildings.values());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void saveBuilding(Building building) {
+        long position;
+        boolean compact;
+        boolean flush;
+        writeLock.lock();
+        try {
+            ensureOpen();
+            appendChanges(building);
+            position = appendedPosition;
+            compact = bytesSinceSnapshot >= compactionThresholdBytes;
+            flush = syncIntervalMillis == 0 || pending.size() >= MAX_PENDING_BYTES;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to log building '" + building.getName() + "'", e);
+        } finally {
+            writeLock.unlock();
+        }
+
+        if (compact) {
+            compact();
+        } else if (flush) {
+            awaitDurable(position);
+        }
+    }
+
+    @Override
+    public void saveBuildingBatch(Collection<Building> batch) {
+        long position;
+        boolean compact;
+        writeLock.lock();
+        try {
+            ensureOpen();
+            for (Building building : batch) {
+                appendChanges(building);
+            }
+            position = appendedPosition;
+            compact = bytesSinceSnapshot >= compactionThresholdBytes;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to log building batch", e);
+        } finally {
+            writeLock.unlock();
+        }
+
+        if (compact) {
+            compact();
+        } else {
+            awaitDurable(position);
+        }
+    }
+
+    @Override
+    public Building loadBuilding(String buildingName) {
+        writeLock.lock();
+        try {
+            return buildings.get(buildingName);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteBuilding(String buildingName) {
+        long position;
+        writeLock.lock();
+        try {
+            ensureOpen();
+            if (buildings.remove(buildingName) == null) {
+                return;
+            }
+            logStates.remove(buildingName);
+            beginRecord(RECORD_DELETE);
+            recordOut.writeUTF(buildingName);
+            endRecord();
+            position = appendedPosition;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to log deletion of '" + buildingName + "'", e);
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(position);
+    }
+
+    /**
+     * Get the total number of bytes written to log segments and snapshots since this storage was created.
+     */
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    @Override
+    public boolean exists() {
+        if (Files.exists(directory.resolve(SNAPSHOT_FILE))) {
+            return true;
+        }
+        for (long id : listSegmentIds()) {
+            if (segmentPath(id).toFile().length() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void clearAll() {
+        syncLock.lock();
+        writeLock.lock();
+        try {
+            ensureOpen();
+            buildings.clear();
+            logStates.clear();
+            pending.reset();
+            segmentChannel.close();
+            Files.deleteIfExists(directory.resolve(SNAPSHOT_FILE));
+            for (long id : listSegmentIds()) {
+                Files.deleteIfExists(segmentPath(id));
+            }
+            appendedPosition = 0;
+            durablePosition = 0;
+            bytesSinceSnapshot = 0;
+            openSegment(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to clear " + directory, e);
+        } finally {
+            writeLock.unlock();
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Force a snapshot of the current state and delete the log segments it replaces.
+     */
+    public void compact() {
+        syncLock.lock();
+        writeLock.lock();
+        try {
+            ensureOpen();
+            compactLocked();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compact " + directory, e);
+        } finally {
+            writeLock.unlock();
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Write and fsync everything logged so far.
+     */
+    public void sync() {
+        long position;
+        writeLock.lock();
+        try {
+            position = appendedPosition;
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(position);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        if (syncScheduler != null) {
+            syncScheduler.shutdown();
+        }
+        sync();
+        syncLock.lock();
+        writeLock.lock();
+        try {
+            closed = true;
+            segmentChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close " + directory, e);
+        } finally {
+            writeLock.unlock();
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Append the records needed to bring the logged state of a building up to date.
+     */
+    private void appendChanges(Building building) throws IOException {
+        // Read the published snapshot so a concurrent writer cannot hand us a half-applied update
+        BuildingSnapshot view = building.snapshot();
+        String name = view.getName();
+        PriceSeries history = view.getHistory();
+        int historySize = history.size();
+
+        LogState state = logStates.get(name);
+        // A rewrite may keep or even grow the length, so in-place edits are caught by the history revision
+        boolean replaceHistory = state == null || buildings.get(name) != building || historySize < state.historyCount
+                || view.getHistoryRevision() != state.historyRevision;
+        if (replaceHistory) {
+            state = new LogState();
+            logStates.put(name, state);
+            buildings.put(name, building);
+            appendHeader(view, true);
+            state.address = view.getAddress();
+            state.currentPrice = view.getCurrentPrice();
+            state.historyRevision = view.getHistoryRevision();
+        }
+
+        for (int i = state.historyCount; i < historySize; i++) {
+            beginRecord(RECORD_PRICE);
+            recordOut.writeUTF(name);
+            recordOut.writeDouble(history.getPrice(i));
+            recordOut.writeLong(history.getTimestamp(i));
+            recordOut.writeDouble(history.getChangePercentage(i));
+            endRecord();
+            state.currentPrice = history.getPrice(i);
+        }
+        state.historyCount = historySize;
+
+        // Replayed price records leave the last logged price current, which need not be the building's price
+        if (!equalsNullable(state.address, view.getAddress())
+                || Double.compare(state.currentPrice, view.getCurrentPrice()) != 0) {
+            appendHeader(view, false);
+            state.address = view.getAddress();
+            state.currentPrice = view.getCurrentPrice();
+        }
+    }
+
+    /**
+     * Append a building header record. When {@code replaceHistory} is set, replay discards earlier history.
+     */
+    private void appendHeader(BuildingSnapshot building, boolean replaceHistory) throws IOException {
+        beginRecord(RECORD_BUILDING);
+        recordOut.writeUTF(building.getName());
+        writeNullableUTF(recordOut, building.getAddress());
+        recordOut.writeDouble(building.getCurrentPrice());
+        recordOut.writeBoolean(replaceHistory);
+        endRecord();
+    }
+
+    private void beginRecord(byte type) throws IOException {
+        recordBytes.reset();
+        recordOut.writeByte(type);
+    }
+
+    /**
+     * Frame the current record with its length and checksum and move it to the pending buffer.
+     */
+    private void endRecord() throws IOException {
+        recordOut.flush();
+        byte[] payload = recordBytes.toByteArray();
+        crc.reset();
+        crc.update(payload, 0, payload.length);
+
+        DataOutputStream framed = new DataOutputStream(pending);
+        framed.writeInt(payload.length);
+        framed.writeInt((int) crc.getValue());
+        framed.write(payload);
+
+        long recordSize = 8L + payload.length;
+        appendedPosition += recordSize;
+        bytesSinceSnapshot += recordSize;
+    }
+
+    /**
+     * Block until everything up to {@code position} is on disk. The first waiting thread writes and syncs all
+     * pending records; threads arriving meanwhile are covered by the next sync.
+     */
+    private void awaitDurable(long position) {
+        while (durablePosition < position) {
+            if (syncLock.tryLock()) {
+                try {
+                    if (durablePosition < position) {
+                        writePendingAndSync();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to sync write-ahead log in " + directory, e);
+                } finally {
+                    syncLock.unlock();
+                }
+            } else {
+                synchronized (durableMonitor) {
+                    if (durablePosition < position) {
+                        try {
+                            durableMonitor.wait(1);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IllegalStateException("Interrupted while waiting for log sync.", e);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the pending buffer to the current segment and fsync it. Caller must hold syncLock.
+     */
+    private void writePendingAndSync() throws IOException {
+        ByteArrayOutputStream batch;
+        long batchEnd;
+        writeLock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Storage has been closed.");
+            }
+            batch = pending;
+            batchEnd = appendedPosition;
+            pending = new ByteArrayOutputStream(Math.max(64 * 1024, batch.size()));
+        } finally {
+            writeLock.unlock();
+        }
+
+        if (batch.size() > 0) {
+            ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+            while (buffer.hasRemaining()) {
+                segmentChannel.write(buffer);
+            }
+            segmentChannel.force(false);
+            segmentSize += batch.size();
+            bytesWritten.addAndGet(batch.size());
+            if (segmentSize >= maxSegmentBytes) {
+                segmentChannel.close();
+                openSegment(segmentId + 1);
+            }
+        }
+
+        synchronized (durableMonitor) {
+            durablePosition = Math.max(durablePosition, batchEnd);
+            durableMonitor.notifyAll();
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            events.onWarning("Background log sync failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Write the full state to a new snapshot and drop every segment it covers. Caller must hold both locks.
+     */
+    private void compactLocked() throws IOException {
+        // The views actually written; the buildings may have changed since, under the service's locks only
+        List<BuildingSnapshot> written = new ArrayList<>(buildings.size());
+        // Records still pending are part of the in-memory state and are therefore covered by the snapshot
+        pending.reset();
+        segmentChannel.close();
+        long baseSegment = segmentId + 1;
+
+        Path tempFile = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(baseSegment);
+            out.writeInt(buildings.size());
+            for (Building building : buildings.values()) {
+                written.add(writeSnapshotBuilding(out, building));
+            }
+            out.flush();
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            channel.force(true);
+            bytesWritten.addAndGet(channel.size());
+        }
+        Files.move(tempFile, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+        for (long id : listSegmentIds()) {
+            if (id < baseSegment) {
+                Files.deleteIfExists(segmentPath(id));
+            }
+        }
+        for (BuildingSnapshot view : written) {
+            logStates.put(view.getName(), LogState.of(view));
+        }
+        bytesSinceSnapshot = 0;
+        durablePosition = appendedPosition;
+        openSegment(baseSegment);
+    }
+
+    /**
+     * Write one building to the snapshot and return the view that was written.
+     */
+    private BuildingSnapshot writeSnapshotBuilding(DataOutputStream out, Building building) throws IOException {
+        BuildingSnapshot view = building.snapshot();
+        out.writeUTF(view.getName());
+        writeNullableUTF(out, view.getAddress());
+        out.writeDouble(view.getCurrentPrice());
+        PriceSeries history = view.getHistory();
+        int size = history.size();
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeDouble(history.getPrice(i));
+            out.writeLong(history.getTimestamp(i));
+            out.writeDouble(history.getChangePercentage(i));
+        }
+        return view;
+    }
+
+    /**
+     * Rebuild the in-memory state from the snapshot and the log segments written after it.
+     */
+    private void recover() throws IOException {
+        long baseSegment = 0;
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            baseSegment = readSnapshot(snapshot);
+        }
+
+        List<Long> segmentIds = listSegmentIds();
+        segmentId = baseSegment;
+        for (int i = 0; i < segmentIds.size(); i++) {
+            long id = segmentIds.get(i);
+            if (id < baseSegment) {
+                // Left over from a compaction interrupted after the snapshot was published
+                Files.deleteIfExists(segmentPath(id));
+                continue;
+            }
+            replaySegment(id, i == segmentIds.size() - 1);
+            segmentId = id;
+        }
+
+        for (Building building : buildings.values()) {
+            building.updateTrend();
+            logStates.put(building.getName(), LogState.of(building.snapshot()));
+        }
+    }
+
+    private long readSnapshot(Path snapshot) throws IOException {
+        try (InputStream in = Files.newInputStream(snapshot)) {
+            CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(in, 64 * 1024), new CRC32());
+            DataInputStream data = new DataInputStream(checked);
+            if (data.readInt() != SNAPSHOT_MAGIC || data.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Unrecognized snapshot format in " + snapshot);
+            }
+            long baseSegment = data.readLong();
+            int count = data.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = data.readUTF();
+                String address = readNullableUTF(data);
+                Building building = new Building(name, address, data.readDouble());
+                int historySize = data.readInt();
+                for (int j = 0; j < historySize; j++) {
+                    building.addPriceHistory(data.readDouble(), data.readLong(), data.readDouble());
+                }
+                buildings.put(name, building);
+            }
+            long expected = checked.getChecksum().getValue();
+            if (data.readLong() != expected) {
+                throw new IOException("Snapshot checksum mismatch in " + snapshot);
+            }
+            return baseSegment;
+        }
+    }
+
+    /**
+     * Apply every intact record of a segment. A torn record at the end of the newest segment is truncated away;
+     * damage anywhere else is reported as an error.
+     */
+    private void replaySegment(long id, boolean newest) throws IOException {
+        Path path = segmentPath(id);
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 64 * 1024))) {
+            byte[] payload = new byte[256];
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                try {
+                    int expectedCrc = in.readInt();
+                    if (length <= 0 || length > maxSegmentBytes + MAX_PENDING_BYTES) {
+                        throw new IOException("Invalid record length " + length);
+                    }
+                    if (payload.length < length) {
+                        payload = new byte[Math.max(length, payload.length * 2)];
+                    }
+                    in.readFully(payload, 0, length);
+                    crc.reset();
+                    crc.update(payload, 0, length);
+                    if ((int) crc.getValue() != expectedCrc) {
+                        throw new IOException("Checksum mismatch");
+                    }
+                } catch (IOException e) {
+                    if (!newest) {
+                        throw new IOException("Corrupt record in " + path + " at offset " + validLength, e);
+                    }
+                    events.onWarning("Truncating torn write-ahead log tail in " + path + " at offset " + validLength,
+                            e);
+                    break;
+                }
+                applyRecord(new DataInputStream(new ByteArrayInputStream(payload, 0, length)));
+                validLength += 8L + length;
+            }
+        }
+
+        if (newest && Files.size(path) > validLength) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            }
+        }
+        bytesSinceSnapshot += validLength;
+    }
+
+    private void applyRecord(DataInputStream record) throws IOException {
+        byte type = record.readByte();
+        String name = record.readUTF();
+        switch (type) {
+            case RECORD_BUILDING: {
+                String address = readNullableUTF(record);
+                double currentPrice = record.readDouble();
+                boolean replaceHistory = record.readBoolean();
+                Building building = buildings.get(name);
+                if (building == null || replaceHistory) {
+                    building = new Building(name, address);
+                    buildings.put(name, building);
+                }
+                building.setAddress(address);
+                building.setCurrentPrice(currentPrice);
+                break;
+            }
+            case RECORD_PRICE: {
+                Building building = buildings.get(name);
+                if (building == null) {
+                    throw new IOException("Price record for unknown building '" + name + "'");
+                }
+                double price = record.readDouble();
+                building.addPriceHistory(price, record.readLong(), record.readDouble());
+                building.setCurrentPrice(price);
+                break;
+            }
+            case RECORD_DELETE:
+                buildings.remove(name);
+                break;
+            default:
+                throw new IOException("Unknown record type " + type);
+        }
+    }
+
+    private void openSegment(long id) throws IOException {
+        segmentId = id;
+        segmentChannel = FileChannel.open(segmentPath(id), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        segmentSize = segmentChannel.size();
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private List<Long> listSegmentIds() {
+        List<Long> ids = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String fileName = path.getFileName().toString();
+                String number = fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length());
+                try {
+                    ids.add(Long.parseLong(number));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list segments in " + directory, e);
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Storage has been closed.");
+        }
+    }
+
+    private static void writeNullableUTF(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableUTF(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static boolean equalsNullable(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * What the log currently says about a building.
+     */
+    private static final class LogState {
+        private String address;
+        private double currentPrice;
+        private int historyCount;
+        private int historyRevision;
+
+        private static LogState of(BuildingSnapshot view) {
+            LogState state = new LogState();
+            state.address = view.getAddress();
+            state.currentPrice = view.getCurrentPrice();
+            state.historyCount = view.getHistoryLength();
+            state.historyRevision = view.getHistoryRevision();
+            return state;
+        }
+    }
+}
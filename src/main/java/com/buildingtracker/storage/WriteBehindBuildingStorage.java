@@ -0,0 +1,457 @@
+package com.buildingtracker.storage;
+
+import com.buildingtracker.model.Building;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind decorator that moves storage writes off the caller's thread.
+ *
+ * <p>Saves and deletes are queued by building name and return immediately. Repeated writes of the same building
+ * coalesce into one pending entry, which is written from the building's latest snapshot. A background thread
+ * hands pending entries to the wrapped storage in batches, once a batch is full or the flush interval has passed.
+ * When the queue holds its maximum number of buildings, writers of further buildings block until the background
+ * thread catches up, for at most the enqueue timeout.
+ *
+ * <p>A failed background batch is queued again and retried after the flush interval. Until a batch succeeds,
+ * every save, delete and {@link #flush()} fails with an exception caused by the background failure, so callers
+ * find out that their writes are not reaching storage instead of waiting on a queue that cannot drain.
+ *
+ * <p>Single-building reads see queued writes. Whole-portfolio reads and writes, {@link #flush()} and
+ * {@link #close()} first write every queued entry on the caller's thread, so they observe and persist all
+ * earlier writes. Closing is required for durability: entries still queued when the process exits are lost.
+ */
+public class WriteBehindBuildingStorage implements BuildingStorage {
+    private static final int DEFAULT_MAX_PENDING = 10_000;
+    private static final int DEFAULT_MAX_BATCH_SIZE = 1_000;
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+    private static final long DEFAULT_ENQUEUE_TIMEOUT_MILLIS = 30_000;
+
+    private final BuildingStorage delegate;
+    private final int maxPending;
+    private final int maxBatchSize;
+    private final long flushIntervalNanos;
+    private final long enqueueTimeoutNanos;
+
+    // Pending writes by building name in arrival order; a null value is a queued delete
+    private final ReentrantLock queueLock = new ReentrantLock();
+    private final Condition batchReady = queueLock.newCondition();
+    private final Condition notFull = queueLock.newCondition();
+    private LinkedHashMap<String, Building> pending = new LinkedHashMap<>();
+    private Map<String, Building> inFlight = Collections.emptyMap();
+    // Set when a background batch fails, cleared once a batch is written
+    private RuntimeException backgroundFailure;
+    // Serializes writes to the delegate, so batches are applied in the order they were taken
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final Thread flusher;
+    private volatile boolean closed;
+    private final AtomicLong flushedBatches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    /**
+     * Constructor with default queue size, batch size and flush interval.
+     */
+    public WriteBehindBuildingStorage(BuildingStorage delegate) {
+        this(delegate, DEFAULT_MAX_PENDING, DEFAULT_MAX_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Constructor with the maximum number of queued buildings, the batch size that triggers an early flush and
+     * the longest time a write waits in the queue.
+     */
+    public WriteBehindBuildingStorage(BuildingStorage delegate, int maxPending, int maxBatchSize,
+                                      long flushIntervalMillis) {
+        this(delegate, maxPending, maxBatchSize, flushIntervalMillis, DEFAULT_ENQUEUE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Constructor with all settings.
+     *
+     * @param enqueueTimeoutMillis the longest time a write waits for room in a full queue before failing
+     */
+    public WriteBehindBuildingStorage(BuildingStorage delegate, int maxPending, int maxBatchSize,
+                                      long flushIntervalMillis, long enqueueTimeoutMillis) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Delegate storage cannot be null.");
+        }
+        if (maxPending <= 0 || maxBatchSize <= 0 || flushIntervalMillis <= 0 || enqueueTimeoutMillis <= 0) {
+            throw new IllegalArgumentException(
+                    "Queue size, batch size, flush interval and enqueue timeout must be positive.");
+        }
+        this.delegate = delegate;
+        this.maxPending = maxPending;
+        this.maxBatchSize = Math.min(maxBatchSize, maxPending);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.enqueueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(enqueueTimeoutMillis);
+        this.flusher = new Thread(this::runFlusher, "write-behind-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public void saveBuilding(Building building) {
+        enqueue(building.getName(), building);
+    }
+
+    @Override
+    public void saveBuildingBatch(Collection<Building> buildings) {
+        for (Building building : buildings) {
+            enqueue(building.getName(), building);
+        }
+    }
+
+    @Override
+    public void deleteBuilding(String buildingName) {
+        enqueue(buildingName, null);
+    }
+
+    /**
+     * Replace every stored building. Queued writes are superseded and dropped.
+     */
+    @Override
+    public void saveBuildings(List<Building> buildings) {
+        ensureOpen();
+        writeLock.lock();
+        try {
+            discardPending();
+            delegate.saveBuildings(buildings);
+            clearBackgroundFailure();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Building> loadBuildings() {
+        flush();
+        return delegate.loadBuildings();
+    }
+
+    @Override
+    public void forEachBuilding(Consumer<Building> action) {
+        flush();
+        delegate.forEachBuilding(action);
+    }
+
+    /**
+     * Load a building, answering from the queue when a write of it has not reached the wrapped storage yet.
+     */
+    @Override
+    public Building loadBuilding(String buildingName) {
+        queueLock.lock();
+        try {
+            if (pending.containsKey(buildingName)) {
+                return pending.get(buildingName);
+            }
+            if (inFlight.containsKey(buildingName)) {
+                return inFlight.get(buildingName);
+            }
+        } finally {
+            queueLock.unlock();
+        }
+        return delegate.loadBuilding(buildingName);
+    }
+
+    @Override
+    public boolean exists() {
+        queueLock.lock();
+        try {
+            if (!pending.isEmpty() || !inFlight.isEmpty()) {
+                return true;
+            }
+        } finally {
+            queueLock.unlock();
+        }
+        return delegate.exists();
+    }
+
+    @Override
+    public void clearAll() {
+        writeLock.lock();
+        try {
+            discardPending();
+            delegate.clearAll();
+            clearBackgroundFailure();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Write every queued entry to the wrapped storage on the caller's thread and return once they are written. This
+     * retries a failed background batch, and when it succeeds, writes are accepted again.
+     */
+    public void flush() {
+        writeLock.lock();
+        try {
+            // Holding the write lock means no background batch is in flight, so this covers every earlier write
+            writeBatch(Integer.MAX_VALUE);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Stop the background thread, write every queued entry and close the wrapped storage, which is closed even if
+     * the final write fails.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        queueLock.lock();
+        try {
+            closed = true;
+            batchReady.signalAll();
+            notFull.signalAll();
+        } finally {
+            queueLock.unlock();
+        }
+        boolean interrupted = false;
+        while (flusher.isAlive()) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                // Keep waiting; the final flush must not race a background batch
+                interrupted = true;
+            }
+        }
+        try {
+            flush();
+        } finally {
+            try {
+                delegate.close();
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return delegate.getBytesWritten();
+    }
+
+    /**
+     * Get the number of buildings waiting to be written.
+     */
+    public int getPendingCount() {
+        queueLock.lock();
+        try {
+            return pending.size();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    public long getFlushedBatchCount() {
+        return flushedBatches.get();
+    }
+
+    /**
+     * Get the number of background batches that failed and were queued again for the next attempt.
+     */
+    public long getFailedBatchCount() {
+        return failedBatches.get();
+    }
+
+    private void enqueue(String buildingName, Building building) {
+        if (buildingName == null) {
+            throw new IllegalArgumentException("Building name cannot be null.");
+        }
+        queueLock.lock();
+        try {
+            ensureWritable();
+            long remaining = enqueueTimeoutNanos;
+            while (!pending.containsKey(buildingName) && pending.size() >= maxPending) {
+                // Backpressure: wait for the background thread instead of growing the queue
+                if (remaining <= 0) {
+                    throw new IllegalStateException("Write-behind queue still full after "
+                            + TimeUnit.NANOSECONDS.toMillis(enqueueTimeoutNanos) + " ms.");
+                }
+                remaining = notFull.awaitNanos(remaining);
+                ensureWritable();
+            }
+            pending.put(buildingName, building);
+            if (pending.size() >= maxBatchSize) {
+                batchReady.signal();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for room in the write-behind queue.", e);
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    /**
+     * Fail if the storage is closed or the background thread cannot write. Caller must hold the queue lock.
+     */
+    private void ensureWritable() {
+        ensureOpen();
+        if (backgroundFailure != null) {
+            throw new IllegalStateException("Background write to the wrapped storage failed; writes are retried.",
+                    backgroundFailure);
+        }
+    }
+
+    /**
+     * Background loop: write a batch whenever one is full or the flush interval has passed.
+     */
+    private void runFlusher() {
+        boolean failed = false;
+        while (true) {
+            queueLock.lock();
+            try {
+                long remaining = flushIntervalNanos;
+                // After a failure, wait out the interval before retrying even if a batch is full
+                while (!closed && (failed || pending.size() < maxBatchSize) && remaining > 0) {
+                    remaining = batchReady.awaitNanos(remaining);
+                }
+                if (closed) {
+                    // close() writes whatever is left on its own thread
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                queueLock.unlock();
+            }
+
+            writeLock.lock();
+            try {
+                writeBatch(maxBatchSize);
+                failed = false;
+            } catch (RuntimeException e) {
+                failed = true;
+                queueLock.lock();
+                try {
+                    backgroundFailure = e;
+                    // Writers blocked on a full queue fail now rather than at their timeout
+                    notFull.signalAll();
+                } finally {
+                    queueLock.unlock();
+                }
+                failedBatches.incrementAndGet();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Take up to {@code limit} queued entries, oldest first, and write them. Failed entries are queued again
+     * unless a newer write of the same building arrived meanwhile. Caller must hold the write lock.
+     *
+     * @return whether anything was written
+     */
+    private boolean writeBatch(int limit) {
+        Map<String, Building> batch;
+        queueLock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return false;
+            }
+            if (pending.size() <= limit) {
+                batch = pending;
+                pending = new LinkedHashMap<>();
+            } else {
+                batch = new LinkedHashMap<>();
+                Iterator<Map.Entry<String, Building>> entries = pending.entrySet().iterator();
+                while (batch.size() < limit) {
+                    Map.Entry<String, Building> entry = entries.next();
+                    batch.put(entry.getKey(), entry.getValue());
+                    entries.remove();
+                }
+            }
+            inFlight = batch;
+            notFull.signalAll();
+        } finally {
+            queueLock.unlock();
+        }
+
+        try {
+            List<Building> saves = new ArrayList<>(batch.size());
+            List<String> deletes = new ArrayList<>();
+            for (Map.Entry<String, Building> entry : batch.entrySet()) {
+                if (entry.getValue() != null) {
+                    saves.add(entry.getValue());
+                } else {
+                    deletes.add(entry.getKey());
+                }
+            }
+            if (!saves.isEmpty()) {
+                delegate.saveBuildingBatch(saves);
+            }
+            for (String buildingName : deletes) {
+                delegate.deleteBuilding(buildingName);
+            }
+            flushedBatches.incrementAndGet();
+            clearBackgroundFailure();
+        } catch (RuntimeException e) {
+            requeue(batch);
+            throw e;
+        } finally {
+            queueLock.lock();
+            try {
+                inFlight = Collections.emptyMap();
+            } finally {
+                queueLock.unlock();
+            }
+        }
+        return true;
+    }
+
+    private void clearBackgroundFailure() {
+        queueLock.lock();
+        try {
+            backgroundFailure = null;
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private void requeue(Map<String, Building> batch) {
+        queueLock.lock();
+        try {
+            LinkedHashMap<String, Building> restored = new LinkedHashMap<>(batch);
+            // Newer writes of the same buildings win over the failed ones
+            restored.putAll(pending);
+            pending = restored;
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private void discardPending() {
+        queueLock.lock();
+        try {
+            pending = new LinkedHashMap<>();
+            notFull.signalAll();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Storage has been closed.");
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.buildingtracker.alert;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RuleIndexTest {
+
+    @Test
+    public void priceAboveFiresFromAtThresholdButNotOnReachingIt() {
+        AlertRule rule = AlertRule.priceAbove("Tower", 100.0);
+        RuleIndex index = RuleIndex.EMPTY.with(rule);
+
+        assertTrue(ticks(index, 90.0, 100.0).isEmpty());
+        assertEquals(List.of(rule), ticks(index, 100.0, 100.01));
+        assertEquals(List.of(rule), ticks(index, 99.0, 101.0));
+        assertTrue(ticks(index, 100.01, 102.0).isEmpty());
+        assertTrue(ticks(index, 100.0, 100.0).isEmpty());
+        assertTrue(ticks(index, 101.0, 99.0).isEmpty());
+    }
+
+    @Test
+    public void priceBelowFiresFromAtThresholdButNotOnReachingIt() {
+        AlertRule rule = AlertRule.priceBelow("Tower", 100.0);
+        RuleIndex index = RuleIndex.EMPTY.with(rule);
+
+        assertTrue(ticks(index, 110.0, 100.0).isEmpty());
+        assertEquals(List.of(rule), ticks(index, 100.0, 99.99));
+        assertEquals(List.of(rule), ticks(index, 101.0, 99.0));
+        assertTrue(ticks(index, 99.99, 98.0).isEmpty());
+        assertTrue(ticks(index, 99.0, 101.0).isEmpty());
+    }
+
+    @Test
+    public void changeRulesIncludeTheirThreshold() {
+        AlertRule above = AlertRule.changeAbove("Tower", 5.0);
+        AlertRule below = AlertRule.changeBelow("Tower", -5.0);
+        RuleIndex index = RuleIndex.EMPTY.with(above).with(below);
+
+        assertEquals(List.of(above), changes(index, 5.0));
+        assertEquals(List.of(above), changes(index, 12.0));
+        assertTrue(changes(index, 4.99).isEmpty());
+        assertEquals(List.of(below), changes(index, -5.0));
+        assertTrue(changes(index, -4.99).isEmpty());
+        assertTrue(changes(index, Double.NaN).isEmpty());
+    }
+
+    @Test
+    public void ticksVisitEveryCrossedThresholdInOrder() {
+        AlertRule low = AlertRule.priceAbove("Tower", 100.0);
+        AlertRule middle = AlertRule.priceAbove("Tower", 110.0);
+        AlertRule high = AlertRule.priceAbove("Tower", 120.0);
+        RuleIndex index = RuleIndex.EMPTY.with(high).with(low).with(middle);
+
+        assertEquals(List.of(low, middle), ticks(index, 100.0, 115.0));
+        assertEquals(List.of(middle, high), ticks(index, 110.0, 130.0));
+    }
+
+    @Test
+    public void rulesWithEqualThresholdsFireAndAreRemovedSeparately() {
+        AlertRule first = AlertRule.priceAbove("Tower", 100.0);
+        AlertRule second = AlertRule.priceAbove("Tower", 100.0);
+        RuleIndex index = RuleIndex.EMPTY.with(first).with(second);
+
+        assertEquals(List.of(first, second), ticks(index, 99.0, 101.0));
+
+        RuleIndex withoutFirst = index.without(first);
+        assertEquals(List.of(second), ticks(withoutFirst, 99.0, 101.0));
+        assertEquals(List.of(first, second), ticks(index, 99.0, 101.0));
+        assertSame(withoutFirst, withoutFirst.without(first));
+        assertTrue(withoutFirst.without(second).isEmpty());
+    }
+
+    @Test
+    public void removingUnknownRuleReturnsSameIndex() {
+        AlertRule rule = AlertRule.priceAbove("Tower", 100.0);
+        RuleIndex index = RuleIndex.EMPTY.with(rule);
+
+        assertSame(index, index.without(AlertRule.priceAbove("Tower", 100.0)));
+        assertSame(index, index.without(AlertRule.priceBelow("Tower", 100.0)));
+        assertSame(index, index.without(AlertRule.directionFlip("Tower")));
+    }
+
+    @Test
+    public void volatilityAboveFiresOnlyWhenRisingPastThreshold() {
+        AlertRule rule = AlertRule.volatilityAbove("Tower", 2.0);
+        RuleIndex index = RuleIndex.EMPTY.with(rule);
+
+        assertEquals(List.of(rule), trends(index, 2.0, 2.5, false));
+        assertTrue(trends(index, 1.0, 2.0, false).isEmpty());
+        assertTrue(trends(index, 3.0, 1.0, false).isEmpty());
+        assertTrue(trends(index, 2.5, 3.0, false).isEmpty());
+    }
+
+    @Test
+    public void directionRulesFireOnlyOnChangeAndCountAsTrendRules() {
+        AlertRule flip = AlertRule.directionFlip("Tower");
+        RuleIndex index = RuleIndex.EMPTY.with(flip);
+
+        assertTrue(index.hasTrendRules());
+        assertEquals(List.of(flip), trends(index, 0.0, 0.0, true));
+        assertTrue(trends(index, 0.0, 0.0, false).isEmpty());
+        assertTrue(index.without(flip).isEmpty());
+
+        assertFalse(RuleIndex.EMPTY.with(AlertRule.priceAbove("Tower", 1.0)).hasTrendRules());
+        assertTrue(RuleIndex.EMPTY.with(AlertRule.volatilityAbove("Tower", 1.0)).hasTrendRules());
+    }
+
+    private static List<AlertRule> ticks(RuleIndex index, double previousPrice, double price) {
+        List<AlertRule> fired = new ArrayList<>();
+        index.matchTick(previousPrice, price, Double.NaN, fired::add);
+        return fired;
+    }
+
+    private static List<AlertRule> changes(RuleIndex index, double changePercentage) {
+        List<AlertRule> fired = new ArrayList<>();
+        index.matchTick(100.0, 100.0, changePercentage, fired::add);
+        return fired;
+    }
+
+    private static List<AlertRule> trends(RuleIndex index, double previousVolatility, double volatility,
+                                          boolean directionChanged) {
+        List<AlertRule> fired = new ArrayList<>();
+        index.matchTrend(previousVolatility, volatility, directionChanged, fired::add);
+        return fired;
+    }
+}
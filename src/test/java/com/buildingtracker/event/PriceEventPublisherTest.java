@@ -0,0 +1,202 @@
+package com.buildingtracker.event;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PriceEventPublisherTest {
+    // Runs delivery inline, so every assertion sees the state right after the call that triggered it
+    private static final Executor SYNCHRONOUS = Runnable::run;
+
+    @Test
+    public void deliversOnlyRequestedEventsInOrder() {
+        PriceEventPublisher publisher = new PriceEventPublisher(SYNCHRONOUS, 1000, OverflowPolicy.DROP_OLDEST);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        assertTrue(publisher.hasSubscribers());
+
+        publish(publisher, 0, 5);
+        assertEquals(List.of(), subscriber.received);
+        subscriber.subscription.request(2);
+        assertEquals(List.of(0L, 1L), subscriber.received);
+        subscriber.subscription.request(1);
+        assertEquals(List.of(0L, 1L, 2L), subscriber.received);
+
+        // More than one delivery task's worth, and demand that overflows to unbounded
+        subscriber.subscription.request(Long.MAX_VALUE);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        publish(publisher, 5, 600);
+        assertEquals(600, subscriber.received.size());
+        for (int i = 0; i < 600; i++) {
+            assertEquals(i, (long) subscriber.received.get(i));
+        }
+        assertEquals(600, publisher.getPublishedCount());
+        assertEquals(0, publisher.getDroppedCount());
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    public void dropOldestKeepsTheLatestEvents() {
+        PriceEventPublisher publisher = new PriceEventPublisher(SYNCHRONOUS, 3, OverflowPolicy.DROP_OLDEST);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        publish(publisher, 0, 6);
+        subscriber.subscription.request(10);
+
+        assertEquals(List.of(3L, 4L, 5L), subscriber.received);
+        assertEquals(3, publisher.getDroppedCount());
+        publish(publisher, 6, 7);
+        assertEquals(List.of(3L, 4L, 5L, 6L), subscriber.received);
+    }
+
+    @Test
+    public void dropNewestKeepsAnUnbrokenPrefix() {
+        PriceEventPublisher publisher = new PriceEventPublisher(SYNCHRONOUS, 1000, OverflowPolicy.DROP_OLDEST);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber, 3, OverflowPolicy.DROP_NEWEST);
+
+        publish(publisher, 0, 6);
+        subscriber.subscription.request(10);
+
+        assertEquals(List.of(0L, 1L, 2L), subscriber.received);
+        assertEquals(3, publisher.getDroppedCount());
+        assertEquals(1, publisher.getSubscriberCount());
+    }
+
+    @Test
+    public void cancelPolicySignalsOverflowOnceTheRequestedEventsAreDelivered() {
+        PriceEventPublisher publisher = new PriceEventPublisher(SYNCHRONOUS, 3, OverflowPolicy.CANCEL);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        RecordingSubscriber other = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        publisher.subscribe(other, 10, OverflowPolicy.DROP_NEWEST);
+        subscriber.subscription.request(2);
+        other.subscription.request(Long.MAX_VALUE);
+
+        publish(publisher, 0, 5);
+        assertEquals(List.of(0L, 1L), subscriber.received);
+        assertNull(subscriber.error);
+        assertEquals(2, publisher.getSubscriberCount());
+
+        // The fourth unrequested event overflows; the three buffered ones were never requested
+        publish(publisher, 5, 6);
+        assertTrue(subscriber.error instanceof BufferOverflowException);
+        assertFalse(subscriber.completed);
+        assertEquals(1, publisher.getSubscriberCount());
+        assertEquals(1, publisher.getDroppedCount());
+
+        publish(publisher, 6, 7);
+        subscriber.subscription.request(10);
+        assertEquals(List.of(0L, 1L), subscriber.received);
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L, 6L), other.received);
+    }
+
+    @Test
+    public void closeCompletesAfterBufferedEventsAreDelivered() {
+        PriceEventPublisher publisher = new PriceEventPublisher(SYNCHRONOUS, 10, OverflowPolicy.DROP_OLDEST);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        publish(publisher, 0, 3);
+
+        publisher.close();
+        assertFalse(subscriber.completed);
+        assertFalse(publisher.hasSubscribers());
+        publish(publisher, 3, 5);
+        assertEquals(3, publisher.getPublishedCount());
+
+        subscriber.subscription.request(2);
+        assertEquals(List.of(0L, 1L), subscriber.received);
+        assertFalse(subscriber.completed);
+        subscriber.subscription.request(2);
+        assertEquals(List.of(0L, 1L, 2L), subscriber.received);
+        assertTrue(subscriber.completed);
+
+        // Subscribing to a closed publisher completes at once
+        RecordingSubscriber late = new RecordingSubscriber();
+        publisher.subscribe(late);
+        assertTrue(late.completed);
+        assertEquals(List.of(), late.received);
+    }
+
+    @Test
+    public void throwingSubscriberIsCancelled() {
+        PriceEventPublisher publisher = new PriceEventPublisher(SYNCHRONOUS, 10, OverflowPolicy.DROP_OLDEST);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        subscriber.throwAt = 1L;
+        RecordingSubscriber other = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        publisher.subscribe(other);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        other.subscription.request(Long.MAX_VALUE);
+
+        publish(publisher, 0, 4);
+
+        assertEquals(List.of(0L, 1L), subscriber.received);
+        assertNull(subscriber.error);
+        assertFalse(subscriber.completed);
+        assertEquals(1, publisher.getSubscriberCount());
+        assertEquals(List.of(0L, 1L, 2L, 3L), other.received);
+    }
+
+    @Test
+    public void nonPositiveRequestFailsAtOnce() {
+        PriceEventPublisher publisher = new PriceEventPublisher(SYNCHRONOUS, 10, OverflowPolicy.DROP_OLDEST);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        publish(publisher, 0, 3);
+
+        subscriber.subscription.request(0);
+
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertEquals(List.of(), subscriber.received);
+    }
+
+    private static void publish(PriceEventPublisher publisher, int from, int to) {
+        for (int i = from; i < to; i++) {
+            publisher.publish(PriceEvent.buildingAdded("Tower", 100.0 + i, i));
+        }
+    }
+
+    /**
+     * Records event timestamps and terminal signals; requests nothing on its own.
+     */
+    private static final class RecordingSubscriber implements Flow.Subscriber<PriceEvent> {
+        final List<Long> received = new ArrayList<>();
+        Flow.Subscription subscription;
+        Throwable error;
+        boolean completed;
+        Long throwAt;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(PriceEvent item) {
+            received.add(item.getTimestamp());
+            if (throwAt != null && item.getTimestamp() == throwAt) {
+                throw new IllegalStateException("Subscriber failed");
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
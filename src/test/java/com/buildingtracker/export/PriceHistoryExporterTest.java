@@ -0,0 +1,341 @@
+package com.buildingtracker.export;
+
+import com.buildingtracker.model.Building;
+import com.buildingtracker.model.BuildingSnapshot;
+import com.buildingtracker.model.PriceSeries;
+import com.buildingtracker.model.PriceTrend;
+import com.buildingtracker.service.BuildingService;
+import com.buildingtracker.service.ServiceEventListener;
+import com.buildingtracker.storage.InMemoryBuildingStorage;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PriceHistoryExporterTest {
+    private static final long DAY = 86_400_000L;
+    // 10000-01-01T00:00:00Z, past the four-digit years of the cached day prefix
+    private static final long YEAR_10000 = 253_402_300_800_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ExecutorService executor;
+    private PriceHistoryExporter exporter;
+    private List<BuildingSnapshot> buildings;
+
+    @Before
+    public void setUp() {
+        BuildingService service = new BuildingService(new InMemoryBuildingStorage());
+        service.setEventListener(ServiceEventListener.NONE);
+        executor = Executors.newFixedThreadPool(2);
+        exporter = new PriceHistoryExporter(service, executor, 3);
+        // Several waves of batches, each a few buildings
+        exporter.setBatchRows(40);
+
+        SplittableRandom random = new SplittableRandom(3L);
+        buildings = new ArrayList<>();
+        buildings.add(building("Tower", "1 Main St", new PriceTrend("UP", 1.23456, 0.5), random, 30, -3 * DAY - 5));
+        buildings.add(building("Annex, \"East\"", null, new PriceTrend(), random, 25, -40L * 365 * DAY));
+        buildings.add(building("Caf\u00e9 \u2615 \uD834\uDD1E", "R\u00fce de l'\u00c9glise", null, random, 10,
+                1_700_000_000_000L));
+        buildings.add(building("Line\nbreak \\ tab\t\u0001", "4 \"Main\" St", new PriceTrend("DOWN", -2.0, 1e-9),
+                random, 5, YEAR_10000 - 2_000));
+        buildings.add(building("Empty", "5 Main St", new PriceTrend(), random, 0, 0L));
+        // Larger than a renderer's buffer, so partitions drain to their file while rendering
+        buildings.add(building("Long", "6 Main St", new PriceTrend("STABLE", 0.0, 0.0), random, 8_000, -DAY / 2));
+        for (int b = 0; b < 20; b++) {
+            buildings.add(building("Tower " + b, b + " Side St", new PriceTrend("UP", b / 3.0, b / 7.0), random,
+                    random.nextInt(8), random.nextLong(-100 * DAY, 100 * DAY)));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void csvHistoryRoundTrips() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("history.csv");
+        ExportResult result = exporter.export(buildings, file, ExportFormat.CSV);
+
+        assertEquals(totalHistory(), result.getRowCount());
+        assertEquals(Files.size(file), result.getBytesWritten());
+        assertHistoryRows(readCsvHistory(List.of(file)));
+    }
+
+    @Test
+    public void ndjsonHistoryRoundTrips() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("history.ndjson");
+        ExportResult result = exporter.export(buildings, file, ExportFormat.NDJSON);
+
+        assertEquals(totalHistory(), result.getRowCount());
+        assertHistoryRows(readJsonHistory(List.of(file)));
+    }
+
+    @Test
+    public void binaryHistoryRoundTripsExactly() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("history.bin");
+        exporter.export(buildings, file, ExportFormat.BINARY);
+
+        assertBinary(readBinary(List.of(file)), true);
+    }
+
+    @Test
+    public void partitionedExportsHoldEveryBuildingOnceInOrder() throws IOException {
+        for (ExportFormat format : ExportFormat.values()) {
+            for (int partitions : new int[]{1, 3, buildings.size() + 4}) {
+                Path directory = folder.getRoot().toPath().resolve(format + "-" + partitions);
+                ExportResult result = exporter.exportPartitioned(buildings, directory, format, partitions);
+
+                assertEquals(partitions, result.getFiles().size());
+                assertEquals(totalHistory(), result.getRowCount());
+                long bytes = 0;
+                for (Path file : result.getFiles()) {
+                    bytes += Files.size(file);
+                }
+                assertEquals(bytes, result.getBytesWritten());
+                if (format == ExportFormat.CSV) {
+                    assertHistoryRows(readCsvHistory(result.getFiles()));
+                } else if (format == ExportFormat.NDJSON) {
+                    assertHistoryRows(readJsonHistory(result.getFiles()));
+                } else {
+                    assertBinary(readBinary(result.getFiles()), true);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void trendExportsRoundTrip() throws IOException {
+        exporter.setContent(ExportContent.TRENDS);
+        Path csv = folder.getRoot().toPath().resolve("trends.csv");
+        Path ndjson = folder.getRoot().toPath().resolve("trends.ndjson");
+        Path binary = folder.getRoot().toPath().resolve("trends.bin");
+        assertEquals(buildings.size(), exporter.export(buildings, csv, ExportFormat.CSV).getRowCount());
+        exporter.export(buildings, ndjson, ExportFormat.NDJSON);
+        exporter.export(buildings, binary, ExportFormat.BINARY);
+
+        List<List<String>> rows = parseCsv(csv);
+        assertEquals(List.of("building", "address", "current_price", "trend", "average_change", "volatility",
+                "history_size"), rows.get(0));
+        List<String> jsonLines = Files.readAllLines(ndjson, StandardCharsets.UTF_8);
+        assertEquals(buildings.size(), jsonLines.size());
+        for (int b = 0; b < buildings.size(); b++) {
+            BuildingSnapshot expected = buildings.get(b);
+            PriceTrend trend = expected.getRecentTrend();
+            List<String> row = rows.get(b + 1);
+            assertEquals(expected.getName(), row.get(0));
+            assertEquals(expected.getAddress() != null ? expected.getAddress() : "", row.get(1));
+            assertEquals(expected.getCurrentPrice(), Double.parseDouble(row.get(2)), 0.0);
+            assertEquals(trend.getTrendDirection(), row.get(3));
+            assertEquals(rounded(trend.getAverageChange()), Double.parseDouble(row.get(4)), 0.0);
+            assertEquals(rounded(trend.getVolatility()), Double.parseDouble(row.get(5)), 0.0);
+            assertEquals(expected.getHistoryLength(), Integer.parseInt(row.get(6)));
+
+            JsonObject json = JsonParser.parseString(jsonLines.get(b)).getAsJsonObject();
+            assertEquals(expected.getName(), json.get("building").getAsString());
+            assertEquals(expected.getAddress(), nullableString(json.get("address")));
+            assertEquals(expected.getCurrentPrice(), json.get("currentPrice").getAsDouble(), 0.0);
+            assertEquals(trend.getTrendDirection(), nullableString(json.get("trend")));
+            assertEquals(rounded(trend.getVolatility()), json.get("volatility").getAsDouble(), 0.0);
+            assertEquals(expected.getHistoryLength(), json.get("historySize").getAsInt());
+        }
+        assertBinary(readBinary(List.of(binary)), false);
+    }
+
+    /**
+     * A building whose history starts at {@code start} and steps by up to a day, mixing prices in cents with
+     * arbitrary doubles.
+     */
+    private static BuildingSnapshot building(String name, String address, PriceTrend trend, SplittableRandom random,
+                                             int size, long start) {
+        long[] timestamps = new long[size];
+        double[] prices = new double[size];
+        double[] changes = new double[size];
+        long timestamp = start;
+        for (int i = 0; i < size; i++) {
+            timestamps[i] = timestamp;
+            timestamp += random.nextInt(4) == 0 ? random.nextLong(DAY) : random.nextInt(1000);
+            switch (random.nextInt(5)) {
+                case 0:
+                    prices[i] = random.nextDouble() * Math.pow(10, random.nextInt(-9, 19));
+                    break;
+                case 1:
+                    prices[i] = 0.1 * random.nextInt(1000) + 0.2;
+                    break;
+                default:
+                    prices[i] = random.nextInt(100_000_000) / 100.0;
+                    break;
+            }
+            changes[i] = i == 0 ? Double.NaN : random.nextDouble(-60.0, 60.0);
+        }
+        double currentPrice = size > 0 ? prices[size - 1] : 42.5;
+        return Building.withLazyHistory(name, address, currentPrice, trend, size,
+                () -> PriceSeries.wrap(timestamps, prices, changes)).snapshot();
+    }
+
+    private long totalHistory() {
+        long total = 0;
+        for (BuildingSnapshot building : buildings) {
+            total += building.getHistoryLength();
+        }
+        return total;
+    }
+
+    /**
+     * Check parsed text rows, one {name, timestamp, price, change} per history entry, against the buildings.
+     */
+    private void assertHistoryRows(List<Object[]> rows) {
+        int row = 0;
+        for (BuildingSnapshot building : buildings) {
+            PriceSeries history = building.getHistory();
+            for (int i = 0; i < history.size(); i++, row++) {
+                Object[] parsed = rows.get(row);
+                String at = building.getName() + " #" + i;
+                assertEquals(at, building.getName(), parsed[0]);
+                assertEquals(at, history.getTimestamp(i), (long) (Long) parsed[1]);
+                assertEquals(at, Double.doubleToLongBits(history.getPrice(i)),
+                        Double.doubleToLongBits((Double) parsed[2]));
+                double change = history.getChangePercentage(i);
+                if (Double.isNaN(change)) {
+                    assertNull(at, parsed[3]);
+                } else {
+                    assertEquals(at, rounded(change), (Double) parsed[3], 0.0);
+                }
+            }
+        }
+        assertEquals(row, rows.size());
+    }
+
+    private void assertBinary(List<Building> read, boolean withHistory) {
+        assertEquals(buildings.size(), read.size());
+        for (int b = 0; b < buildings.size(); b++) {
+            BuildingSnapshot expected = buildings.get(b);
+            BuildingSnapshot actual = read.get(b).snapshot();
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getAddress(), actual.getAddress());
+            assertEquals(expected.getCurrentPrice(), actual.getCurrentPrice(), 0.0);
+            PriceTrend expectedTrend = expected.getRecentTrend();
+            assertEquals(expectedTrend.getTrendDirection(), actual.getRecentTrend().getTrendDirection());
+            assertEquals(expectedTrend.getAverageChange(), actual.getRecentTrend().getAverageChange(), 0.0);
+            assertEquals(expectedTrend.getVolatility(), actual.getRecentTrend().getVolatility(), 0.0);
+
+            PriceSeries expectedHistory = expected.getHistory();
+            PriceSeries actualHistory = actual.getHistory();
+            assertEquals(withHistory ? expectedHistory.size() : 0, actualHistory.size());
+            for (int i = 0; i < actualHistory.size(); i++) {
+                assertEquals(expectedHistory.getTimestamp(i), actualHistory.getTimestamp(i));
+                assertEquals(Double.doubleToLongBits(expectedHistory.getPrice(i)),
+                        Double.doubleToLongBits(actualHistory.getPrice(i)));
+                assertEquals(Double.doubleToLongBits(expectedHistory.getChangePercentage(i)),
+                        Double.doubleToLongBits(actualHistory.getChangePercentage(i)));
+            }
+        }
+    }
+
+    private static List<Building> readBinary(List<Path> files) {
+        List<Building> read = new ArrayList<>();
+        for (Path file : files) {
+            BinaryExportReader.forEachBuilding(file, read::add);
+        }
+        return read;
+    }
+
+    private static List<Object[]> readCsvHistory(List<Path> files) throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        for (Path file : files) {
+            List<List<String>> records = parseCsv(file);
+            assertEquals(List.of("building", "timestamp", "price", "change_percentage"), records.get(0));
+            for (List<String> record : records.subList(1, records.size())) {
+                assertEquals(4, record.size());
+                rows.add(new Object[]{record.get(0), Instant.parse(record.get(1)).toEpochMilli(),
+                        Double.parseDouble(record.get(2)),
+                        record.get(3).isEmpty() ? null : Double.parseDouble(record.get(3))});
+            }
+        }
+        return rows;
+    }
+
+    private static List<Object[]> readJsonHistory(List<Path> files) throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        for (Path file : files) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                JsonObject json = JsonParser.parseString(line).getAsJsonObject();
+                JsonElement change = json.get("changePercentage");
+                rows.add(new Object[]{json.get("building").getAsString(),
+                        Instant.parse(json.get("timestamp").getAsString()).toEpochMilli(),
+                        json.get("price").getAsDouble(), change.isJsonNull() ? null : change.getAsDouble()});
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Split a CSV file into records of fields, with quoted fields that may hold separators, quotes and line breaks.
+     */
+    private static List<List<String>> parseCsv(Path file) throws IOException {
+        String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        List<List<String>> records = new ArrayList<>();
+        List<String> record = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                record.add(field.toString());
+                field.setLength(0);
+                records.add(record);
+                record = new ArrayList<>();
+            } else {
+                field.append(c);
+            }
+        }
+        assertEquals("Unterminated last record", 0, field.length() + record.size());
+        return records;
+    }
+
+    private static String nullableString(JsonElement element) {
+        return element.isJsonNull() ? null : element.getAsString();
+    }
+
+    /**
+     * The value a text export gives back for a rounded field: half up to four decimals.
+     */
+    private static double rounded(double value) {
+        return Math.round(value * 10_000) / 10_000.0;
+    }
+}
@@ -0,0 +1,131 @@
+package com.buildingtracker.ingest;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FeedNumbersTest {
+
+    @Test
+    public void decimalsMatchParseDouble() {
+        SplittableRandom random = new SplittableRandom(7L);
+        for (int i = 0; i < 20_000; i++) {
+            String text;
+            switch (i % 4) {
+                case 0:
+                    // Prices as feeds write them: a few integer and fraction digits
+                    text = random.nextInt(1_000_000) + "." + random.nextInt(100);
+                    break;
+                case 1:
+                    // Up to and past the 15 digits the fast path handles exactly
+                    text = BigDecimal.valueOf(random.nextLong(1L, Long.MAX_VALUE), random.nextInt(25))
+                            .toPlainString();
+                    break;
+                case 2:
+                    text = Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(-8, 12)));
+                    break;
+                default:
+                    text = (random.nextBoolean() ? "-" : "+") + "000" + random.nextInt(10_000) + "."
+                            + random.nextInt(10_000) + "000";
+                    break;
+            }
+            assertEquals(text, Double.parseDouble(text), parseDecimal(text), 0.0);
+        }
+    }
+
+    @Test
+    public void decimalEdgeCases() {
+        for (String text : new String[]{"0", "-0", "0.0", ".5", "5.", "1e3", "-2.5E-3", "123456789012345",
+                "1234567890123456789", "0.1234567890123456789012345", "9007199254740993"}) {
+            assertEquals(text, Double.parseDouble(text), parseDecimal(text), 0.0);
+        }
+        for (String text : new String[]{"", "-", ".", "1.2.3", "12a", "NaN", "Infinity", "0x1p3", "1d", "1 2"}) {
+            assertTrue(text, Double.isNaN(parseDecimal(text)));
+        }
+    }
+
+    @Test
+    public void isoTimestampsMatchJavaTime() {
+        SplittableRandom random = new SplittableRandom(11L);
+        for (int i = 0; i < 20_000; i++) {
+            LocalDate date = LocalDate.ofEpochDay(random.nextLong(LocalDate.of(1, 1, 1).toEpochDay(),
+                    LocalDate.of(9999, 12, 31).toEpochDay() + 1));
+            if (i % 5 == 0) {
+                assertTimestamp(date.toString(), date.toEpochDay() * 86_400_000L);
+                continue;
+            }
+            int nanos = random.nextInt(1_000_000_000);
+            ZoneOffset offset = ZoneOffset.ofTotalSeconds(random.nextInt(-18 * 60, 18 * 60 + 1) * 60);
+            OffsetDateTime time = OffsetDateTime.of(date.getYear(), date.getMonthValue(), date.getDayOfMonth(),
+                    random.nextInt(24), random.nextInt(60), random.nextInt(60), nanos, offset);
+            int fractionDigits = random.nextInt(10);
+            String fraction = fractionDigits == 0 ? ""
+                    : "." + String.format("%09d", nanos).substring(0, fractionDigits);
+            String zone = offset.getTotalSeconds() == 0 && random.nextBoolean() ? "Z" : offset.getId();
+            String text = String.format("%s%c%02d:%02d:%02d%s%s", date, random.nextBoolean() ? 'T' : ' ',
+                    time.getHour(), time.getMinute(), time.getSecond(), fraction, zone);
+            // Fractions beyond milliseconds are truncated
+            long expected = time.withNano(truncatedNanos(nanos, fractionDigits)).toInstant().toEpochMilli();
+            assertTimestamp(text, expected);
+        }
+    }
+
+    @Test
+    public void timestampVariants() {
+        long morning = OffsetDateTime.of(2024, 3, 1, 9, 30, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+        assertTimestamp("2024-03-01T09:30", morning);
+        assertTimestamp("2024-03-01T09:30Z", morning);
+        assertTimestamp("2024-03-01 10:30+01:00", morning);
+        assertTimestamp("2024-03-01T10:30+0100", morning);
+        assertTimestamp("2024-03-01T11:30+02", morning);
+        assertTimestamp("2024-03-01T09:30:00.250Z", morning + 250);
+        assertTimestamp("2024-03-01T09:30:00.5", morning + 500);
+        assertTimestamp("1969-12-31T23:59:59.999Z", -1L);
+        assertTimestamp("2024-02-29", LocalDate.of(2024, 2, 29).toEpochDay() * 86_400_000L);
+        assertTimestamp("1709285400000", 1_709_285_400_000L);
+        assertTimestamp("0", 0L);
+
+        for (String text : new String[]{"", "2023-02-29", "2024-13-01", "2024-04-31", "2024-03-01T24:00",
+                "2024-03-01T09:60", "2024-03-01T09:30:60", "2024-03-01X09:30", "2024-03-01T09:30:00.",
+                "2024-03-01T09:30:00.1234567890", "2024-03-01T09:30+19:00", "2024-03-01T09:30Z1",
+                "2024-3-1", "-1000", "12a", "1234567890123456789"}) {
+            assertEquals(text, FeedNumbers.INVALID_TIMESTAMP, parseTimestamp(text));
+        }
+    }
+
+    @Test
+    public void parsesOnlyTheGivenRange() {
+        ByteBuffer buffer = ByteBuffer.wrap("x,12.75,2024-03-01,y".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(12.75, FeedNumbers.parseDecimal(buffer, 2, 7), 0.0);
+        assertEquals(LocalDate.of(2024, 3, 1).toEpochDay() * 86_400_000L, FeedNumbers.parseTimestamp(buffer, 8, 18));
+    }
+
+    private static int truncatedNanos(int nanos, int fractionDigits) {
+        int kept = Math.min(fractionDigits, 3);
+        int scale = (int) Math.pow(10, 9 - kept);
+        return nanos / scale * scale;
+    }
+
+    private static void assertTimestamp(String text, long expected) {
+        assertEquals(text, expected, parseTimestamp(text));
+    }
+
+    private static double parseDecimal(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        return FeedNumbers.parseDecimal(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    private static long parseTimestamp(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        return FeedNumbers.parseTimestamp(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+}
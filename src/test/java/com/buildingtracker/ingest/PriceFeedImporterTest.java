@@ -0,0 +1,155 @@
+package com.buildingtracker.ingest;
+
+import com.buildingtracker.model.Building;
+import com.buildingtracker.model.PriceSeries;
+import com.buildingtracker.service.BuildingService;
+import com.buildingtracker.service.ServiceEventListener;
+import com.buildingtracker.storage.InMemoryBuildingStorage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PriceFeedImporterTest {
+    private static final String ANNEX = "Annex, \"East\"";
+    private static final String CAFE = "Caf\u00e9 \"Nord\"";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private BuildingService service;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        service = new BuildingService(new InMemoryBuildingStorage());
+        service.setEventListener(ServiceEventListener.NONE);
+        service.addBuilding(new Building("Tower", "1 Main St", 100.0));
+        service.addBuilding(new Building(ANNEX, "2 Main St", 50.0));
+        service.addBuilding(new Building(CAFE, "3 Main St", 10.0));
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void csvSplitIntoManyChunksMergesInFeedOrderAndCountsRejectedRows() throws IOException {
+        Path feed = write("feed.csv", "\uFEFFtimestamp,Building,source,price\r\n"
+                + "3000,Tower,feed-a,103.0\r\n"
+                + "1000,Tower,feed-a,101.0\n"
+                + "1500,\"Annex, \"\"East\"\"\",feed-b,55.5\n"
+                + "1970-01-01T00:00:03Z,Tower,feed-a,104.0\n"
+                + "2000,Tower,feed-a,102\n"
+                + "\n"
+                + "2500,Tower,feed-a,abc\n"
+                + "2024-02-30,Tower,feed-a,1.0\n"
+                + "2600,,feed-a,1.0\n"
+                + "2700,Tower\n"
+                + "2800,Ghost,feed-a,1.0\n"
+                + "2900,\"Annex, \"\"East\"\"\",feed-b,-5\n"
+                + "1000, \"Annex, \"\"East\"\"\" ,feed-b,50.0");
+
+        // One wave of many chunks, most holding a single line
+        PriceFeedImporter importer = new PriceFeedImporter(service, executor, 64);
+        importer.setChunkBytes(16);
+        ImportResult result = importer.importFile(feed, FeedFormat.CSV, ImportProgressListener.NONE);
+
+        assertTrue(result.isComplete());
+        assertEquals(Files.size(feed), result.getBytesRead());
+        assertEquals(12, result.getRowCount());
+        assertEquals(6, result.getAppliedCount());
+        assertEquals(6, result.getRejectedCount());
+        Map<String, Long> reasons = result.getRejectedByReason();
+        assertEquals(Long.valueOf(1), reasons.get("Invalid price"));
+        assertEquals(Long.valueOf(1), reasons.get("Invalid timestamp"));
+        assertEquals(Long.valueOf(1), reasons.get("Missing building name"));
+        assertEquals(Long.valueOf(1), reasons.get("Malformed row"));
+        assertEquals(Long.valueOf(1), reasons.get("Building not found"));
+        assertEquals(Long.valueOf(1), reasons.get("Price must be a non-negative number"));
+        assertEquals(6, result.getRejectedSamples().size());
+
+        // Sorted by timestamp; the two rows at 3000 keep their feed order across chunks
+        assertHistory("Tower", new double[]{101.0, 102.0, 103.0, 104.0}, new long[]{1000L, 2000L, 3000L, 3000L});
+        assertHistory(ANNEX, new double[]{50.0, 55.5}, new long[]{1000L, 1500L});
+    }
+
+    @Test
+    public void ndjsonInWavesOfOneChunkRejectsTicksOlderThanEarlierWaves() throws IOException {
+        Path feed = write("feed.ndjson", "{\"building\":\"Tower\",\"price\":101.5,\"timestamp\":1000}\n"
+                + "{\"name\": \"Tower\", \"price\": \"102.5\", \"timestamp\": \"1970-01-01T00:00:02Z\","
+                + " \"tags\": {\"a\": [1, \"}\"]}}\n"
+                + "{\"building\":\"Caf\\u00e9 \\\"Nord\\\"\",\"price\":10,\"timestamp\":1000}\n"
+                + "{\"building\":\"" + CAFE.replace("\"", "\\\"") + "\",\"price\":11.25,\"timestamp\":2000}\n"
+                + "{\"building\":\"Tower\",\"price\":100.0,\"timestamp\":1500}\n"
+                + "{\"building\":\"Tower\",\"price\":null,\"timestamp\":3000}\n"
+                + "{\"building\":\"Tower\" \"price\":1}\n"
+                + "not json\n"
+                + "{\"price\":5,\"timestamp\":4000}\n"
+                + "{\"building\":\"Tower\",\"price\":103.5,\"timestamp\":4000,\"note\":null}\n");
+
+        PriceFeedImporter importer = new PriceFeedImporter(service, executor, 1);
+        importer.setChunkBytes(1);
+        ImportResult result = importer.importFile(feed, FeedFormat.NDJSON, ImportProgressListener.NONE);
+
+        assertEquals(10, result.getRowCount());
+        assertEquals(5, result.getAppliedCount());
+        assertEquals(5, result.getRejectedCount());
+        Map<String, Long> reasons = result.getRejectedByReason();
+        assertEquals(Long.valueOf(1), reasons.get("Older than the building's latest price"));
+        assertEquals(Long.valueOf(1), reasons.get("Invalid price"));
+        assertEquals(Long.valueOf(2), reasons.get("Malformed row"));
+        assertEquals(Long.valueOf(1), reasons.get("Missing building name"));
+
+        assertHistory("Tower", new double[]{101.5, 102.5, 103.5}, new long[]{1000L, 2000L, 4000L});
+        assertHistory(CAFE, new double[]{10.0, 11.25}, new long[]{1000L, 2000L});
+    }
+
+    @Test
+    public void csvWithoutHeaderOrTimestampsUsesImportTime() throws IOException {
+        Path feed = write("feed.csv", "Tower,120.5\n\"Annex, \"\"East\"\"\",60\n");
+        long before = System.currentTimeMillis();
+
+        ImportResult result;
+        try (PriceFeedImporter importer = new PriceFeedImporter(service, 2)) {
+            result = importer.importFile(feed);
+        }
+
+        assertEquals(2, result.getAppliedCount());
+        assertEquals(0, result.getRejectedCount());
+        PriceSeries history = service.getBuilding("Tower").getPriceSeries();
+        assertEquals(120.5, history.getPrice(0), 0.0);
+        assertTrue(history.getTimestamp(0) >= before);
+        assertEquals(60.0, service.getBuilding(ANNEX).getCurrentPrice(), 0.0);
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private void assertHistory(String building, double[] prices, long[] timestamps) {
+        PriceSeries history = service.getBuilding(building).getPriceSeries();
+        assertEquals(building, prices.length, history.size());
+        for (int i = 0; i < prices.length; i++) {
+            assertEquals(prices[i], history.getPrice(i), 0.0);
+            assertEquals(timestamps[i], history.getTimestamp(i));
+        }
+        assertEquals(prices[prices.length - 1], service.getBuilding(building).getCurrentPrice(), 0.0);
+    }
+}
@@ -0,0 +1,52 @@
+package com.buildingtracker.metrics;
+
+import com.buildingtracker.service.ServiceEventListener;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsReporterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void failedScheduledReportIsSentToListener() throws Exception {
+        Path missingDirectory = folder.getRoot().toPath().resolve("missing").resolve("metrics.csv");
+        BlockingQueue<String> warnings = new LinkedBlockingQueue<>();
+        MetricsReporter reporter = new MetricsReporter(new MetricsRegistry(), missingDirectory,
+                MetricsRegistry.Format.CSV, 20);
+        reporter.setEventListener(new ServiceEventListener() {
+            @Override
+            public boolean isEnabled(Level level) {
+                return level == Level.WARN;
+            }
+
+            @Override
+            public void onEvent(Level level, String message) {
+                warnings.add(message);
+            }
+        });
+        try {
+            String warning = warnings.poll(10, TimeUnit.SECONDS);
+            assertNotNull(warning);
+            assertTrue(warning.startsWith("Metrics report failed: "));
+            // The schedule survives the failure
+            assertNotNull(warnings.poll(10, TimeUnit.SECONDS));
+        } finally {
+            reporter.setEventListener(ServiceEventListener.NONE);
+            try {
+                reporter.close();
+            } catch (RuntimeException expected) {
+                // The final report fails for the same reason
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.buildingtracker.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class BuildingTest {
+
+    @Test
+    public void historyListSupportsRemovalLikeArrayList() {
+        Building building = new Building("Tower", "1 Main St", 100.0);
+        List<PriceHistory> expected = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            building.updatePrice(100.0 + i, 1000L * i);
+            expected.add(building.getPriceHistoryList().get(i - 1));
+        }
+        int revision = building.snapshot().getHistoryRevision();
+
+        List<PriceHistory> history = building.getPriceHistoryList();
+        assertEquals(expected.remove(19).getPrice(), history.remove(19).getPrice(), 0.0);
+        expected.remove(3);
+        history.remove(3);
+        for (Iterator<PriceHistory> it = history.iterator(); it.hasNext(); ) {
+            if (it.next().getTimestamp() % 2000 == 0) {
+                it.remove();
+            }
+        }
+        expected.removeIf(entry -> entry.getTimestamp() % 2000 == 0);
+
+        PriceSeriesTest.assertSameEntries(expected, building.snapshot().getHistory());
+        assertNotEquals(revision, building.snapshot().getHistoryRevision());
+        assertEquals(120.0, building.getCurrentPrice(), 0.0);
+
+        Building rebuilt = new Building("Copy", null);
+        rebuilt.setPriceHistoryList(expected);
+        building.updateTrend();
+        rebuilt.updateTrend();
+        assertEquals(rebuilt.getRecentTrend().getAverageChange(), building.getRecentTrend().getAverageChange(), 1e-9);
+    }
+}
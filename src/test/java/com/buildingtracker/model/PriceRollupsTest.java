@@ -0,0 +1,151 @@
+package com.buildingtracker.model;
+
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertEquals;
+
+public class PriceRollupsTest {
+    private static final long START = 1_600_000_000_000L;
+
+    @Test
+    public void queriesWithinMinuteRetentionMatchRawTicks() {
+        SplittableRandom random = new SplittableRandom(3L);
+        Building building = buildingWithTicks(random, 5_000, 40_000L);
+        PriceSeries history = building.getPriceSeries();
+        long last = history.getTimestamp(history.size() - 1);
+        for (int i = 0; i < 2_000; i++) {
+            long from = last - random.nextLong(PriceRollups.DEFAULT_MINUTE_RETENTION - PriceRollups.HOUR);
+            long to = from + random.nextLong(PriceRollups.DAY);
+            assertMatchesBruteForce(building, from, to);
+        }
+    }
+
+    @Test
+    public void queriesAcrossExpiredResolutionsMatchRawTicks() {
+        SplittableRandom random = new SplittableRandom(9L);
+        // Sparse ticks spanning about two years, so day, hour and minute buckets are all involved
+        Building building = buildingWithTicks(random, 20_000, 6 * PriceRollups.HOUR);
+        PriceSeries history = building.getPriceSeries();
+        long first = history.getTimestamp(0);
+        long last = history.getTimestamp(history.size() - 1);
+        for (int i = 0; i < 2_000; i++) {
+            long from = first - PriceRollups.DAY + random.nextLong(last - first + 2 * PriceRollups.DAY);
+            long to = from + random.nextLong(400 * PriceRollups.DAY);
+            assertMatchesBruteForce(building, from, to);
+        }
+        assertMatchesBruteForce(building, first, last + 1);
+        assertMatchesBruteForce(building, last, last);
+    }
+
+    @Test
+    public void rollupsBuiltOnFirstQueryFollowLaterTicks() {
+        SplittableRandom random = new SplittableRandom(4L);
+        Building building = buildingWithTicks(random, 1_000, 90_000L);
+        PriceSeries history = building.getPriceSeries();
+        long last = history.getTimestamp(history.size() - 1);
+        assertMatchesBruteForce(building, last - PriceRollups.DAY, last + 1);
+
+        double price = building.getCurrentPrice();
+        for (int i = 1; i <= 500; i++) {
+            price = Math.max(1.0, price + random.nextDouble() - 0.5);
+            building.updatePrice(price, last + i * 30_000L);
+        }
+        building.getPriceHistoryList().set(history.size() - 10, new PriceHistory(1.0, last + 4_985_000L, 0.0));
+        assertMatchesBruteForce(building, last - PriceRollups.DAY, last + PriceRollups.DAY);
+    }
+
+    private static Building buildingWithTicks(SplittableRandom random, int ticks, long maxGapMillis) {
+        Building building = new Building("Tower", "1 Main St", 100.0);
+        long timestamp = START;
+        double price = 100.0;
+        for (int i = 0; i < ticks; i++) {
+            // Some ticks share a timestamp, to check which one counts as first and last
+            timestamp += random.nextInt(10) == 0 ? 0 : 1 + random.nextLong(maxGapMillis);
+            price = Math.max(1.0, price + random.nextDouble() - 0.5);
+            building.updatePrice(price, timestamp);
+        }
+        return building;
+    }
+
+    /**
+     * Compare a rollup query with a scan over the raw ticks in the range the rollups document they answer: the
+     * query range widened to whole minutes, and to whole hours or days where finer buckets have expired.
+     */
+    private static void assertMatchesBruteForce(Building building, long from, long to) {
+        PriceWindowStats actual = building.getPriceRollups().query(from, to);
+        PriceSeries history = building.getPriceSeries();
+
+        long start = from;
+        long end = from;
+        if (from < to) {
+            long newest = history.getTimestamp(history.size() - 1);
+            long minuteHorizon = floorTo(newest, PriceRollups.MINUTE) - PriceRollups.DEFAULT_MINUTE_RETENTION;
+            long hourHorizon = floorTo(newest, PriceRollups.HOUR) - PriceRollups.DEFAULT_HOUR_RETENTION;
+            long cursor = floorTo(from, PriceRollups.MINUTE);
+            end = ceilTo(to, PriceRollups.MINUTE);
+            if (cursor < hourHorizon) {
+                start = floorTo(cursor, PriceRollups.DAY);
+                cursor = ceilTo(Math.min(end, hourHorizon), PriceRollups.DAY);
+            } else if (cursor < minuteHorizon) {
+                start = floorTo(cursor, PriceRollups.HOUR);
+            } else {
+                start = cursor;
+            }
+            if (cursor < end && cursor < minuteHorizon) {
+                cursor = ceilTo(Math.min(end, minuteHorizon), PriceRollups.HOUR);
+            }
+            end = Math.max(end, cursor);
+        }
+
+        long count = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0;
+        double first = 0;
+        double last = 0;
+        long firstTimestamp = Long.MAX_VALUE;
+        long lastTimestamp = Long.MIN_VALUE;
+        for (int i = 0; i < history.size(); i++) {
+            long timestamp = history.getTimestamp(i);
+            if (timestamp < start || timestamp >= end) {
+                continue;
+            }
+            double price = history.getPrice(i);
+            count++;
+            min = Math.min(min, price);
+            max = Math.max(max, price);
+            sum += price;
+            if (timestamp < firstTimestamp) {
+                firstTimestamp = timestamp;
+                first = price;
+            }
+            if (timestamp >= lastTimestamp) {
+                lastTimestamp = timestamp;
+                last = price;
+            }
+        }
+
+        String range = "[" + from + ", " + to + ")";
+        assertEquals(range, count, actual.getCount());
+        if (count > 0) {
+            assertEquals(range, min, actual.getMin(), 0.0);
+            assertEquals(range, max, actual.getMax(), 0.0);
+            assertEquals(range, first, actual.getFirst(), 0.0);
+            assertEquals(range, last, actual.getLast(), 0.0);
+            assertEquals(range, firstTimestamp, actual.getFirstTimestamp());
+            assertEquals(range, lastTimestamp, actual.getLastTimestamp());
+            assertEquals(range, sum, actual.getSum(), Math.abs(sum) * 1e-12);
+        }
+    }
+
+    private static long floorTo(long timestamp, long width) {
+        return Math.floorDiv(timestamp, width) * width;
+    }
+
+    private static long ceilTo(long timestamp, long width) {
+        long floor = floorTo(timestamp, width);
+        return floor == timestamp ? floor : floor + width;
+    }
+}
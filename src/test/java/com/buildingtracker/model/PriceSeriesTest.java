@@ -0,0 +1,93 @@
+package com.buildingtracker.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PriceSeriesTest {
+
+    @Test
+    public void removeMatchesArrayListAcrossHotAndArchivedEntries() {
+        int count = 3 * PriceSeries.ARCHIVE_BLOCK_SIZE + 100;
+        PriceSeries series = new PriceSeries();
+        List<PriceHistory> expected = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            series.add(100.0 + i, 1000L * i, 0.5);
+            expected.add(new PriceHistory(100.0 + i, 1000L * i, 0.5));
+        }
+        series.archiveBefore(1000L * 2 * PriceSeries.ARCHIVE_BLOCK_SIZE);
+
+        SplittableRandom random = new SplittableRandom(11L);
+        for (int removal = 0; removal < 500; removal++) {
+            int index = random.nextInt(expected.size());
+            series.remove(index);
+            expected.remove(index);
+        }
+        series.remove(0);
+        expected.remove(0);
+        series.remove(series.size() - 1);
+        expected.remove(expected.size() - 1);
+
+        assertSameEntries(expected, series);
+        assertTrue(series.isTimeOrdered());
+        for (PriceHistory entry : expected) {
+            assertEquals(entry.getTimestamp(), series.getTimestamp(series.floorIndex(entry.getTimestamp())));
+            assertEquals(entry.getTimestamp(), series.getTimestamp(series.floorIndex(entry.getTimestamp() + 999)));
+        }
+    }
+
+    @Test
+    public void removeEmptiesWholeArchiveBlock() {
+        PriceSeries series = new PriceSeries();
+        for (int i = 0; i < 10; i++) {
+            series.add(i, i, 0.0);
+        }
+        series.archiveBefore(1);
+        assertEquals(1, series.getArchivedSize());
+        series.remove(0);
+        assertEquals(0, series.getArchivedSize());
+        assertEquals(9, series.size());
+        assertEquals(1L, series.getTimestamp(0));
+        assertEquals(0, series.floorIndex(1));
+    }
+
+    @Test
+    public void removeRestoresTimeOrder() {
+        PriceSeries series = new PriceSeries();
+        series.add(1.0, 100L, 0.0);
+        series.add(2.0, 50L, 0.0);
+        series.add(3.0, 200L, 0.0);
+        assertFalse(series.isTimeOrdered());
+        series.remove(1);
+        assertTrue(series.isTimeOrdered());
+        assertEquals(1, series.floorIndex(250L));
+    }
+
+    @Test
+    public void removeDoesNotChangeEarlierViews() {
+        PriceSeries series = new PriceSeries();
+        for (int i = 0; i < 5; i++) {
+            series.add(i, i, 0.0);
+        }
+        PriceSeries view = series.view();
+        series.remove(1);
+        assertEquals(5, view.size());
+        assertEquals(1.0, view.getPrice(1), 0.0);
+        assertEquals(2.0, series.getPrice(1), 0.0);
+    }
+
+    static void assertSameEntries(List<PriceHistory> expected, PriceSeries actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getPrice(), actual.getPrice(i), 0.0);
+            assertEquals(expected.get(i).getTimestamp(), actual.getTimestamp(i));
+            assertEquals(expected.get(i).getChangePercentage(), actual.getChangePercentage(i), 0.0);
+        }
+    }
+}
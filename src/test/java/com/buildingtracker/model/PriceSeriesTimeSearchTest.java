@@ -0,0 +1,238 @@
+package com.buildingtracker.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PriceSeriesTimeSearchTest {
+    private static final int BLOCK = PriceSeries.SKIP_INTERVAL;
+    private static final int[] SIZES = {0, 1, 2, BLOCK - 1, BLOCK, BLOCK + 1, 2 * BLOCK, 3 * BLOCK + 17};
+
+    @Test
+    public void floorAndCeilingMatchLinearScanAtBlockBoundaries() {
+        for (int size : SIZES) {
+            PriceSeries series = series(size, new SplittableRandom(size));
+            assertSearchesMatchScan(series);
+        }
+    }
+
+    @Test
+    public void floorAndCeilingMatchLinearScanOverArchivedBlocks() {
+        for (int size : SIZES) {
+            PriceSeries series = series(size, new SplittableRandom(31L + size));
+            if (size > BLOCK) {
+                // Archive a whole block and, where there is one, part of the next
+                series.archiveBefore(series.getTimestamp(Math.min(size - 1, BLOCK + BLOCK / 2)));
+                assertTrue(series.getArchivedSize() > 0);
+            }
+            assertSearchesMatchScan(series);
+        }
+    }
+
+    @Test
+    public void skipIndexFollowsEditsAndRemovalsAtBlockBoundaries() {
+        PriceSeries series = series(3 * BLOCK, new SplittableRandom(5L));
+        PriceSeries view = series.view();
+
+        // Move the first entry of the second block later, still in order
+        long between = series.getTimestamp(BLOCK + 1);
+        series.set(BLOCK, series.getPrice(BLOCK), between, 0.0);
+        series.remove(BLOCK - 1);
+        series.remove(2 * BLOCK - 5);
+
+        assertSearchesMatchScan(series);
+        // The view keeps the index as of its creation
+        assertSearchesMatchScan(view);
+        assertEquals(3 * BLOCK, view.size());
+    }
+
+    @Test
+    public void entriesWithEqualTimestampsAcrossBlockBoundary() {
+        PriceSeries series = new PriceSeries();
+        for (int i = 0; i < 2 * BLOCK + 10; i++) {
+            // One timestamp shared by the last entries of the first block and the first of the second
+            long timestamp = i < BLOCK - 3 ? i : i <= BLOCK + 3 ? BLOCK : i;
+            series.add(100.0 + i, timestamp, 0.0);
+        }
+
+        assertEquals(BLOCK + 3, series.floorIndex(BLOCK));
+        assertEquals(BLOCK - 3, series.ceilingIndex(BLOCK));
+        assertSearchesMatchScan(series);
+    }
+
+    @Test
+    public void unsortedSeriesRejectsSearchesUntilSorted() {
+        PriceSeries series = new PriceSeries();
+        series.add(100.0, 3000L, 0.0);
+        series.add(101.0, 1000L, 1.0);
+        series.add(102.0, 2000L, 0.99);
+        series.add(103.0, 1000L, 0.98);
+        assertFalse(series.isTimeOrdered());
+
+        try {
+            series.floorIndex(2000L);
+            fail("Searched an unsorted series");
+        } catch (IllegalStateException expected) {
+            // Searches need sortedByTime()
+        }
+        try {
+            series.range(0L, 5000L, 10);
+            fail("Searched an unsorted series");
+        } catch (IllegalStateException expected) {
+            // As above
+        }
+
+        PriceSeries sorted = series.sortedByTime();
+        assertTrue(sorted.isTimeOrdered());
+        assertEquals(4, sorted.size());
+        // Stable: the two entries at 1000 keep their order and their change percentages
+        assertEquals(101.0, sorted.getPrice(0), 0.0);
+        assertEquals(1.0, sorted.getChangePercentage(0), 0.0);
+        assertEquals(103.0, sorted.getPrice(1), 0.0);
+        assertEquals(102.0, sorted.getPrice(2), 0.0);
+        assertEquals(100.0, sorted.getPrice(3), 0.0);
+        assertEquals(1, sorted.floorIndex(1500L));
+        assertSame(sorted, sorted.sortedByTime());
+    }
+
+    @Test
+    public void rangeWithinPointBudgetCopiesInclusiveBounds() {
+        PriceSeries series = new PriceSeries();
+        for (int i = 0; i < 10; i++) {
+            series.add(100.0 + i, 1000L * i, 0.1 * i);
+        }
+
+        PriceSeries range = series.range(2000L, 5000L, 100);
+        assertEquals(4, range.size());
+        assertEquals(2000L, range.getTimestamp(0));
+        assertEquals(5000L, range.getTimestamp(3));
+        assertEquals(0.5, range.getChangePercentage(3), 1e-12);
+
+        assertEquals(1, series.range(2000L, 2000L, 1).size());
+        assertEquals(0, series.range(2001L, 2999L, 5).size());
+        assertEquals(0, series.range(10_000L, 20_000L, 5).size());
+    }
+
+    @Test
+    public void downsampledRangeKeepsLastEntryOfEachInterval() {
+        SplittableRandom random = new SplittableRandom(17L);
+        PriceSeries series = series(3 * BLOCK + 500, random);
+        series.archiveBefore(series.getTimestamp(BLOCK * 2));
+        long first = series.getTimestamp(0);
+        long last = series.getTimestamp(series.size() - 1);
+
+        for (int trial = 0; trial < 200; trial++) {
+            long from = first - 50 + random.nextLong(last - first + 100);
+            long to = from + random.nextLong(last - from + 100);
+            int maxPoints = 1 + random.nextInt(trial % 2 == 0 ? 8 : 300);
+            PriceSeriesTest.assertSameEntries(downsampleByScan(series, from, to, maxPoints),
+                    series.range(from, to, maxPoints));
+        }
+    }
+
+    @Test
+    public void rangeRejectsInvalidArguments() {
+        PriceSeries series = series(10, new SplittableRandom(1L));
+        try {
+            series.range(10L, 9L, 5);
+            fail("Accepted a reversed range");
+        } catch (IllegalArgumentException expected) {
+            // Range end before start
+        }
+        try {
+            series.range(0L, 10L, 0);
+            fail("Accepted a zero point budget");
+        } catch (IllegalArgumentException expected) {
+            // Point count must be positive
+        }
+    }
+
+    /**
+     * Build a time-ordered series with random gaps, including runs of equal timestamps.
+     */
+    private static PriceSeries series(int size, SplittableRandom random) {
+        PriceSeries series = new PriceSeries();
+        long timestamp = 1_000_000L;
+        for (int i = 0; i < size; i++) {
+            timestamp += random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(100);
+            series.add(100.0 + random.nextInt(1000) / 10.0, timestamp, random.nextInt(200) / 100.0 - 1.0);
+        }
+        return series;
+    }
+
+    private static void assertSearchesMatchScan(PriceSeries series) {
+        long[] timestamps = new long[series.size()];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = series.getTimestamp(i);
+        }
+        List<Long> probes = new ArrayList<>();
+        probes.add(Long.MIN_VALUE);
+        probes.add(Long.MAX_VALUE);
+        for (long timestamp : timestamps) {
+            probes.add(timestamp - 1);
+            probes.add(timestamp);
+            probes.add(timestamp + 1);
+        }
+        for (long probe : probes) {
+            assertEquals("floor of " + probe, floorByScan(timestamps, probe), series.floorIndex(probe));
+            assertEquals("ceiling of " + probe, ceilingByScan(timestamps, probe), series.ceilingIndex(probe));
+        }
+    }
+
+    private static int floorByScan(long[] timestamps, long timestamp) {
+        int floor = -1;
+        for (int i = 0; i < timestamps.length && timestamps[i] <= timestamp; i++) {
+            floor = i;
+        }
+        return floor;
+    }
+
+    private static int ceilingByScan(long[] timestamps, long timestamp) {
+        int i = 0;
+        while (i < timestamps.length && timestamps[i] < timestamp) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * The entries of {@code [from, to]}, or if there are more than {@code maxPoints}, the last entry of each of
+     * {@code maxPoints} equal intervals that has one.
+     */
+    private static List<PriceHistory> downsampleByScan(PriceSeries series, long from, long to, int maxPoints) {
+        List<PriceHistory> inRange = new ArrayList<>();
+        for (int i = 0; i < series.size(); i++) {
+            if (series.getTimestamp(i) >= from && series.getTimestamp(i) <= to) {
+                inRange.add(series.get(i));
+            }
+        }
+        if (inRange.size() <= maxPoints) {
+            return inRange;
+        }
+        List<PriceHistory> sampled = new ArrayList<>();
+        double span = (double) to - from + 1;
+        long start = from;
+        for (int interval = 1; interval <= maxPoints; interval++) {
+            long end = interval == maxPoints ? to : from + (long) (span * interval / maxPoints) - 1;
+            PriceHistory lastInInterval = null;
+            for (PriceHistory entry : inRange) {
+                if (entry.getTimestamp() >= start && entry.getTimestamp() <= end) {
+                    lastInInterval = entry;
+                }
+            }
+            if (lastInInterval != null) {
+                sampled.add(lastInInterval);
+            }
+            start = end + 1;
+        }
+        return sampled;
+    }
+}
@@ -0,0 +1,105 @@
+package com.buildingtracker.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertEquals;
+
+public class RollingTrendWindowTest {
+
+    @Test
+    public void matchesFullScanOnRandomSequences() {
+        SplittableRandom random = new SplittableRandom(5L);
+        for (int capacity : new int[] {1, 2, 3, 10, 37}) {
+            RollingTrendWindow window = new RollingTrendWindow(capacity);
+            List<Double> pushed = new ArrayList<>();
+            for (int i = 0; i < 20_000; i++) {
+                double value;
+                switch (random.nextInt(4)) {
+                    case 0:
+                        value = (random.nextDouble() - 0.5) * 4;
+                        break;
+                    case 1:
+                        // Magnitudes far apart, which is where a running sum loses the small values
+                        value = (random.nextDouble() - 0.5) * 1e12;
+                        break;
+                    case 2:
+                        value = random.nextBoolean() ? 0.5 : -0.5;
+                        break;
+                    default:
+                        value = random.nextInt(21) / 10.0 - 1.0;
+                        break;
+                }
+                window.push(value);
+                pushed.add(value);
+                assertSameTrend(fullScan(pushed, capacity), window.toTrend());
+            }
+        }
+    }
+
+    @Test
+    public void averagesExactlyAtThresholdsAreStable() {
+        double[][] sequences = {
+            {0.5, 0.5, 0.5, 0.5, 0.5, 0.5, 0.5, 0.5, 0.5, 0.5},
+            {-0.5, -0.5, -0.5, -0.5, -0.5, -0.5, -0.5, -0.5, -0.5, -0.5},
+            {0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8, 0.9, 0.5},
+            {1e15, -1e15, 0.5, 0.5, 0.5, 0.5, 0.5, 0.5, 0.5, 0.5},
+        };
+        for (double[] sequence : sequences) {
+            RollingTrendWindow window = new RollingTrendWindow();
+            List<Double> pushed = new ArrayList<>();
+            for (double value : sequence) {
+                window.push(value);
+                pushed.add(value);
+            }
+            assertSameTrend(fullScan(pushed, RollingTrendWindow.DEFAULT_WINDOW_SIZE), window.toTrend());
+        }
+
+        // After a huge value leaves the window, the remaining ones must average exactly 0.5
+        RollingTrendWindow window = new RollingTrendWindow(4);
+        window.push(1e17);
+        for (int i = 0; i < 4; i++) {
+            window.push(0.5);
+        }
+        assertEquals(0.5, window.getAverage(), 0.0);
+        assertEquals("STABLE", window.toTrend().getTrendDirection());
+    }
+
+    @Test
+    public void clearStartsOver() {
+        RollingTrendWindow window = new RollingTrendWindow(3);
+        window.push(5.0);
+        window.push(7.0);
+        window.clear();
+        window.push(1.0);
+        assertEquals(1.0, window.getAverage(), 0.0);
+        assertEquals(0.0, window.toTrend().getVolatility(), 0.0);
+    }
+
+    private static void assertSameTrend(PriceTrend expected, PriceTrend actual) {
+        assertEquals(expected.getTrendDirection(), actual.getTrendDirection());
+        assertEquals(expected.getAverageChange(), actual.getAverageChange(), 0.0);
+        assertEquals(expected.getVolatility(), actual.getVolatility(), 0.0);
+    }
+
+    /**
+     * The trend calculation the window replaced: a scan of the most recent entries, oldest first.
+     */
+    private static PriceTrend fullScan(List<Double> pushed, int capacity) {
+        List<Double> entries = pushed.subList(Math.max(0, pushed.size() - capacity), pushed.size());
+        double totalChange = 0;
+        double maxChange = Double.NEGATIVE_INFINITY;
+        double minChange = Double.POSITIVE_INFINITY;
+        for (double change : entries) {
+            totalChange += change;
+            maxChange = Math.max(maxChange, change);
+            minChange = Math.min(minChange, change);
+        }
+        double averageChange = totalChange / entries.size();
+        return new PriceTrend(RollingTrendWindow.determineTrendDirection(averageChange), averageChange,
+                maxChange - minChange);
+    }
+}
@@ -0,0 +1,92 @@
+package com.buildingtracker.server;
+
+import com.buildingtracker.model.Building;
+import com.buildingtracker.service.BuildingService;
+import com.buildingtracker.service.ServiceEventListener;
+import com.buildingtracker.storage.InMemoryBuildingStorage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class PriceApiServerTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private BuildingService service;
+    private PriceApiServer server;
+
+    @Before
+    public void start() throws IOException {
+        service = new BuildingService(new InMemoryBuildingStorage());
+        service.setEventListener(ServiceEventListener.NONE);
+        service.addBuilding(new Building("Tower", "1 Main St", 100.0));
+        server = new PriceApiServer(service, 0);
+        server.start();
+    }
+
+    @After
+    public void stop() {
+        server.close();
+    }
+
+    @Test
+    public void unchangedBuildingIsNotModifiedUntilUpdated() throws Exception {
+        HttpResponse<String> first = get("/buildings/Tower", null);
+        assertEquals(200, first.statusCode());
+        String etag = first.headers().firstValue("ETag").orElse(null);
+        assertNotNull(etag);
+
+        assertEquals(304, get("/buildings/Tower", etag).statusCode());
+
+        service.recordPriceChange("Tower", 110.0);
+        HttpResponse<String> changed = get("/buildings/Tower", etag);
+        assertEquals(200, changed.statusCode());
+        assertNotEquals(etag, changed.headers().firstValue("ETag").orElse(null));
+    }
+
+    @Test
+    public void buildingAddedAgainGetsNewEtagAtSameVersion() throws Exception {
+        String etag = get("/buildings/Tower", null).headers().firstValue("ETag").orElse(null);
+
+        service.deleteBuilding("Tower");
+        service.addBuilding(new Building("Tower", "1 Main St", 200.0));
+
+        HttpResponse<String> readded = get("/buildings/Tower", etag);
+        assertEquals(200, readded.statusCode());
+        assertNotEquals(etag, readded.headers().firstValue("ETag").orElse(null));
+    }
+
+    @Test
+    public void plusInPathIsLiteral() throws Exception {
+        service.addBuilding(new Building("A+B", "2 Main St", 10.0));
+        service.addBuilding(new Building("A B", "3 Main St", 20.0));
+
+        HttpResponse<String> plus = get("/buildings/A+B", null);
+        assertEquals(200, plus.statusCode());
+        assertTrue(plus.body(), plus.body().contains("A+B"));
+        assertEquals(plus.body(), get("/buildings/A%2BB", null).body());
+
+        HttpResponse<String> space = get("/buildings/A%20B", null);
+        assertEquals(200, space.statusCode());
+        assertTrue(space.body(), space.body().contains("A B"));
+        assertEquals(200, get("/buildings/A+B/history", null).statusCode());
+    }
+
+    private HttpResponse<String> get(String path, String ifNoneMatch) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(
+                URI.create("http://localhost:" + server.getPort() + path));
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
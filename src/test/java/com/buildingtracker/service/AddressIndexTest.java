@@ -0,0 +1,67 @@
+package com.buildingtracker.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class AddressIndexTest {
+    @Test
+    public void appendsKeepEarlierLookupsUnchanged() {
+        AddressIndex index = new AddressIndex();
+        int[][] seen = new int[1000][];
+        for (int id = 0; id < seen.length; id++) {
+            index.add("1 Main St", id);
+            seen[id] = index.get("1 Main St");
+        }
+
+        for (int id = 0; id < seen.length; id++) {
+            assertEquals(id + 1, seen[id].length);
+            assertEquals(id, seen[id][id]);
+        }
+    }
+
+    @Test
+    public void removalDoesNotLetLaterAddsOverwriteEarlierEntries() {
+        AddressIndex index = new AddressIndex();
+        for (int id = 0; id < 5; id++) {
+            index.add("1 Main St", id);
+        }
+        int[] before = index.get("1 Main St");
+        index.remove("1 Main St", 4);
+        index.add("1 Main St", 9);
+        index.remove("1 Main St", 2);
+        index.add("1 Main St", 3);
+        index.add("1 Main St", 12);
+
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, before);
+        assertArrayEquals(new int[]{0, 1, 3, 9, 12}, index.get("1 Main St"));
+    }
+
+    @Test
+    public void outOfOrderAndDuplicateAddsStaySorted() {
+        AddressIndex index = new AddressIndex();
+        for (int id : new int[]{7, 3, 9, 3, 1, 8, 7}) {
+            index.add("2 Main St", id);
+        }
+
+        assertArrayEquals(new int[]{1, 3, 7, 8, 9}, index.get("2 Main St"));
+    }
+
+    @Test
+    public void prefixQueryConcatenatesByAddressAndDropsEmptiedEntries() {
+        AddressIndex index = new AddressIndex();
+        String shared = index.add(new String("1 Main St"), 4);
+        index.add("1 Main St", 5);
+        index.add("10 Main St", 1);
+        index.add("2 Main St", 2);
+        index.add("11 Oak Ave", 3);
+        index.remove("10 Main St", 1);
+
+        assertSame(shared, index.intern(new String("1 Main St")));
+        assertArrayEquals(new int[]{4, 5, 3}, index.getByPrefix("1"));
+        assertArrayEquals(new int[0], index.get("10 Main St"));
+        assertArrayEquals(new int[0], index.getByPrefix("3"));
+    }
+}
@@ -0,0 +1,76 @@
+package com.buildingtracker.service;
+
+import com.buildingtracker.alert.Alert;
+import com.buildingtracker.alert.AlertEngine;
+import com.buildingtracker.alert.AlertRule;
+import com.buildingtracker.model.Building;
+import com.buildingtracker.model.PriceSeries;
+import com.buildingtracker.storage.InMemoryBuildingStorage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class BatchTrendAlertTest {
+    private BuildingService service;
+    private AlertEngine engine;
+    private List<Alert> alerts;
+
+    @Before
+    public void setUp() {
+        service = new BuildingService(new InMemoryBuildingStorage());
+        service.setEventListener(ServiceEventListener.NONE);
+        service.addBuilding(new Building("Tower", "1 Main St", 100.0));
+        service.addBuilding(new Building("Annex", "2 Main St", 100.0));
+        // An unchanged tick, so both trends start STABLE with a volatility of zero
+        service.recordPriceChanges(List.of(new PriceUpdate("Tower", 100.0, 1000L),
+                new PriceUpdate("Annex", 100.0, 1000L)));
+        engine = new AlertEngine();
+        alerts = Collections.synchronizedList(new ArrayList<>());
+        engine.subscribe(alerts::add);
+        service.setAlertEngine(engine);
+    }
+
+    @Test
+    public void directionFlipInsideBatchOfUpdatesFires() {
+        engine.addRule(AlertRule.directionFlip("Tower"));
+        List<PriceUpdate> updates = new ArrayList<>();
+        // Up 30%, then down 30%: the trend after the batch is STABLE, as before it
+        updates.add(new PriceUpdate("Tower", 130.0, 2000L));
+        updates.add(new PriceUpdate("Tower", 91.0, 3000L));
+        updates.add(new PriceUpdate("Annex", 130.0, 2000L));
+        updates.add(new PriceUpdate("Annex", 91.0, 3000L));
+
+        service.recordPriceChanges(updates);
+        engine.close();
+
+        // STABLE to UP and back; the Annex has no trend rules
+        assertEquals(2, alerts.size());
+        for (Alert alert : alerts) {
+            assertEquals("Tower", alert.getBuildingName());
+        }
+        assertEquals(2000L, alerts.get(0).getTimestamp());
+        assertEquals(3000L, alerts.get(1).getTimestamp());
+    }
+
+    @Test
+    public void volatilityCrossingInsidePriceHistoryBlockFires() {
+        engine.addRule(AlertRule.volatilityAbove(null, 5.0));
+        PriceSeries ticks = new PriceSeries();
+        ticks.add(110.0, 2000L, 0.0);
+        ticks.add(100.0, 3000L, 0.0);
+        ticks.add(105.0, 4000L, 0.0);
+
+        service.recordPriceHistory(Collections.singletonMap("Tower", ticks));
+        engine.close();
+
+        // Volatility rises past 5 with the first tick, then stays above it
+        assertEquals(1, alerts.size());
+        assertEquals(AlertRule.Type.VOLATILITY_ABOVE, alerts.get(0).getRule().getType());
+        assertEquals(2000L, alerts.get(0).getTimestamp());
+    }
+}
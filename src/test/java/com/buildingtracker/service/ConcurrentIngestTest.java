@@ -0,0 +1,209 @@
+package com.buildingtracker.service;
+
+import com.buildingtracker.model.Building;
+import com.buildingtracker.model.BuildingSnapshot;
+import com.buildingtracker.model.PriceSeries;
+import com.buildingtracker.storage.InMemoryBuildingStorage;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Writers record single and batched ticks against a few shared buildings, so several threads contend for the same
+ * building, while readers keep taking snapshots. Every tick price is unique and encodes its writer and sequence
+ * number, so the final histories can be checked exactly against what was sent.
+ */
+public class ConcurrentIngestTest {
+    private static final int WRITERS = 8;
+    private static final int READERS = 2;
+    private static final int BUILDINGS = 4;
+    private static final int TICKS_PER_WRITER = 5_000;
+    // Price of a tick: BASE_PRICE + writer * WRITER_STRIDE + sequence
+    private static final double BASE_PRICE = 1_000.0;
+    private static final int WRITER_STRIDE = 100_000;
+
+    @Test
+    public void contendedIngestLosesNothingAndPublishesConsistentSnapshots() throws InterruptedException {
+        BuildingService service = new BuildingService(new InMemoryBuildingStorage());
+        run(service);
+    }
+
+    @Test
+    public void contendedIngestInBoundedCacheMode() throws InterruptedException {
+        BuildingService service = new BuildingService(new InMemoryBuildingStorage(), 16 * 1024);
+        run(service);
+    }
+
+    private static void run(BuildingService service) throws InterruptedException {
+        service.setEventListener(ServiceEventListener.NONE);
+        for (int b = 0; b < BUILDINGS; b++) {
+            service.addBuilding(new Building(buildingName(b), b + " Stress Street"));
+        }
+
+        // Per building, the prices of every tick the service accepted, added by the writer that sent it
+        List<List<Double>> accepted = new ArrayList<>();
+        for (int b = 0; b < BUILDINGS; b++) {
+            accepted.add(Collections.synchronizedList(new ArrayList<>()));
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            threads.add(new Thread(() -> guard(failure, () -> {
+                start.await();
+                SplittableRandom random = new SplittableRandom(writer);
+                int sequence = 0;
+                while (sequence < TICKS_PER_WRITER) {
+                    if (random.nextInt(10) == 0) {
+                        int batchSize = Math.min(TICKS_PER_WRITER - sequence, 1 + random.nextInt(32));
+                        List<PriceUpdate> batch = new ArrayList<>(batchSize);
+                        for (int i = 0; i < batchSize; i++) {
+                            batch.add(new PriceUpdate(buildingName(random.nextInt(BUILDINGS)),
+                                    price(writer, sequence++)));
+                        }
+                        BatchResult result = service.recordPriceChanges(batch);
+                        // Another writer may have stamped a later tick meanwhile; nothing else may be rejected
+                        List<PriceUpdate> rejected = new ArrayList<>();
+                        for (BatchResult.Failure rejection : result.getFailures()) {
+                            assertEquals("Older than the building's latest price.", rejection.getReason());
+                            assertEquals(1, rejection.getCount());
+                            rejected.add(rejection.getUpdate());
+                        }
+                        for (PriceUpdate update : batch) {
+                            if (!rejected.contains(update)) {
+                                accepted.get(buildingIndex(update.getBuildingName())).add(update.getPrice());
+                            }
+                        }
+                    } else {
+                        int b = random.nextInt(BUILDINGS);
+                        double price = price(writer, sequence++);
+                        service.recordPriceChange(buildingName(b), price);
+                        accepted.get(b).add(price);
+                    }
+                }
+            }), "writer-" + w));
+        }
+        for (int r = 0; r < READERS; r++) {
+            int reader = r;
+            threads.add(new Thread(() -> guard(failure, () -> {
+                start.await();
+                SplittableRandom random = new SplittableRandom(100 + reader);
+                long[] seenVersions = new long[BUILDINGS];
+                int[] seenLengths = new int[BUILDINGS];
+                while (running.get()) {
+                    int b = random.nextInt(BUILDINGS);
+                    BuildingSnapshot snapshot = service.getBuildingSnapshot(buildingName(b));
+                    assertConsistent(snapshot);
+                    if (service.getCacheStats() == null) {
+                        // Without eviction a building is never reloaded, so its snapshots only move forward
+                        assertTrue(snapshot.getVersion() >= seenVersions[b]);
+                        assertTrue(snapshot.getHistoryLength() >= seenLengths[b]);
+                    }
+                    seenVersions[b] = snapshot.getVersion();
+                    seenLengths[b] = snapshot.getHistoryLength();
+                }
+            }), "reader-" + r));
+        }
+
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (int i = 0; i < WRITERS; i++) {
+            threads.get(i).join();
+        }
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError("Worker failed", failure.get());
+        }
+
+        long total = 0;
+        for (int b = 0; b < BUILDINGS; b++) {
+            BuildingSnapshot snapshot = service.getBuildingSnapshot(buildingName(b));
+            PriceSeries history = snapshot.getHistory();
+            List<Double> sent = accepted.get(b);
+            assertEquals(buildingName(b), sent.size(), history.size());
+            assertConsistent(snapshot);
+            assertEquals(history.getPrice(history.size() - 1), snapshot.getCurrentPrice(), 0.0);
+            assertTrue(history.isTimeOrdered());
+
+            double[] recorded = new double[history.size()];
+            int[] lastSequence = new int[WRITERS];
+            Arrays.fill(lastSequence, -1);
+            for (int i = 0; i < history.size(); i++) {
+                double price = history.getPrice(i);
+                recorded[i] = price;
+                int writer = (int) ((price - BASE_PRICE) / WRITER_STRIDE);
+                int sequence = (int) (price - BASE_PRICE) - writer * WRITER_STRIDE;
+                // Each writer's ticks to a building are applied in the order it sent them
+                assertTrue(sequence > lastSequence[writer]);
+                lastSequence[writer] = sequence;
+                double expectedChange = i == 0 ? 0.0
+                        : (price - history.getPrice(i - 1)) / history.getPrice(i - 1) * 100;
+                assertEquals(expectedChange, history.getChangePercentage(i), 0.0);
+            }
+            double[] expected = sent.stream().mapToDouble(Double::doubleValue).toArray();
+            Arrays.sort(expected);
+            Arrays.sort(recorded);
+            assertTrue(buildingName(b), Arrays.equals(expected, recorded));
+            total += history.size();
+        }
+        assertTrue("Most ticks must be accepted", total > WRITERS * TICKS_PER_WRITER * 9L / 10);
+    }
+
+    /**
+     * A snapshot's price, trend and history must all come from the same update.
+     */
+    private static void assertConsistent(BuildingSnapshot snapshot) {
+        PriceSeries history = snapshot.getHistory();
+        if (history.isEmpty()) {
+            assertEquals(0.0, snapshot.getCurrentPrice(), 0.0);
+            return;
+        }
+        assertEquals(snapshot.getName(), history.getPrice(history.size() - 1), snapshot.getCurrentPrice(), 0.0);
+        double sum = 0;
+        int window = Math.min(10, history.size());
+        for (int i = history.size() - window; i < history.size(); i++) {
+            sum += history.getChangePercentage(i);
+        }
+        assertEquals(snapshot.getName(), sum / window, snapshot.getRecentTrend().getAverageChange(), 0.0);
+    }
+
+    private static double price(int writer, int sequence) {
+        return BASE_PRICE + writer * WRITER_STRIDE + sequence;
+    }
+
+    private static String buildingName(int index) {
+        return "Building-" + index;
+    }
+
+    private static int buildingIndex(String name) {
+        return Integer.parseInt(name.substring("Building-".length()));
+    }
+
+    private static void guard(AtomicReference<Throwable> failure, Task task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+        }
+    }
+
+    private interface Task {
+        void run() throws Exception;
+    }
+}
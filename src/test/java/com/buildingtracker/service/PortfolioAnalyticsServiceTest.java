@@ -0,0 +1,118 @@
+package com.buildingtracker.service;
+
+import com.buildingtracker.model.Building;
+import com.buildingtracker.model.BuildingSnapshot;
+import com.buildingtracker.service.PortfolioAnalyticsService.ExecutionMode;
+import com.buildingtracker.storage.InMemoryBuildingStorage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PortfolioAnalyticsServiceTest {
+    private static final int BUILDINGS = 500;
+
+    private InMemoryBuildingStorage storage;
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp() {
+        storage = new InMemoryBuildingStorage();
+        storage.saveBuildings(buildings());
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void parallelAndSerialAgreeOnThePortfolioSnapshot() {
+        assertModesAgree(newService(new BuildingService(storage)));
+    }
+
+    @Test
+    public void parallelAndSerialAgreeInBoundedCacheMode() {
+        assertModesAgree(newService(new BuildingService(storage, 64 * 1024)));
+    }
+
+    private PortfolioAnalyticsService newService(BuildingService buildingService) {
+        buildingService.setEventListener(ServiceEventListener.NONE);
+        return new PortfolioAnalyticsService(buildingService, pool);
+    }
+
+    private static void assertModesAgree(PortfolioAnalyticsService analytics) {
+        for (int n : new int[]{1, 7, 50, BUILDINGS + 10}) {
+            List<String> gainers = names(analytics.getTopGainers(n, ExecutionMode.SERIAL));
+            assertEquals(Math.min(n, BUILDINGS), gainers.size());
+            assertEquals(gainers, names(analytics.getTopGainers(n, ExecutionMode.PARALLEL)));
+            assertEquals(names(analytics.getTopLosers(n, ExecutionMode.SERIAL)),
+                    names(analytics.getTopLosers(n, ExecutionMode.PARALLEL)));
+        }
+
+        double[] percentiles = {0, 1, 25, 50, 90, 99.9, 100};
+        assertArrayEquals(analytics.getVolatilityPercentiles(percentiles, ExecutionMode.SERIAL),
+                analytics.getVolatilityPercentiles(percentiles, ExecutionMode.PARALLEL), 0.0);
+
+        // Sums may differ in rounding only
+        double[] serial = analytics.getPortfolioValueOverTime(-5_000L, 120_000L, 2_500L, ExecutionMode.SERIAL);
+        double[] parallel = analytics.getPortfolioValueOverTime(-5_000L, 120_000L, 2_500L, ExecutionMode.PARALLEL);
+        assertEquals(0.0, serial[0], 0.0);
+        assertArrayEquals(serial, parallel, 1e-6);
+
+        PortfolioValuation serialValue = analytics.getPortfolioValueAsOf(40_000L, ExecutionMode.SERIAL);
+        PortfolioValuation parallelValue = analytics.getPortfolioValueAsOf(40_000L, ExecutionMode.PARALLEL);
+        assertEquals(serialValue.getPricedCount(), parallelValue.getPricedCount());
+        assertEquals(serialValue.getUnpricedCount(), parallelValue.getUnpricedCount());
+        assertEquals(serialValue.getTotalValue(), parallelValue.getTotalValue(), 1e-6);
+        assertEquals(serial[18], serialValue.getTotalValue(), 1e-6);
+
+        PortfolioSummary serialSummary = analytics.getSummary(ExecutionMode.SERIAL);
+        PortfolioSummary parallelSummary = analytics.getSummary(ExecutionMode.PARALLEL);
+        assertEquals(BUILDINGS, serialSummary.getBuildingCount());
+        assertEquals(serialSummary.getBuildingCount(), parallelSummary.getBuildingCount());
+        assertEquals(serialSummary.getUpCount(), parallelSummary.getUpCount());
+        assertEquals(serialSummary.getDownCount(), parallelSummary.getDownCount());
+        assertEquals(serialSummary.getTotalValue(), parallelSummary.getTotalValue(), 1e-6);
+    }
+
+    /**
+     * Buildings with random histories starting at different times. Every fifth repeats the previous one's
+     * history, so top-N has ties that only the name breaks.
+     */
+    private static List<Building> buildings() {
+        List<Building> buildings = new ArrayList<>();
+        for (int b = 0; b < BUILDINGS; b++) {
+            long seed = b % 5 == 4 ? b - 1 : b;
+            SplittableRandom history = new SplittableRandom(seed);
+            Building building = new Building(String.format("Building %03d", BUILDINGS - b), "Main St",
+                    50.0 + history.nextInt(100));
+            long time = history.nextLong(100_000L);
+            int ticks = history.nextInt(40);
+            for (int i = 0; i < ticks; i++) {
+                building.updatePrice(Math.max(1.0, building.getCurrentPrice() + history.nextDouble(-5.0, 5.0)),
+                        time);
+                time += 1 + history.nextInt(2_000);
+            }
+            building.updateTrend();
+            buildings.add(building);
+        }
+        return buildings;
+    }
+
+    private static List<String> names(List<BuildingSnapshot> buildings) {
+        List<String> names = new ArrayList<>(buildings.size());
+        for (BuildingSnapshot building : buildings) {
+            names.add(building.getName());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,134 @@
+package com.buildingtracker.service;
+
+import com.buildingtracker.model.Building;
+import com.buildingtracker.model.BuildingSnapshot;
+import com.buildingtracker.model.PriceSeries;
+import com.buildingtracker.model.PriceTrend;
+import com.buildingtracker.storage.InMemoryBuildingStorage;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PortfolioSnapshotTest {
+
+    @Test
+    public void portfolioOfLazyBuildingsDoesNotDecodeHistories() {
+        AtomicInteger decodes = new AtomicInteger();
+        List<Building> stored = new ArrayList<>();
+        for (int b = 0; b < 3; b++) {
+            stored.add(lazyBuilding("Tower " + b, 5, decodes));
+        }
+        InMemoryBuildingStorage storage = new InMemoryBuildingStorage();
+        storage.saveBuildings(stored);
+        BuildingService service = newService(storage);
+
+        PortfolioSnapshot portfolio = service.getPortfolioSnapshot();
+
+        assertEquals(3, portfolio.size());
+        assertEquals(15, portfolio.getTotalHistoryLength());
+        assertEquals(0, decodes.get());
+        for (Building building : stored) {
+            assertFalse(building.isHistoryLoaded());
+        }
+
+        PriceSeries history = portfolio.get("Tower 1").getHistory();
+        assertEquals(1, decodes.get());
+        assertEquals(5, history.size());
+        assertEquals(104.0, history.getPrice(4), 0.0);
+    }
+
+    @Test
+    public void snapshotTakenBeforeDecodeKeepsItsHistoryAfterLaterTicks() {
+        AtomicInteger decodes = new AtomicInteger();
+        InMemoryBuildingStorage storage = new InMemoryBuildingStorage();
+        storage.saveBuildings(List.of(lazyBuilding("Tower", 5, decodes)));
+        BuildingService service = newService(storage);
+        BuildingSnapshot beforeDecode = service.getPortfolioSnapshot().get("Tower");
+
+        service.recordPriceChanges(List.of(new PriceUpdate("Tower", 200.0, 10_000L)));
+
+        assertEquals(1, decodes.get());
+        assertEquals(5, beforeDecode.getHistoryLength());
+        assertEquals(5, beforeDecode.getHistory().size());
+        assertEquals(6, service.getPortfolioSnapshot().get("Tower").getHistoryLength());
+        assertEquals(1, decodes.get());
+    }
+
+    @Test
+    public void portfolioIsReusedUntilChangedAndFollowsAddsAndDeletes() {
+        BuildingService service = newService(new InMemoryBuildingStorage());
+        service.addBuilding(new Building("Tower", "1 Main St", 100.0));
+        service.addBuilding(new Building("Annex", "2 Main St", 100.0));
+
+        PortfolioSnapshot first = service.getPortfolioSnapshot();
+        assertSame(first, service.getPortfolioSnapshot());
+
+        service.recordPriceChanges(List.of(new PriceUpdate("Tower", 110.0, 1000L)));
+        PortfolioSnapshot second = service.getPortfolioSnapshot();
+        assertNotSame(first, second);
+        assertTrue(second.getVersion() > first.getVersion());
+        assertEquals(110.0, second.get("Tower").getCurrentPrice(), 0.0);
+        assertSame(first.get("Annex"), second.get("Annex"));
+        // Earlier portfolios are unaffected
+        assertEquals(100.0, first.get("Tower").getCurrentPrice(), 0.0);
+
+        service.deleteBuilding("Annex");
+        service.addBuilding(new Building("Depot", "3 Main St", 50.0));
+        PortfolioSnapshot third = service.getPortfolioSnapshot();
+        assertEquals(2, third.size());
+        assertNull(third.get("Annex"));
+        assertEquals(50.0, third.get("Depot").getCurrentPrice(), 0.0);
+        assertEquals(1, third.getTotalHistoryLength());
+    }
+
+    @Test
+    public void buildingDeletedAndAddedAgainBetweenReadsStaysInPortfolio() {
+        BuildingService service = newService(new InMemoryBuildingStorage());
+        service.addBuilding(new Building("Tower", "1 Main St", 100.0));
+        service.addBuilding(new Building("Annex", "2 Main St", 100.0));
+        PortfolioSnapshot first = service.getPortfolioSnapshot();
+
+        service.deleteBuilding("Tower");
+        service.addBuilding(new Building("Tower", "9 Main St", 70.0));
+        service.updateBuilding("Tower", null, 75.0);
+        PortfolioSnapshot second = service.getPortfolioSnapshot();
+
+        assertEquals(2, second.size());
+        assertEquals("9 Main St", second.get("Tower").getAddress());
+        assertEquals(75.0, second.get("Tower").getCurrentPrice(), 0.0);
+        assertSame(first.get("Annex"), second.get("Annex"));
+
+        service.deleteBuilding("Tower");
+        PortfolioSnapshot third = service.getPortfolioSnapshot();
+        assertEquals(1, third.size());
+        assertNull(third.get("Tower"));
+        assertSame(third, service.getPortfolioSnapshot());
+    }
+
+    private static BuildingService newService(InMemoryBuildingStorage storage) {
+        BuildingService service = new BuildingService(storage);
+        service.setEventListener(ServiceEventListener.NONE);
+        return service;
+    }
+
+    private static Building lazyBuilding(String name, int historySize, AtomicInteger decodes) {
+        return Building.withLazyHistory(name, "1 Main St", 100.0 + historySize - 1, new PriceTrend(), historySize,
+                () -> {
+                    decodes.incrementAndGet();
+                    PriceSeries series = new PriceSeries();
+                    for (int i = 0; i < historySize; i++) {
+                        series.add(100.0 + i, 1000L * (i + 1), i == 0 ? 0.0 : 1.0);
+                    }
+                    return series;
+                });
+    }
+}
@@ -0,0 +1,95 @@
+package com.buildingtracker.service;
+
+import com.buildingtracker.model.Building;
+import com.buildingtracker.model.PriceHistory;
+import com.buildingtracker.model.PriceSeries;
+import com.buildingtracker.storage.InMemoryBuildingStorage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class PriceQueryTest {
+    private BuildingService service;
+
+    @Before
+    public void setUp() {
+        service = new BuildingService(new InMemoryBuildingStorage());
+        service.setEventListener(ServiceEventListener.NONE);
+
+        Building ordered = new Building("Tower", "1 Main St", 100.0);
+        List<PriceUpdate> updates = new ArrayList<>();
+        service.addBuilding(ordered);
+        for (int i = 1; i <= 3000; i++) {
+            updates.add(new PriceUpdate("Tower", 100.0 + i, 1000L * i));
+        }
+        service.recordPriceChanges(updates);
+
+        // Imported history, not in timestamp order
+        Building unordered = new Building("Annex", "2 Main St", 100.0);
+        unordered.addPriceHistory(new PriceHistory(130.0, 3000L, 0.0));
+        unordered.addPriceHistory(new PriceHistory(110.0, 1000L, 0.0));
+        unordered.addPriceHistory(new PriceHistory(120.0, 2000L, 0.0));
+        service.addBuilding(unordered);
+    }
+
+    @Test
+    public void priceAsOfFindsLastEntryAtOrBeforeTimestamp() {
+        assertNull(service.getPriceAsOf("Tower", 999L));
+        assertEquals(101.0, service.getPriceAsOf("Tower", 1000L).getPrice(), 0.0);
+        assertEquals(101.0, service.getPriceAsOf("Tower", 1999L).getPrice(), 0.0);
+        // Across the first skip index boundary
+        assertEquals(1124.0, service.getPriceAsOf("Tower", 1_024_000L).getPrice(), 0.0);
+        assertEquals(1125.0, service.getPriceAsOf("Tower", 1_025_000L).getPrice(), 0.0);
+        assertEquals(3100.0, service.getPriceAsOf("Tower", Long.MAX_VALUE).getPrice(), 0.0);
+    }
+
+    @Test
+    public void priceAsOfSortsUnorderedHistory() {
+        assertNull(service.getPriceAsOf("Annex", 999L));
+        assertEquals(110.0, service.getPriceAsOf("Annex", 1500L).getPrice(), 0.0);
+        assertEquals(120.0, service.getPriceAsOf("Annex", 2999L).getPrice(), 0.0);
+        assertEquals(130.0, service.getPriceAsOf("Annex", 3000L).getPrice(), 0.0);
+    }
+
+    @Test
+    public void priceRangeIsInclusiveAndDownsampled() {
+        PriceSeries range = service.getPriceRange("Tower", 1_023_000L, 1_026_000L, 100);
+        assertEquals(4, range.size());
+        assertEquals(1_023_000L, range.getTimestamp(0));
+        assertEquals(1_026_000L, range.getTimestamp(3));
+
+        // 3000 entries in ten equal intervals of 300 seconds: the last entry of each
+        PriceSeries sampled = service.getPriceRange("Tower", 1000L, 3_000_000L, 10);
+        assertEquals(10, sampled.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(300_000L * (i + 1), sampled.getTimestamp(i));
+        }
+
+        PriceSeries annex = service.getPriceRange("Annex", 0L, 10_000L, 10);
+        assertEquals(3, annex.size());
+        assertEquals(1000L, annex.getTimestamp(0));
+        assertEquals(3000L, annex.getTimestamp(2));
+    }
+
+    @Test
+    public void queriesOfUnknownBuildingFail() {
+        try {
+            service.getPriceAsOf("Nowhere", 1000L);
+            fail("Found an unknown building");
+        } catch (IllegalArgumentException expected) {
+            // Not found
+        }
+        try {
+            service.getPriceRange("Nowhere", 0L, 1000L, 10);
+            fail("Found an unknown building");
+        } catch (IllegalArgumentException expected) {
+            // Not found
+        }
+    }
+}
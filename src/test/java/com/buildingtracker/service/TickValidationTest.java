@@ -0,0 +1,100 @@
+package com.buildingtracker.service;
+
+import com.buildingtracker.model.Building;
+import com.buildingtracker.model.PriceSeries;
+import com.buildingtracker.storage.InMemoryBuildingStorage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TickValidationTest {
+    private static final double[] INVALID_PRICES = {-1.0, Double.NaN, Double.POSITIVE_INFINITY,
+        Double.NEGATIVE_INFINITY};
+
+    private BuildingService service;
+
+    @Before
+    public void setUp() {
+        service = new BuildingService(new InMemoryBuildingStorage());
+        service.setEventListener(ServiceEventListener.NONE);
+        service.addBuilding(new Building("Tower", "1 Main St", 100.0));
+    }
+
+    @Test
+    public void singleTickRejectsInvalidPrices() {
+        for (double price : INVALID_PRICES) {
+            try {
+                service.recordPriceChange("Tower", price);
+                fail("Accepted price " + price);
+            } catch (IllegalArgumentException e) {
+                assertEquals("Price must be a non-negative number.", e.getMessage());
+            }
+        }
+        assertEquals(0, service.getBuildingSnapshot("Tower").getHistoryLength());
+    }
+
+    @Test
+    public void singleTickStaysInOrderWhenHistoryIsAheadOfTheClock() {
+        long future = System.currentTimeMillis() + 3_600_000L;
+        service.recordPriceChanges(Collections.singletonList(new PriceUpdate("Tower", 110.0, future)));
+        service.recordPriceChange("Tower", 120.0);
+
+        PriceSeries history = service.getBuildingSnapshot("Tower").getHistory();
+        assertEquals(2, history.size());
+        assertEquals(future, history.getTimestamp(1));
+        assertTrue(history.isTimeOrdered());
+    }
+
+    @Test
+    public void updateBuildingRejectsInfinitePriceWithoutChangingAddress() {
+        try {
+            service.updateBuilding("Tower", "2 Main St", Double.POSITIVE_INFINITY);
+            fail("Accepted an infinite price");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Price must be a non-negative number.", e.getMessage());
+        }
+        assertEquals("1 Main St", service.getBuildingSnapshot("Tower").getAddress());
+    }
+
+    @Test
+    public void batchRejectsInvalidAndOutOfOrderUpdates() {
+        BatchResult result = service.recordPriceChanges(Arrays.asList(
+                new PriceUpdate("Tower", 101.0, 1000L),
+                new PriceUpdate("Tower", Double.NaN, 2000L),
+                new PriceUpdate("Tower", 102.0, 3000L),
+                new PriceUpdate("Tower", 103.0, 2500L),
+                new PriceUpdate("Tower", Double.POSITIVE_INFINITY, 4000L),
+                new PriceUpdate("Tower", 104.0, 3000L)));
+
+        assertEquals(3, result.getAppliedCount());
+        assertEquals(3, result.getFailedCount());
+        assertEquals("Price must be a non-negative number.", result.getFailures().get(0).getReason());
+        assertEquals("Older than the building's latest price.", result.getFailures().get(1).getReason());
+        PriceSeries history = service.getBuildingSnapshot("Tower").getHistory();
+        assertEquals(3, history.size());
+        assertTrue(history.isTimeOrdered());
+        assertEquals(104.0, history.getPrice(2), 0.0);
+    }
+
+    @Test
+    public void priceHistoryUsesTheSameRules() {
+        PriceSeries ticks = new PriceSeries();
+        ticks.add(101.0, 1000L, 0.0);
+        ticks.add(Double.NEGATIVE_INFINITY, 2000L, 0.0);
+        ticks.add(99.0, 500L, 0.0);
+        ticks.add(102.0, 3000L, 0.0);
+        Map<String, PriceSeries> feed = Collections.singletonMap("Tower", ticks);
+
+        BatchResult result = service.recordPriceHistory(feed);
+        assertEquals(2, result.getAppliedCount());
+        assertEquals(2, result.getFailedCount());
+        assertEquals(2, service.getBuildingSnapshot("Tower").getHistoryLength());
+    }
+}
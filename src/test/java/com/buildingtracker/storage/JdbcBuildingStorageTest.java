@@ -0,0 +1,123 @@
+package com.buildingtracker.storage;
+
+import com.buildingtracker.model.Building;
+import com.buildingtracker.model.BuildingSnapshot;
+import com.buildingtracker.model.PriceHistory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+public class JdbcBuildingStorageTest {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private String url;
+    private Connection keepAlive;
+    private JdbcBuildingStorage storage;
+
+    @Before
+    public void open() throws SQLException {
+        url = "jdbc:h2:mem:jdbc-storage-test-" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        keepAlive = DriverManager.getConnection(url);
+        storage = new JdbcBuildingStorage(url);
+    }
+
+    @After
+    public void close() throws SQLException {
+        storage.close();
+        keepAlive.close();
+    }
+
+    @Test
+    public void batchOfNewBuildingsWithLongHistoriesWritesBuildingsFirst() throws SQLException {
+        // Enforced here only, so a history row written before its building fails the save
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("ALTER TABLE price_history ADD CONSTRAINT price_history_building "
+                    + "FOREIGN KEY (building_id) REFERENCES buildings (id)");
+        }
+        List<Building> batch = new ArrayList<>();
+        for (int b = 0; b < 3; b++) {
+            batch.add(withTicks(new Building("Tower " + b, b + " Main St", 100.0), 1500, 0));
+        }
+
+        storage.saveBuildingBatch(batch);
+
+        for (Building building : batch) {
+            assertSameHistory(building, storage.loadBuilding(building.getName()));
+        }
+    }
+
+    @Test
+    public void appendedAndRewrittenHistoriesInOneBatchRoundTrip() {
+        Building appended = withTicks(new Building("Appended", "1 Main St", 100.0), 10, 0);
+        Building rewritten = withTicks(new Building("Rewritten", "2 Main St", 100.0), 10, 0);
+        storage.saveBuildingBatch(List.of(appended, rewritten));
+
+        withTicks(appended, 1200, 10);
+        List<PriceHistory> replacement = new ArrayList<>();
+        replacement.add(new PriceHistory(90.0, 500L, -10.0));
+        replacement.add(new PriceHistory(80.0, 600L, -11.1));
+        rewritten.setPriceHistoryList(replacement);
+        storage.saveBuildingBatch(List.of(appended, rewritten));
+
+        assertSameHistory(appended, storage.loadBuilding("Appended"));
+        assertSameHistory(rewritten, storage.loadBuilding("Rewritten"));
+        assertEquals(2, storage.loadLatestPriceHistory("Rewritten", 5).size());
+    }
+
+    @Test
+    public void uncheckedFailureRollsBackStatementsAlreadyExecuted() {
+        Building tower = withTicks(new Building("Tower", "1 Main St", 100.0), 5, 0);
+        storage.saveBuilding(tower);
+
+        // Fails after saveBuildings has deleted every stored row
+        Building failing = new Building("Failing", "2 Main St", 100.0) {
+            @Override
+            public BuildingSnapshot snapshot() {
+                throw new IllegalStateException("Snapshot failed");
+            }
+        };
+        try {
+            storage.saveBuildings(List.of(failing));
+            fail("Saved a building whose snapshot failed");
+        } catch (IllegalStateException expected) {
+            assertEquals("Snapshot failed", expected.getMessage());
+        }
+        storage.saveBuilding(new Building("Annex", "3 Main St", 50.0));
+
+        assertEquals(2, storage.loadBuildings().size());
+        assertSameHistory(tower, storage.loadBuilding("Tower"));
+    }
+
+    private static Building withTicks(Building building, int count, int first) {
+        for (int i = first; i < first + count; i++) {
+            building.updatePrice(100.0 + i, 1000L * (i + 1));
+        }
+        return building;
+    }
+
+    private static void assertSameHistory(Building expected, Building actual) {
+        assertNotNull(actual);
+        List<PriceHistory> expectedHistory = expected.getPriceHistoryList();
+        List<PriceHistory> actualHistory = actual.getPriceHistoryList();
+        assertEquals(expectedHistory.size(), actualHistory.size());
+        for (int i = 0; i < expectedHistory.size(); i++) {
+            assertEquals(expectedHistory.get(i).getPrice(), actualHistory.get(i).getPrice(), 0.0);
+            assertEquals(expectedHistory.get(i).getTimestamp(), actualHistory.get(i).getTimestamp());
+            assertEquals(expectedHistory.get(i).getChangePercentage(), actualHistory.get(i).getChangePercentage(),
+                    0.0);
+        }
+        assertEquals(expected.getCurrentPrice(), actual.getCurrentPrice(), 0.0);
+    }
+}
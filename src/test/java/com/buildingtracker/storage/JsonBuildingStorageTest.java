@@ -0,0 +1,75 @@
+package com.buildingtracker.storage;
+
+import com.buildingtracker.model.Building;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JsonBuildingStorageTest {
+    private static final String STORED = "[{\"name\":\"Kept\",\"address\":\"1 Main St\",\"currentPrice\":100.50,"
+            + "\"priceHistoryList\":[{\"price\":100.50,\"timestamp\":1000,\"changePercentage\":0}]},"
+            + "{\"address\":\"2 Main St\",\"name\":\"Replaced\",\"currentPrice\":5}]";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void streamingSaveCopiesOtherRecordsVerbatim() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("buildings.json");
+        Files.write(file, STORED.getBytes(StandardCharsets.UTF_8));
+        JsonBuildingStorage storage = new JsonBuildingStorage(file.toString(), true);
+
+        Building replacement = new Building("Replaced", "3 Main St", 7.0);
+        replacement.updatePrice(8.0, 2000L);
+        storage.saveBuilding(replacement);
+
+        String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertTrue(json, json.startsWith("[{\"name\":\"Kept\",\"address\":\"1 Main St\",\"currentPrice\":100.50,"
+                + "\"priceHistoryList\":[{\"price\":100.50,\"timestamp\":1000,\"changePercentage\":0}]},"));
+        List<Building> loaded = storage.loadBuildings();
+        assertEquals(2, loaded.size());
+        assertEquals("Replaced", loaded.get(1).getName());
+        assertEquals("3 Main St", loaded.get(1).getAddress());
+        assertEquals(8.0, loaded.get(1).getCurrentPrice(), 0.0);
+        assertEquals(1, loaded.get(1).getHistorySize());
+    }
+
+    @Test
+    public void streamingBatchAndDeleteDropReplacedRecords() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("buildings.json");
+        Files.write(file, STORED.getBytes(StandardCharsets.UTF_8));
+        JsonBuildingStorage storage = new JsonBuildingStorage(file.toString(), true);
+
+        storage.saveBuildingBatch(Arrays.asList(new Building("Kept", "4 Main St", 1.0),
+                new Building("New", null, 2.0)));
+        List<Building> loaded = storage.loadBuildings();
+        assertEquals(3, loaded.size());
+        assertEquals("Replaced", loaded.get(0).getName());
+        assertEquals("Kept", loaded.get(1).getName());
+        assertEquals("4 Main St", loaded.get(1).getAddress());
+        assertEquals("New", loaded.get(2).getName());
+
+        storage.deleteBuilding("Replaced");
+        assertNull(storage.loadBuilding("Replaced"));
+        assertEquals(2, storage.loadBuildings().size());
+    }
+
+    @Test
+    public void streamingSaveCreatesMissingFile() {
+        Path file = folder.getRoot().toPath().resolve("new.json");
+        JsonBuildingStorage storage = new JsonBuildingStorage(file.toString(), true);
+        storage.saveBuilding(new Building("Tower", "1 Main St", 100.0));
+        assertEquals(1, storage.loadBuildings().size());
+    }
+}
@@ -0,0 +1,183 @@
+package com.buildingtracker.storage;
+
+import com.buildingtracker.model.Building;
+import com.buildingtracker.model.PriceHistory;
+import com.buildingtracker.model.PriceTrend;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MappedSnapshotBuildingStorageTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void savedBuildingsReopenWithLazyHistory() throws IOException {
+        String file = snapshotFile();
+        List<Building> saved = buildings();
+        try (MappedSnapshotBuildingStorage storage = new MappedSnapshotBuildingStorage(file)) {
+            storage.saveBuildings(saved);
+        }
+
+        try (MappedSnapshotBuildingStorage storage = new MappedSnapshotBuildingStorage(file)) {
+            List<Building> loaded = storage.loadBuildings();
+            assertEquals(saved.size(), loaded.size());
+            for (int i = 0; i < saved.size(); i++) {
+                Building building = loaded.get(i);
+                assertFalse(building.isHistoryLoaded());
+                assertEquals(saved.get(i).getHistorySize(), building.getHistorySize());
+                assertSameBuilding(saved.get(i), building);
+                assertTrue(building.isHistoryLoaded());
+            }
+            assertSameBuilding(saved.get(1), storage.loadBuilding("Annex"));
+            assertNull(storage.loadBuilding("Missing"));
+        }
+    }
+
+    @Test
+    public void singleSaveAndDeleteCopyOtherHistoryBlocks() throws IOException {
+        String file = snapshotFile();
+        List<Building> saved = buildings();
+        try (MappedSnapshotBuildingStorage storage = new MappedSnapshotBuildingStorage(file)) {
+            storage.saveBuildings(saved);
+            // Loaded from the first version of the file and decoded only after both rewrites below
+            Building early = storage.loadBuilding("Tower");
+
+            Building annex = saved.get(1);
+            annex.updatePrice(130.0, 50_000L);
+            annex.setAddress("22 Main St");
+            storage.saveBuilding(annex);
+            storage.deleteBuilding("Empty");
+            storage.deleteBuilding("Missing");
+
+            assertFalse(early.isHistoryLoaded());
+            assertSameBuilding(saved.get(0), early);
+        }
+
+        try (MappedSnapshotBuildingStorage storage = new MappedSnapshotBuildingStorage(file)) {
+            List<Building> loaded = storage.loadBuildings();
+            assertEquals(saved.size() - 1, loaded.size());
+            assertNull(storage.loadBuilding("Empty"));
+            assertSameBuilding(saved.get(0), storage.loadBuilding("Tower"));
+            assertSameBuilding(saved.get(1), storage.loadBuilding("Annex"));
+            assertSameBuilding(saved.get(3), storage.loadBuilding("Long"));
+            assertEquals("22 Main St", storage.loadBuilding("Annex").getAddress());
+        }
+    }
+
+    @Test
+    public void corruptedDirectoryFailsTheChecksum() throws IOException {
+        String file = snapshotFile();
+        try (MappedSnapshotBuildingStorage storage = new MappedSnapshotBuildingStorage(file)) {
+            storage.saveBuildings(buildings());
+        }
+        // Building names are stored only in the directory, so this changes a name and nothing else
+        byte[] bytes = Files.readAllBytes(Path.of(file));
+        int name = indexOf(bytes, "Annex".getBytes(StandardCharsets.UTF_8));
+        bytes[name] = 'X';
+        Files.write(Path.of(file), bytes);
+
+        try (MappedSnapshotBuildingStorage storage = new MappedSnapshotBuildingStorage(file)) {
+            storage.loadBuildings();
+            fail("Opened a snapshot with a corrupted directory");
+        } catch (UncheckedIOException expected) {
+            assertTrue(expected.getCause().getMessage().startsWith("Snapshot directory checksum mismatch"));
+        }
+    }
+
+    @Test
+    public void convertFromJsonKeepsEveryBuilding() throws IOException {
+        String json = folder.getRoot().toPath().resolve("buildings.json").toString();
+        String file = snapshotFile();
+        List<Building> saved = buildings();
+        new JsonBuildingStorage(json).saveBuildings(saved);
+
+        MappedSnapshotBuildingStorage.convertFromJson(json, file);
+
+        try (MappedSnapshotBuildingStorage storage = new MappedSnapshotBuildingStorage(file)) {
+            List<Building> loaded = storage.loadBuildings();
+            assertEquals(saved.size(), loaded.size());
+            for (int i = 0; i < saved.size(); i++) {
+                assertSameBuilding(saved.get(i), loaded.get(i));
+            }
+        }
+        try {
+            MappedSnapshotBuildingStorage.convertFromJson(json + ".missing", file);
+            fail("Converted a missing file");
+        } catch (IllegalArgumentException expected) {
+            // Nothing to convert
+        }
+    }
+
+    private String snapshotFile() {
+        return folder.getRoot().toPath().resolve("buildings.snapshot").toString();
+    }
+
+    private static List<Building> buildings() {
+        List<Building> buildings = new ArrayList<>();
+        buildings.add(withTicks(new Building("Tower", "1 Main St", 100.0), 20));
+        buildings.add(withTicks(new Building("Annex", null, 100.0), 3));
+        buildings.add(new Building("Empty", "3 Main St", 42.5));
+        Building longHistory = withTicks(new Building("Long", "4 Main St", 100.0), 5_000);
+        longHistory.setRecentTrend(new PriceTrend("DOWN", -1.5, 0.25));
+        buildings.add(longHistory);
+        return buildings;
+    }
+
+    private static Building withTicks(Building building, int count) {
+        for (int i = 1; i <= count; i++) {
+            building.updatePrice(100.0 + i % 17 - 0.01 * i, 1000L * i);
+        }
+        building.updateTrend();
+        return building;
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern) {
+        for (int i = 0; i + pattern.length <= bytes.length; i++) {
+            int j = 0;
+            while (j < pattern.length && bytes[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        throw new AssertionError("Pattern not found");
+    }
+
+    private static void assertSameBuilding(Building expected, Building actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getAddress(), actual.getAddress());
+        assertEquals(expected.getCurrentPrice(), actual.getCurrentPrice(), 0.0);
+        PriceTrend expectedTrend = expected.getRecentTrend();
+        PriceTrend actualTrend = actual.getRecentTrend();
+        assertEquals(expectedTrend.getTrendDirection(), actualTrend.getTrendDirection());
+        assertEquals(expectedTrend.getAverageChange(), actualTrend.getAverageChange(), 0.0);
+        assertEquals(expectedTrend.getVolatility(), actualTrend.getVolatility(), 0.0);
+        List<PriceHistory> expectedHistory = expected.getPriceHistoryList();
+        List<PriceHistory> actualHistory = actual.getPriceHistoryList();
+        assertEquals(expectedHistory.size(), actualHistory.size());
+        for (int i = 0; i < expectedHistory.size(); i++) {
+            assertEquals(expectedHistory.get(i).getPrice(), actualHistory.get(i).getPrice(), 0.0);
+            assertEquals(expectedHistory.get(i).getTimestamp(), actualHistory.get(i).getTimestamp());
+            assertEquals(expectedHistory.get(i).getChangePercentage(), actualHistory.get(i).getChangePercentage(),
+                    0.0);
+        }
+    }
+}
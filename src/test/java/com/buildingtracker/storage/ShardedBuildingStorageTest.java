@@ -0,0 +1,179 @@
+package com.buildingtracker.storage;
+
+import com.buildingtracker.model.Building;
+import com.buildingtracker.model.PriceHistory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ShardedBuildingStorageTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reopeningWithOtherShardCountsKeepsEveryBuildingOnce() throws IOException {
+        String directory = folder.newFolder().getPath();
+        List<Building> saved = buildings(60);
+        try (ShardedBuildingStorage storage = new ShardedBuildingStorage(directory, 4)) {
+            storage.saveBuildings(saved);
+        }
+
+        for (int shardCount : new int[]{7, 3, 1, 5, 5}) {
+            try (ShardedBuildingStorage storage = new ShardedBuildingStorage(directory, shardCount)) {
+                assertEquals(shardCount, storage.getShardCount());
+                assertSameBuildings(saved, storage.loadBuildings());
+                assertSameBuilding(saved.get(17), storage.loadBuilding(saved.get(17).getName()));
+            }
+            assertShardsHoldOnlyTheirBuildings(directory, shardCount, saved.size());
+        }
+    }
+
+    @Test
+    public void rebalanceMovesOnlyBuildingsWhoseShardChanges() throws IOException {
+        String directory = folder.newFolder().getPath();
+        List<Building> saved = buildings(200);
+        try (ShardedBuildingStorage storage = new ShardedBuildingStorage(directory, 4)) {
+            storage.saveBuildings(saved);
+            int expected = 0;
+            for (Building building : saved) {
+                int before = ShardedBuildingStorage.shardOf(building.getName(), 4);
+                int after = ShardedBuildingStorage.shardOf(building.getName(), 5);
+                // Growing by one shard only ever moves a building into the new shard
+                assertTrue(after == before || after == 4);
+                expected += after != before ? 1 : 0;
+            }
+
+            assertEquals(expected, storage.rebalance(5));
+            assertEquals(0, storage.rebalance(5));
+            assertSameBuildings(saved, storage.loadBuildings());
+        }
+    }
+
+    @Test
+    public void strayCopiesOfAnInterruptedRebalanceAreIgnoredAndRemoved() throws IOException {
+        String directory = folder.newFolder().getPath();
+        List<Building> saved = buildings(30);
+        Building moved = saved.get(0);
+        int home = ShardedBuildingStorage.shardOf(moved.getName(), 3);
+        try (ShardedBuildingStorage storage = new ShardedBuildingStorage(directory, 3)) {
+            storage.saveBuildings(saved);
+        }
+        // An older copy left in another shard, and a shard left over from an interrupted shrink
+        Building stale = new Building(moved.getName(), "Old address", 1.0);
+        shard(directory, (home + 1) % 3).saveBuilding(stale);
+        shard(directory, 4).saveBuilding(new Building("Ghost", "Nowhere", 1.0));
+        assertNotNull(shard(directory, (home + 1) % 3).loadBuilding(moved.getName()));
+
+        try (ShardedBuildingStorage storage = new ShardedBuildingStorage(directory, 3)) {
+            assertSameBuildings(saved, storage.loadBuildings());
+            assertSameBuilding(moved, storage.loadBuilding(moved.getName()));
+            List<Building> visited = new ArrayList<>();
+            storage.forEachBuilding(visited::add);
+            assertSameBuildings(saved, visited);
+
+            assertEquals(0, storage.rebalance(3));
+            assertNull(shard(directory, (home + 1) % 3).loadBuilding(moved.getName()));
+
+            storage.rebalance(5);
+            assertSameBuildings(saved, storage.loadBuildings());
+            assertNull(storage.loadBuilding("Ghost"));
+        }
+        assertShardsHoldOnlyTheirBuildings(directory, 5, saved.size());
+    }
+
+    @Test
+    public void shardOfIsStableForFixedNames() {
+        // Stored shards depend on these staying the same across releases
+        String[] names = {"Tower", "Annex", "Building 0", "Building 1", "Caf\u00e9", ""};
+        int[][] expected = {
+                {0, 1, 2, 2, 2},
+                {0, 1, 1, 3, 3},
+                {0, 0, 2, 2, 2},
+                {0, 0, 0, 3, 3},
+                {0, 0, 0, 0, 0},
+                {0, 1, 1, 1, 1}
+        };
+        int[] counts = {1, 2, 3, 4, 7};
+        for (int n = 0; n < names.length; n++) {
+            for (int c = 0; c < counts.length; c++) {
+                assertEquals(names[n] + " of " + counts[c], expected[n][c],
+                        ShardedBuildingStorage.shardOf(names[n], counts[c]));
+            }
+        }
+    }
+
+    private static List<Building> buildings(int count) {
+        List<Building> buildings = new ArrayList<>();
+        for (int b = 0; b < count; b++) {
+            Building building = new Building("Building " + b, b + " Main St", 100.0);
+            for (int i = 1; i <= b % 4; i++) {
+                building.updatePrice(100.0 + b + i, 1000L * i);
+            }
+            buildings.add(building);
+        }
+        return buildings;
+    }
+
+    private static JsonBuildingStorage shard(String directory, int index) {
+        return new JsonBuildingStorage(Path.of(directory).resolve(String.format("shard-%04d.json", index))
+                .toString(), true);
+    }
+
+    /**
+     * Check the shard files directly: each holds only buildings that hash to it, and none lies past the count.
+     */
+    private static void assertShardsHoldOnlyTheirBuildings(String directory, int shardCount, int buildingCount) {
+        int total = 0;
+        for (int i = 0; i < shardCount + 4; i++) {
+            JsonBuildingStorage shard = shard(directory, i);
+            if (i >= shardCount) {
+                assertFalse("shard " + i, shard.exists() && !shard.loadBuildings().isEmpty());
+                continue;
+            }
+            for (Building building : shard.loadBuildings()) {
+                assertEquals(building.getName(), i, ShardedBuildingStorage.shardOf(building.getName(), shardCount));
+                total++;
+            }
+        }
+        assertEquals(buildingCount, total);
+        assertTrue(Files.exists(Path.of(directory).resolve("shards.properties")));
+    }
+
+    private static void assertSameBuildings(List<Building> expected, List<Building> actual) {
+        assertEquals(expected.size(), actual.size());
+        Map<String, Building> byName = new HashMap<>();
+        for (Building building : actual) {
+            assertNull("Duplicate " + building.getName(), byName.put(building.getName(), building));
+        }
+        for (Building building : expected) {
+            assertSameBuilding(building, byName.get(building.getName()));
+        }
+    }
+
+    private static void assertSameBuilding(Building expected, Building actual) {
+        assertNotNull(expected.getName(), actual);
+        assertEquals(expected.getAddress(), actual.getAddress());
+        assertEquals(expected.getCurrentPrice(), actual.getCurrentPrice(), 0.0);
+        List<PriceHistory> expectedHistory = expected.getPriceHistoryList();
+        List<PriceHistory> actualHistory = actual.getPriceHistoryList();
+        assertEquals(expectedHistory.size(), actualHistory.size());
+        for (int i = 0; i < expectedHistory.size(); i++) {
+            assertEquals(expectedHistory.get(i).getPrice(), actualHistory.get(i).getPrice(), 0.0);
+            assertEquals(expectedHistory.get(i).getTimestamp(), actualHistory.get(i).getTimestamp());
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.buildingtracker.storage;
+
+import com.buildingtracker.model.Building;
+import com.buildingtracker.model.BuildingSnapshot;
+import com.buildingtracker.model.PriceHistory;
+import com.buildingtracker.model.PriceTrend;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class WriteAheadLogBuildingStorageTest {
+    private static final long SEGMENT_BYTES = 1024 * 1024;
+    private static final long COMPACTION_BYTES = 64 * 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void appendedTicksSurviveReplay() throws IOException {
+        String directory = folder.newFolder().getPath();
+        Building building = new Building("Tower", "1 Main St", 100.0);
+        try (WriteAheadLogBuildingStorage storage = open(directory)) {
+            storage.saveBuilding(building);
+            for (int i = 1; i <= 5; i++) {
+                building.updatePrice(100.0 + i, 1000L * i);
+                storage.saveBuilding(building);
+            }
+        }
+
+        try (WriteAheadLogBuildingStorage storage = open(directory)) {
+            assertSameHistory(building, storage.loadBuilding("Tower"));
+        }
+    }
+
+    @Test
+    public void inPlaceEditOfHistoryEntrySurvivesReplay() throws IOException {
+        String directory = folder.newFolder().getPath();
+        Building building = new Building("Tower", "1 Main St", 100.0);
+        try (WriteAheadLogBuildingStorage storage = open(directory)) {
+            for (int i = 1; i <= 3; i++) {
+                building.updatePrice(100.0 + i, 1000L * i);
+            }
+            storage.saveBuilding(building);
+
+            building.getPriceHistoryList().set(1, new PriceHistory(250.0, 2000L, 5.0));
+            storage.saveBuilding(building);
+        }
+
+        try (WriteAheadLogBuildingStorage storage = open(directory)) {
+            Building recovered = storage.loadBuilding("Tower");
+            assertSameHistory(building, recovered);
+            assertEquals(250.0, recovered.getPriceHistoryList().get(1).getPrice(), 0.0);
+        }
+    }
+
+    @Test
+    public void sameLengthHistoryReplacementSurvivesReplay() throws IOException {
+        String directory = folder.newFolder().getPath();
+        Building building = new Building("Tower", "1 Main St", 100.0);
+        try (WriteAheadLogBuildingStorage storage = open(directory)) {
+            building.updatePrice(110.0, 1000L);
+            building.updatePrice(120.0, 2000L);
+            storage.saveBuilding(building);
+
+            List<PriceHistory> replacement = new ArrayList<>();
+            replacement.add(new PriceHistory(90.0, 1500L, -10.0));
+            replacement.add(new PriceHistory(80.0, 2500L, -11.1));
+            building.setPriceHistoryList(replacement);
+            storage.saveBuilding(building);
+        }
+
+        try (WriteAheadLogBuildingStorage storage = open(directory)) {
+            Building recovered = storage.loadBuilding("Tower");
+            assertSameHistory(building, recovered);
+            assertEquals(building.getCurrentPrice(), recovered.getCurrentPrice(), 0.0);
+        }
+    }
+
+    @Test
+    public void tornTailIsReportedToListener() throws IOException {
+        String directory = folder.newFolder().getPath();
+        try (WriteAheadLogBuildingStorage storage = open(directory)) {
+            Building building = new Building("Tower", "1 Main St", 100.0);
+            building.updatePrice(101.0, 1000L);
+            storage.saveBuilding(building);
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(Path.of(directory))) {
+            segment = files.filter(path -> path.getFileName().toString().endsWith(".log"))
+                    .collect(Collectors.toList()).get(0);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        List<String> warnings = new ArrayList<>();
+        try (WriteAheadLogBuildingStorage storage = new WriteAheadLogBuildingStorage(directory, SEGMENT_BYTES,
+                COMPACTION_BYTES, 0, (message, cause) -> warnings.add(message))) {
+            assertNotNull(storage.loadBuilding("Tower"));
+        }
+        assertEquals(1, warnings.size());
+        assertTrue(warnings.get(0).startsWith("Truncating torn write-ahead log tail"));
+    }
+
+    @Test
+    public void tickPublishedDuringCompactionIsLoggedByNextSave() throws IOException {
+        String directory = folder.newFolder().getPath();
+        TickDuringSnapshotBuilding building = new TickDuringSnapshotBuilding();
+        try (WriteAheadLogBuildingStorage storage = open(directory)) {
+            for (int i = 1; i <= 3; i++) {
+                building.updatePrice(100.0 + i, 1000L * i);
+            }
+            storage.saveBuilding(building);
+
+            // The service records ticks under its own lock, so one can land while the snapshot is written
+            building.tickOnNextSnapshot = true;
+            storage.compact();
+            assertEquals(4, building.getPriceHistoryList().size());
+            storage.saveBuilding(building);
+
+            building.updatePrice(90.0, 5000L);
+            storage.saveBuilding(building);
+        }
+
+        try (WriteAheadLogBuildingStorage storage = open(directory)) {
+            Building recovered = storage.loadBuilding("Tower");
+            assertSameHistory(building, recovered);
+            assertEquals(90.0, recovered.getCurrentPrice(), 0.0);
+            building.updateTrend();
+            PriceTrend expected = building.getRecentTrend();
+            PriceTrend actual = recovered.getRecentTrend();
+            assertEquals(expected.getTrendDirection(), actual.getTrendDirection());
+            assertEquals(expected.getAverageChange(), actual.getAverageChange(), 0.0);
+            assertEquals(expected.getVolatility(), actual.getVolatility(), 0.0);
+        }
+    }
+
+    private static WriteAheadLogBuildingStorage open(String directory) {
+        return new WriteAheadLogBuildingStorage(directory, SEGMENT_BYTES, COMPACTION_BYTES, 0,
+                StorageEventListener.NONE);
+    }
+
+    private static void assertSameHistory(Building expected, Building actual) {
+        assertNotNull(actual);
+        List<PriceHistory> expectedHistory = expected.getPriceHistoryList();
+        List<PriceHistory> actualHistory = actual.getPriceHistoryList();
+        assertEquals(expectedHistory.size(), actualHistory.size());
+        for (int i = 0; i < expectedHistory.size(); i++) {
+            assertEquals(expectedHistory.get(i).getPrice(), actualHistory.get(i).getPrice(), 0.0);
+            assertEquals(expectedHistory.get(i).getTimestamp(), actualHistory.get(i).getTimestamp());
+            assertEquals(expectedHistory.get(i).getChangePercentage(), actualHistory.get(i).getChangePercentage(),
+                    0.0);
+        }
+    }
+
+    /**
+     * Records a tick right after handing out a snapshot, once armed.
+     */
+    private static final class TickDuringSnapshotBuilding extends Building {
+        private boolean tickOnNextSnapshot;
+
+        private TickDuringSnapshotBuilding() {
+            super("Tower", "1 Main St", 100.0);
+        }
+
+        @Override
+        public BuildingSnapshot snapshot() {
+            BuildingSnapshot view = super.snapshot();
+            if (tickOnNextSnapshot) {
+                tickOnNextSnapshot = false;
+                updatePrice(120.0, 4000L);
+            }
+            return view;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.buildingtracker.storage;
+
+import com.buildingtracker.model.Building;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WriteBehindBuildingStorageTest {
+
+    @Test(timeout = 10_000)
+    public void backgroundFailureFailsLaterWritesUntilFlushSucceeds() throws InterruptedException {
+        FailingStorage delegate = new FailingStorage();
+        delegate.failure = new IllegalStateException("disk full");
+        WriteBehindBuildingStorage storage = new WriteBehindBuildingStorage(delegate, 100, 1, 10);
+        try {
+            storage.saveBuilding(new Building("A", null));
+            awaitFailedBatch(storage);
+
+            try {
+                storage.saveBuilding(new Building("B", null));
+                fail("Write accepted after a background failure");
+            } catch (IllegalStateException e) {
+                assertSame(delegate.failure, e.getCause());
+            }
+            try {
+                storage.flush();
+                fail("Flush succeeded while the delegate fails");
+            } catch (IllegalStateException e) {
+                assertSame(delegate.failure, e);
+            }
+
+            delegate.failure = null;
+            storage.flush();
+            assertNotNull(delegate.loadBuilding("A"));
+            storage.saveBuilding(new Building("B", null));
+            storage.flush();
+            assertNotNull(delegate.loadBuilding("B"));
+        } finally {
+            delegate.failure = null;
+            storage.close();
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void writerBlockedOnFullQueueFailsWhenBackgroundWriteFails() throws InterruptedException {
+        FailingStorage delegate = new FailingStorage();
+        delegate.blocked = new CountDownLatch(1);
+        delegate.failure = new IllegalStateException("unreachable");
+        WriteBehindBuildingStorage storage = new WriteBehindBuildingStorage(delegate, 1, 1, 10, 60_000);
+        try {
+            storage.saveBuilding(new Building("A", null));
+            delegate.entered.await();
+            // "A" is in flight, so the queue takes one more building and then is full
+            storage.saveBuilding(new Building("B", null));
+
+            AtomicReference<Throwable> thrown = new AtomicReference<>();
+            Thread writer = new Thread(() -> {
+                try {
+                    storage.saveBuilding(new Building("C", null));
+                } catch (RuntimeException e) {
+                    thrown.set(e);
+                }
+            });
+            writer.start();
+            delegate.blocked.countDown();
+            writer.join();
+            assertTrue(thrown.get() instanceof IllegalStateException);
+            assertSame(delegate.failure, thrown.get().getCause());
+        } finally {
+            delegate.blocked.countDown();
+            delegate.failure = null;
+            storage.close();
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void blockedWriterTimesOutAndCanBeInterrupted() throws InterruptedException {
+        FailingStorage delegate = new FailingStorage();
+        delegate.blocked = new CountDownLatch(1);
+        WriteBehindBuildingStorage storage = new WriteBehindBuildingStorage(delegate, 1, 1, 10, 200);
+        try {
+            storage.saveBuilding(new Building("A", null));
+            delegate.entered.await();
+            storage.saveBuilding(new Building("B", null));
+
+            long start = System.nanoTime();
+            try {
+                storage.saveBuilding(new Building("C", null));
+                fail("Write accepted into a full queue");
+            } catch (IllegalStateException e) {
+                assertTrue(e.getMessage().startsWith("Write-behind queue still full"));
+            }
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+
+            AtomicReference<Throwable> thrown = new AtomicReference<>();
+            Thread writer = new Thread(() -> {
+                Thread.currentThread().interrupt();
+                try {
+                    storage.saveBuilding(new Building("D", null));
+                } catch (RuntimeException e) {
+                    thrown.set(e);
+                }
+            });
+            writer.start();
+            writer.join();
+            assertTrue(thrown.get().getCause() instanceof InterruptedException);
+        } finally {
+            delegate.blocked.countDown();
+            storage.close();
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void closeClosesDelegateWhenFinalFlushFails() {
+        FailingStorage delegate = new FailingStorage();
+        WriteBehindBuildingStorage storage = new WriteBehindBuildingStorage(delegate, 100, 100, 60_000);
+        storage.saveBuilding(new Building("A", null));
+        delegate.failure = new IllegalStateException("disk full");
+        try {
+            storage.close();
+            fail("Close hid the failed flush");
+        } catch (IllegalStateException e) {
+            assertSame(delegate.failure, e);
+        }
+        assertEquals(1, delegate.closeCount);
+    }
+
+    private static void awaitFailedBatch(WriteBehindBuildingStorage storage) throws InterruptedException {
+        while (storage.getFailedBatchCount() == 0) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * In-memory storage whose batch writes can be made to fail or to block until released.
+     */
+    private static final class FailingStorage extends InMemoryBuildingStorage {
+        private volatile RuntimeException failure;
+        private volatile CountDownLatch blocked;
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private int closeCount;
+
+        @Override
+        public void saveBuildingBatch(Collection<Building> batch) {
+            entered.countDown();
+            CountDownLatch latch = blocked;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            RuntimeException current = failure;
+            if (current != null) {
+                throw current;
+            }
+            super.saveBuildingBatch(batch);
+        }
+
+        @Override
+        public void close() {
+            closeCount++;
+        }
+    }
+}